@@ -1,5 +1,7 @@
 package net.boomerangplatform.client;
 
+import java.util.Collection;
+import java.util.List;
 import net.boomerangplatform.client.model.UserProfile;
 
 public interface BoomerangUserService {
@@ -8,4 +10,6 @@ public interface BoomerangUserService {
 
   public UserProfile getUserProfileById(String id);
 
+  public List<UserProfile> getUserProfilesByIds(Collection<String> ids);
+
 }
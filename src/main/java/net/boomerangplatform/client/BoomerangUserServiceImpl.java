@@ -1,5 +1,12 @@
 package net.boomerangplatform.client;
 
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
@@ -9,6 +16,8 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+import com.google.common.collect.Lists;
 import net.boomerangplatform.client.model.UserProfile;
 import net.boomerangplatform.security.service.ApiTokenService;
 
@@ -21,6 +30,9 @@ public class BoomerangUserServiceImpl implements BoomerangUserService {
   @Value("${users.profile.url}")
   private String userProfileById;
 
+  @Value("${users.profiles.url}")
+  private String userProfilesByIds;
+
   @Autowired
   @Qualifier("internalRestTemplate")
   private RestTemplate restTemplate;
@@ -30,6 +42,7 @@ public class BoomerangUserServiceImpl implements BoomerangUserService {
 
   private static final String AUTHORIZATION_HEADER = "Authorization";
   private static final String TOKEN_PREFIX = "Bearer ";
+  private static final int PROFILE_BATCH_SIZE = 100;
 
   @Override
   public UserProfile getInternalUserProfile() {
@@ -56,4 +69,26 @@ public class BoomerangUserServiceImpl implements BoomerangUserService {
     return response.getBody();
   }
 
+  @Override
+  public List<UserProfile> getUserProfilesByIds(Collection<String> ids) {
+    List<String> distinctIds =
+        ids.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.add(AUTHORIZATION_HEADER, TOKEN_PREFIX + apiTokenService.getUserToken());
+    HttpEntity<String> request = new HttpEntity<>("", headers);
+
+    List<UserProfile> profiles = new ArrayList<>();
+    for (List<String> batch : Lists.partition(distinctIds, PROFILE_BATCH_SIZE)) {
+      URI uri = UriComponentsBuilder.fromHttpUrl(userProfilesByIds)
+          .queryParam("ids", String.join(",", batch)).build().toUri();
+      ResponseEntity<UserProfile[]> response =
+          restTemplate.exchange(uri, HttpMethod.GET, request, UserProfile[].class);
+      if (response.getBody() != null) {
+        profiles.addAll(Arrays.asList(response.getBody()));
+      }
+    }
+    return profiles;
+  }
+
 }
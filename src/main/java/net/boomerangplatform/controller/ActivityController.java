@@ -1,26 +1,33 @@
 package net.boomerangplatform.controller;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import javax.servlet.http.HttpServletResponse;
-import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Direction;
 import org.springframework.data.domain.Sort.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import net.boomerangplatform.controller.advice.SparseFieldsets;
 import net.boomerangplatform.model.FlowActivity;
 import net.boomerangplatform.model.InsightsSummary;
 import net.boomerangplatform.model.ListActivityResponse;
@@ -31,7 +38,12 @@ import net.boomerangplatform.mongo.entity.FlowWorkflowActivityEntity;
 import net.boomerangplatform.mongo.service.FlowTeamService;
 import net.boomerangplatform.mongo.service.FlowWorkflowService;
 import net.boomerangplatform.service.UserIdentityService;
+import net.boomerangplatform.service.crud.ActivityExportService;
+import net.boomerangplatform.service.crud.ActivityRollupService;
 import net.boomerangplatform.service.crud.FlowActivityService;
+import net.boomerangplatform.service.stream.ActivityStreamService;
+import net.boomerangplatform.util.FieldSelection;
+import net.boomerangplatform.util.LogRange;
 
 @RestController
 @RequestMapping("/flow/")
@@ -49,16 +61,32 @@ public class ActivityController {
   @Autowired
   private FlowTeamService flowTeamService;
 
+  @Autowired
+  private ActivityRollupService activityRollupService;
+
+  @Autowired
+  private ActivityExportService activityExportService;
+
+  @Autowired
+  private ActivityStreamService activityStreamService;
+
   private static final String CREATIONDATESORT = "creationDate";
 
+  private static final int MAX_EXPORT_BATCH_SIZE = 10000;
+
+  private static final int MAX_LOG_TAIL_LINES = 10000;
+
+  private static final String LAST_EVENT_ID = "Last-Event-ID";
+
   @GetMapping(value = "/activity")
+  @SparseFieldsets(root = "records")
   public ListActivityResponse getFlowActivities(
       @RequestParam(defaultValue = "ASC") Optional<Direction> order,
       @RequestParam Optional<String> sort, @RequestParam Optional<List<String>> workflowIds,
       @RequestParam Optional<List<String>> teamIds, @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "2147483647") int size, @RequestParam Optional<Long> fromDate,
       @RequestParam Optional<Long> toDate, @RequestParam Optional<List<String>> statuses,
-      @RequestParam Optional<List<String>> triggers) {
+      @RequestParam Optional<List<String>> triggers, @RequestParam Optional<List<String>> fields) {
 
     Optional<Date> from = Optional.empty();
     Optional<Date> to = Optional.empty();
@@ -87,10 +115,78 @@ public class ActivityController {
       return null;
     } else {
       return flowActivityService.getAllActivites(from, to, pageable, workflowIds, teamIds, statuses,
-          triggers);
+          triggers, FieldSelection.of(fields));
     }
   }
 
+  @GetMapping(value = "/activity/export")
+  public ResponseEntity<StreamingResponseBody> exportFlowActivities(
+      @RequestParam(defaultValue = "ASC") Optional<Direction> order,
+      @RequestParam Optional<String> sort, @RequestParam Optional<List<String>> workflowIds,
+      @RequestParam Optional<List<String>> teamIds, @RequestParam Optional<Long> fromDate,
+      @RequestParam Optional<Long> toDate, @RequestParam Optional<List<String>> statuses,
+      @RequestParam Optional<List<String>> triggers,
+      @RequestParam(defaultValue = ActivityExportService.FORMAT_NDJSON) String format,
+      @RequestParam(defaultValue = "false") boolean includeTasks,
+      @RequestParam(defaultValue = "500") int batchSize) {
+
+    if (!ActivityExportService.FORMAT_NDJSON.equals(format)
+        && !ActivityExportService.FORMAT_CSV.equals(format)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported format: " + format);
+    }
+    if (batchSize < 1 || batchSize > MAX_EXPORT_BATCH_SIZE) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "batchSize must be between 1 and " + MAX_EXPORT_BATCH_SIZE);
+    }
+
+    Optional<Date> from = fromDate.map(date -> new Date(date * 1000));
+    Optional<Date> to = toDate.map(date -> new Date(date * 1000));
+
+    Sort exportSort = Sort.by(new Order(Direction.DESC, CREATIONDATESORT));
+    if (sort.isPresent()) {
+      exportSort = Sort.by(new Order(order.orElse(Direction.ASC), sort.get()));
+    }
+
+    final boolean csv = ActivityExportService.FORMAT_CSV.equals(format);
+    final StreamingResponseBody body = activityExportService.exportActivities(from, to,
+        exportSort, workflowIds, teamIds, statuses, triggers, format, includeTasks, batchSize);
+
+    return ResponseEntity.ok()
+        .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+            : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8))
+        .header(HttpHeaders.CONTENT_DISPOSITION,
+            "attachment; filename=\"activity." + format + "\"")
+        .body(body);
+  }
+
+  /**
+   * Streams a team's activity as server-sent events. Event ids are per replica, so Last-Event-ID
+   * only resumes on the replica that sent it; elsewhere the client gets a reset event. Without
+   * flow.activity.stream.change-stream only writes made on this replica are streamed, so more than
+   * one replica needs the change stream, plus sticky routing for gap free resumes.
+   */
+  @GetMapping(value = "/activity/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamTeamActivities(@RequestParam String teamId,
+      @RequestHeader(value = LAST_EVENT_ID, required = false) String lastEventId) {
+    return activityStreamService.subscribeToTeam(teamId, parseEventId(lastEventId));
+  }
+
+  /**
+   * Streams one activity as server-sent events, starting with a snapshot unless Last-Event-ID
+   * resumes on the same replica. The same replica limits apply as for the team stream.
+   */
+  @GetMapping(value = "/activity/{activityId}/stream",
+      produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamFlowActivity(@PathVariable String activityId,
+      @RequestHeader(value = LAST_EVENT_ID, required = false) String lastEventId) {
+    final SseEmitter emitter =
+        activityStreamService.subscribeToActivity(activityId, parseEventId(lastEventId));
+    if (emitter == null) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+    }
+    return emitter;
+  }
+
   @GetMapping(value = "/activity/{activityId}")
   public FlowActivity getFlowActivity(@PathVariable String activityId) {
     final FlowWorkflowActivityEntity activity =
@@ -130,8 +226,15 @@ public class ActivityController {
       @RequestParam(required = false) List<String> triggers,
       @RequestParam(required = false) Long fromDate, @RequestParam(required = false) Long toDate) {
 
-    return flowActivityService.getActivitySummary(getPageable(page, size, sort), teamIds, triggers,
-        fromDate, toDate);
+    return flowActivityService.getActivitySummary(teamIds, triggers, fromDate, toDate);
+  }
+
+  @PostMapping(value = "/activity/rollups/rebuild")
+  public ResponseEntity<Void> rebuildActivityRollups() {
+    if (!activityRollupService.startRebuild()) {
+      return new ResponseEntity<>(HttpStatus.CONFLICT);
+    }
+    return new ResponseEntity<>(HttpStatus.ACCEPTED);
   }
 
   @GetMapping(value = "/insights")
@@ -169,19 +272,38 @@ public class ActivityController {
   @GetMapping(value = "/activity/{activityId}/log/{taskId}")
   @ResponseBody
   public ResponseEntity<StreamingResponseBody> getTaskLog(HttpServletResponse response,
-      @PathVariable String activityId, @PathVariable String taskId) {
+      @PathVariable String activityId, @PathVariable String taskId,
+      @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+      @RequestParam Optional<Long> offset, @RequestParam Optional<Integer> tail) {
+    if (offset.isPresent() && tail.isPresent()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "offset and tail cannot be combined");
+    }
+    if (offset.isPresent() && offset.get() < 0) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "offset cannot be negative");
+    }
+    if (tail.isPresent() && (tail.get() < 1 || tail.get() > MAX_LOG_TAIL_LINES)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "tail must be between 1 and " + MAX_LOG_TAIL_LINES);
+    }
+
+    LogRange logRange = LogRange.fromHeader(range);
+    if (offset.isPresent()) {
+      logRange = LogRange.offset(offset.get());
+    } else if (tail.isPresent()) {
+      logRange = LogRange.tail(tail.get());
+    }
+
     response.setContentType("text/plain");
     response.setCharacterEncoding("UTF-8");
-    return new ResponseEntity<>(flowActivityService.getTaskLog(activityId, taskId), HttpStatus.OK);
+    return flowActivityService.getTaskLog(activityId, taskId, logRange);
   }
 
-  private Pageable getPageable(int page, int size, String sort) {
-    Sort pagingSort = Sort.by(new Order(Direction.DESC, CREATIONDATESORT));
-    if (StringUtils.isNotBlank(sort)) {
-      Direction direction = Direction.ASC;
-      pagingSort = Sort.by(new Order(direction, sort));
+  private Optional<Long> parseEventId(String lastEventId) {
+    if (lastEventId == null || !lastEventId.matches("\\d{1,18}")) {
+      return Optional.empty();
     }
-    return PageRequest.of(page, size, pagingSort);
+    return Optional.of(Long.valueOf(lastEventId));
   }
 
 }
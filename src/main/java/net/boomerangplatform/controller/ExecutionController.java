@@ -5,18 +5,26 @@ import java.util.Optional;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import net.boomerangplatform.model.BatchExecutionItem;
+import net.boomerangplatform.model.BatchExecutionResult;
 import net.boomerangplatform.model.FlowActivity;
 import net.boomerangplatform.model.FlowExecutionRequest;
 import net.boomerangplatform.mongo.entity.FlowTaskExecutionEntity;
+import net.boomerangplatform.mongo.entity.FlowUserEntity;
 import net.boomerangplatform.mongo.entity.FlowWorkflowActivityEntity;
 import net.boomerangplatform.mongo.entity.FlowWorkflowEntity;
 import net.boomerangplatform.mongo.entity.FlowWorkflowRevisionEntity;
@@ -24,13 +32,19 @@ import net.boomerangplatform.mongo.model.FlowTriggerEnum;
 import net.boomerangplatform.mongo.model.WorkflowStatus;
 import net.boomerangplatform.mongo.service.FlowWorkflowVersionService;
 import net.boomerangplatform.service.FlowExecutionService;
+import net.boomerangplatform.service.UserIdentityService;
+import net.boomerangplatform.service.crud.BatchExecutionService;
 import net.boomerangplatform.service.crud.FlowActivityService;
+import net.boomerangplatform.service.crud.IdempotencyService;
+import net.boomerangplatform.service.crud.TriggerRateLimitService;
 import net.boomerangplatform.service.crud.WorkflowService;
 
 @RestController
 @RequestMapping("/flow/")
 public class ExecutionController {
 
+  public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
   private static final Logger LOGGER = LogManager.getLogger("ExecutionController");
 
   @Autowired
@@ -45,12 +59,52 @@ public class ExecutionController {
   @Autowired
   private WorkflowService workflowService;
 
+  @Autowired
+  private IdempotencyService idempotencyService;
+
+  @Autowired
+  private TriggerRateLimitService rateLimitService;
+
+  @Autowired
+  private UserIdentityService userIdentityService;
+
+  @Autowired
+  private BatchExecutionService batchExecutionService;
+
+  @Value("${flow.execute.batch.max-size:500}")
+  private int batchMaxSize;
+
+  public FlowActivity executeWorkflow(String workflowId, Optional<FlowTriggerEnum> trigger,
+      Optional<FlowExecutionRequest> executionRequest) {
+    return execute(workflowService.getWorkflow(workflowId), trigger, null, executionRequest);
+  }
+
   @PostMapping(value = "/execute/{workflowId}")
   public FlowActivity executeWorkflow(@PathVariable String workflowId,
       @RequestParam Optional<FlowTriggerEnum> trigger,
+      @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
       @RequestBody Optional<FlowExecutionRequest> executionRequest) {
 
-    final FlowWorkflowEntity newEntity = workflowService.getWorkflow(workflowId);
+    final FlowWorkflowEntity workflow = workflowService.getWorkflow(workflowId);
+    if (workflow != null && workflow.getStatus() == WorkflowStatus.active) {
+      final FlowUserEntity user = userIdentityService.getCurrentUser();
+      rateLimitService.acquire(workflow, null, user == null ? null : user.getId());
+    }
+    return execute(workflow, trigger, idempotencyKey, executionRequest);
+  }
+
+  @PostMapping(value = "/execute/batch")
+  public List<BatchExecutionResult> executeWorkflows(
+      @RequestBody List<BatchExecutionItem> items) {
+    if (items.size() > batchMaxSize) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "A batch can hold at most " + batchMaxSize + " executions");
+    }
+    return batchExecutionService.executeWorkflows(items);
+  }
+
+  private FlowActivity execute(FlowWorkflowEntity newEntity, Optional<FlowTriggerEnum> trigger,
+      String idempotencyKey, Optional<FlowExecutionRequest> executionRequest) {
 
     if (newEntity != null && newEntity.getStatus() == WorkflowStatus.active) {
 
@@ -64,18 +118,29 @@ public class ExecutionController {
       }
 
       final FlowWorkflowRevisionEntity entity =
-          this.flowRevisionService.getLatestWorkflowVersion(workflowId);
+          this.flowRevisionService.getLatestWorkflowVersion(newEntity.getId());
       if (entity != null) {
-        final FlowWorkflowActivityEntity activity =
-            activityService.createFlowActivity(entity.getId(), trigger, request);
+        final String key = idempotencyService.getKey(newEntity, idempotencyKey, request);
+        final String activityId = new ObjectId().toHexString();
+        if (key != null) {
+          final Optional<FlowWorkflowActivityEntity> existing =
+              idempotencyService.reserveKey(newEntity, key, activityId);
+          if (existing.isPresent()) {
+            return toResponse(existing.get());
+          }
+        }
+
+        final FlowWorkflowActivityEntity activity;
+        try {
+          activity = activityService.createFlowActivity(activityId, entity, trigger, request);
+        } catch (RuntimeException e) {
+          if (key != null) {
+            idempotencyService.releaseKey(newEntity, key, activityId);
+          }
+          throw e;
+        }
         flowExecutionService.executeWorkflowVersion(entity.getId(), activity.getId());
-        final List<FlowTaskExecutionEntity> steps =
-            activityService.getTaskExecutions(activity.getId());
-
-        final FlowActivity response = new FlowActivity(activity);
-        response.setSteps(steps);
-
-        return response;
+        return toResponse(activity);
       } else {
         LOGGER.error("No revision to execute");
       }
@@ -91,6 +156,16 @@ public class ExecutionController {
 
   }
 
+  private FlowActivity toResponse(FlowWorkflowActivityEntity activity) {
+    final List<FlowTaskExecutionEntity> steps =
+        activityService.getTaskExecutions(activity.getId());
+
+    final FlowActivity response = new FlowActivity(activity);
+    response.setSteps(steps);
+
+    return response;
+  }
+
   private void logPayload(FlowExecutionRequest request) {
     try {
       ObjectMapper objectMapper = new ObjectMapper();
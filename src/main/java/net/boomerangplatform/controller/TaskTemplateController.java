@@ -1,6 +1,7 @@
 package net.boomerangplatform.controller;
 
 import java.util.List;
+import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -9,10 +10,13 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import net.boomerangplatform.controller.advice.SparseFieldsets;
 import net.boomerangplatform.model.FlowTaskTemplate;
 import net.boomerangplatform.mongo.model.FlowTaskTemplateStatus;
 import net.boomerangplatform.service.crud.TaskTemplateService;
+import net.boomerangplatform.util.FieldSelection;
 
 @RestController
 @RequestMapping("/flow/tasktemplate")
@@ -27,8 +31,10 @@ public class TaskTemplateController {
   }
 
   @GetMapping(value = "")
-  public List<FlowTaskTemplate> getAllTaskTemplates() {
-    return taskTemplateService.getAllTaskTemplates();
+  @SparseFieldsets
+  public List<FlowTaskTemplate> getAllTaskTemplates(
+      @RequestParam Optional<List<String>> fields) {
+    return taskTemplateService.getAllTaskTemplates(FieldSelection.of(fields));
   }
 
   @PostMapping(value = "")
@@ -2,6 +2,7 @@ package net.boomerangplatform.controller;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -10,7 +11,9 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import net.boomerangplatform.controller.advice.SparseFieldsets;
 import net.boomerangplatform.model.CreateFlowTeam;
 import net.boomerangplatform.model.TeamWorkflowSummary;
 import net.boomerangplatform.mongo.entity.FlowTeamConfiguration;
@@ -18,6 +21,7 @@ import net.boomerangplatform.mongo.entity.FlowUserEntity;
 import net.boomerangplatform.mongo.model.UserType;
 import net.boomerangplatform.service.UserIdentityService;
 import net.boomerangplatform.service.crud.TeamService;
+import net.boomerangplatform.util.FieldSelection;
 
 @RestController
 @RequestMapping("/flow")
@@ -35,14 +39,15 @@ public class TeamController {
   }
 
   @GetMapping(value = "/teams")
-  public List<TeamWorkflowSummary> getTeams() {
+  @SparseFieldsets
+  public List<TeamWorkflowSummary> getTeams(@RequestParam Optional<List<String>> fields) {
     final FlowUserEntity user = userIdentityService.getCurrentUser();
     if (user == null) {
       return new LinkedList<>();
     } else if (user.getType() == UserType.admin) {
-      return flowTeamService.getAllTeams();
+      return flowTeamService.getAllTeams(FieldSelection.of(fields));
     } else {
-      return flowTeamService.getUserTeams(user);
+      return flowTeamService.getUserTeams(user, FieldSelection.of(fields));
     }
   }
 
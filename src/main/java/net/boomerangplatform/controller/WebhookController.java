@@ -0,0 +1,59 @@
+package net.boomerangplatform.controller;
+
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import com.fasterxml.jackson.databind.JsonNode;
+import net.boomerangplatform.model.FlowActivity;
+import net.boomerangplatform.service.crud.WebhookService;
+
+/**
+ * Starts workflows from webhooks. The token, given in the path or the header, is the only
+ * credential, so these endpoints are open to unauthenticated callers.
+ */
+@RestController
+@RequestMapping("/flow/webhook")
+public class WebhookController {
+
+  public static final String TOKEN_HEADER = "X-Flow-Webhook-Token";
+
+  private static final String RETRY_AFTER_SECONDS = "1";
+
+  @Autowired
+  private WebhookService webhookService;
+
+  @PostMapping(value = {"", "/{token}"})
+  public ResponseEntity<FlowActivity> triggerWebhook(@PathVariable Optional<String> token,
+      @RequestHeader(value = TOKEN_HEADER, required = false) String headerToken,
+      @RequestHeader(value = ExecutionController.IDEMPOTENCY_KEY_HEADER,
+          required = false) String idempotencyKey,
+      @RequestBody(required = false) JsonNode payload) {
+    final String resolved = token.orElse(headerToken);
+    if (StringUtils.isBlank(resolved)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A webhook token is required");
+    }
+
+    final FlowActivity activity;
+    try {
+      activity = webhookService.triggerWebhook(resolved, idempotencyKey, payload);
+    } catch (RejectedExecutionException e) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+          .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS).build();
+    }
+    if (activity == null) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+    }
+    return ResponseEntity.status(HttpStatus.ACCEPTED).body(activity);
+  }
+}
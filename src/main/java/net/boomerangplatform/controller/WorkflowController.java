@@ -1,5 +1,6 @@
 package net.boomerangplatform.controller;
 
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,6 +10,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Direction;
 import org.springframework.data.domain.Sort.Order;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -19,9 +21,13 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import net.boomerangplatform.controller.advice.SparseFieldsets;
 import net.boomerangplatform.model.FlowWorkflowRevision;
 import net.boomerangplatform.model.GenerateTokenResponse;
 import net.boomerangplatform.model.RevisionResponse;
+import net.boomerangplatform.model.ScheduleDistribution;
+import net.boomerangplatform.model.ScheduleForecast;
 import net.boomerangplatform.model.WorkflowExport;
 import net.boomerangplatform.model.WorkflowSummary;
 import net.boomerangplatform.mongo.model.FlowProperty;
@@ -33,6 +39,10 @@ import net.boomerangplatform.service.crud.WorkflowVersionService;
 @RequestMapping("/flow/workflow")
 public class WorkflowController {
 
+  private static final long DEFAULT_DISTRIBUTION_RANGE = 24L * 60 * 60 * 1000;
+
+  private static final long MAX_DISTRIBUTION_RANGE = 7 * DEFAULT_DISTRIBUTION_RANGE;
+
   @Autowired
   private WorkflowService workFlowService;
 
@@ -60,7 +70,29 @@ public class WorkflowController {
     return workflowVersionService.getWorkflowVersion(workFlowId, version);
   }
 
+  @GetMapping(value = "/schedules/distribution")
+  public ScheduleDistribution getScheduleDistribution(@RequestParam Optional<Long> fromDate,
+      @RequestParam Optional<Long> toDate, @RequestParam(defaultValue = "60") int bucketSize) {
+    Date from = fromDate.map(date -> new Date(date * 1000)).orElseGet(Date::new);
+    Date to = toDate.map(date -> new Date(date * 1000))
+        .orElseGet(() -> new Date(from.getTime() + DEFAULT_DISTRIBUTION_RANGE));
+    validateScheduleRange(from, to, bucketSize);
+    return workFlowService.getScheduleDistribution(from, to, bucketSize);
+  }
+
+  @GetMapping(value = "/schedules/forecast")
+  public ScheduleForecast getScheduleForecast(@RequestParam Optional<Long> fromDate,
+      @RequestParam Optional<Long> toDate, @RequestParam(defaultValue = "60") int bucketSize,
+      @RequestParam(defaultValue = "true") boolean weighted) {
+    Date from = fromDate.map(date -> new Date(date * 1000)).orElseGet(Date::new);
+    Date to = toDate.map(date -> new Date(date * 1000))
+        .orElseGet(() -> new Date(from.getTime() + DEFAULT_DISTRIBUTION_RANGE));
+    validateScheduleRange(from, to, bucketSize);
+    return workFlowService.getScheduleForecast(from, to, bucketSize, weighted);
+  }
+
   @GetMapping(value = "{id}/summary")
+  @SparseFieldsets
   public WorkflowSummary getWorkflowWithId(@PathVariable String id) {
     return workFlowService.getWorkflow(id);
   }
@@ -125,4 +157,13 @@ public class WorkflowController {
     workFlowService.importWorkflow(export, update, flowTeamId);
   }
 
+  private void validateScheduleRange(Date from, Date to, int bucketSize) {
+    if (!to.after(from) || to.getTime() - from.getTime() > MAX_DISTRIBUTION_RANGE) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "toDate must be after fromDate and at most 7 days later");
+    }
+    if (bucketSize < 1) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "bucketSize must be positive");
+    }
+  }
 }
@@ -0,0 +1,23 @@
+package net.boomerangplatform.controller.advice;
+
+import java.io.IOException;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import net.boomerangplatform.exceptions.RateLimitExceededException;
+
+/**
+ * Answers a trigger refused by a rate limit with 429 and a Retry-After header, keeping the usual
+ * error body.
+ */
+@ControllerAdvice
+public class RateLimitExceptionAdvice {
+
+  @ExceptionHandler(RateLimitExceededException.class)
+  public void handleRateLimitExceeded(RateLimitExceededException e, HttpServletResponse response)
+      throws IOException {
+    response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+    response.sendError(e.getStatus().value(), e.getReason());
+  }
+}
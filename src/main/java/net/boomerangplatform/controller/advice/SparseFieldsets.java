@@ -0,0 +1,18 @@
+package net.boomerangplatform.controller.advice;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a handler whose JSON response can be trimmed with the {@code fields} request parameter.
+ * When {@link #root()} is set the fields apply to the value of that property, e.g. the records of
+ * a paged response, and the rest of the envelope is left alone.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SparseFieldsets {
+
+  String root() default "";
+}
@@ -0,0 +1,61 @@
+package net.boomerangplatform.controller.advice;
+
+import java.util.Arrays;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import net.boomerangplatform.util.FieldSelection;
+
+@ControllerAdvice
+public class SparseFieldsetsResponseAdvice implements ResponseBodyAdvice<Object> {
+
+  private static final String FIELDS = "fields";
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Override
+  public boolean supports(MethodParameter returnType,
+      Class<? extends HttpMessageConverter<?>> converterType) {
+    return returnType.hasMethodAnnotation(SparseFieldsets.class)
+        && MappingJackson2HttpMessageConverter.class.isAssignableFrom(converterType);
+  }
+
+  @Override
+  public Object beforeBodyWrite(Object body, MethodParameter returnType,
+      MediaType selectedContentType, Class<? extends HttpMessageConverter<?>> selectedConverterType,
+      ServerHttpRequest request, ServerHttpResponse response) {
+    if (body == null || !(request instanceof ServletServerHttpRequest)) {
+      return body;
+    }
+
+    final String[] fields =
+        ((ServletServerHttpRequest) request).getServletRequest().getParameterValues(FIELDS);
+    final FieldSelection selection =
+        FieldSelection.of(Optional.ofNullable(fields).map(Arrays::asList));
+    if (selection.isAll()) {
+      return body;
+    }
+
+    final JsonNode tree = objectMapper.valueToTree(body);
+    final String root = returnType.getMethodAnnotation(SparseFieldsets.class).root();
+    if (root.isEmpty()) {
+      return selection.prune(tree);
+    }
+    if (tree.isObject() && tree.has(root)) {
+      ((ObjectNode) tree).set(root, selection.prune(tree.get(root)));
+    }
+    return tree;
+  }
+}
@@ -0,0 +1,15 @@
+package net.boomerangplatform.exceptions;
+
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Thrown instead of calling the controller while its circuit breaker is open or the endpoint has
+ * no free slot. Extends {@link RestClientException} so existing controller error handling applies.
+ */
+@SuppressWarnings("serial")
+public class ControllerUnavailableException extends RestClientException {
+
+  public ControllerUnavailableException(String message) {
+    super(message);
+  }
+}
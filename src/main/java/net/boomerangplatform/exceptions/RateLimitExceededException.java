@@ -0,0 +1,24 @@
+package net.boomerangplatform.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Thrown when a trigger goes over one of its rate limits. Answered with 429 and a Retry-After
+ * header giving the whole seconds until the limit lets the next call through, by
+ * {@link net.boomerangplatform.controller.advice.RateLimitExceptionAdvice}.
+ */
+@SuppressWarnings("serial")
+public class RateLimitExceededException extends ResponseStatusException {
+
+  private final long retryAfterSeconds;
+
+  public RateLimitExceededException(String reason, long retryAfterSeconds) {
+    super(HttpStatus.TOO_MANY_REQUESTS, reason);
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+
+  public long getRetryAfterSeconds() {
+    return retryAfterSeconds;
+  }
+}
@@ -0,0 +1,16 @@
+package net.boomerangplatform.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Thrown when a schedule fires more often in the requested range than can be expanded, rather
+ * than answering with counts that silently stop short. Answered with 400.
+ */
+@SuppressWarnings("serial")
+public class ScheduleRangeTooLargeException extends ResponseStatusException {
+
+  public ScheduleRangeTooLargeException(String reason) {
+    super(HttpStatus.BAD_REQUEST, reason);
+  }
+}
@@ -0,0 +1,24 @@
+package net.boomerangplatform.model;
+
+public class BatchExecutionItem extends FlowExecutionRequest {
+
+  private String workflowId;
+
+  private String idempotencyKey;
+
+  public String getWorkflowId() {
+    return workflowId;
+  }
+
+  public void setWorkflowId(String workflowId) {
+    this.workflowId = workflowId;
+  }
+
+  public String getIdempotencyKey() {
+    return idempotencyKey;
+  }
+
+  public void setIdempotencyKey(String idempotencyKey) {
+    this.idempotencyKey = idempotencyKey;
+  }
+}
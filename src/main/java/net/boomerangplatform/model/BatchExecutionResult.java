@@ -0,0 +1,60 @@
+package net.boomerangplatform.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+@JsonInclude(Include.NON_NULL)
+public class BatchExecutionResult {
+
+  public enum Status {
+    queued, duplicate, notFound, notActive, noRevision, rateLimited, failed
+  }
+
+  private String workflowId;
+
+  private String activityId;
+
+  private Status status;
+
+  private String message;
+
+  public BatchExecutionResult() {
+
+  }
+
+  public BatchExecutionResult(String workflowId) {
+    this.workflowId = workflowId;
+  }
+
+  public String getWorkflowId() {
+    return workflowId;
+  }
+
+  public void setWorkflowId(String workflowId) {
+    this.workflowId = workflowId;
+  }
+
+  public String getActivityId() {
+    return activityId;
+  }
+
+  public void setActivityId(String activityId) {
+    this.activityId = activityId;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public void setStatus(Status status) {
+    this.status = status;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public void setMessage(String message) {
+    this.message = message;
+  }
+}
@@ -0,0 +1,55 @@
+package net.boomerangplatform.model;
+
+import net.boomerangplatform.util.DurationSketch;
+
+public class DurationPercentiles {
+
+  private Long count;
+  private Long p50;
+  private Long p90;
+  private Long p99;
+
+  public DurationPercentiles() {
+
+  }
+
+  public DurationPercentiles(DurationSketch sketch) {
+    this.count = sketch.getCount();
+    this.p50 = sketch.getQuantile(0.5);
+    this.p90 = sketch.getQuantile(0.9);
+    this.p99 = sketch.getQuantile(0.99);
+  }
+
+  public Long getCount() {
+    return count;
+  }
+
+  public void setCount(Long count) {
+    this.count = count;
+  }
+
+  public Long getP50() {
+    return p50;
+  }
+
+  public void setP50(Long p50) {
+    this.p50 = p50;
+  }
+
+  public Long getP90() {
+    return p90;
+  }
+
+  public void setP90(Long p90) {
+    this.p90 = p90;
+  }
+
+  public Long getP99() {
+    return p99;
+  }
+
+  public void setP99(Long p99) {
+    this.p99 = p99;
+  }
+
+}
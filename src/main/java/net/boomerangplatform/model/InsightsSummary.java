@@ -1,12 +1,16 @@
 package net.boomerangplatform.model;
 
 import java.util.List;
+import java.util.Map;
 
 public class InsightsSummary {
 
   private Integer totalActivitiesExecuted;
   private Long medianExecutionTime;
   private List<Execution> executions;
+  private DurationPercentiles executionTime;
+  private Map<String, DurationPercentiles> workflowExecutionTimes;
+  private Map<String, DurationPercentiles> teamExecutionTimes;
 
   public Integer getTotalActivitiesExecuted() {
     return totalActivitiesExecuted;
@@ -32,4 +36,28 @@ public class InsightsSummary {
     this.executions = executions;
   }
 
+  public DurationPercentiles getExecutionTime() {
+    return executionTime;
+  }
+
+  public void setExecutionTime(DurationPercentiles executionTime) {
+    this.executionTime = executionTime;
+  }
+
+  public Map<String, DurationPercentiles> getWorkflowExecutionTimes() {
+    return workflowExecutionTimes;
+  }
+
+  public void setWorkflowExecutionTimes(Map<String, DurationPercentiles> workflowExecutionTimes) {
+    this.workflowExecutionTimes = workflowExecutionTimes;
+  }
+
+  public Map<String, DurationPercentiles> getTeamExecutionTimes() {
+    return teamExecutionTimes;
+  }
+
+  public void setTeamExecutionTimes(Map<String, DurationPercentiles> teamExecutionTimes) {
+    this.teamExecutionTimes = teamExecutionTimes;
+  }
+
 }
@@ -0,0 +1,102 @@
+package net.boomerangplatform.model;
+
+import java.util.Date;
+import java.util.List;
+
+public class ScheduleDistribution {
+
+  private Date from;
+  private Date to;
+  private Integer bucketSize;
+  private Long totalFires;
+  private Integer peakFires;
+  private Date peakTime;
+  private List<FireBucket> buckets;
+
+  public Date getFrom() {
+    return from;
+  }
+
+  public void setFrom(Date from) {
+    this.from = from;
+  }
+
+  public Date getTo() {
+    return to;
+  }
+
+  public void setTo(Date to) {
+    this.to = to;
+  }
+
+  public Integer getBucketSize() {
+    return bucketSize;
+  }
+
+  public void setBucketSize(Integer bucketSize) {
+    this.bucketSize = bucketSize;
+  }
+
+  public Long getTotalFires() {
+    return totalFires;
+  }
+
+  public void setTotalFires(Long totalFires) {
+    this.totalFires = totalFires;
+  }
+
+  public Integer getPeakFires() {
+    return peakFires;
+  }
+
+  public void setPeakFires(Integer peakFires) {
+    this.peakFires = peakFires;
+  }
+
+  public Date getPeakTime() {
+    return peakTime;
+  }
+
+  public void setPeakTime(Date peakTime) {
+    this.peakTime = peakTime;
+  }
+
+  public List<FireBucket> getBuckets() {
+    return buckets;
+  }
+
+  public void setBuckets(List<FireBucket> buckets) {
+    this.buckets = buckets;
+  }
+
+  public static class FireBucket {
+
+    private Date start;
+    private Integer fires;
+
+    public FireBucket() {
+
+    }
+
+    public FireBucket(Date start, Integer fires) {
+      this.start = start;
+      this.fires = fires;
+    }
+
+    public Date getStart() {
+      return start;
+    }
+
+    public void setStart(Date start) {
+      this.start = start;
+    }
+
+    public Integer getFires() {
+      return fires;
+    }
+
+    public void setFires(Integer fires) {
+      this.fires = fires;
+    }
+  }
+}
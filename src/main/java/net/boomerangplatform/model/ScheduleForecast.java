@@ -0,0 +1,160 @@
+package net.boomerangplatform.model;
+
+import java.util.Date;
+import java.util.List;
+
+public class ScheduleForecast {
+
+  private Date from;
+  private Date to;
+  private Integer bucketSize;
+  private Boolean weighted;
+  private Long totalStarts;
+  private Long totalTasks;
+  private Integer peakStarts;
+  private Date peakStartsTime;
+  private Integer peakRunning;
+  private Date peakRunningTime;
+  private List<ForecastBucket> buckets;
+
+  public Date getFrom() {
+    return from;
+  }
+
+  public void setFrom(Date from) {
+    this.from = from;
+  }
+
+  public Date getTo() {
+    return to;
+  }
+
+  public void setTo(Date to) {
+    this.to = to;
+  }
+
+  public Integer getBucketSize() {
+    return bucketSize;
+  }
+
+  public void setBucketSize(Integer bucketSize) {
+    this.bucketSize = bucketSize;
+  }
+
+  public Boolean getWeighted() {
+    return weighted;
+  }
+
+  public void setWeighted(Boolean weighted) {
+    this.weighted = weighted;
+  }
+
+  public Long getTotalStarts() {
+    return totalStarts;
+  }
+
+  public void setTotalStarts(Long totalStarts) {
+    this.totalStarts = totalStarts;
+  }
+
+  public Long getTotalTasks() {
+    return totalTasks;
+  }
+
+  public void setTotalTasks(Long totalTasks) {
+    this.totalTasks = totalTasks;
+  }
+
+  public Integer getPeakStarts() {
+    return peakStarts;
+  }
+
+  public void setPeakStarts(Integer peakStarts) {
+    this.peakStarts = peakStarts;
+  }
+
+  public Date getPeakStartsTime() {
+    return peakStartsTime;
+  }
+
+  public void setPeakStartsTime(Date peakStartsTime) {
+    this.peakStartsTime = peakStartsTime;
+  }
+
+  public Integer getPeakRunning() {
+    return peakRunning;
+  }
+
+  public void setPeakRunning(Integer peakRunning) {
+    this.peakRunning = peakRunning;
+  }
+
+  public Date getPeakRunningTime() {
+    return peakRunningTime;
+  }
+
+  public void setPeakRunningTime(Date peakRunningTime) {
+    this.peakRunningTime = peakRunningTime;
+  }
+
+  public List<ForecastBucket> getBuckets() {
+    return buckets;
+  }
+
+  public void setBuckets(List<ForecastBucket> buckets) {
+    this.buckets = buckets;
+  }
+
+  /**
+   * Expected load in one bucket: the activities starting in it and, when weighted, the tasks they
+   * run and the scheduled activities still in progress during it.
+   */
+  public static class ForecastBucket {
+
+    private Date start;
+    private Integer starts;
+    private Long tasks;
+    private Integer running;
+
+    public ForecastBucket() {
+
+    }
+
+    public ForecastBucket(Date start, Integer starts) {
+      this.start = start;
+      this.starts = starts;
+    }
+
+    public Date getStart() {
+      return start;
+    }
+
+    public void setStart(Date start) {
+      this.start = start;
+    }
+
+    public Integer getStarts() {
+      return starts;
+    }
+
+    public void setStarts(Integer starts) {
+      this.starts = starts;
+    }
+
+    public Long getTasks() {
+      return tasks;
+    }
+
+    public void setTasks(Long tasks) {
+      this.tasks = tasks;
+    }
+
+    public Integer getRunning() {
+      return running;
+    }
+
+    public void setRunning(Integer running) {
+      this.running = running;
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package net.boomerangplatform.mongo.entity;
+
+import java.util.Date;
+import java.util.Map;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import net.boomerangplatform.mongo.model.FlowTriggerEnum;
+import net.boomerangplatform.mongo.model.RollupGranularity;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(Include.NON_NULL)
+@Document(collection = "flow_workflows_activity_rollup")
+@CompoundIndexes({
+    @CompoundIndex(name = "generation_granularity_bucket_team",
+        def = "{'generation': 1, 'granularity': 1, 'bucketStart': 1, 'teamId': 1}"),
+    @CompoundIndex(name = "generation_granularity_bucket_workflow",
+        def = "{'generation': 1, 'granularity': 1, 'bucketStart': 1, 'workflowId': 1}")})
+public class FlowActivityRollupEntity {
+
+  @Id
+  private String id;
+
+  private Long generation;
+
+  private RollupGranularity granularity;
+
+  private Date bucketStart;
+
+  private String workflowId;
+
+  private String teamId;
+
+  private FlowTriggerEnum trigger;
+
+  private Map<String, Long> statusCounts;
+
+  private Long durationSum;
+
+  private Long durationCount;
+
+  private Long durationZeroCount;
+
+  private Map<String, Long> durationBins;
+
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public RollupGranularity getGranularity() {
+    return granularity;
+  }
+
+  public void setGranularity(RollupGranularity granularity) {
+    this.granularity = granularity;
+  }
+
+  public Date getBucketStart() {
+    return bucketStart;
+  }
+
+  public void setBucketStart(Date bucketStart) {
+    this.bucketStart = bucketStart;
+  }
+
+  public String getWorkflowId() {
+    return workflowId;
+  }
+
+  public void setWorkflowId(String workflowId) {
+    this.workflowId = workflowId;
+  }
+
+  public String getTeamId() {
+    return teamId;
+  }
+
+  public void setTeamId(String teamId) {
+    this.teamId = teamId;
+  }
+
+  public FlowTriggerEnum getTrigger() {
+    return trigger;
+  }
+
+  public void setTrigger(FlowTriggerEnum trigger) {
+    this.trigger = trigger;
+  }
+
+  public Map<String, Long> getStatusCounts() {
+    return statusCounts;
+  }
+
+  public void setStatusCounts(Map<String, Long> statusCounts) {
+    this.statusCounts = statusCounts;
+  }
+
+  public Long getDurationSum() {
+    return durationSum;
+  }
+
+  public void setDurationSum(Long durationSum) {
+    this.durationSum = durationSum;
+  }
+
+  public Long getDurationCount() {
+    return durationCount;
+  }
+
+  public void setDurationCount(Long durationCount) {
+    this.durationCount = durationCount;
+  }
+
+  public Long getDurationZeroCount() {
+    return durationZeroCount;
+  }
+
+  public void setDurationZeroCount(Long durationZeroCount) {
+    this.durationZeroCount = durationZeroCount;
+  }
+
+  public Map<String, Long> getDurationBins() {
+    return durationBins;
+  }
+
+  public void setDurationBins(Map<String, Long> durationBins) {
+    this.durationBins = durationBins;
+  }
+
+  public Long getGeneration() {
+    return generation;
+  }
+
+  public void setGeneration(Long generation) {
+    this.generation = generation;
+  }
+}
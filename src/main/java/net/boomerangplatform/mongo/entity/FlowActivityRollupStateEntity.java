@@ -0,0 +1,62 @@
+package net.boomerangplatform.mongo.entity;
+
+import java.util.Date;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+/**
+ * Which generation of activity rollups is read, and the rebuild in progress if any. Activities
+ * finished before the fence are counted by the rebuild; later ones are recorded into both the
+ * active generation and the one being rebuilt.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(Include.NON_NULL)
+@Document(collection = "flow_workflows_activity_rollup_state")
+public class FlowActivityRollupStateEntity {
+
+  public static final String ID = "rollups";
+
+  @Id
+  private String id;
+
+  private long activeGeneration;
+
+  private Long rebuildGeneration;
+
+  private Date rebuildFence;
+
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public long getActiveGeneration() {
+    return activeGeneration;
+  }
+
+  public void setActiveGeneration(long activeGeneration) {
+    this.activeGeneration = activeGeneration;
+  }
+
+  public Long getRebuildGeneration() {
+    return rebuildGeneration;
+  }
+
+  public void setRebuildGeneration(Long rebuildGeneration) {
+    this.rebuildGeneration = rebuildGeneration;
+  }
+
+  public Date getRebuildFence() {
+    return rebuildFence;
+  }
+
+  public void setRebuildFence(Date rebuildFence) {
+    this.rebuildFence = rebuildFence;
+  }
+}
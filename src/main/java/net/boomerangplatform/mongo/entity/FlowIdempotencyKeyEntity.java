@@ -0,0 +1,71 @@
+package net.boomerangplatform.mongo.entity;
+
+import java.util.Date;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+/**
+ * Claim on an idempotency key of a workflow. The id is built from the workflow and the key, so
+ * only one activity can hold a key until the claim expires.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(Include.NON_NULL)
+@Document(collection = "flow_idempotency_keys")
+public class FlowIdempotencyKeyEntity {
+
+  @Id
+  private String id;
+
+  private String workflowId;
+
+  private String activityId;
+
+  private Date claimedTime;
+
+  @Indexed(expireAfterSeconds = 0)
+  private Date expiresAt;
+
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public String getWorkflowId() {
+    return workflowId;
+  }
+
+  public void setWorkflowId(String workflowId) {
+    this.workflowId = workflowId;
+  }
+
+  public String getActivityId() {
+    return activityId;
+  }
+
+  public void setActivityId(String activityId) {
+    this.activityId = activityId;
+  }
+
+  public Date getClaimedTime() {
+    return claimedTime;
+  }
+
+  public void setClaimedTime(Date claimedTime) {
+    this.claimedTime = claimedTime;
+  }
+
+  public Date getExpiresAt() {
+    return expiresAt;
+  }
+
+  public void setExpiresAt(Date expiresAt) {
+    this.expiresAt = expiresAt;
+  }
+}
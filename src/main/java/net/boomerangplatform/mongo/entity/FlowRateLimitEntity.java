@@ -0,0 +1,51 @@
+package net.boomerangplatform.mongo.entity;
+
+import java.util.Date;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+/**
+ * Token bucket shared by all replicas, kept as the time in microseconds at which it is full again.
+ * A full bucket holds nothing worth keeping, so the document expires at that time.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(Include.NON_NULL)
+@Document(collection = "flow_rate_limits")
+public class FlowRateLimitEntity {
+
+  @Id
+  private String id;
+
+  private long fullAt;
+
+  @Indexed(expireAfterSeconds = 0)
+  private Date expiresAt;
+
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public long getFullAt() {
+    return fullAt;
+  }
+
+  public void setFullAt(long fullAt) {
+    this.fullAt = fullAt;
+  }
+
+  public Date getExpiresAt() {
+    return expiresAt;
+  }
+
+  public void setExpiresAt(Date expiresAt) {
+    this.expiresAt = expiresAt;
+  }
+}
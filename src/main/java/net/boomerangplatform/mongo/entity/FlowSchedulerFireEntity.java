@@ -0,0 +1,73 @@
+package net.boomerangplatform.mongo.entity;
+
+import java.util.Date;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+/**
+ * Claim on one scheduled fire of a cron workflow. The id is built from the workflow and the
+ * scheduled fire time, so only one replica can record a given fire.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(Include.NON_NULL)
+@Document(collection = "flow_scheduler_fires")
+@CompoundIndex(name = "workflow_fire", def = "{'workflowId': 1, 'scheduledFireTime': -1}")
+public class FlowSchedulerFireEntity {
+
+  @Id
+  private String id;
+
+  private String workflowId;
+
+  private Date scheduledFireTime;
+
+  @Indexed(expireAfterSeconds = 2592000)
+  private Date claimedTime;
+
+  private String instanceId;
+
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public String getWorkflowId() {
+    return workflowId;
+  }
+
+  public void setWorkflowId(String workflowId) {
+    this.workflowId = workflowId;
+  }
+
+  public Date getScheduledFireTime() {
+    return scheduledFireTime;
+  }
+
+  public void setScheduledFireTime(Date scheduledFireTime) {
+    this.scheduledFireTime = scheduledFireTime;
+  }
+
+  public Date getClaimedTime() {
+    return claimedTime;
+  }
+
+  public void setClaimedTime(Date claimedTime) {
+    this.claimedTime = claimedTime;
+  }
+
+  public String getInstanceId() {
+    return instanceId;
+  }
+
+  public void setInstanceId(String instanceId) {
+    this.instanceId = instanceId;
+  }
+}
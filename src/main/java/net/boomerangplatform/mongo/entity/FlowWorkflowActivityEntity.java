@@ -3,6 +3,8 @@ package net.boomerangplatform.mongo.entity;
 import java.util.Date;
 import java.util.List;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
@@ -14,6 +16,11 @@ import net.boomerangplatform.mongo.model.FlowTriggerEnum;
 @JsonIgnoreProperties(ignoreUnknown = true)
 @JsonInclude(Include.NON_NULL)
 @Document(collection = "flow_workflows_activity")
+@CompoundIndexes({
+    @CompoundIndex(name = "workflow_creation_trigger_status",
+        def = "{'workflowId': 1, 'creationDate': -1, 'trigger': 1, 'status': 1}"),
+    @CompoundIndex(name = "creation_trigger_status",
+        def = "{'creationDate': -1, 'trigger': 1, 'status': 1}")})
 public class FlowWorkflowActivityEntity {
 
   private Date creationDate;
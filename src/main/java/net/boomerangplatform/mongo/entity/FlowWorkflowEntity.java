@@ -2,17 +2,20 @@ package net.boomerangplatform.mongo.entity;
 
 import java.util.List;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import net.boomerangplatform.mongo.model.FlowProperty;
+import net.boomerangplatform.mongo.model.Idempotency;
 import net.boomerangplatform.mongo.model.Triggers;
 import net.boomerangplatform.mongo.model.WorkflowStatus;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 @JsonInclude(Include.NON_NULL)
 @Document(collection = "flow_workflows")
+@CompoundIndex(name = "webhook_token", def = "{'triggers.webhook.token': 1}")
 public class FlowWorkflowEntity {
 
   private List<FlowProperty> properties;
@@ -37,6 +40,12 @@ public class FlowWorkflowEntity {
 
   private boolean enableACCIntegration;
 
+  private String latestRevisionId;
+
+  private Long latestVersion;
+
+  private Idempotency idempotency;
+
   public String getDescription() {
     return description;
   }
@@ -125,5 +134,28 @@ public class FlowWorkflowEntity {
     this.enableACCIntegration = enableACCIntegration;
   }
 
+  public String getLatestRevisionId() {
+    return latestRevisionId;
+  }
+
+  public void setLatestRevisionId(String latestRevisionId) {
+    this.latestRevisionId = latestRevisionId;
+  }
+
+  public Long getLatestVersion() {
+    return latestVersion;
+  }
+
+  public void setLatestVersion(Long latestVersion) {
+    this.latestVersion = latestVersion;
+  }
+
+  public Idempotency getIdempotency() {
+    return idempotency;
+  }
+
+  public void setIdempotency(Idempotency idempotency) {
+    this.idempotency = idempotency;
+  }
 
 }
@@ -1,6 +1,7 @@
 package net.boomerangplatform.mongo.entity;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
@@ -11,6 +12,7 @@ import net.boomerangplatform.mongo.model.Dag;
 @JsonIgnoreProperties(ignoreUnknown = true)
 @JsonInclude(Include.NON_NULL)
 @Document(collection = "flow_workflows_revisions")
+@CompoundIndex(name = "workflow_version", def = "{'workFlowId': 1, 'version': -1}")
 public class FlowWorkflowRevisionEntity {
 
   private Dag dag;
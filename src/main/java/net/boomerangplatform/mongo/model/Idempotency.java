@@ -0,0 +1,37 @@
+package net.boomerangplatform.mongo.model;
+
+import java.util.List;
+
+public class Idempotency {
+
+  /* Seconds a key stays claimed by its activity; 0 turns deduplication off for the workflow. */
+  private Integer window;
+  /* Request properties hashed into the key when the caller sends no Idempotency-Key header. */
+  private List<String> keyProperties;
+  /* Replace a duplicate's activity that has not started yet instead of returning it. */
+  private Boolean coalesce;
+
+  public Integer getWindow() {
+    return window;
+  }
+
+  public void setWindow(Integer window) {
+    this.window = window;
+  }
+
+  public List<String> getKeyProperties() {
+    return keyProperties;
+  }
+
+  public void setKeyProperties(List<String> keyProperties) {
+    this.keyProperties = keyProperties;
+  }
+
+  public Boolean getCoalesce() {
+    return coalesce;
+  }
+
+  public void setCoalesce(Boolean coalesce) {
+    this.coalesce = coalesce;
+  }
+}
@@ -0,0 +1,17 @@
+package net.boomerangplatform.mongo.model;
+
+import java.time.temporal.ChronoUnit;
+
+public enum RollupGranularity {
+  hour(ChronoUnit.HOURS), day(ChronoUnit.DAYS); // NOSONAR
+
+  private ChronoUnit unit;
+
+  RollupGranularity(ChronoUnit unit) {
+    this.unit = unit;
+  }
+
+  public ChronoUnit getUnit() {
+    return unit;
+  }
+}
@@ -6,6 +6,8 @@ public class Scheduler {
   private String schedule;
   private String timezone;
   private Boolean advancedCron;
+  /* Seconds over which fires of this workflow are staggered; 0 opts out of the global spread. */
+  private Integer jitter;
 
   public Boolean getEnable() {
     return enable;
@@ -39,4 +41,12 @@ public class Scheduler {
     this.advancedCron = advancedCron;
   }
 
+  public Integer getJitter() {
+    return jitter;
+  }
+
+  public void setJitter(Integer jitter) {
+    this.jitter = jitter;
+  }
+
 }
@@ -9,6 +9,8 @@ public interface FlowWorkflowActivityTaskRepository
 
   List<FlowTaskExecutionEntity> findByactivityId(String activityId);
 
+  List<FlowTaskExecutionEntity> findByActivityIdIn(List<String> activityIds);
+
   FlowTaskExecutionEntity findByActivityIdAndTaskId(String activityId, String taskId);
 
   FlowTaskExecutionEntity findByActivityIdAndTaskName(String activityId, String taskName);
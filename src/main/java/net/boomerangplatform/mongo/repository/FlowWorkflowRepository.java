@@ -1,6 +1,7 @@
 package net.boomerangplatform.mongo.repository;
 
 import java.util.List;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import net.boomerangplatform.mongo.entity.FlowWorkflowEntity;
@@ -17,6 +18,9 @@ public interface FlowWorkflowRepository extends MongoRepository<FlowWorkflowEnti
   @Query("{ 'triggers.scheduler.enable' : true }")
   List<FlowWorkflowEntity> findAllScheduledWorkflows();
 
+  @Query("{ 'triggers.scheduler.enable' : true }")
+  List<FlowWorkflowEntity> findAllScheduledWorkflows(Pageable pageable);
+
   @Query("{ 'triggers.event.enable' : true }")
   List<FlowWorkflowEntity> findAllEventWorkflows();
 
@@ -0,0 +1,30 @@
+package net.boomerangplatform.mongo.service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.util.CloseableIterator;
+import net.boomerangplatform.mongo.entity.FlowActivityRollupEntity;
+import net.boomerangplatform.mongo.entity.FlowActivityRollupStateEntity;
+
+public interface FlowActivityRollupService {
+
+  void incrementRollup(FlowActivityRollupEntity delta, long generation);
+
+  CloseableIterator<FlowActivityRollupEntity> streamRollups(Optional<Date> from, Optional<Date> to,
+      Optional<List<String>> teamIds, Optional<List<String>> triggers, long generation);
+
+  FlowActivityRollupStateEntity getState();
+
+  /**
+   * Claims the next generation for a rebuild fenced at the given time. Returns null while another
+   * rebuild holds the claim, unless its fence is older than staleBefore.
+   */
+  FlowActivityRollupStateEntity startRebuild(Date fence, Date staleBefore);
+
+  /** Makes a rebuilt generation the one read and drops older ones, unless it lost its claim. */
+  boolean finishRebuild(long generation);
+
+  void abandonRebuild(long generation);
+
+}
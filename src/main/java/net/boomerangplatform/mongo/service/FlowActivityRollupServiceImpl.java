@@ -0,0 +1,199 @@
+package net.boomerangplatform.mongo.service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Service;
+import net.boomerangplatform.mongo.entity.FlowActivityRollupEntity;
+import net.boomerangplatform.mongo.entity.FlowActivityRollupStateEntity;
+import net.boomerangplatform.mongo.model.RollupGranularity;
+import net.boomerangplatform.mongo.model.converter.FlowTriggerEnumConverter;
+
+@Service
+public class FlowActivityRollupServiceImpl implements FlowActivityRollupService {
+
+  private static final String ID = "_id";
+
+  private static final String GRANULARITY = "granularity";
+
+  private static final String BUCKET_START = "bucketStart";
+
+  private static final String TEAM_ID = "teamId";
+
+  private static final String TRIGGER = "trigger";
+
+  private static final String GENERATION = "generation";
+
+  private static final String ACTIVE_GENERATION = "activeGeneration";
+
+  private static final String REBUILD_GENERATION = "rebuildGeneration";
+
+  private static final String REBUILD_FENCE = "rebuildFence";
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Override
+  public void incrementRollup(FlowActivityRollupEntity delta, long generation) {
+    final Update update = new Update().setOnInsert(GENERATION, generation)
+        .setOnInsert(GRANULARITY, delta.getGranularity())
+        .setOnInsert(BUCKET_START, delta.getBucketStart())
+        .setOnInsert("workflowId", delta.getWorkflowId()).setOnInsert(TEAM_ID, delta.getTeamId())
+        .setOnInsert(TRIGGER, delta.getTrigger());
+
+    update.inc("durationSum", delta.getDurationSum());
+    update.inc("durationCount", delta.getDurationCount());
+    update.inc("durationZeroCount", delta.getDurationZeroCount());
+    for (Map.Entry<String, Long> status : delta.getStatusCounts().entrySet()) {
+      update.inc("statusCounts." + status.getKey(), status.getValue());
+    }
+    for (Map.Entry<String, Long> bin : delta.getDurationBins().entrySet()) {
+      update.inc("durationBins." + bin.getKey(), bin.getValue());
+    }
+
+    /* Generation 0 keeps the ids rollups had before there were generations. */
+    final String id = generation == 0 ? delta.getId() : generation + "-" + delta.getId();
+    mongoTemplate.upsert(new Query(Criteria.where(ID).is(id)), update,
+        FlowActivityRollupEntity.class);
+  }
+
+  @Override
+  public CloseableIterator<FlowActivityRollupEntity> streamRollups(Optional<Date> from,
+      Optional<Date> to, Optional<List<String>> teamIds, Optional<List<String>> triggers,
+      long generation) {
+    final List<Criteria> criteria = new ArrayList<>();
+    criteria.add(generation == 0 ? Criteria.where(GENERATION).in(0L, null)
+        : Criteria.where(GENERATION).is(generation));
+    criteria.add(buildBucketCriteria(from.map(Date::toInstant), to.map(Date::toInstant)));
+
+    if (teamIds.isPresent()) {
+      criteria.add(Criteria.where(TEAM_ID).in(teamIds.get()));
+    }
+    if (triggers.isPresent()) {
+      criteria.add(Criteria.where(TRIGGER).in(FlowTriggerEnumConverter.convert(triggers.get())));
+    }
+
+    final Query query =
+        new Query(new Criteria().andOperator(criteria.toArray(new Criteria[criteria.size()])));
+    return mongoTemplate.stream(query, FlowActivityRollupEntity.class);
+  }
+
+  @Override
+  public FlowActivityRollupStateEntity getState() {
+    final FlowActivityRollupStateEntity state =
+        mongoTemplate.findById(FlowActivityRollupStateEntity.ID,
+            FlowActivityRollupStateEntity.class);
+    if (state != null) {
+      return state;
+    }
+    final FlowActivityRollupStateEntity initial = new FlowActivityRollupStateEntity();
+    initial.setId(FlowActivityRollupStateEntity.ID);
+    return initial;
+  }
+
+  @Override
+  public FlowActivityRollupStateEntity startRebuild(Date fence, Date staleBefore) {
+    mongoTemplate.upsert(new Query(Criteria.where(ID).is(FlowActivityRollupStateEntity.ID)),
+        new Update().setOnInsert(ACTIVE_GENERATION, 0L), FlowActivityRollupStateEntity.class);
+
+    final FlowActivityRollupStateEntity state = getState();
+    final Long running = state.getRebuildGeneration();
+    final Criteria claim =
+        Criteria.where(ID).is(FlowActivityRollupStateEntity.ID).and(REBUILD_GENERATION).is(running);
+    if (running != null) {
+      claim.and(REBUILD_FENCE).lt(staleBefore);
+    }
+
+    /* A stale rebuild's generation is never reused, so anything it still writes is dropped. */
+    final long next = Math.max(state.getActiveGeneration(), running == null ? 0L : running) + 1;
+    return mongoTemplate.findAndModify(new Query(claim),
+        new Update().set(REBUILD_GENERATION, next).set(REBUILD_FENCE, fence),
+        FindAndModifyOptions.options().returnNew(true), FlowActivityRollupStateEntity.class);
+  }
+
+  @Override
+  public boolean finishRebuild(long generation) {
+    final Query claim = new Query(Criteria.where(ID).is(FlowActivityRollupStateEntity.ID)
+        .and(REBUILD_GENERATION).is(generation));
+    final Update update = new Update().set(ACTIVE_GENERATION, generation)
+        .unset(REBUILD_GENERATION).unset(REBUILD_FENCE);
+    if (mongoTemplate.updateFirst(claim, update, FlowActivityRollupStateEntity.class)
+        .getModifiedCount() == 0) {
+      return false;
+    }
+
+    mongoTemplate.remove(
+        new Query(new Criteria().orOperator(Criteria.where(GENERATION).lt(generation),
+            Criteria.where(GENERATION).exists(false))),
+        FlowActivityRollupEntity.class);
+    return true;
+  }
+
+  @Override
+  public void abandonRebuild(long generation) {
+    mongoTemplate.updateFirst(
+        new Query(Criteria.where(ID).is(FlowActivityRollupStateEntity.ID).and(REBUILD_GENERATION)
+            .is(generation)),
+        new Update().unset(REBUILD_GENERATION).unset(REBUILD_FENCE),
+        FlowActivityRollupStateEntity.class);
+    mongoTemplate.remove(new Query(Criteria.where(GENERATION).is(generation)),
+        FlowActivityRollupEntity.class);
+  }
+
+  /*
+   * Whole days inside the range are read from daily buckets and the partial days at either end from
+   * hourly buckets, so the number of documents read stays small for long ranges. The lower bound is
+   * rounded down to the hour.
+   */
+  private Criteria buildBucketCriteria(Optional<Instant> from, Optional<Instant> to) {
+    final Optional<Instant> fromHour = from.map(date -> date.truncatedTo(ChronoUnit.HOURS));
+    final Optional<Instant> firstDay = fromHour.map(FlowActivityRollupServiceImpl::ceilToDay);
+    final Optional<Instant> lastDay = to.map(date -> date.truncatedTo(ChronoUnit.DAYS));
+
+    if (firstDay.isPresent() && lastDay.isPresent()
+        && !firstDay.get().isBefore(lastDay.get())) {
+      return bucketRange(RollupGranularity.hour, fromHour, to);
+    }
+
+    final List<Criteria> ranges = new ArrayList<>();
+    ranges.add(bucketRange(RollupGranularity.day, firstDay, lastDay));
+    if (fromHour.isPresent()) {
+      ranges.add(bucketRange(RollupGranularity.hour, fromHour, firstDay));
+    }
+    if (to.isPresent()) {
+      ranges.add(bucketRange(RollupGranularity.hour, lastDay, to));
+    }
+    return new Criteria().orOperator(ranges.toArray(new Criteria[ranges.size()]));
+  }
+
+  private Criteria bucketRange(RollupGranularity granularity, Optional<Instant> start,
+      Optional<Instant> end) {
+    final Criteria criteria = Criteria.where(GRANULARITY).is(granularity);
+    if (start.isPresent() || end.isPresent()) {
+      final Criteria bucketStart = criteria.and(BUCKET_START);
+      if (start.isPresent()) {
+        bucketStart.gte(Date.from(start.get()));
+      }
+      if (end.isPresent()) {
+        bucketStart.lt(Date.from(end.get()));
+      }
+    }
+    return criteria;
+  }
+
+  private static Instant ceilToDay(Instant instant) {
+    final Instant day = instant.truncatedTo(ChronoUnit.DAYS);
+    return day.equals(instant) ? day : day.plus(1, ChronoUnit.DAYS);
+  }
+}
@@ -0,0 +1,22 @@
+package net.boomerangplatform.mongo.service;
+
+import java.util.Date;
+import java.util.Optional;
+import net.boomerangplatform.mongo.entity.FlowIdempotencyKeyEntity;
+
+public interface FlowIdempotencyKeyService {
+
+  /**
+   * Claims a key of a workflow for an activity until the given expiry. Returns the claim that
+   * already holds the key, or empty when the key was free or its claim had expired.
+   */
+  Optional<FlowIdempotencyKeyEntity> claimKey(String workflowId, String key, String activityId,
+      Date expiresAt);
+
+  /** Moves a claim from one activity to another, returning false if it has been moved since. */
+  boolean replaceActivity(String workflowId, String key, String previousActivityId,
+      String activityId, Date expiresAt);
+
+  /** Drops a claim still held by the activity, for activities that could not be created. */
+  void releaseKey(String workflowId, String key, String activityId);
+}
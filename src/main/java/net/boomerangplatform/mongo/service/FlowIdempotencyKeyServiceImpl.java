@@ -0,0 +1,92 @@
+package net.boomerangplatform.mongo.service;
+
+import java.util.Date;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import net.boomerangplatform.mongo.entity.FlowIdempotencyKeyEntity;
+
+/*
+ * The TTL monitor only removes expired claims about once a minute, so an expired claim that is
+ * still there is taken over in place. Either step can lose to a concurrent request, which is
+ * retried once against the claim that request left.
+ */
+@Service
+public class FlowIdempotencyKeyServiceImpl implements FlowIdempotencyKeyService {
+
+  private static final String ID = "_id";
+
+  private static final String ACTIVITY_ID = "activityId";
+
+  private static final String CLAIMED_TIME = "claimedTime";
+
+  private static final String EXPIRES_AT = "expiresAt";
+
+  private static final int CLAIM_ATTEMPTS = 2;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Override
+  public Optional<FlowIdempotencyKeyEntity> claimKey(String workflowId, String key,
+      String activityId, Date expiresAt) {
+    final String id = getId(workflowId, key);
+    final Date now = new Date();
+
+    for (int attempt = 0; attempt < CLAIM_ATTEMPTS; attempt++) {
+      final FlowIdempotencyKeyEntity claim = new FlowIdempotencyKeyEntity();
+      claim.setId(id);
+      claim.setWorkflowId(workflowId);
+      claim.setActivityId(activityId);
+      claim.setClaimedTime(now);
+      claim.setExpiresAt(expiresAt);
+
+      try {
+        mongoTemplate.insert(claim);
+        return Optional.empty();
+      } catch (DuplicateKeyException e) {
+        final Query expired = new Query(Criteria.where(ID).is(id).and(EXPIRES_AT).lte(now));
+        final Update update = new Update().set(ACTIVITY_ID, activityId).set(CLAIMED_TIME, now)
+            .set(EXPIRES_AT, expiresAt);
+        if (mongoTemplate.updateFirst(expired, update, FlowIdempotencyKeyEntity.class)
+            .getModifiedCount() > 0) {
+          return Optional.empty();
+        }
+
+        final FlowIdempotencyKeyEntity holder =
+            mongoTemplate.findById(id, FlowIdempotencyKeyEntity.class);
+        if (holder != null) {
+          return Optional.of(holder);
+        }
+      }
+    }
+    return Optional.ofNullable(mongoTemplate.findById(id, FlowIdempotencyKeyEntity.class));
+  }
+
+  @Override
+  public boolean replaceActivity(String workflowId, String key, String previousActivityId,
+      String activityId, Date expiresAt) {
+    final Query query = new Query(
+        Criteria.where(ID).is(getId(workflowId, key)).and(ACTIVITY_ID).is(previousActivityId));
+    final Update update = new Update().set(ACTIVITY_ID, activityId)
+        .set(CLAIMED_TIME, new Date()).set(EXPIRES_AT, expiresAt);
+    return mongoTemplate.updateFirst(query, update, FlowIdempotencyKeyEntity.class)
+        .getModifiedCount() > 0;
+  }
+
+  @Override
+  public void releaseKey(String workflowId, String key, String activityId) {
+    mongoTemplate.remove(
+        new Query(Criteria.where(ID).is(getId(workflowId, key)).and(ACTIVITY_ID).is(activityId)),
+        FlowIdempotencyKeyEntity.class);
+  }
+
+  private String getId(String workflowId, String key) {
+    return workflowId + ":" + key;
+  }
+}
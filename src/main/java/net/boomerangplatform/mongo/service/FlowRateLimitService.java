@@ -0,0 +1,12 @@
+package net.boomerangplatform.mongo.service;
+
+import net.boomerangplatform.util.RateLimit;
+
+public interface FlowRateLimitService {
+
+  /** Takes a token from a shared bucket, returning 0 or the microseconds until one is free. */
+  long tryAcquire(String key, RateLimit limit, long now);
+
+  /** Gives back a token, for calls refused by another limit. */
+  void release(String key, RateLimit limit);
+}
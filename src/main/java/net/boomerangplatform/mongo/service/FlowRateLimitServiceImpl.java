@@ -0,0 +1,79 @@
+package net.boomerangplatform.mongo.service;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import net.boomerangplatform.mongo.entity.FlowRateLimitEntity;
+import net.boomerangplatform.util.RateLimit;
+
+/*
+ * The same compare-and-set as a local bucket, done as an update conditional on the time read. A
+ * call that keeps losing to other replicas is refused for one interval rather than spinning.
+ */
+@Service
+public class FlowRateLimitServiceImpl implements FlowRateLimitService {
+
+  private static final String ID = "_id";
+
+  private static final String FULL_AT = "fullAt";
+
+  private static final String EXPIRES_AT = "expiresAt";
+
+  private static final int MAX_ATTEMPTS = 5;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Override
+  public long tryAcquire(String key, RateLimit limit, long now) {
+    for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+      final FlowRateLimitEntity bucket = mongoTemplate.findById(key, FlowRateLimitEntity.class);
+      final long current = bucket == null ? 0L : bucket.getFullAt();
+      final long next = limit.next(current, now);
+      final long wait = limit.waitTime(next, now);
+      if (wait > 0) {
+        return wait;
+      }
+      if (bucket == null ? insert(key, next) : update(key, current, next)) {
+        return 0L;
+      }
+    }
+    return limit.getInterval();
+  }
+
+  @Override
+  public void release(String key, RateLimit limit) {
+    mongoTemplate.updateFirst(new Query(Criteria.where(ID).is(key)),
+        new Update().inc(FULL_AT, -limit.getInterval()), FlowRateLimitEntity.class);
+  }
+
+  private boolean insert(String key, long fullAt) {
+    final FlowRateLimitEntity bucket = new FlowRateLimitEntity();
+    bucket.setId(key);
+    bucket.setFullAt(fullAt);
+    bucket.setExpiresAt(toDate(fullAt));
+    try {
+      mongoTemplate.insert(bucket);
+      return true;
+    } catch (DuplicateKeyException e) {
+      return false;
+    }
+  }
+
+  private boolean update(String key, long current, long fullAt) {
+    final Query query = new Query(Criteria.where(ID).is(key).and(FULL_AT).is(current));
+    final Update update = new Update().set(FULL_AT, fullAt).set(EXPIRES_AT, toDate(fullAt));
+    return mongoTemplate.updateFirst(query, update, FlowRateLimitEntity.class)
+        .getModifiedCount() > 0;
+  }
+
+  private static Date toDate(long micros) {
+    return new Date(TimeUnit.MICROSECONDS.toMillis(micros));
+  }
+}
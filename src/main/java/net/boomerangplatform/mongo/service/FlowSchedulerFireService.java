@@ -0,0 +1,12 @@
+package net.boomerangplatform.mongo.service;
+
+import java.util.Date;
+import java.util.Optional;
+
+public interface FlowSchedulerFireService {
+
+  /** Records a fire of a workflow schedule, returning false when another replica already has. */
+  boolean claimFire(String workflowId, Date scheduledFireTime, String instanceId);
+
+  Optional<Date> getLastFireTime(String workflowId);
+}
@@ -0,0 +1,49 @@
+package net.boomerangplatform.mongo.service;
+
+import java.util.Date;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import net.boomerangplatform.mongo.entity.FlowSchedulerFireEntity;
+
+@Service
+public class FlowSchedulerFireServiceImpl implements FlowSchedulerFireService {
+
+  private static final String SCHEDULED_FIRE_TIME = "scheduledFireTime";
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Override
+  public boolean claimFire(String workflowId, Date scheduledFireTime, String instanceId) {
+    final FlowSchedulerFireEntity fire = new FlowSchedulerFireEntity();
+    fire.setId(workflowId + ":" + scheduledFireTime.getTime());
+    fire.setWorkflowId(workflowId);
+    fire.setScheduledFireTime(scheduledFireTime);
+    fire.setClaimedTime(new Date());
+    fire.setInstanceId(instanceId);
+
+    try {
+      mongoTemplate.insert(fire);
+      return true;
+    } catch (DuplicateKeyException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public Optional<Date> getLastFireTime(String workflowId) {
+    final Query query = new Query(Criteria.where("workflowId").is(workflowId))
+        .with(Sort.by(Direction.DESC, SCHEDULED_FIRE_TIME)).limit(1);
+    query.fields().include(SCHEDULED_FIRE_TIME);
+
+    return Optional.ofNullable(mongoTemplate.findOne(query, FlowSchedulerFireEntity.class))
+        .map(FlowSchedulerFireEntity::getScheduledFireTime);
+  }
+}
@@ -1,7 +1,9 @@
 package net.boomerangplatform.mongo.service;
 
 import java.util.List;
+import java.util.Set;
 import net.boomerangplatform.mongo.entity.FlowTaskTemplateEntity;
+import net.boomerangplatform.mongo.model.Revision;
 
 public interface FlowTaskTemplateService {
 
@@ -9,6 +11,8 @@ public interface FlowTaskTemplateService {
 
   List<FlowTaskTemplateEntity> getAllTaskTemplates();
 
+  List<FlowTaskTemplateEntity> getAllTaskTemplates(Set<String> fields);
+
   FlowTaskTemplateEntity insertTaskTemplate(FlowTaskTemplateEntity flowTaskTemplateEntity);
 
   FlowTaskTemplateEntity updateTaskTemplate(FlowTaskTemplateEntity flowTaskTemplateEntity);
@@ -16,4 +20,16 @@ public interface FlowTaskTemplateService {
   void deleteTaskTemplate(FlowTaskTemplateEntity flowTaskTemplateEntity);
 
   void activateTaskTemplate(FlowTaskTemplateEntity flowTaskTemplateEntity);
+
+  /**
+   * Returns the given version of a template from the cached revision index, or null when the
+   * template or version does not exist. The revision is shared and must not be modified.
+   */
+  Revision getTemplateRevision(String templateId, Integer version);
+
+  /**
+   * Returns the highest version of a template from the cached revision index, or null when the
+   * template does not exist or has no revisions. The revision is shared and must not be modified.
+   */
+  Revision getLatestTemplateRevision(String templateId);
 }
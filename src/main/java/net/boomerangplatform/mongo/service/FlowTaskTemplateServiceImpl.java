@@ -1,24 +1,76 @@
 package net.boomerangplatform.mongo.service;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
 import net.boomerangplatform.mongo.entity.FlowTaskTemplateEntity;
 import net.boomerangplatform.mongo.model.FlowTaskTemplateStatus;
+import net.boomerangplatform.mongo.model.Revision;
 import net.boomerangplatform.mongo.repository.FlowTaskTemplateRepository;
 
 @Service
 public class FlowTaskTemplateServiceImpl implements FlowTaskTemplateService {
 
+  private static final String CACHE_NAME = "flow.template.revisions";
+
+  private static final RevisionIndex EMPTY_INDEX = new RevisionIndex(null);
+
   @Autowired
   private FlowTaskTemplateRepository flowTaskTemplateRepository;
 
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired(required = false)
+  private MeterRegistry meterRegistry;
+
+  @Value("${flow.cache.template.max-size:500}")
+  private long cacheMaxSize;
+
+  @Value("${flow.cache.template.ttl-seconds:300}")
+  private long cacheTtlSeconds;
+
+  private Cache<String, RevisionIndex> revisionCache;
+
+  @PostConstruct
+  public void init() {
+    revisionCache = CacheBuilder.newBuilder().maximumSize(cacheMaxSize)
+        .expireAfterWrite(cacheTtlSeconds, TimeUnit.SECONDS).recordStats().build();
+    if (meterRegistry != null) {
+      GuavaCacheMetrics.monitor(meterRegistry, revisionCache, CACHE_NAME);
+    }
+  }
+
   @Override
   @NoLogging
   public List<FlowTaskTemplateEntity> getAllTaskTemplates() {
     return flowTaskTemplateRepository.findAll();
   }
 
+  @Override
+  @NoLogging
+  public List<FlowTaskTemplateEntity> getAllTaskTemplates(Set<String> fields) {
+    final Query query = new Query();
+    fields.stream().filter(field -> field.matches("\\w+"))
+        .forEach(field -> query.fields().include(field));
+    return mongoTemplate.find(query, FlowTaskTemplateEntity.class);
+  }
+
   @Override
   @NoLogging
   public FlowTaskTemplateEntity getTaskTemplateWithId(String id) {
@@ -30,13 +82,17 @@ public class FlowTaskTemplateServiceImpl implements FlowTaskTemplateService {
   public FlowTaskTemplateEntity insertTaskTemplate(FlowTaskTemplateEntity flowTaskTemplateEntity) {
     flowTaskTemplateEntity.setStatus(FlowTaskTemplateStatus.active);
 
-    return flowTaskTemplateRepository.insert(flowTaskTemplateEntity);
+    FlowTaskTemplateEntity inserted = flowTaskTemplateRepository.insert(flowTaskTemplateEntity);
+    revisionCache.invalidate(inserted.getId());
+    return inserted;
   }
 
   @Override
   @NoLogging
   public FlowTaskTemplateEntity updateTaskTemplate(FlowTaskTemplateEntity flowTaskTemplateEntity) {
-    return flowTaskTemplateRepository.save(flowTaskTemplateEntity);
+    FlowTaskTemplateEntity updated = flowTaskTemplateRepository.save(flowTaskTemplateEntity);
+    revisionCache.invalidate(updated.getId());
+    return updated;
   }
 
   @Override
@@ -44,6 +100,7 @@ public class FlowTaskTemplateServiceImpl implements FlowTaskTemplateService {
   public void deleteTaskTemplate(FlowTaskTemplateEntity flowTaskTemplateEntity) {
     flowTaskTemplateEntity.setStatus(FlowTaskTemplateStatus.inactive);
     flowTaskTemplateRepository.save(flowTaskTemplateEntity);
+    revisionCache.invalidate(flowTaskTemplateEntity.getId());
   }
 
   @Override
@@ -51,5 +108,72 @@ public class FlowTaskTemplateServiceImpl implements FlowTaskTemplateService {
   public void activateTaskTemplate(FlowTaskTemplateEntity flowTaskTemplateEntity) {
     flowTaskTemplateEntity.setStatus(FlowTaskTemplateStatus.active);
     flowTaskTemplateRepository.save(flowTaskTemplateEntity);
+    revisionCache.invalidate(flowTaskTemplateEntity.getId());
+  }
+
+  /** Served from the revision cache; callers get their own copy and may change it freely. */
+  @Override
+  @NoLogging
+  public Revision getTemplateRevision(String templateId, Integer version) {
+    return version == null ? null : copy(getRevisionIndex(templateId).versions.get(version));
+  }
+
+  /** Served from the revision cache; callers get their own copy and may change it freely. */
+  @Override
+  @NoLogging
+  public Revision getLatestTemplateRevision(String templateId) {
+    return copy(getRevisionIndex(templateId).latest);
+  }
+
+  private RevisionIndex getRevisionIndex(String templateId) {
+    if (templateId == null) {
+      return EMPTY_INDEX;
+    }
+
+    RevisionIndex index = revisionCache.getIfPresent(templateId);
+    if (index == null) {
+      FlowTaskTemplateEntity entity = getTaskTemplateWithId(templateId);
+      if (entity == null) {
+        return EMPTY_INDEX;
+      }
+      index = new RevisionIndex(entity.getRevisions());
+      revisionCache.put(templateId, index);
+    }
+    return index;
+  }
+
+  private Revision copy(Revision revision) {
+    if (revision == null) {
+      return null;
+    }
+    MongoConverter converter = mongoTemplate.getConverter();
+    Document document = new Document();
+    converter.write(revision, document);
+    return converter.read(Revision.class, document);
+  }
+
+  /* Revisions of one template keyed by version, with the highest version resolved up front. */
+  private static class RevisionIndex {
+
+    private final Map<Integer, Revision> versions;
+    private final Revision latest;
+
+    RevisionIndex(List<Revision> revisions) {
+      Map<Integer, Revision> byVersion = new HashMap<>();
+      Revision highest = null;
+      if (revisions != null) {
+        for (Revision revision : revisions) {
+          if (revision.getVersion() == null) {
+            continue;
+          }
+          byVersion.put(revision.getVersion(), revision);
+          if (highest == null || revision.getVersion() > highest.getVersion()) {
+            highest = revision;
+          }
+        }
+      }
+      this.versions = Collections.unmodifiableMap(byVersion);
+      this.latest = highest;
+    }
   }
 }
@@ -1,5 +1,6 @@
 package net.boomerangplatform.mongo.service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
@@ -12,6 +13,8 @@ public interface FlowUserService {
 
   public Optional<FlowUserEntity> getUserById(String id);
 
+  List<FlowUserEntity> getUsersByIds(Collection<String> ids);
+
   public FlowUserEntity getOrRegisterUser(String userNane, String firstName, String lastName);
 
   Page<FlowUserEntity> findBySearchTerm(String term, Pageable pageable);
@@ -1,5 +1,7 @@
 package net.boomerangplatform.mongo.service;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -45,6 +47,13 @@ public class FlowUserServiceImpl implements FlowUserService {
     return flowUserRepository.findById(id);
   }
 
+  @Override
+  public List<FlowUserEntity> getUsersByIds(Collection<String> ids) {
+    final List<FlowUserEntity> users = new ArrayList<>();
+    flowUserRepository.findAllById(ids).forEach(users::add);
+    return users;
+  }
+
   @Override
   public Page<FlowUserEntity> findBySearchTerm(String term, Pageable pageable) {
     return flowUserRepository.findByNameLikeIgnoreCaseOrEmailLikeIgnoreCase(term, term, pageable);
@@ -2,9 +2,13 @@ package net.boomerangplatform.mongo.service;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.util.CloseableIterator;
 import net.boomerangplatform.mongo.entity.FlowWorkflowActivityEntity;
 
 public interface FlowWorkflowActivityService {
@@ -25,8 +29,37 @@ public interface FlowWorkflowActivityService {
 
   FlowWorkflowActivityEntity saveWorkflowActivity(FlowWorkflowActivityEntity entity);
 
+  /** Inserts new activities in one bulk write, keeping ids already set on them. */
+  List<FlowWorkflowActivityEntity> insertWorkflowActivities(
+      List<FlowWorkflowActivityEntity> entities);
+
   Page<FlowWorkflowActivityEntity> getAllActivites(Optional<Date> from, Optional<Date> to,
       Pageable page, Optional<List<String>> workflowIds, Optional<List<String>> statuses,
       Optional<List<String>> triggers);
 
+  CloseableIterator<FlowWorkflowActivityEntity> streamActivityDurations(Optional<Date> from,
+      Optional<Date> to, Optional<List<String>> workflowIds, Pageable page);
+
+  Page<FlowWorkflowActivityEntity> findActivities(Optional<Date> from, Optional<Date> to,
+      Pageable page, Optional<List<String>> workflowIds, Optional<List<String>> statuses,
+      Optional<List<String>> triggers, Set<String> fields);
+
+  CloseableIterator<FlowWorkflowActivityEntity> streamFinishedActivities(Date before);
+
+  CloseableIterator<FlowWorkflowActivityEntity> streamActivities(Optional<Date> from,
+      Optional<Date> to, Optional<List<String>> workflowIds, Optional<List<String>> statuses,
+      Optional<List<String>> triggers, Sort sort, int batchSize);
+
+  Map<String, Long> getActivityCountByStatus(Optional<Date> from, Optional<Date> to,
+      Optional<List<String>> workflowIds, Optional<List<String>> statuses,
+      Optional<List<String>> triggers);
+
+  Map<String, Long> getAverageDurations(List<String> workflowIds, Date from);
+
+  /** Marks an activity in progress unless it has been superseded before starting. */
+  boolean startActivity(String activityId);
+
+  /** Skips an activity that has not started yet, returning it skipped, or empty once started. */
+  Optional<FlowWorkflowActivityEntity> supersedeActivity(String activityId, String statusMessage);
+
 }
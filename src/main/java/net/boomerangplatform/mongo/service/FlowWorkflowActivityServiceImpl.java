@@ -1,13 +1,32 @@
 package net.boomerangplatform.mongo.service;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.stereotype.Service;
 import net.boomerangplatform.mongo.entity.FlowWorkflowActivityEntity;
+import net.boomerangplatform.mongo.model.FlowTaskStatus;
 import net.boomerangplatform.mongo.model.converter.FlowTaskStatusConverter;
 import net.boomerangplatform.mongo.model.converter.FlowTriggerEnumConverter;
 import net.boomerangplatform.mongo.repository.FlowWorkflowActivityRepository;
@@ -15,9 +34,31 @@ import net.boomerangplatform.mongo.repository.FlowWorkflowActivityRepository;
 @Service
 public class FlowWorkflowActivityServiceImpl implements FlowWorkflowActivityService {
 
+  private static final String WORKFLOW_ID = "workflowId";
+
+  private static final String CREATION_DATE = "creationDate";
+
+  private static final String STATUS = "status";
+
+  private static final String STATUS_MESSAGE = "statusMessage";
+
+  private static final String ID = "_id";
+
+  private static final String TRIGGER = "trigger";
+
+  private static final String COUNT = "count";
+
+  private static final String DURATION = "duration";
+
   @Autowired
   private FlowWorkflowActivityRepository repository;
 
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
   @Override
   public Page<FlowWorkflowActivityEntity> findAllActivities(Optional<Date> fromDate,
       Optional<Date> toDate, Pageable page, Optional<String> workflowId) {
@@ -57,6 +98,12 @@ public class FlowWorkflowActivityServiceImpl implements FlowWorkflowActivityServ
 
   }
 
+  @Override
+  public List<FlowWorkflowActivityEntity> insertWorkflowActivities(
+      List<FlowWorkflowActivityEntity> entities) {
+    return new ArrayList<>(mongoTemplate.insertAll(entities));
+  }
+
   @Override
   public Page<FlowWorkflowActivityEntity> getAllActivites(Optional<Date> from, Optional<Date> to,
       Pageable page, Optional<List<String>> workflowIds, Optional<List<String>> statuses,
@@ -276,4 +323,159 @@ public class FlowWorkflowActivityServiceImpl implements FlowWorkflowActivityServ
       String value) {
     return repository.findByWorkflowAndProperty(workflowId, key, value);
   }
+
+  @Override
+  public Map<String, Long> getActivityCountByStatus(Optional<Date> from, Optional<Date> to,
+      Optional<List<String>> workflowIds, Optional<List<String>> statuses,
+      Optional<List<String>> triggers) {
+
+    /* Only the status field leaves the match stage, so the compound indexes cover the query. */
+    final Aggregation aggregation = Aggregation.newAggregation(
+        Aggregation.match(buildActivityCriteria(from, to, workflowIds, statuses, triggers)),
+        Aggregation.group(STATUS).count().as(COUNT));
+
+    final AggregationResults<Document> results =
+        mongoTemplate.aggregate(aggregation, FlowWorkflowActivityEntity.class, Document.class);
+
+    final Map<String, Long> counts = new HashMap<>();
+    for (Document result : results.getMappedResults()) {
+      final Object status = result.get("_id");
+      final Number count = (Number) result.get(COUNT);
+      counts.put(status == null ? null : status.toString(), count.longValue());
+    }
+    return counts;
+  }
+
+  @Override
+  public Map<String, Long> getAverageDurations(List<String> workflowIds, Date from) {
+
+    /* Activities still in progress have no duration yet and are left out. */
+    final Aggregation aggregation = Aggregation.newAggregation(
+        Aggregation.match(Criteria.where(WORKFLOW_ID).in(workflowIds).and(CREATION_DATE).gt(from)
+            .and(DURATION).gt(0)),
+        Aggregation.group(WORKFLOW_ID).avg(DURATION).as(DURATION));
+
+    final AggregationResults<Document> results =
+        mongoTemplate.aggregate(aggregation, FlowWorkflowActivityEntity.class, Document.class);
+
+    final Map<String, Long> durations = new HashMap<>();
+    for (Document result : results.getMappedResults()) {
+      final Number duration = (Number) result.get(DURATION);
+      durations.put(String.valueOf(result.get("_id")), duration.longValue());
+    }
+    return durations;
+  }
+
+  /*
+   * Starting and superseding are conditional updates of the same document, so an activity is
+   * either run or skipped, whichever lands first. They bypass save, so the after save event that
+   * listeners such as the activity stream rely on is raised here.
+   */
+  @Override
+  public boolean startActivity(String activityId) {
+    final Query query =
+        new Query(Criteria.where(ID).is(activityId).and(STATUS).ne(FlowTaskStatus.skipped));
+    return updateActivity(query, new Update().set(STATUS, FlowTaskStatus.inProgress)) != null;
+  }
+
+  @Override
+  public Optional<FlowWorkflowActivityEntity> supersedeActivity(String activityId,
+      String statusMessage) {
+    final Query query = new Query(Criteria.where(ID).is(activityId).and(STATUS)
+        .in(null, FlowTaskStatus.notstarted));
+    final Update update =
+        new Update().set(STATUS, FlowTaskStatus.skipped).set(STATUS_MESSAGE, statusMessage);
+    return Optional.ofNullable(updateActivity(query, update));
+  }
+
+  private FlowWorkflowActivityEntity updateActivity(Query query, Update update) {
+    final FlowWorkflowActivityEntity activity = mongoTemplate.findAndModify(query, update,
+        FindAndModifyOptions.options().returnNew(true), FlowWorkflowActivityEntity.class);
+    if (activity == null) {
+      return null;
+    }
+
+    final Document document = new Document();
+    mongoTemplate.getConverter().write(activity, document);
+    eventPublisher.publishEvent(new AfterSaveEvent<>(activity, document,
+        mongoTemplate.getCollectionName(FlowWorkflowActivityEntity.class)));
+    return activity;
+  }
+
+  @Override
+  public CloseableIterator<FlowWorkflowActivityEntity> streamActivityDurations(Optional<Date> from,
+      Optional<Date> to, Optional<List<String>> workflowIds, Pageable page) {
+    final Query query =
+        new Query(buildActivityCriteria(from, to, workflowIds, Optional.empty(), Optional.empty()))
+            .with(page);
+    query.fields().include(WORKFLOW_ID).include(CREATION_DATE).include(STATUS).include(DURATION);
+    return mongoTemplate.stream(query, FlowWorkflowActivityEntity.class);
+  }
+
+  @Override
+  public Page<FlowWorkflowActivityEntity> findActivities(Optional<Date> from, Optional<Date> to,
+      Pageable page, Optional<List<String>> workflowIds, Optional<List<String>> statuses,
+      Optional<List<String>> triggers, Set<String> fields) {
+    final Criteria criteria = buildActivityCriteria(from, to, workflowIds, statuses, triggers);
+    final Query query = new Query(criteria).with(page);
+    query.fields().include(WORKFLOW_ID);
+    fields.stream().filter(field -> field.matches("\\w+"))
+        .forEach(field -> query.fields().include(field));
+
+    final List<FlowWorkflowActivityEntity> activities =
+        mongoTemplate.find(query, FlowWorkflowActivityEntity.class);
+    return PageableExecutionUtils.getPage(activities, page,
+        () -> mongoTemplate.count(new Query(criteria), FlowWorkflowActivityEntity.class));
+  }
+
+  @Override
+  public CloseableIterator<FlowWorkflowActivityEntity> streamFinishedActivities(Date before) {
+    final Query query = new Query(Criteria.where(CREATION_DATE).lt(before).and(STATUS)
+        .nin(FlowTaskStatus.inProgress, FlowTaskStatus.notstarted))
+            .with(Sort.by(Direction.ASC, CREATION_DATE));
+    query.fields().include(WORKFLOW_ID).include(CREATION_DATE).include(STATUS).include(DURATION)
+        .include(TRIGGER);
+    return mongoTemplate.stream(query, FlowWorkflowActivityEntity.class);
+  }
+
+  @Override
+  public CloseableIterator<FlowWorkflowActivityEntity> streamActivities(Optional<Date> from,
+      Optional<Date> to, Optional<List<String>> workflowIds, Optional<List<String>> statuses,
+      Optional<List<String>> triggers, Sort sort, int batchSize) {
+    final Query query =
+        new Query(buildActivityCriteria(from, to, workflowIds, statuses, triggers)).with(sort)
+            .cursorBatchSize(batchSize);
+    return mongoTemplate.stream(query, FlowWorkflowActivityEntity.class);
+  }
+
+  private Criteria buildActivityCriteria(Optional<Date> from, Optional<Date> to,
+      Optional<List<String>> workflowIds, Optional<List<String>> statuses,
+      Optional<List<String>> triggers) {
+    final List<Criteria> criteria = new ArrayList<>();
+
+    if (workflowIds.isPresent()) {
+      criteria.add(Criteria.where(WORKFLOW_ID).in(workflowIds.get()));
+    }
+    if (statuses.isPresent()) {
+      criteria.add(Criteria.where(STATUS).in(FlowTaskStatusConverter.convert(statuses.get())));
+    }
+    if (triggers.isPresent()) {
+      criteria.add(Criteria.where(TRIGGER).in(FlowTriggerEnumConverter.convert(triggers.get())));
+    }
+    if (from.isPresent() || to.isPresent()) {
+      final Criteria creationDate = Criteria.where(CREATION_DATE);
+      if (from.isPresent()) {
+        creationDate.gt(from.get());
+      }
+      if (to.isPresent()) {
+        creationDate.lt(to.get());
+      }
+      criteria.add(creationDate);
+    }
+
+    if (criteria.isEmpty()) {
+      return new Criteria();
+    }
+    return new Criteria().andOperator(criteria.toArray(new Criteria[criteria.size()]));
+  }
 }
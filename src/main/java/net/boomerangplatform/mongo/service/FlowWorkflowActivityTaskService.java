@@ -11,5 +11,7 @@ public interface FlowWorkflowActivityTaskService {
 
   List<FlowTaskExecutionEntity> findTaskActiivtyForActivity(String activityId);
 
+  List<FlowTaskExecutionEntity> findTaskActivityForActivities(List<String> activityIds);
+
   FlowTaskExecutionEntity save(FlowTaskExecutionEntity entity);
 }
@@ -23,6 +23,11 @@ public class FlowWorkflowActivityTaskServiceImpl implements FlowWorkflowActivity
     return repoisotry.findByactivityId(activityId);
   }
 
+  @Override
+  public List<FlowTaskExecutionEntity> findTaskActivityForActivities(List<String> activityIds) {
+    return repoisotry.findByActivityIdIn(activityIds);
+  }
+
   @Override
   public FlowTaskExecutionEntity save(FlowTaskExecutionEntity entity) {
     return repoisotry.save(entity);
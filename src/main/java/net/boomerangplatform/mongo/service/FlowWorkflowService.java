@@ -1,20 +1,30 @@
 package net.boomerangplatform.mongo.service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import net.boomerangplatform.mongo.entity.FlowWorkflowEntity;
 
 public interface FlowWorkflowService {
 
   void deleteWorkflow(String id);
 
+  /** Drops the cached copy of a workflow after it is changed other than through save. */
+  void evictWorkflow(String id);
+
   FlowWorkflowEntity getWorkflow(String id);
 
+  /** Looks up many workflows at once, reading those not in the cache in one query. */
+  Map<String, FlowWorkflowEntity> getWorkflows(Collection<String> ids);
+
   List<FlowWorkflowEntity> getWorkflowsForTeams(String flowId);
 
   List<FlowWorkflowEntity> getWorkflowsForTeams(List<String> flowTeamIds);
 
   List<FlowWorkflowEntity> getScheduledWorkflows();
 
+  List<FlowWorkflowEntity> getScheduledWorkflows(int page, int size);
+
   List<FlowWorkflowEntity> getEventWorkflows();
 
   List<FlowWorkflowEntity> getEventWorkflowsForTopic(String topic);
@@ -23,5 +33,7 @@ public interface FlowWorkflowService {
 
   FlowWorkflowEntity findByTokenString(String tokenString);
 
+  FlowWorkflowEntity findByWebhookToken(String token);
+
 
 }
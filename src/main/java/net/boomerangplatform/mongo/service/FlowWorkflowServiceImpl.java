@@ -1,25 +1,132 @@
 package net.boomerangplatform.mongo.service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import org.apache.commons.lang3.StringUtils;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
 import net.boomerangplatform.mongo.entity.FlowWorkflowEntity;
+import net.boomerangplatform.mongo.model.WorkflowStatus;
 import net.boomerangplatform.mongo.repository.FlowWorkflowRepository;
 
 @Service
 public class FlowWorkflowServiceImpl implements FlowWorkflowService {
 
+  private static final String CACHE_NAME = "flow.workflows";
+
+  private static final String ID = "id";
+  private static final String LATEST_REVISION_ID = "latestRevisionId";
+  private static final String LATEST_VERSION = "latestVersion";
+  private static final String STATUS = "status";
+  private static final String WEBHOOK_TOKEN = "triggers.webhook.token";
+  private static final String WEBHOOK_ENABLE = "triggers.webhook.enable";
+  private static final int MAX_REPLACE_ATTEMPTS = 5;
+
   @Autowired
   private FlowWorkflowRepository workFlowRepository;
 
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired(required = false)
+  private MeterRegistry meterRegistry;
+
+  @Value("${flow.cache.workflow.max-size:1000}")
+  private long cacheMaxSize;
+
+  @Value("${flow.cache.workflow.ttl-seconds:300}")
+  private long cacheTtlSeconds;
+
+  private Cache<String, FlowWorkflowEntity> workflowCache;
+
+  /* Bumped by every write, guarded by this. */
+  private long writeGeneration;
+
+  @PostConstruct
+  public void init() {
+    workflowCache = CacheBuilder.newBuilder().maximumSize(cacheMaxSize)
+        .expireAfterWrite(cacheTtlSeconds, TimeUnit.SECONDS).recordStats().build();
+    if (meterRegistry != null) {
+      GuavaCacheMetrics.monitor(meterRegistry, workflowCache, CACHE_NAME);
+    }
+  }
+
   @Override
   public void deleteWorkflow(String id) {
     workFlowRepository.deleteById(id);
+    evictWorkflow(id);
+  }
+
+  @Override
+  public synchronized void evictWorkflow(String id) {
+    writeGeneration++;
+    workflowCache.invalidate(id);
   }
 
+  /**
+   * Served from a bounded cache in front of Mongo. Callers get their own copy so that changing the
+   * returned entity without saving it does not leak into later reads. A load only fills the cache
+   * when no write happened while it read Mongo, so it can never put back a copy older than a save
+   * or eviction on this node.
+   */
   @Override
   public FlowWorkflowEntity getWorkflow(String id) {
-    return workFlowRepository.findById(id).orElse(null);
+    if (id == null) {
+      return null;
+    }
+
+    FlowWorkflowEntity cached = workflowCache.getIfPresent(id);
+    if (cached == null) {
+      final long generation = getWriteGeneration();
+      cached = workFlowRepository.findById(id).orElse(null);
+      if (cached == null) {
+        return null;
+      }
+      cacheLoaded(cached, generation);
+    }
+    return copy(cached);
+  }
+
+  /** Read through the cache; workflows missing from it are read in bulk without filling it. */
+  @Override
+  public Map<String, FlowWorkflowEntity> getWorkflows(Collection<String> ids) {
+    final Map<String, FlowWorkflowEntity> workflows = new HashMap<>();
+    final List<String> missing = new ArrayList<>();
+    for (String id : new HashSet<>(ids)) {
+      final FlowWorkflowEntity cached = id == null ? null : workflowCache.getIfPresent(id);
+      if (cached != null) {
+        workflows.put(id, copy(cached));
+      } else if (id != null) {
+        missing.add(id);
+      }
+    }
+
+    if (!missing.isEmpty()) {
+      for (FlowWorkflowEntity workflow : workFlowRepository.findAllById(missing)) {
+        workflows.put(workflow.getId(), workflow);
+      }
+    }
+    return workflows;
   }
 
   @Override
@@ -34,7 +141,14 @@ public class FlowWorkflowServiceImpl implements FlowWorkflowService {
 
   @Override
   public FlowWorkflowEntity saveWorkflow(FlowWorkflowEntity entity) {
-    return workFlowRepository.save(entity);
+    FlowWorkflowEntity saved =
+        entity.getId() == null ? workFlowRepository.save(entity) : replaceWorkflow(entity);
+    final FlowWorkflowEntity cached = copy(saved);
+    synchronized (this) {
+      writeGeneration++;
+      workflowCache.put(saved.getId(), cached);
+    }
+    return saved;
   }
 
   @Override
@@ -42,11 +156,33 @@ public class FlowWorkflowServiceImpl implements FlowWorkflowService {
     return workFlowRepository.findByToken(tokenString);
   }
 
+  /**
+   * Resolves the token of an enabled webhook to its active workflow. Tokens are always checked
+   * against Mongo through the token index, never the per node workflow cache, so a token that was
+   * regenerated, disabled or deleted on another replica stops working at once.
+   */
+  @Override
+  public FlowWorkflowEntity findByWebhookToken(String token) {
+    if (StringUtils.isBlank(token)) {
+      return null;
+    }
+
+    final Query query = new Query(Criteria.where(WEBHOOK_TOKEN).is(token).and(WEBHOOK_ENABLE)
+        .is(true).and(STATUS).is(WorkflowStatus.active));
+    return mongoTemplate.findOne(query, FlowWorkflowEntity.class);
+  }
+
   @Override
   public List<FlowWorkflowEntity> getScheduledWorkflows() {
     return workFlowRepository.findAllScheduledWorkflows();
   }
 
+  @Override
+  public List<FlowWorkflowEntity> getScheduledWorkflows(int page, int size) {
+    return workFlowRepository
+        .findAllScheduledWorkflows(PageRequest.of(page, size, Sort.by(Direction.ASC, "_id")));
+  }
+
   @Override
   public List<FlowWorkflowEntity> getEventWorkflows() {
     return workFlowRepository.findAllEventWorkflows();
@@ -57,5 +193,49 @@ public class FlowWorkflowServiceImpl implements FlowWorkflowService {
     return workFlowRepository.findAllEventWorkflowsForTopic(topic);
   }
 
+  /**
+   * The latest revision pointer is only moved by revision inserts. The stored pointer is carried
+   * over and the document is replaced only if it has not moved since, so saving a stale copy of a
+   * workflow can never roll it back.
+   */
+  private FlowWorkflowEntity replaceWorkflow(FlowWorkflowEntity entity) {
+    final String collectionName = mongoTemplate.getCollectionName(FlowWorkflowEntity.class);
+    for (int attempt = 0; attempt < MAX_REPLACE_ATTEMPTS; attempt++) {
+      final Query pointerQuery = new Query(Criteria.where(ID).is(entity.getId()));
+      pointerQuery.fields().include(LATEST_REVISION_ID).include(LATEST_VERSION);
+      final FlowWorkflowEntity current =
+          mongoTemplate.findOne(pointerQuery, FlowWorkflowEntity.class);
+      if (current == null) {
+        return workFlowRepository.save(entity);
+      }
+
+      entity.setLatestRevisionId(current.getLatestRevisionId());
+      entity.setLatestVersion(current.getLatestVersion());
+      final Query unchanged = new Query(Criteria.where(ID).is(entity.getId()).and(LATEST_VERSION)
+          .is(current.getLatestVersion()).and(LATEST_REVISION_ID)
+          .is(current.getLatestRevisionId()));
+      if (mongoTemplate.findAndReplace(unchanged, entity, collectionName) != null) {
+        return entity;
+      }
+    }
+    throw new OptimisticLockingFailureException(
+        "Workflow " + entity.getId() + " kept changing while being saved");
+  }
+
+  private synchronized long getWriteGeneration() {
+    return writeGeneration;
+  }
+
+  private synchronized void cacheLoaded(FlowWorkflowEntity workflow, long generation) {
+    if (writeGeneration == generation) {
+      workflowCache.asMap().putIfAbsent(workflow.getId(), workflow);
+    }
+  }
 
+  private FlowWorkflowEntity copy(FlowWorkflowEntity entity) {
+    MongoConverter converter = mongoTemplate.getConverter();
+    Document document = new Document();
+    converter.write(entity, document);
+    return converter.read(FlowWorkflowEntity.class, document);
+  }
 }
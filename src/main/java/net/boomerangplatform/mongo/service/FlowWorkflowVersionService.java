@@ -1,5 +1,8 @@
 package net.boomerangplatform.mongo.service;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -13,6 +16,10 @@ public interface FlowWorkflowVersionService {
 
   FlowWorkflowRevisionEntity getLatestWorkflowVersion(String workflowId, long version);
 
+  /** Latest revisions of many workflows by workflow id, skipping workflows with no revision. */
+  Map<String, FlowWorkflowRevisionEntity> getLatestWorkflowVersions(
+      Collection<String> workflowIds);
+
   long getWorkflowCount(String workFlowId);
 
   FlowWorkflowRevisionEntity getWorkflowlWithId(String id);
@@ -23,4 +30,6 @@ public interface FlowWorkflowVersionService {
 
   Page<FlowWorkflowRevisionEntity> getAllWorkflowVersions(Optional<String> workFlowId,
       Pageable pageable);
+
+  Map<String, Integer> getTaskCounts(List<String> revisionIds);
 }
@@ -1,29 +1,127 @@
 package net.boomerangplatform.mongo.service;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import net.boomerangplatform.mongo.entity.FlowWorkflowEntity;
 import net.boomerangplatform.mongo.entity.FlowWorkflowRevisionEntity;
+import net.boomerangplatform.mongo.model.TaskType;
 import net.boomerangplatform.mongo.repository.FlowWorkflowVersionRepository;
 
 @Service
 public class FlowWorkflowVersionServiceImpl implements FlowWorkflowVersionService {
 
+  private static final String ID = "id";
+  private static final String WORKFLOW_ID = "workFlowId";
+  private static final String VERSION = "version";
+  private static final String LATEST_REVISION_ID = "latestRevisionId";
+  private static final String LATEST_VERSION = "latestVersion";
+  private static final String DAG_TASKS = "dag.tasks";
+  private static final String COUNT = "count";
+
   @Autowired
   private FlowWorkflowVersionRepository workFlowVersionRepository;
 
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private FlowWorkflowService workflowService;
+
   @Override
   @NoLogging
   public void deleteWorkflow(FlowWorkflowRevisionEntity flowWorkflowVersionEntity) {
     workFlowVersionRepository.delete(flowWorkflowVersionEntity);
+
+    /* Point back at the highest remaining revision; version numbers are never reused. */
+    final String workflowId = flowWorkflowVersionEntity.getWorkFlowId();
+    final FlowWorkflowRevisionEntity highest = findHighestVersion(workflowId);
+    updateWorkflow(workflowId,
+        Criteria.where(LATEST_REVISION_ID).is(flowWorkflowVersionEntity.getId()),
+        new Update().set(LATEST_REVISION_ID, highest == null ? null : highest.getId()));
   }
 
+  /**
+   * Follows the latest revision pointer kept on the workflow. Workflows created before the pointer
+   * existed fall back to the highest stored version once and have the pointer filled in.
+   */
   @Override
   public FlowWorkflowRevisionEntity getLatestWorkflowVersion(String workflowId) {
-    final long versionCount = workFlowVersionRepository.countByworkFlowId(workflowId);
-    return workFlowVersionRepository.findByworkFlowIdAndVersion(workflowId, versionCount);
+    final Query pointerQuery = new Query(Criteria.where(ID).is(workflowId));
+    pointerQuery.fields().include(LATEST_REVISION_ID);
+    final FlowWorkflowEntity pointer =
+        mongoTemplate.findOne(pointerQuery, FlowWorkflowEntity.class);
+    if (pointer == null) {
+      return findHighestVersion(workflowId);
+    }
+
+    if (pointer.getLatestRevisionId() != null) {
+      FlowWorkflowRevisionEntity revision = getWorkflowlWithId(pointer.getLatestRevisionId());
+      if (revision != null) {
+        return revision;
+      }
+    }
+
+    final FlowWorkflowRevisionEntity latest = findHighestVersion(workflowId);
+    if (latest != null) {
+      updateWorkflow(workflowId, Criteria.where(LATEST_VERSION).is(null),
+          new Update().set(LATEST_VERSION, latest.getVersion()));
+      updateWorkflow(workflowId, Criteria.where(LATEST_VERSION).is(latest.getVersion()),
+          new Update().set(LATEST_REVISION_ID, latest.getId()));
+    }
+    return latest;
+  }
+
+  /*
+   * Reads the pointers and then the revisions they point at, one query each. Workflows whose
+   * pointer is missing or stale go through the single lookup, which repairs it.
+   */
+  @Override
+  public Map<String, FlowWorkflowRevisionEntity> getLatestWorkflowVersions(
+      Collection<String> workflowIds) {
+    final Query pointerQuery = new Query(Criteria.where(ID).in(workflowIds));
+    pointerQuery.fields().include(LATEST_REVISION_ID);
+    final Map<String, String> pointers = new HashMap<>();
+    for (FlowWorkflowEntity pointer : mongoTemplate.find(pointerQuery, FlowWorkflowEntity.class)) {
+      if (pointer.getLatestRevisionId() != null) {
+        pointers.put(pointer.getLatestRevisionId(), pointer.getId());
+      }
+    }
+
+    final Map<String, FlowWorkflowRevisionEntity> revisions = new HashMap<>();
+    if (!pointers.isEmpty()) {
+      final Query revisionQuery = new Query(Criteria.where(ID).in(pointers.keySet()));
+      for (FlowWorkflowRevisionEntity revision : mongoTemplate.find(revisionQuery,
+          FlowWorkflowRevisionEntity.class)) {
+        revisions.put(pointers.get(revision.getId()), revision);
+      }
+    }
+
+    for (String workflowId : workflowIds) {
+      if (!revisions.containsKey(workflowId)) {
+        final FlowWorkflowRevisionEntity latest = getLatestWorkflowVersion(workflowId);
+        if (latest != null) {
+          revisions.put(workflowId, latest);
+        }
+      }
+    }
+    return revisions;
   }
 
   @Override
@@ -42,11 +140,30 @@ public class FlowWorkflowVersionServiceImpl implements FlowWorkflowVersionServic
     return workFlowVersionRepository.findById(id).orElse(null);
   }
 
+  /**
+   * Numbers the revision from an atomic counter on the workflow rather than the revision count, so
+   * concurrent saves never share a version, and then moves the latest revision pointer to it.
+   */
   @Override
   @NoLogging
   public FlowWorkflowRevisionEntity insertWorkflow(
       FlowWorkflowRevisionEntity flowWorkflowVersionEntity) {
-    return workFlowVersionRepository.insert(flowWorkflowVersionEntity);
+    final String workflowId = flowWorkflowVersionEntity.getWorkFlowId();
+    final Long version = allocateVersion(workflowId);
+    if (version == null) {
+      FlowWorkflowRevisionEntity highest = findHighestVersion(workflowId);
+      flowWorkflowVersionEntity.setVersion(highest == null ? 1L : highest.getVersion() + 1);
+      return workFlowVersionRepository.insert(flowWorkflowVersionEntity);
+    }
+
+    flowWorkflowVersionEntity.setVersion(version);
+    final FlowWorkflowRevisionEntity inserted =
+        workFlowVersionRepository.insert(flowWorkflowVersionEntity);
+
+    /* A later version may already have been allocated; its own insert will move the pointer. */
+    updateWorkflow(workflowId, Criteria.where(LATEST_VERSION).is(version),
+        new Update().set(LATEST_REVISION_ID, inserted.getId()));
+    return inserted;
   }
 
   @Override
@@ -66,4 +183,66 @@ public class FlowWorkflowVersionServiceImpl implements FlowWorkflowVersionServic
       return workFlowVersionRepository.findAll(pageable);
     }
   }
+
+  /**
+   * Counts the tasks of each revision that do work, leaving out the start and end nodes. Results
+   * are keyed by workflow id.
+   */
+  @Override
+  public Map<String, Integer> getTaskCounts(List<String> revisionIds) {
+    final Aggregation aggregation =
+        Aggregation.newAggregation(Aggregation.match(Criteria.where(ID).in(revisionIds)),
+            Aggregation.unwind(DAG_TASKS),
+            Aggregation.match(Criteria.where(DAG_TASKS + ".type").nin(TaskType.start.name(),
+                TaskType.end.name())),
+            Aggregation.group(WORKFLOW_ID).count().as(COUNT));
+
+    final AggregationResults<Document> results =
+        mongoTemplate.aggregate(aggregation, FlowWorkflowRevisionEntity.class, Document.class);
+
+    final Map<String, Integer> counts = new HashMap<>();
+    for (Document result : results.getMappedResults()) {
+      final Number count = (Number) result.get(COUNT);
+      counts.put(String.valueOf(result.get("_id")), count.intValue());
+    }
+    return counts;
+  }
+
+  private Long allocateVersion(String workflowId) {
+    if (workflowId == null) {
+      return null;
+    }
+
+    FlowWorkflowEntity counter = incrementVersion(workflowId);
+    if (counter == null) {
+      FlowWorkflowRevisionEntity highest = findHighestVersion(workflowId);
+      updateWorkflow(workflowId, Criteria.where(LATEST_VERSION).is(null),
+          new Update().set(LATEST_VERSION, highest == null ? 0L : highest.getVersion()));
+      counter = incrementVersion(workflowId);
+    }
+    return counter == null ? null : counter.getLatestVersion();
+  }
+
+  private FlowWorkflowEntity incrementVersion(String workflowId) {
+    final Query query = new Query(Criteria.where(ID).is(workflowId).and(LATEST_VERSION).ne(null));
+    query.fields().include(LATEST_VERSION);
+    final FlowWorkflowEntity counter = mongoTemplate.findAndModify(query,
+        new Update().inc(LATEST_VERSION, 1L), FindAndModifyOptions.options().returnNew(true),
+        FlowWorkflowEntity.class);
+    workflowService.evictWorkflow(workflowId);
+    return counter;
+  }
+
+  /* The pointers live on the workflow document, so its cached copy is dropped on every write. */
+  private void updateWorkflow(String workflowId, Criteria condition, Update update) {
+    mongoTemplate.updateFirst(new Query(Criteria.where(ID).is(workflowId).andOperator(condition)),
+        update, FlowWorkflowEntity.class);
+    workflowService.evictWorkflow(workflowId);
+  }
+
+  private FlowWorkflowRevisionEntity findHighestVersion(String workflowId) {
+    final Query query = new Query(Criteria.where(WORKFLOW_ID).is(workflowId))
+        .with(Sort.by(Direction.DESC, VERSION)).limit(1);
+    return mongoTemplate.findOne(query, FlowWorkflowRevisionEntity.class);
+  }
 }
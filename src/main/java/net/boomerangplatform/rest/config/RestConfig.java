@@ -1,37 +1,104 @@
 package net.boomerangplatform.rest.config;
 
+import java.net.URI;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
 import javax.net.ssl.SSLContext;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.conn.ssl.TrustStrategy;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
-import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.client.RestTemplate;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
-@Component
+@Configuration
 public class RestConfig {
 
+  private static final String DOWNSTREAM_TAG = "downstream";
+  private static final String OTHER_DOWNSTREAM = "other";
+  private static final int VALIDATE_AFTER_INACTIVITY_MS = 2000;
+
   @Value("${proxy.host:#{null}}")
   private Optional<String> boomerangProxyHost;
 
   @Value("${proxy.port:#{null}}")
   private Optional<String> boomerangProxyPort;
 
+  @Value("${flow.http.connect-timeout:5000}")
+  private int connectTimeout;
+
+  @Value("${flow.http.read-timeout:300000}")
+  private int readTimeout;
+
+  @Value("${flow.http.pool.acquire-timeout:5000}")
+  private int acquireTimeout;
+
+  @Value("${flow.http.pool.max-total:200}")
+  private int maxTotalConnections;
+
+  @Value("${flow.http.pool.default-max-per-route:20}")
+  private int defaultMaxPerRoute;
+
+  @Value("${flow.http.pool.controller.max:100}")
+  private int controllerMaxConnections;
+
+  @Value("${flow.http.pool.users.max:20}")
+  private int usersMaxConnections;
+
+  @Value("${flow.http.pool.launchpad.max:20}")
+  private int launchpadMaxConnections;
+
+  @Value("${flow.http.pool.iam.max:20}")
+  private int iamMaxConnections;
+
+  @Value("${flow.http.keep-alive:30000}")
+  private long keepAlive;
+
+  @Value("${flow.http.idle-eviction:30000}")
+  private long idleEviction;
+
+  @Value("${controller.rest.url.base:}")
+  private String controllerUrl;
+
+  @Value("${users.base.url:}")
+  private String usersUrl;
+
+  @Value("${launchpad.base.url:}")
+  private String launchpadUrl;
+
+  @Value("${acc.service.custombot.event:}")
+  private String iamUrl;
+
+  @Autowired(required = false)
+  private MeterRegistry meterRegistry;
+
   @Bean
   @Qualifier("externalRestTemplate")
   public RestTemplate externalRestTemplate() {
@@ -65,13 +132,48 @@ public class RestConfig {
     return restTemplate;
   }
 
+  /**
+   * Shared client for the controller and core services. Each downstream gets its own connection
+   * limit within one pool, and pool usage and request latency are reported per downstream.
+   */
   @Bean
   @Qualifier("internalRestTemplate")
   public RestTemplate internalRestTemplate() {
-    final HttpComponentsClientHttpRequestFactory requestFactory =
-        new HttpComponentsClientHttpRequestFactory();
-    final RestTemplate template = new RestTemplate(requestFactory);
+    final PoolingHttpClientConnectionManager connectionManager =
+        new PoolingHttpClientConnectionManager();
+    connectionManager.setMaxTotal(maxTotalConnections);
+    connectionManager.setDefaultMaxPerRoute(defaultMaxPerRoute);
+    connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MS);
+
+    final Map<String, HttpRoute> downstreams = new LinkedHashMap<>();
+    addDownstream(downstreams, connectionManager, "controller", controllerUrl,
+        controllerMaxConnections);
+    addDownstream(downstreams, connectionManager, "users", usersUrl, usersMaxConnections);
+    addDownstream(downstreams, connectionManager, "launchpad", launchpadUrl,
+        launchpadMaxConnections);
+    addDownstream(downstreams, connectionManager, "iam", iamUrl, iamMaxConnections);
+
+    final RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(connectTimeout)
+        .setSocketTimeout(readTimeout).setConnectionRequestTimeout(acquireTimeout).build();
+    final CloseableHttpClient httpClient = HttpClients.custom()
+        .setConnectionManager(connectionManager).setDefaultRequestConfig(requestConfig)
+        .setKeepAliveStrategy((response, context) -> {
+          long duration =
+              DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+          return duration > 0 ? Math.min(duration, keepAlive) : keepAlive;
+        }).evictExpiredConnections().evictIdleConnections(idleEviction, TimeUnit.MILLISECONDS)
+        .build();
+
+    final RestTemplate template =
+        new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
     setRestTemplateInterceptors(template);
+    if (meterRegistry != null) {
+      registerPoolMetrics(connectionManager, downstreams);
+      final List<ClientHttpRequestInterceptor> interceptors =
+          new ArrayList<>(template.getInterceptors());
+      interceptors.add(timingInterceptor(downstreams));
+      template.setInterceptors(interceptors);
+    }
     return template;
   }
 
@@ -82,4 +184,73 @@ public class RestConfig {
     }
     restTemplate.setInterceptors(interceptors);
   }
+
+  private void addDownstream(Map<String, HttpRoute> downstreams,
+      PoolingHttpClientConnectionManager connectionManager, String name, String url,
+      int maxConnections) {
+    if (StringUtils.isBlank(url)) {
+      return;
+    }
+    final URI uri = URI.create(url);
+    if (uri.getHost() == null) {
+      return;
+    }
+
+    final HttpHost host = toHost(uri);
+    final boolean secure = "https".equalsIgnoreCase(host.getSchemeName());
+    final HttpRoute route = new HttpRoute(host, null, secure);
+    connectionManager.setMaxPerRoute(route, maxConnections);
+    downstreams.put(name, route);
+  }
+
+  private void registerPoolMetrics(PoolingHttpClientConnectionManager connectionManager,
+      Map<String, HttpRoute> downstreams) {
+    downstreams.forEach((name, route) -> {
+      registerPoolGauge("leased", name, connectionManager, m -> m.getStats(route).getLeased());
+      registerPoolGauge("available", name, connectionManager,
+          m -> m.getStats(route).getAvailable());
+      registerPoolGauge("pending", name, connectionManager, m -> m.getStats(route).getPending());
+      registerPoolGauge("max", name, connectionManager, m -> m.getStats(route).getMax());
+    });
+
+    registerPoolGauge("leased", "all", connectionManager, m -> m.getTotalStats().getLeased());
+    registerPoolGauge("pending", "all", connectionManager, m -> m.getTotalStats().getPending());
+    registerPoolGauge("max", "all", connectionManager, m -> m.getTotalStats().getMax());
+  }
+
+  private void registerPoolGauge(String state, String downstream,
+      PoolingHttpClientConnectionManager connectionManager,
+      ToDoubleFunction<PoolingHttpClientConnectionManager> value) {
+    Gauge.builder("flow.http.client.pool." + state, connectionManager, value)
+        .tag(DOWNSTREAM_TAG, downstream).register(meterRegistry);
+  }
+
+  private ClientHttpRequestInterceptor timingInterceptor(Map<String, HttpRoute> downstreams) {
+    final Map<HttpHost, String> names = new LinkedHashMap<>();
+    downstreams.forEach((name, route) -> names.put(route.getTargetHost(), name));
+
+    return (request, body, execution) -> {
+      final long start = System.nanoTime();
+      String status = "IO_ERROR";
+      try {
+        ClientHttpResponse response = execution.execute(request, body);
+        status = String.valueOf(response.getRawStatusCode());
+        return response;
+      } finally {
+        Timer.builder("flow.http.client.requests")
+            .tag(DOWNSTREAM_TAG, names.getOrDefault(toHost(request.getURI()), OTHER_DOWNSTREAM))
+            .tag("method", request.getMethodValue()).tag("status", status)
+            .register(meterRegistry).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      }
+    };
+  }
+
+  private static HttpHost toHost(URI uri) {
+    final String scheme = uri.getScheme() == null ? "http" : uri.getScheme();
+    int port = uri.getPort();
+    if (port < 0) {
+      port = "https".equalsIgnoreCase(scheme) ? 443 : 80;
+    }
+    return new HttpHost(uri.getHost(), port, scheme);
+  }
 }
@@ -16,9 +16,16 @@ public class FlowJob implements Job {
   @Autowired
   private ExecutionController controller;
 
+  @Autowired
+  private ScheduledTasks scheduledTasks;
+
   @Override
   public void execute(JobExecutionContext jobExecutionContext) throws JobExecutionException {
 
+    if (!scheduledTasks.acceptFire(jobExecutionContext)) {
+      return;
+    }
+
     Map<String, String> properties = new HashMap<>();
 
     FlowExecutionRequest request = new FlowExecutionRequest();
@@ -1,103 +1,525 @@
 package net.boomerangplatform.scheduler;
 
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.TimeZone;
-import java.util.function.Predicate;
-import javax.annotation.PostConstruct;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.quartz.CronExpression;
 import org.quartz.CronScheduleBuilder;
 import org.quartz.CronTrigger;
 import org.quartz.JobBuilder;
+import org.quartz.JobDataMap;
 import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
 import org.quartz.JobKey;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
+import org.quartz.Trigger;
 import org.quartz.TriggerBuilder;
+import org.quartz.impl.matchers.GroupMatcher;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.scheduling.quartz.SchedulerFactoryBean;
 import org.springframework.stereotype.Component;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.boomerangplatform.exceptions.ScheduleRangeTooLargeException;
+import net.boomerangplatform.model.ScheduleDistribution;
 import net.boomerangplatform.mongo.entity.FlowWorkflowEntity;
 import net.boomerangplatform.mongo.model.WorkflowStatus;
+import net.boomerangplatform.mongo.service.FlowSchedulerFireService;
 import net.boomerangplatform.mongo.service.FlowWorkflowService;
 
+/**
+ * Schedules cron workflows in the local Quartz scheduler. An index of the registered schedules
+ * lets workflow changes be applied one job at a time, and a periodic pass repairs any drift from
+ * Mongo. In clustered mode every replica keeps the same schedules and each fire runs only on the
+ * replica that claims it first.
+ */
 @Component
 public class ScheduledTasks {
 
+  /** Job data set on fires that were already claimed before being triggered. */
+  public static final String CLAIMED = "claimed";
+
+  private static final String GROUP = "flow";
+
+  private static final String DELAY = "delay";
+
+  /* Unstaggered fire time carried by a deferred trigger, which claims it when it runs. */
+  private static final String FIRE_TIME = "fireTime";
+
+  private static final String MISFIRE_FIRE_ONCE = "fire-once";
+
+  private static final int MAX_CRON_SCAN = 100000;
+
   private final Logger logger = LogManager.getLogger(getClass());
 
+  private final String instanceId =
+      System.getenv().getOrDefault("HOSTNAME", "flow") + "-" + UUID.randomUUID();
+
+  private final ExecutorService startupExecutor = Executors.newSingleThreadExecutor(
+      new ThreadFactoryBuilder().setNameFormat("scheduler-startup-%d").setDaemon(true).build());
+
   @Autowired
   private SchedulerFactoryBean schedulerFactoryBean;
 
   @Autowired
   private FlowWorkflowService flowWorkflowService;
 
-  @PostConstruct
-  private void initialize() {
-    setupJobs();
+  @Autowired
+  private FlowSchedulerFireService fireService;
+
+  @Autowired
+  private Clock clock;
+
+  @Value("${flow.scheduler.clustered:true}")
+  private boolean clustered;
+
+  @Value("${flow.scheduler.misfire-policy:skip}")
+  private String misfirePolicy;
+
+  @Value("${flow.scheduler.misfire-lookback:86400000}")
+  private long misfireLookback;
+
+  @Value("${flow.scheduler.spread-window:0}")
+  private long spreadWindow;
+
+  @Value("${flow.scheduler.startup-batch-size:200}")
+  private int startupBatchSize;
+
+  /* Signatures of the schedules registered with Quartz, by workflow id. */
+  private final Map<String, String> registered = new ConcurrentHashMap<>();
+
+  private volatile boolean started;
+
+  /**
+   * Registers the scheduled workflows in batches off the startup thread, so the time to start does
+   * not grow with the number of schedules.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void registerOnStartup() {
+    CompletableFuture.runAsync(this::setupJobs, startupExecutor).whenComplete((result, error) -> {
+      if (error != null) {
+        logger.error("Failed to register scheduled workflows", error);
+      }
+      started = true;
+    });
   }
 
-  public void cancelJob(String workflowId) throws SchedulerException {
-    List<FlowWorkflowEntity> scheduledWorkflows = flowWorkflowService.getScheduledWorkflows();
-    Scheduler scheduler = schedulerFactoryBean.getScheduler();
-    Predicate<FlowWorkflowEntity> p1 = e -> workflowId.equals(e.getId());
-    boolean exists = scheduledWorkflows.stream().anyMatch(p1);
-    JobKey jobkey = new JobKey(workflowId, "flow");
+  @PreDestroy
+  public void shutdown() {
+    startupExecutor.shutdownNow();
+  }
+
+  /**
+   * Brings the registered schedule of one workflow in line with its triggers and status, adding,
+   * replacing or removing only that workflow's job. Returns whether the workflow is scheduled.
+   */
+  public synchronized boolean reconcileWorkflow(FlowWorkflowEntity workflow) {
+    String workflowId = workflow.getId();
+    String signature = isSchedulable(workflow) ? getSignature(workflow) : null;
+    String current = registered.get(workflowId);
+    if (Objects.equals(signature, current)) {
+      return signature != null;
+    }
 
-    if (exists) {
-      logger.info("Removing job no longer needed: {}", workflowId);
-      boolean deleted = scheduler.deleteJob(jobkey);
-      logger.info("Deleted: {}", deleted);
+    List<Trigger> deferred = current != null && signature != null
+        ? getDeferredTriggers(workflowId) : Collections.<Trigger>emptyList();
+    if (current != null) {
+      unschedule(workflowId);
+    }
+    if (signature != null && schedule(workflow)) {
+      registered.put(workflowId, signature);
+      restoreDeferredTriggers(workflowId, deferred);
+      return true;
+    }
+    return false;
+  }
+
+  public synchronized void removeWorkflow(String workflowId) {
+    if (registered.containsKey(workflowId)) {
+      unschedule(workflowId);
+    }
+  }
+
+  /**
+   * Returns whether a fire of a workflow schedule should run now. Staggered fires are put off
+   * until their delay has passed and fires taken by another replica are dropped. The claim is made
+   * when the fire is about to run, keyed by its unstaggered time, so a deferred fire lost with this
+   * replica still runs on another one or through misfire recovery.
+   */
+  public boolean acceptFire(JobExecutionContext context) {
+    JobDataMap data = context.getMergedJobDataMap();
+    if (data.containsKey(CLAIMED)) {
+      return true;
+    }
+
+    JobKey jobKey = context.getJobDetail().getKey();
+    Date fireTime;
+    if (data.containsKey(FIRE_TIME)) {
+      fireTime = new Date(data.getLong(FIRE_TIME));
+    } else {
+      fireTime = context.getScheduledFireTime();
+      long delay = data.containsKey(DELAY) ? data.getLong(DELAY) : 0L;
+      if (delay > 0 && defer(jobKey, fireTime, delay)) {
+        return false;
+      }
+    }
+
+    if (clustered && !fireService.claimFire(jobKey.getName(), fireTime, instanceId)) {
+      logger.debug("Schedule of {} at {} already fired on another replica", jobKey.getName(),
+          fireTime);
+      return false;
+    }
+    return true;
+  }
+
+  /** Receives one fire of a workflow schedule, at its time after the spread. */
+  @FunctionalInterface
+  public interface FireConsumer {
+    void accept(FlowWorkflowEntity workflow, long fireTime);
+  }
+
+  /**
+   * Passes every fire of the given workflows' active schedules between two times, after their
+   * spread, to the consumer. Each distinct cron expression and time zone is expanded only once and
+   * shared by all the workflows using it.
+   *
+   * @throws ScheduleRangeTooLargeException when a schedule fires too often to expand the range
+   */
+  public void forEachFire(List<FlowWorkflowEntity> workflows, Date from, Date to,
+      FireConsumer consumer) {
+    List<FlowWorkflowEntity> schedulable =
+        workflows.stream().filter(this::isSchedulable).collect(Collectors.toList());
+    long[] delays = new long[schedulable.size()];
+    long maxDelay = 0;
+    for (int i = 0; i < delays.length; i++) {
+      delays[i] = getFireDelay(schedulable.get(i));
+      maxDelay = Math.max(maxDelay, delays[i]);
+    }
+
+    Map<String, long[]> expansions = new HashMap<>();
+    long start = from.getTime() - maxDelay;
+    for (int i = 0; i < delays.length; i++) {
+      FlowWorkflowEntity workflow = schedulable.get(i);
+      long[] fires = expansions.computeIfAbsent(getExpressionKey(workflow),
+          key -> expand(workflow, start, to.getTime()));
+      long delay = delays[i];
+      int index = Arrays.binarySearch(fires, from.getTime() - delay);
+      for (int j = index < 0 ? -index - 1 : index; j < fires.length
+          && fires[j] + delay < to.getTime(); j++) {
+        consumer.accept(workflow, fires[j] + delay);
+      }
+    }
+  }
+
+  /**
+   * Counts the fires of all active schedules between two times, after their spread, in buckets
+   * of the given number of seconds.
+   */
+  public ScheduleDistribution getFireDistribution(Date from, Date to, int bucketSize) {
+    final long bucketMillis = bucketSize * 1000L;
+    final int[] counts =
+        new int[(int) ((to.getTime() - from.getTime() + bucketMillis - 1) / bucketMillis)];
+    final long[] totalFires = {0L};
+    forEachFire(flowWorkflowService.getScheduledWorkflows(), from, to, (workflow, fireTime) -> {
+      counts[(int) ((fireTime - from.getTime()) / bucketMillis)]++;
+      totalFires[0]++;
+    });
+
+    ScheduleDistribution distribution = new ScheduleDistribution();
+    distribution.setFrom(from);
+    distribution.setTo(to);
+    distribution.setBucketSize(bucketSize);
+    distribution.setTotalFires(totalFires[0]);
+    distribution.setPeakFires(0);
+    List<ScheduleDistribution.FireBucket> buckets = new ArrayList<>();
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] == 0) {
+        continue;
+      }
+      Date bucketStart = new Date(from.getTime() + i * bucketMillis);
+      buckets.add(new ScheduleDistribution.FireBucket(bucketStart, counts[i]));
+      if (counts[i] > distribution.getPeakFires()) {
+        distribution.setPeakFires(counts[i]);
+        distribution.setPeakTime(bucketStart);
+      }
+    }
+    distribution.setBuckets(buckets);
+    return distribution;
+  }
+
+  /*
+   * Repairs drift between Quartz, the index of registered schedules and Mongo, which also picks up
+   * schedules changed through other replicas. The repair holds the same lock as reconcileWorkflow,
+   * so a job being scheduled is never seen before it is registered and removed as unknown.
+   */
+  @Scheduled(initialDelayString = "${flow.scheduler.sync-interval:60000}",
+      fixedDelayString = "${flow.scheduler.sync-interval:60000}")
+  public void synchronizeJobs() {
+    if (!started) {
+      return;
+    }
+
+    Map<String, FlowWorkflowEntity> workflows = flowWorkflowService.getScheduledWorkflows()
+        .stream().collect(Collectors.toMap(FlowWorkflowEntity::getId, Function.identity()));
+    synchronized (this) {
+      removeDrift(workflows);
+      for (FlowWorkflowEntity workflow : workflows.values()) {
+        reconcileWorkflow(workflow);
+      }
+    }
+  }
+
+  private void removeDrift(Map<String, FlowWorkflowEntity> workflows) {
+    Scheduler scheduler = schedulerFactoryBean.getScheduler();
+    try {
+      for (JobKey jobKey : scheduler.getJobKeys(GroupMatcher.jobGroupEquals(GROUP))) {
+        if (!registered.containsKey(jobKey.getName())) {
+          logger.info("Removing unknown schedule: {}", jobKey.getName());
+          scheduler.deleteJob(jobKey);
+        }
+      }
+      for (String workflowId : new ArrayList<>(registered.keySet())) {
+        if (!scheduler.checkExists(new JobKey(workflowId, GROUP))) {
+          registered.remove(workflowId);
+        } else if (!workflows.containsKey(workflowId)) {
+          logger.info("Removing schedule no longer needed: {}", workflowId);
+          removeWorkflow(workflowId);
+        }
+      }
+    } catch (SchedulerException e) {
+      logger.error(e);
     }
   }
 
   private void setupJobs() {
-    List<FlowWorkflowEntity> scheduledWorkflows = flowWorkflowService.getScheduledWorkflows();
-    for (FlowWorkflowEntity workflow : scheduledWorkflows) {
-      if (workflow.getStatus() == WorkflowStatus.active) {
-        logger.info("Picked up scheduled job: {}", workflow.getName());
+    for (int page = 0;; page++) {
+      List<FlowWorkflowEntity> batch =
+          flowWorkflowService.getScheduledWorkflows(page, startupBatchSize);
+      for (FlowWorkflowEntity workflow : batch) {
         try {
-          scheduleWorkflow(workflow);
+          if (reconcileWorkflow(workflow)) {
+            recoverMisfire(workflow);
+          }
         } catch (RuntimeException e) {
           logger.error("Failed up scheduled job: {}", workflow.getName());
         }
       }
+      if (batch.size() < startupBatchSize) {
+        break;
+      }
     }
+    logger.info("Registered {} scheduled workflows", registered.size());
   }
 
-  public void scheduleWorkflow(FlowWorkflowEntity workflow) {
-    if (workflow.getTriggers() != null && workflow.getTriggers().getScheduler() != null) {
-      String cronString = workflow.getTriggers().getScheduler().getSchedule();
-      String timezone = workflow.getTriggers().getScheduler().getTimezone();
-
-      if (cronString != null && timezone != null) {
+  private boolean schedule(FlowWorkflowEntity workflow) {
+    String cronString = workflow.getTriggers().getScheduler().getSchedule();
+    TimeZone timeZone = TimeZone.getTimeZone(workflow.getTriggers().getScheduler().getTimezone());
+    String workflowId = workflow.getId();
+    Scheduler scheduler = schedulerFactoryBean.getScheduler();
+    JobDetail jobDetail = JobBuilder.newJob(FlowJob.class).withIdentity(workflowId, GROUP).build();
+    CronScheduleBuilder scheduleBuilder =
+        CronScheduleBuilder.cronSchedule(cronString).inTimeZone(timeZone);
+    if (MISFIRE_FIRE_ONCE.equals(misfirePolicy)) {
+      scheduleBuilder = scheduleBuilder.withMisfireHandlingInstructionFireAndProceed();
+    } else {
+      scheduleBuilder = scheduleBuilder.withMisfireHandlingInstructionDoNothing();
+    }
 
+    CronTrigger trigger = TriggerBuilder.newTrigger().withIdentity(workflowId, GROUP)
+        .usingJobData(DELAY, getFireDelay(workflow)).withSchedule(scheduleBuilder).build();
+    try {
+      scheduler.scheduleJob(jobDetail, trigger);
+      logger.info("Scheduled Workflow: {}", workflowId);
+      return true;
+    } catch (SchedulerException e) {
+      logger.error(e);
+      return false;
+    }
+  }
 
-        boolean validCron = org.quartz.CronExpression.isValidExpression(cronString);
+  private boolean defer(JobKey jobKey, Date fireTime, long delay) {
+    Trigger deferred = TriggerBuilder.newTrigger().forJob(jobKey)
+        .usingJobData(FIRE_TIME, fireTime.getTime())
+        .startAt(new Date(fireTime.getTime() + delay)).build();
+    try {
+      schedulerFactoryBean.getScheduler().scheduleJob(deferred);
+      return true;
+    } catch (SchedulerException e) {
+      logger.error(e);
+      return false;
+    }
+  }
 
-        if (!validCron) {
-          logger.info("Invalid CRON: {}", cronString);
-          return;
+  /* Deleting a job drops its triggers, so fires still waiting out their delay are carried over. */
+  private List<Trigger> getDeferredTriggers(String workflowId) {
+    List<Trigger> deferred = new ArrayList<>();
+    try {
+      for (Trigger trigger : schedulerFactoryBean.getScheduler()
+          .getTriggersOfJob(new JobKey(workflowId, GROUP))) {
+        if (trigger.getJobDataMap().containsKey(FIRE_TIME)) {
+          deferred.add(trigger);
         }
+      }
+    } catch (SchedulerException e) {
+      logger.error(e);
+    }
+    return deferred;
+  }
 
-        TimeZone timeZone = TimeZone.getTimeZone(timezone);
-        String workflowId = workflow.getId();
-        Scheduler scheduler = schedulerFactoryBean.getScheduler();
-        JobDetail jobDetail =
-            JobBuilder.newJob(FlowJob.class).withIdentity(workflowId, "flow").build();
-        CronScheduleBuilder scheduleBuilder =
-            CronScheduleBuilder.cronSchedule(cronString).inTimeZone(timeZone);
+  private void restoreDeferredTriggers(String workflowId, List<Trigger> deferred) {
+    for (Trigger trigger : deferred) {
+      try {
+        schedulerFactoryBean.getScheduler().scheduleJob(
+            trigger.getTriggerBuilder().forJob(new JobKey(workflowId, GROUP)).build());
+      } catch (SchedulerException e) {
+        logger.error(e);
+      }
+    }
+  }
 
-        CronTrigger trigger = TriggerBuilder.newTrigger().withIdentity(workflowId, "flow")
-            .withSchedule(scheduleBuilder).build();
-        try {
-          scheduler.scheduleJob(jobDetail, trigger);
-          logger.info("Scheduled Workflow: {}", workflowId);
-        } catch (SchedulerException e) {
-          logger.error(e);
+  private void unschedule(String workflowId) {
+    registered.remove(workflowId);
+    try {
+      boolean deleted =
+          schedulerFactoryBean.getScheduler().deleteJob(new JobKey(workflowId, GROUP));
+      logger.info("Removed schedule of {}: {}", workflowId, deleted);
+    } catch (SchedulerException e) {
+      logger.error(e);
+    }
+  }
+
+  /*
+   * With the fire-once policy a schedule that came due while no replica was running fires once at
+   * startup, if the missed fire is within the lookback. Only fires after the last recorded one are
+   * considered, and the missed fire is claimed like any other, so it runs on one replica only.
+   */
+  void recoverMisfire(FlowWorkflowEntity workflow) {
+    if (!clustered || !MISFIRE_FIRE_ONCE.equals(misfirePolicy) || !isSchedulable(workflow)) {
+      return;
+    }
+
+    Optional<Date> lastFire = fireService.getLastFireTime(workflow.getId());
+    if (!lastFire.isPresent()) {
+      return;
+    }
+    Date now = Date.from(clock.instant());
+    Date windowStart = new Date(Math.max(lastFire.get().getTime(),
+        now.getTime() - misfireLookback - 1));
+
+    try {
+      Date missed = getLastScheduledTime(workflow, windowStart, now);
+      if (missed != null && fireService.claimFire(workflow.getId(), missed, instanceId)) {
+        logger.info("Firing missed schedule of {} due at {}", workflow.getId(), missed);
+        schedulerFactoryBean.getScheduler().triggerJob(new JobKey(workflow.getId(), GROUP),
+            new JobDataMap(Collections.singletonMap(CLAIMED, true)));
+      }
+    } catch (ParseException | SchedulerException e) {
+      logger.error(e);
+    }
+  }
+
+  private Date getLastScheduledTime(FlowWorkflowEntity workflow, Date after, Date before)
+      throws ParseException {
+    CronExpression expression = getCronExpression(workflow);
+    Date missed = null;
+    Date next = expression.getNextValidTimeAfter(after);
+    for (int i = 0; next != null && next.before(before) && i < MAX_CRON_SCAN; i++) {
+      missed = next;
+      next = expression.getNextValidTimeAfter(next);
+    }
+    return missed;
+  }
+
+  /*
+   * Returns the fire times of a schedule from start, inclusive, to end, in ascending order. A
+   * schedule firing more than MAX_CRON_SCAN times in the range is refused, not cut short.
+   */
+  private long[] expand(FlowWorkflowEntity workflow, long start, long end) {
+    long[] fires = new long[64];
+    int count = 0;
+    try {
+      CronExpression expression = getCronExpression(workflow);
+      Date next = expression.getNextValidTimeAfter(new Date(start - 1));
+      while (next != null && next.getTime() < end) {
+        if (count == MAX_CRON_SCAN) {
+          throw new ScheduleRangeTooLargeException("The schedule of workflow " + workflow.getId()
+              + " fires more than " + MAX_CRON_SCAN + " times in the range, narrow it");
+        }
+        if (count == fires.length) {
+          fires = Arrays.copyOf(fires, count * 2);
         }
+        fires[count++] = next.getTime();
+        next = expression.getNextValidTimeAfter(next);
       }
+    } catch (ParseException e) {
+      logger.error(e);
+    }
+    return Arrays.copyOf(fires, count);
+  }
 
+  private CronExpression getCronExpression(FlowWorkflowEntity workflow) throws ParseException {
+    net.boomerangplatform.mongo.model.Scheduler schedule = workflow.getTriggers().getScheduler();
+    CronExpression expression = new CronExpression(schedule.getSchedule());
+    expression.setTimeZone(TimeZone.getTimeZone(schedule.getTimezone()));
+    return expression;
+  }
+
+  /*
+   * Workflows sharing a fire time are staggered by a delay derived from their id, so every replica
+   * computes the same delay and claims stay keyed by the unstaggered fire time.
+   */
+  private long getFireDelay(FlowWorkflowEntity workflow) {
+    Integer jitter = workflow.getTriggers().getScheduler().getJitter();
+    long window = jitter != null ? jitter : spreadWindow;
+    if (window <= 0) {
+      return 0L;
     }
+    int hash = Hashing.murmur3_32().hashString(workflow.getId(), StandardCharsets.UTF_8).asInt();
+    return Math.floorMod(hash, window) * 1000L;
+  }
+
+  private boolean isSchedulable(FlowWorkflowEntity workflow) {
+    if (workflow.getStatus() != WorkflowStatus.active || workflow.getTriggers() == null
+        || workflow.getTriggers().getScheduler() == null
+        || !Boolean.TRUE.equals(workflow.getTriggers().getScheduler().getEnable())) {
+      return false;
+    }
+    String cronString = workflow.getTriggers().getScheduler().getSchedule();
+    return cronString != null && workflow.getTriggers().getScheduler().getTimezone() != null
+        && CronExpression.isValidExpression(cronString);
+  }
+
+  private String getSignature(FlowWorkflowEntity workflow) {
+    return getExpressionKey(workflow) + "|" + getFireDelay(workflow);
+  }
+
+  private String getExpressionKey(FlowWorkflowEntity workflow) {
+    net.boomerangplatform.mongo.model.Scheduler schedule = workflow.getTriggers().getScheduler();
+    return schedule.getSchedule() + "|" + TimeZone.getTimeZone(schedule.getTimezone()).getID();
   }
 }
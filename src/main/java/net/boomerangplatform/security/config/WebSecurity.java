@@ -30,6 +30,10 @@ public class WebSecurity extends WebSecurityConfigurerAdapter {
 
   private static final String INTERNAL = "/internal";
 
+  private static final String WEBHOOK = "/flow/webhook";
+
+  private static final String WEBHOOK_TOKEN = "/flow/webhook/*";
+
   @Autowired
   private ApiTokenService tokenService;
 
@@ -40,6 +44,12 @@ public class WebSecurity extends WebSecurityConfigurerAdapter {
   @Value("${core.authorization.basic.password:}")
   private String basicPassword;
 
+  @Value("${flow.cache.token.max-size:10000}")
+  private long tokenCacheSize;
+
+  @Value("${flow.cache.token.ttl-seconds:3600}")
+  private long tokenCacheTtlSeconds;
+
   @Override
   protected void configure(HttpSecurity http) throws Exception {
     if (boomerangAuthorization) {
@@ -55,10 +65,11 @@ public class WebSecurity extends WebSecurityConfigurerAdapter {
   private void setupJWT(HttpSecurity http, boolean checkSignature, String jwtSecret)
       throws Exception {
     LOGGER.info("Enabling JWT identity checking.");
-    final BoomerangAuthorizationFilter jwtFilter = new BoomerangAuthorizationFilter(tokenService,
-        authenticationManager(), jwtSecret, checkSignature, basicPassword);
-    http.csrf().disable().authorizeRequests().antMatchers(HEALTH, API_DOCS, INFO, INTERNAL)
-        .permitAll().and().authorizeRequests().anyRequest().authenticated().and()
+    final BoomerangAuthorizationFilter jwtFilter =
+        new BoomerangAuthorizationFilter(tokenService, authenticationManager(), jwtSecret,
+            checkSignature, basicPassword, tokenCacheSize, tokenCacheTtlSeconds);
+    http.csrf().disable().authorizeRequests().antMatchers(HEALTH, API_DOCS, INFO, INTERNAL, WEBHOOK,
+        WEBHOOK_TOKEN).permitAll().and().authorizeRequests().anyRequest().authenticated().and()
         .addFilterBefore(jwtFilter, BasicAuthenticationFilter.class).sessionManagement()
         .sessionCreationPolicy(SessionCreationPolicy.STATELESS);
   }
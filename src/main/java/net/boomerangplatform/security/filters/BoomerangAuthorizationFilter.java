@@ -6,10 +6,12 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.WordUtils;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,9 +20,12 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.impl.DefaultJwtParser;
 import net.boomerangplatform.security.AuthorizationException;
@@ -38,15 +43,24 @@ public class BoomerangAuthorizationFilter extends BasicAuthenticationFilter {
   private String basicPassword;
   
   private static final String WEBHEADER = "X-WEBAUTH-EMAIL";
-  
+
+  private static final long INVALID_TOKEN_TTL_SECONDS = 60;
+
+  private final long tokenCacheTtlSeconds;
+
+  private final Cache<String, CachedToken> tokenCache;
 
   public BoomerangAuthorizationFilter(ApiTokenService tokenService,
-      AuthenticationManager authManager, String jwtSecret, boolean checkJwt, String basicPassword) {
+      AuthenticationManager authManager, String jwtSecret, boolean checkJwt, String basicPassword,
+      long tokenCacheSize, long tokenCacheTtlSeconds) {
     super(authManager);
     this.jwtSecret = jwtSecret;
     this.checkJwt = checkJwt;
     this.tokenService = tokenService;
     this.basicPassword = basicPassword;
+    this.tokenCacheTtlSeconds = tokenCacheTtlSeconds;
+    this.tokenCache = CacheBuilder.newBuilder().maximumSize(tokenCacheSize)
+        .expireAfterWrite(tokenCacheTtlSeconds, TimeUnit.SECONDS).build();
   }
 
   @Override
@@ -72,45 +86,8 @@ public class BoomerangAuthorizationFilter extends BasicAuthenticationFilter {
 
         final String jws = token.replace("Bearer ", "");
         tokenService.storeUserToken(jws);
-        Claims claims;
-        if (checkJwt) {
-          Jws<Claims> info = Jwts.parser().setSigningKey(jwtSecret.getBytes()).parseClaimsJws(jws);
-          claims = info.getBody();
-        } else {
-          String withoutSignature = jws.substring(0, jws.lastIndexOf('.') + 1);
-
-          try {
-            claims = (Claims) new DefaultJwtParser().parse(withoutSignature).getBody();
-          } catch (ExpiredJwtException e) {
-            claims = e.getClaims();
-          }
-        }
-
-        String userId = null;
-        if (claims.get("emailAddress") != null) {
-          userId = (String) claims.get("emailAddress");
-        } else if (claims.get("email") != null) {
-          userId = (String) claims.get("email");
-        }
-
-        String firstName = null;
-        if (claims.get("firstName") != null) {
-          firstName = (String) claims.get("firstName");
-        } else if (claims.get("given_name") != null) {
-          firstName = (String) claims.get("given_name");
-        }
-
-        String lastName = null;
-        if (claims.get("lastName") != null) {
-          lastName = (String) claims.get("lastName");
-        } else if (claims.get("family_name") != null) {
-          lastName = (String) claims.get("family_name");
-        }
-
-        firstName = santaize(firstName);
-        lastName = santaize(lastName);
-
-        final UserDetails userDetails = new UserDetails(userId, firstName, lastName);
+        final UserDetails userDetails = getBearerUserDetails(jws);
+        final String userId = userDetails.getEmail();
 
         if (userId != null) {
           final List<GrantedAuthority> authorities = new ArrayList<>();
@@ -190,6 +167,85 @@ public class BoomerangAuthorizationFilter extends BasicAuthenticationFilter {
     return null;
   }
 
+  /**
+   * Parsing, verifying and sanitizing a token is done once per distinct token. The outcome, valid
+   * or not, is cached by token hash so repeated requests with the same token skip that work. Only
+   * the reason for a rejection is kept, and each request gets its own exception.
+   */
+  private UserDetails getBearerUserDetails(String jws) {
+    final String key = DigestUtils.sha256Hex(jws);
+    CachedToken cached = tokenCache.getIfPresent(key);
+    if (cached == null || cached.isExpired()) {
+      try {
+        cached = verifyToken(jws);
+      } catch (JwtException | IllegalArgumentException e) {
+        final String failure = StringUtils.defaultIfEmpty(e.getMessage(), "Invalid token");
+        cached = new CachedToken(null, failure,
+            System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(INVALID_TOKEN_TTL_SECONDS));
+      }
+      tokenCache.put(key, cached);
+    }
+
+    if (cached.failure != null) {
+      throw new JwtException(cached.failure);
+    }
+    final UserDetails userDetails = new UserDetails(cached.userDetails.getEmail(),
+        cached.userDetails.getFirstName(), cached.userDetails.getLastName());
+    userDetails.setExpiration(cached.userDetails.getExpiration());
+    userDetails.setPlatformRole(cached.userDetails.getPlatformRole());
+    userDetails.setTokenHash(key);
+    return userDetails;
+  }
+
+  private CachedToken verifyToken(String jws) {
+    Claims claims;
+    if (checkJwt) {
+      Jws<Claims> info = Jwts.parser().setSigningKey(jwtSecret.getBytes()).parseClaimsJws(jws);
+      claims = info.getBody();
+    } else {
+      String withoutSignature = jws.substring(0, jws.lastIndexOf('.') + 1);
+
+      try {
+        claims = (Claims) new DefaultJwtParser().parse(withoutSignature).getBody();
+      } catch (ExpiredJwtException e) {
+        claims = e.getClaims();
+      }
+    }
+
+    String userId = null;
+    if (claims.get("emailAddress") != null) {
+      userId = (String) claims.get("emailAddress");
+    } else if (claims.get("email") != null) {
+      userId = (String) claims.get("email");
+    }
+
+    String firstName = null;
+    if (claims.get("firstName") != null) {
+      firstName = (String) claims.get("firstName");
+    } else if (claims.get("given_name") != null) {
+      firstName = (String) claims.get("given_name");
+    }
+
+    String lastName = null;
+    if (claims.get("lastName") != null) {
+      lastName = (String) claims.get("lastName");
+    } else if (claims.get("family_name") != null) {
+      lastName = (String) claims.get("family_name");
+    }
+
+    firstName = santaize(firstName);
+    lastName = santaize(lastName);
+
+    final UserDetails userDetails = new UserDetails(userId, firstName, lastName);
+    userDetails.setExpiration(claims.getExpiration());
+
+    long expiresAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(tokenCacheTtlSeconds);
+    if (checkJwt && claims.getExpiration() != null) {
+      expiresAt = Math.min(expiresAt, claims.getExpiration().getTime());
+    }
+    return new CachedToken(userDetails, null, expiresAt);
+  }
+
   private String santaize(String value) {
     if (StringUtils.isBlank(value)) {
       return value;
@@ -205,4 +261,20 @@ public class BoomerangAuthorizationFilter extends BasicAuthenticationFilter {
     return cleanString;
   }
 
+  private static class CachedToken {
+
+    private final UserDetails userDetails;
+    private final String failure;
+    private final long expiresAt;
+
+    CachedToken(UserDetails userDetails, String failure, long expiresAt) {
+      this.userDetails = userDetails;
+      this.failure = failure;
+      this.expiresAt = expiresAt;
+    }
+
+    boolean isExpired() {
+      return System.currentTimeMillis() >= expiresAt;
+    }
+  }
 }
@@ -1,5 +1,7 @@
 package net.boomerangplatform.security.model;
 
+import java.util.Date;
+
 public class UserDetails {
 
   private String email;
@@ -7,6 +9,8 @@ public class UserDetails {
   private String firstName;
   private String lastName;
   private String platformRole;
+  private Date expiration;
+  private String tokenHash;
 
   public UserDetails(String email, String firstName, String lastName) {
     super();
@@ -46,4 +50,20 @@ public class UserDetails {
   public void setPlatformRole(String platformRole) {
     this.platformRole = platformRole;
   }
+
+  public Date getExpiration() {
+    return expiration;
+  }
+
+  public void setExpiration(Date expiration) {
+    this.expiration = expiration;
+  }
+
+  public String getTokenHash() {
+    return tokenHash;
+  }
+
+  public void setTokenHash(String tokenHash) {
+    this.tokenHash = tokenHash;
+  }
 }
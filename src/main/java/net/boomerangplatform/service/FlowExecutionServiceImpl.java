@@ -1,11 +1,9 @@
 package net.boomerangplatform.service;
 
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Supplier;
@@ -38,6 +36,7 @@ import net.boomerangplatform.mongo.model.next.Dependency;
 import net.boomerangplatform.mongo.service.FlowTaskTemplateService;
 import net.boomerangplatform.mongo.service.FlowWorkflowActivityService;
 import net.boomerangplatform.mongo.service.FlowWorkflowVersionService;
+import net.boomerangplatform.service.crud.ActivityRollupService;
 import net.boomerangplatform.service.crud.FlowActivityService;
 import net.boomerangplatform.service.runner.FlowTaskRunnerService;
 import net.boomerangplatform.util.GraphProcessor;
@@ -63,6 +62,9 @@ public class FlowExecutionServiceImpl implements FlowExecutionService {
   @Autowired
   private FlowWorkflowActivityService flowWorkflowActivityService;
 
+  @Autowired
+  private ActivityRollupService activityRollupService;
+
   private static final Logger LOGGER = LogManager.getLogger(FlowExecutionServiceImpl.class);
 
   private List<Task> createTaskList(FlowWorkflowRevisionEntity revisionEntity) { // NOSONAR
@@ -82,27 +84,15 @@ public class FlowExecutionServiceImpl implements FlowExecutionService {
 
       if (dagTask.getType() == TaskType.template || dagTask.getType() == TaskType.customtask) {
         String templateId = dagTask.getTemplateId();
-        final FlowTaskTemplateEntity flowTaskTemplate =
-            templateService.getTaskTemplateWithId(templateId);
-        Integer templateVersion = dagTask.getTemplateVersion();
-        List<Revision> revisions = flowTaskTemplate.getRevisions();
-        if (revisions != null) {
-          Optional<Revision> result = revisions.stream().parallel()
-              .filter(revision -> revision.getVersion().equals(templateVersion)).findAny();
-          if (result.isPresent()) {
-            Revision revision = result.get();
-            newTask.setRevision(revision);
-          } else {
-            Optional<Revision> latestRevision = revisions.stream()
-                .sorted(Comparator.comparingInt(Revision::getVersion).reversed()).findFirst();
-            if (latestRevision.isPresent()) {
-              newTask.setRevision(latestRevision.get());
-            }
-          }
-        } else {
+        Revision revision =
+            templateService.getTemplateRevision(templateId, dagTask.getTemplateVersion());
+        if (revision == null) {
+          revision = templateService.getLatestTemplateRevision(templateId);
+        }
+        if (revision == null) {
           throw new IllegalArgumentException("Invalid task template selected: " + templateId);
-
         }
+        newTask.setRevision(revision);
 
         Map<String, String> properties = new HashMap<>();
         if (dagTask.getProperties() != null) {
@@ -144,18 +134,14 @@ public class FlowExecutionServiceImpl implements FlowExecutionService {
         this.flowWorkflowActivityService.findWorkflowActiivtyById(activityId);
 
     if (start == null || end == null) {
-      activityEntity.setStatus(FlowTaskStatus.invalid);
-      flowWorkflowActivityService.saveWorkflowActivity(activityEntity);
-      throw new InvalidWorkflowRuntimeException();
+      throw invalidateActivity(activityEntity);
     }
 
     final List<String> nodes =
         GraphProcessor.createOrderedTaskList(graph, start.getTaskId(), end.getTaskId());
 
     if (nodes.isEmpty()) {
-      activityEntity.setStatus(FlowTaskStatus.invalid);
-      flowWorkflowActivityService.saveWorkflowActivity(activityEntity);
-      throw new InvalidWorkflowRuntimeException();
+      throw invalidateActivity(activityEntity);
     }
 
     final DijkstraShortestPath<String, DefaultEdge> dijkstraAlg = new DijkstraShortestPath<>(graph);
@@ -164,13 +150,19 @@ public class FlowExecutionServiceImpl implements FlowExecutionService {
     final boolean singlePathExists = (pathFromStart.getPath(end.getTaskId()) != null);
     if (!singlePathExists) {
 
-      activityEntity.setStatus(FlowTaskStatus.invalid);
       activityEntity.setStatusMessage("Failed to run workflow: Incomplete workflow");
-      this.flowWorkflowActivityService.saveWorkflowActivity(activityEntity);
-      throw new InvalidWorkflowRuntimeException();
+      throw invalidateActivity(activityEntity);
     }
   }
 
+  private InvalidWorkflowRuntimeException invalidateActivity(
+      FlowWorkflowActivityEntity activityEntity) {
+    activityEntity.setStatus(FlowTaskStatus.invalid);
+    flowWorkflowActivityService.saveWorkflowActivity(activityEntity);
+    activityRollupService.recordActivity(activityEntity);
+    return new InvalidWorkflowRuntimeException();
+  }
+
   private void createTaskPlan(List<Task> tasks, String activityId, final Task start, final Task end,
       final Graph<String, DefaultEdge> graph) {
 
@@ -191,6 +183,7 @@ public class FlowExecutionServiceImpl implements FlowExecutionService {
       FlowTaskExecutionEntity taskExecution = new FlowTaskExecutionEntity();
       taskExecution.setActivityId(activityId);
       taskExecution.setTaskId(task.getTaskId());
+      taskExecution.setWorkflowId(task.getWorkflowId());
       taskExecution.setFlowTaskStatus(FlowTaskStatus.notstarted);
       taskExecution.setOrder(order);
       taskExecution.setTaskName(task.getTaskName());
@@ -1,6 +1,8 @@
 package net.boomerangplatform.service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import org.springframework.data.domain.Pageable;
 import net.boomerangplatform.model.FlowUser;
 import net.boomerangplatform.model.UserQueryResult;
@@ -13,6 +15,11 @@ public interface UserIdentityService {
 
   public FlowUserEntity getUserByID(String userId);
 
+  /**
+   * Resolves many users in one round trip, keyed by id. Ids that cannot be found are left out.
+   */
+  Map<String, FlowUserEntity> getUsersByIds(Collection<String> userIds);
+
   UserQueryResult getUserViaSearchTerm(String searchTerm, Pageable pageable);
 
   UserQueryResult getUsers(Pageable pageable);
@@ -1,14 +1,31 @@
 package net.boomerangplatform.service;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
 import net.boomerangplatform.client.BoomerangUserService;
 import net.boomerangplatform.client.model.UserProfile;
 import net.boomerangplatform.model.FlowUser;
@@ -22,6 +39,10 @@ import net.boomerangplatform.security.service.UserDetailsService;
 @Service
 public class UserIdentityServiceImpl implements UserIdentityService {
 
+  private static final String CACHE_NAME = "flow.users.current";
+
+  private static final String USERS_CACHE_NAME = "flow.users";
+
   @Value("${boomerang.standalone}")
   private boolean standAloneMode;
 
@@ -34,6 +55,37 @@ public class UserIdentityServiceImpl implements UserIdentityService {
   @Autowired
   private FlowUserService flowUserService;
 
+  @Autowired(required = false)
+  private MeterRegistry meterRegistry;
+
+  @Value("${flow.cache.user.max-size:1000}")
+  private long cacheMaxSize;
+
+  @Value("${flow.cache.user.ttl-seconds:300}")
+  private long cacheTtlSeconds;
+
+  @Value("${flow.cache.users.max-size:5000}")
+  private long usersCacheMaxSize;
+
+  @Value("${flow.cache.users.ttl-seconds:60}")
+  private long usersCacheTtlSeconds;
+
+  private Cache<String, CachedUser> currentUserCache;
+
+  private Cache<String, FlowUserEntity> usersCache;
+
+  @PostConstruct
+  public void init() {
+    currentUserCache = CacheBuilder.newBuilder().maximumSize(cacheMaxSize)
+        .expireAfterWrite(cacheTtlSeconds, TimeUnit.SECONDS).recordStats().build();
+    usersCache = CacheBuilder.newBuilder().maximumSize(usersCacheMaxSize)
+        .expireAfterWrite(usersCacheTtlSeconds, TimeUnit.SECONDS).recordStats().build();
+    if (meterRegistry != null) {
+      GuavaCacheMetrics.monitor(meterRegistry, currentUserCache, CACHE_NAME);
+      GuavaCacheMetrics.monitor(meterRegistry, usersCache, USERS_CACHE_NAME);
+    }
+  }
+
   @Override
   public FlowUserEntity getCurrentUser() {
     if (standAloneMode) {
@@ -44,11 +96,7 @@ public class UserIdentityServiceImpl implements UserIdentityService {
       String lastName = userDetails.getLastName();
       return flowUserService.getOrRegisterUser(email, firstName, lastName);
     } else {
-      UserProfile userProfile = coreUserService.getInternalUserProfile();
-      FlowUserEntity flowUser = new FlowUserEntity();
-      BeanUtils.copyProperties(userProfile, flowUser);
-      flowUser.setType(UserType.valueOf(userProfile.getType()));
-      return flowUser;
+      return getCachedUserProfile(usertDetailsService.getUserDetails());
     }
   }
 
@@ -60,15 +108,31 @@ public class UserIdentityServiceImpl implements UserIdentityService {
         return flowUser.get();
       }
     } else {
-      UserProfile userProfile = coreUserService.getUserProfileById(userId);
-      FlowUserEntity flowUser = new FlowUserEntity();
-      BeanUtils.copyProperties(userProfile, flowUser);
-      flowUser.setType(UserType.valueOf(userProfile.getType()));
-      return flowUser;
+      return toFlowUser(coreUserService.getUserProfileById(userId));
     }
     return null;
   }
 
+  @Override
+  public Map<String, FlowUserEntity> getUsersByIds(Collection<String> userIds) {
+    final Set<String> ids = userIds.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+    final Map<String, FlowUserEntity> users = new HashMap<>(usersCache.getAllPresent(ids));
+
+    final Set<String> missing = Sets.difference(ids, users.keySet()).immutableCopy();
+    if (!missing.isEmpty()) {
+      final List<FlowUserEntity> loaded = standAloneMode ? flowUserService.getUsersByIds(missing)
+          : coreUserService.getUserProfilesByIds(missing).stream().map(this::toFlowUser)
+              .collect(Collectors.toList());
+      for (FlowUserEntity user : loaded) {
+        usersCache.put(user.getId(), user);
+        users.put(user.getId(), user);
+      }
+    }
+
+    users.replaceAll((id, user) -> copyUser(user));
+    return users;
+  }
+
   @Override
   public UserQueryResult getUserViaSearchTerm(String searchTerm, Pageable pageable) {
     final UserQueryResult result = new UserQueryResult();
@@ -114,4 +178,62 @@ public class UserIdentityServiceImpl implements UserIdentityService {
       this.flowUserService.save(user);
     }
   }
+
+  /**
+   * Profiles of JWT callers are cached by the hash of the raw token until it expires, capped by the
+   * configured TTL. The claims may not have been verified, so the profile is only reused for the
+   * exact token the upstream call was made with. Concurrent misses for a token share one call.
+   */
+  private FlowUserEntity getCachedUserProfile(UserDetails userDetails) {
+    final String key = userDetails.getTokenHash();
+    final Date expiration = userDetails.getExpiration();
+    if (key == null || expiration == null || !expiration.after(new Date())) {
+      return loadUserProfile();
+    }
+
+    try {
+      CachedUser cached =
+          currentUserCache.get(key, () -> new CachedUser(loadUserProfile(), expiration));
+      if (cached.isExpired()) {
+        currentUserCache.asMap().remove(key, cached);
+        cached = currentUserCache.get(key, () -> new CachedUser(loadUserProfile(), expiration));
+      }
+      return copyUser(cached.user);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private FlowUserEntity loadUserProfile() {
+    return toFlowUser(coreUserService.getInternalUserProfile());
+  }
+
+  private FlowUserEntity toFlowUser(UserProfile userProfile) {
+    FlowUserEntity flowUser = new FlowUserEntity();
+    BeanUtils.copyProperties(userProfile, flowUser);
+    flowUser.setType(UserType.valueOf(userProfile.getType()));
+    return flowUser;
+  }
+
+  private FlowUserEntity copyUser(FlowUserEntity user) {
+    FlowUserEntity flowUser = new FlowUserEntity();
+    BeanUtils.copyProperties(user, flowUser);
+    return flowUser;
+  }
+
+  private static class CachedUser {
+
+    private final FlowUserEntity user;
+    private final Date expiration;
+
+    CachedUser(FlowUserEntity user, Date expiration) {
+      this.user = user;
+      this.expiration = expiration;
+    }
+
+    boolean isExpired() {
+      return !expiration.after(new Date());
+    }
+  }
 }
@@ -0,0 +1,19 @@
+package net.boomerangplatform.service.crud;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Sort;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+public interface ActivityExportService {
+
+  String FORMAT_NDJSON = "ndjson";
+
+  String FORMAT_CSV = "csv";
+
+  StreamingResponseBody exportActivities(Optional<Date> from, Optional<Date> to, Sort sort,
+      Optional<List<String>> workflowIds, Optional<List<String>> teamIds,
+      Optional<List<String>> statuses, Optional<List<String>> triggers, String format,
+      boolean includeTasks, int batchSize);
+}
@@ -0,0 +1,222 @@
+package net.boomerangplatform.service.crud;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.apache.commons.text.StringEscapeUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.boomerangplatform.model.FlowActivity;
+import net.boomerangplatform.mongo.entity.FlowTaskExecutionEntity;
+import net.boomerangplatform.mongo.entity.FlowTeamEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowActivityEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowEntity;
+import net.boomerangplatform.mongo.service.FlowTeamService;
+import net.boomerangplatform.mongo.service.FlowWorkflowActivityService;
+import net.boomerangplatform.mongo.service.FlowWorkflowActivityTaskService;
+import net.boomerangplatform.mongo.service.FlowWorkflowService;
+
+@Service
+public class ActivityExportServiceImpl implements ActivityExportService {
+
+  private static final List<String> ACTIVITY_COLUMNS = Arrays.asList("id", "workflowId",
+      "workflowName", "teamName", "workflowRevisionid", "status", "statusMessage", "trigger",
+      "creationDate", "duration", "initiatedByUserId", "initiatedByUserName");
+
+  private static final List<String> TASK_COLUMNS = Arrays.asList("taskExecutionId", "taskId",
+      "taskName", "taskStatus", "taskStartTime", "taskDuration");
+
+  @Autowired
+  private FlowWorkflowActivityService activityService;
+
+  @Autowired
+  private FlowWorkflowActivityTaskService taskService;
+
+  @Autowired
+  private FlowWorkflowService workflowService;
+
+  @Autowired
+  private FlowTeamService flowTeamService;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Override
+  public StreamingResponseBody exportActivities(Optional<Date> from, Optional<Date> to, Sort sort,
+      Optional<List<String>> workflowIds, Optional<List<String>> teamIds,
+      Optional<List<String>> statuses, Optional<List<String>> triggers, String format,
+      boolean includeTasks, int batchSize) {
+
+    final boolean csv = FORMAT_CSV.equals(format);
+    final Optional<List<String>> filteredWorkflowIds = getWorkflowIds(workflowIds, teamIds);
+
+    return outputStream -> {
+      final Writer writer =
+          new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+      if (csv) {
+        writeCsvHeader(writer, includeTasks);
+      }
+
+      if (!filteredWorkflowIds.isPresent() || !filteredWorkflowIds.get().isEmpty()) {
+        final ActivityWriter activityWriter = new ActivityWriter(writer, csv, includeTasks);
+        final List<FlowActivity> batch = new ArrayList<>(batchSize);
+
+        try (CloseableIterator<FlowWorkflowActivityEntity> activities =
+            activityService.streamActivities(from, to, filteredWorkflowIds, statuses, triggers,
+                sort, batchSize)) {
+          while (activities.hasNext()) {
+            batch.add(activityWriter.toActivity(activities.next()));
+            if (batch.size() >= batchSize) {
+              activityWriter.write(batch);
+              batch.clear();
+            }
+          }
+        }
+        activityWriter.write(batch);
+      }
+      writer.flush();
+    };
+  }
+
+  private Optional<List<String>> getWorkflowIds(Optional<List<String>> workflowIds,
+      Optional<List<String>> teamIds) {
+    if (!teamIds.isPresent()) {
+      return workflowIds;
+    }
+
+    List<String> teamWorkflowIds = workflowService.getWorkflowsForTeams(teamIds.get()).stream()
+        .map(FlowWorkflowEntity::getId).collect(Collectors.toList());
+    if (workflowIds.isPresent()) {
+      teamWorkflowIds.retainAll(workflowIds.get());
+    }
+    return Optional.of(teamWorkflowIds);
+  }
+
+  private void writeCsvHeader(Writer writer, boolean includeTasks) throws IOException {
+    List<String> columns = new ArrayList<>(ACTIVITY_COLUMNS);
+    if (includeTasks) {
+      columns.addAll(TASK_COLUMNS);
+    }
+    writer.write(String.join(",", columns));
+    writer.write('\n');
+  }
+
+  /*
+   * Holds the per-request lookups so workflow and team names are resolved once per export rather
+   * than once per row.
+   */
+  private class ActivityWriter {
+
+    private final Writer writer;
+    private final boolean csv;
+    private final boolean includeTasks;
+
+    private final Map<String, Optional<FlowWorkflowEntity>> workflows = new HashMap<>();
+    private final Map<String, Optional<FlowTeamEntity>> teams = new HashMap<>();
+
+    ActivityWriter(Writer writer, boolean csv, boolean includeTasks) {
+      this.writer = writer;
+      this.csv = csv;
+      this.includeTasks = includeTasks;
+    }
+
+    FlowActivity toActivity(FlowWorkflowActivityEntity entity) {
+      final FlowActivity activity = new FlowActivity(entity);
+      final FlowWorkflowEntity workflow = workflows.computeIfAbsent(entity.getWorkflowId(),
+          id -> Optional.ofNullable(workflowService.getWorkflow(id))).orElse(null);
+
+      if (workflow != null) {
+        activity.setWorkflowName(workflow.getName());
+        activity.setDescription(workflow.getDescription());
+        activity.setShortDescription(workflow.getShortDescription());
+        activity.setIcon(workflow.getIcon());
+        if (workflow.getFlowTeamId() != null) {
+          teams.computeIfAbsent(workflow.getFlowTeamId(),
+              id -> Optional.ofNullable(flowTeamService.findById(id)))
+              .ifPresent(team -> activity.setTeamName(team.getName()));
+        }
+      }
+      return activity;
+    }
+
+    void write(List<FlowActivity> batch) throws IOException {
+      if (batch.isEmpty()) {
+        return;
+      }
+
+      if (includeTasks) {
+        final Map<String, List<FlowTaskExecutionEntity>> steps = taskService
+            .findTaskActivityForActivities(
+                batch.stream().map(FlowActivity::getId).collect(Collectors.toList()))
+            .stream().sorted(Comparator.comparingLong(FlowTaskExecutionEntity::getOrder))
+            .collect(Collectors.groupingBy(FlowTaskExecutionEntity::getActivityId));
+        for (FlowActivity activity : batch) {
+          activity.setSteps(steps.getOrDefault(activity.getId(), new ArrayList<>()));
+        }
+      }
+
+      for (FlowActivity activity : batch) {
+        if (csv) {
+          writeCsv(activity);
+        } else {
+          writer.write(objectMapper.writeValueAsString(activity));
+          writer.write('\n');
+        }
+      }
+      writer.flush();
+    }
+
+    private void writeCsv(FlowActivity activity) throws IOException {
+      final List<Object> columns = Arrays.asList(activity.getId(), activity.getWorkflowId(),
+          activity.getWorkflowName(), activity.getTeamName(), activity.getWorkflowRevisionid(),
+          activity.getStatus() == null ? null : activity.getStatus().getStatus(),
+          activity.getStatusMessage(), activity.getTrigger(), formatDate(activity.getCreationDate()),
+          activity.getDuration(), activity.getInitiatedByUserId(),
+          activity.getInitiatedByUserName());
+
+      if (!includeTasks) {
+        writeCsvRow(columns);
+        return;
+      }
+      if (activity.getSteps().isEmpty()) {
+        final List<Object> row = new ArrayList<>(columns);
+        TASK_COLUMNS.forEach(column -> row.add(null));
+        writeCsvRow(row);
+        return;
+      }
+      for (FlowTaskExecutionEntity step : activity.getSteps()) {
+        final List<Object> row = new ArrayList<>(columns);
+        row.addAll(Arrays.asList(step.getId(), step.getTaskId(), step.getTaskName(),
+            step.getFlowTaskStatus() == null ? null : step.getFlowTaskStatus().getStatus(),
+            formatDate(step.getStartTime()), step.getDuration()));
+        writeCsvRow(row);
+      }
+    }
+
+    private void writeCsvRow(List<Object> columns) throws IOException {
+      writer.write(columns.stream()
+          .map(value -> value == null ? "" : StringEscapeUtils.escapeCsv(value.toString()))
+          .collect(Collectors.joining(",")));
+      writer.write('\n');
+    }
+
+    private String formatDate(Date date) {
+      return date == null ? null : date.toInstant().toString();
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package net.boomerangplatform.service.crud;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import net.boomerangplatform.model.InsightsSummary;
+import net.boomerangplatform.mongo.entity.FlowWorkflowActivityEntity;
+
+public interface ActivityRollupService {
+
+  /**
+   * Counts an activity that reached a final status: completed, failure, invalid or skipped. Every
+   * such transition must be recorded so the live rollups match a rebuild. Failures are logged and
+   * never fail the transition.
+   */
+  void recordActivity(FlowWorkflowActivityEntity activity);
+
+  /** Rebuilds the rollups from activity history, or returns false if a rebuild is running. */
+  boolean rebuildRollups();
+
+  /** Claims a rebuild and runs it in the background, or returns false if one is running. */
+  boolean startRebuild();
+
+  Map<String, Long> getStatusCounts(Optional<Date> from, Optional<Date> to,
+      Optional<List<String>> teamIds, Optional<List<String>> triggers);
+
+  InsightsSummary getInsightsSummary(Optional<Date> from, Optional<Date> to,
+      Optional<String> teamId);
+}
@@ -0,0 +1,314 @@
+package net.boomerangplatform.service.crud;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Service;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.boomerangplatform.model.DurationPercentiles;
+import net.boomerangplatform.model.InsightsSummary;
+import net.boomerangplatform.mongo.entity.FlowActivityRollupEntity;
+import net.boomerangplatform.mongo.entity.FlowActivityRollupStateEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowActivityEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowEntity;
+import net.boomerangplatform.mongo.model.RollupGranularity;
+import net.boomerangplatform.mongo.service.FlowActivityRollupService;
+import net.boomerangplatform.mongo.service.FlowWorkflowActivityService;
+import net.boomerangplatform.mongo.service.FlowWorkflowService;
+import net.boomerangplatform.util.DurationSketch;
+
+@Service
+public class ActivityRollupServiceImpl implements ActivityRollupService {
+
+  private static final Logger LOGGER = LogManager.getLogger(ActivityRollupServiceImpl.class);
+
+  private static final DurationSketch BINS = new DurationSketch();
+
+  private static final long FENCE_MARGIN = 1000L;
+
+  private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(
+      new ThreadFactoryBuilder().setNameFormat("rollup-rebuild-%d").setDaemon(true).build());
+
+  @Value("${flow.activity.rollups.rebuild-timeout:3600000}")
+  private long rebuildTimeout;
+
+  @Value("${flow.activity.rollups.rebuild-settle:5000}")
+  private long rebuildSettle;
+
+  @Autowired
+  private FlowActivityRollupService rollupService;
+
+  @Autowired
+  private FlowWorkflowActivityService activityService;
+
+  @Autowired
+  private FlowWorkflowService workflowService;
+
+  @Override
+  public void recordActivity(FlowWorkflowActivityEntity activity) {
+    try {
+      incrementRollups(activity);
+    } catch (RuntimeException e) {
+      LOGGER.error("Unable to update rollups for activity {}", activity.getId(), e);
+    }
+  }
+
+  private void incrementRollups(FlowWorkflowActivityEntity activity) {
+    final FlowActivityRollupStateEntity state = rollupService.getState();
+    final Long rebuilding = state.getRebuildGeneration();
+    final boolean afterFence =
+        rebuilding != null && !getFinishDate(activity).before(state.getRebuildFence());
+
+    final String teamId = getTeamId(activity.getWorkflowId());
+    for (RollupGranularity granularity : RollupGranularity.values()) {
+      final FlowActivityRollupEntity delta = createRollup(granularity, activity, teamId);
+      addActivity(delta, activity);
+      rollupService.incrementRollup(delta, state.getActiveGeneration());
+      if (afterFence) {
+        rollupService.incrementRollup(delta, rebuilding);
+      }
+    }
+  }
+
+  @Override
+  public boolean startRebuild() {
+    final FlowActivityRollupStateEntity state = claimRebuild();
+    if (state == null) {
+      return false;
+    }
+    rebuildExecutor.execute(() -> rebuild(state));
+    return true;
+  }
+
+  @Override
+  public boolean rebuildRollups() {
+    final FlowActivityRollupStateEntity state = claimRebuild();
+    if (state == null) {
+      return false;
+    }
+    rebuild(state);
+    return true;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    rebuildExecutor.shutdownNow();
+  }
+
+  /*
+   * The rebuild fills a new generation while the active one keeps being read and incremented.
+   * Activities finishing before the fence are counted from history; ones finishing after it are
+   * recorded into the new generation by recordActivity, which sees the claim since the fence is
+   * set ahead of it.
+   */
+  private FlowActivityRollupStateEntity claimRebuild() {
+    final Date now = new Date();
+    return rollupService.startRebuild(new Date(now.getTime() + FENCE_MARGIN),
+        new Date(now.getTime() - rebuildTimeout));
+  }
+
+  private void rebuild(FlowActivityRollupStateEntity state) {
+    final long generation = state.getRebuildGeneration();
+    final Date fence = state.getRebuildFence();
+    LOGGER.info("Rebuilding activity rollups into generation {}", generation);
+    try {
+      /* Let activities finished just before the fence be saved before they are read. */
+      Thread.sleep(Math.max(0, fence.getTime() + rebuildSettle - System.currentTimeMillis()));
+      final long total = countActivities(generation, fence);
+      if (rollupService.finishRebuild(generation)) {
+        LOGGER.info("Rebuilt activity rollups from {} activities", total);
+      } else {
+        LOGGER.warn("Activity rollup rebuild {} was superseded", generation);
+        rollupService.abandonRebuild(generation);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      rollupService.abandonRebuild(generation);
+    } catch (RuntimeException e) {
+      LOGGER.error("Activity rollup rebuild failed", e);
+      rollupService.abandonRebuild(generation);
+    }
+  }
+
+  /*
+   * Activities are read in creation order, so a bucket is complete as soon as an activity falls in
+   * a later one and can be written out; only the current hour and day are held in memory.
+   */
+  private long countActivities(long generation, Date fence) {
+    final Map<String, Optional<String>> teams = new HashMap<>();
+    final Map<RollupGranularity, Map<String, FlowActivityRollupEntity>> pending = new HashMap<>();
+    final Map<RollupGranularity, Instant> currentBuckets = new HashMap<>();
+    long total = 0;
+
+    try (CloseableIterator<FlowWorkflowActivityEntity> activities =
+        activityService.streamFinishedActivities(fence)) {
+      while (activities.hasNext()) {
+        final FlowWorkflowActivityEntity activity = activities.next();
+        if (!getFinishDate(activity).before(fence)) {
+          continue;
+        }
+        final String teamId = teams.computeIfAbsent(activity.getWorkflowId(),
+            id -> Optional.ofNullable(getTeamId(id))).orElse(null);
+
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+          final Instant bucketStart = getBucketStart(granularity, activity);
+          final Map<String, FlowActivityRollupEntity> buckets =
+              pending.computeIfAbsent(granularity, k -> new HashMap<>());
+          if (!bucketStart.equals(currentBuckets.put(granularity, bucketStart))) {
+            flush(buckets, generation);
+          }
+
+          final FlowActivityRollupEntity rollup = createRollup(granularity, activity, teamId);
+          addActivity(buckets.computeIfAbsent(rollup.getId(), k -> rollup), activity);
+        }
+        total++;
+      }
+    }
+    pending.values().forEach(buckets -> flush(buckets, generation));
+    return total;
+  }
+
+  @Override
+  public Map<String, Long> getStatusCounts(Optional<Date> from, Optional<Date> to,
+      Optional<List<String>> teamIds, Optional<List<String>> triggers) {
+    final Map<String, Long> counts = new HashMap<>();
+    try (CloseableIterator<FlowActivityRollupEntity> rollups =
+        rollupService.streamRollups(from, to, teamIds, triggers, getActiveGeneration())) {
+      while (rollups.hasNext()) {
+        final FlowActivityRollupEntity rollup = rollups.next();
+        if (rollup.getStatusCounts() != null) {
+          rollup.getStatusCounts().forEach((status, count) -> counts.merge(status, count, Long::sum));
+        }
+      }
+    }
+    return counts;
+  }
+
+  @Override
+  public InsightsSummary getInsightsSummary(Optional<Date> from, Optional<Date> to,
+      Optional<String> teamId) {
+    final DurationSketch sketch = new DurationSketch();
+    final Map<String, DurationSketch> workflowSketches = new HashMap<>();
+    final Map<String, DurationSketch> teamSketches = new HashMap<>();
+    long total = 0;
+
+    try (CloseableIterator<FlowActivityRollupEntity> rollups = rollupService.streamRollups(from,
+        to, teamId.map(Arrays::asList), Optional.empty(), getActiveGeneration())) {
+      while (rollups.hasNext()) {
+        final FlowActivityRollupEntity rollup = rollups.next();
+        final DurationSketch rollupSketch = toSketch(rollup);
+        sketch.merge(rollupSketch);
+        if (rollup.getWorkflowId() != null) {
+          workflowSketches.computeIfAbsent(rollup.getWorkflowId(), k -> new DurationSketch())
+              .merge(rollupSketch);
+        }
+        if (rollup.getTeamId() != null) {
+          teamSketches.computeIfAbsent(rollup.getTeamId(), k -> new DurationSketch())
+              .merge(rollupSketch);
+        }
+        if (rollup.getStatusCounts() != null) {
+          total += rollup.getStatusCounts().values().stream().mapToLong(Long::longValue).sum();
+        }
+      }
+    }
+
+    final InsightsSummary response = new InsightsSummary();
+    response.setTotalActivitiesExecuted((int) total);
+    response.setExecutions(new ArrayList<>());
+    response.setMedianExecutionTime(sketch.getQuantile(0.5));
+    response.setExecutionTime(new DurationPercentiles(sketch));
+    response.setWorkflowExecutionTimes(toPercentiles(workflowSketches));
+    response.setTeamExecutionTimes(toPercentiles(teamSketches));
+    return response;
+  }
+
+  private void flush(Map<String, FlowActivityRollupEntity> buckets, long generation) {
+    buckets.values().forEach(rollup -> rollupService.incrementRollup(rollup, generation));
+    buckets.clear();
+  }
+
+  private Date getFinishDate(FlowWorkflowActivityEntity activity) {
+    final Long duration = activity.getDuration();
+    final Date created = activity.getCreationDate();
+    return duration == null ? created : new Date(created.getTime() + duration);
+  }
+
+  private long getActiveGeneration() {
+    return rollupService.getState().getActiveGeneration();
+  }
+
+  private String getTeamId(String workflowId) {
+    final FlowWorkflowEntity workflow = workflowService.getWorkflow(workflowId);
+    return workflow == null ? null : workflow.getFlowTeamId();
+  }
+
+  private Instant getBucketStart(RollupGranularity granularity,
+      FlowWorkflowActivityEntity activity) {
+    return activity.getCreationDate().toInstant().truncatedTo(granularity.getUnit());
+  }
+
+  private FlowActivityRollupEntity createRollup(RollupGranularity granularity,
+      FlowWorkflowActivityEntity activity, String teamId) {
+    final Instant bucketStart = getBucketStart(granularity, activity);
+    final FlowActivityRollupEntity rollup = new FlowActivityRollupEntity();
+    rollup.setId(granularity + "-" + bucketStart.toEpochMilli() + "-" + activity.getWorkflowId()
+        + "-" + activity.getTrigger());
+    rollup.setGranularity(granularity);
+    rollup.setBucketStart(Date.from(bucketStart));
+    rollup.setWorkflowId(activity.getWorkflowId());
+    rollup.setTeamId(teamId);
+    rollup.setTrigger(activity.getTrigger());
+    rollup.setStatusCounts(new HashMap<>());
+    rollup.setDurationSum(0L);
+    rollup.setDurationCount(0L);
+    rollup.setDurationZeroCount(0L);
+    rollup.setDurationBins(new HashMap<>());
+    return rollup;
+  }
+
+  private void addActivity(FlowActivityRollupEntity rollup, FlowWorkflowActivityEntity activity) {
+    if (activity.getStatus() != null) {
+      rollup.getStatusCounts().merge(activity.getStatus().name(), 1L, Long::sum);
+    }
+
+    final Long duration = activity.getDuration();
+    if (duration == null) {
+      return;
+    }
+    rollup.setDurationSum(rollup.getDurationSum() + duration);
+    rollup.setDurationCount(rollup.getDurationCount() + 1);
+    if (duration <= 0) {
+      rollup.setDurationZeroCount(rollup.getDurationZeroCount() + 1);
+    } else {
+      rollup.getDurationBins().merge(String.valueOf(BINS.index(duration)), 1L, Long::sum);
+    }
+  }
+
+  private DurationSketch toSketch(FlowActivityRollupEntity rollup) {
+    final Map<Integer, Long> bins = new HashMap<>();
+    if (rollup.getDurationBins() != null) {
+      rollup.getDurationBins().forEach((index, count) -> bins.put(Integer.valueOf(index), count));
+    }
+    final Long zeroCount = rollup.getDurationZeroCount();
+    return DurationSketch.fromBins(bins, zeroCount == null ? 0L : zeroCount);
+  }
+
+  private Map<String, DurationPercentiles> toPercentiles(Map<String, DurationSketch> sketches) {
+    final Map<String, DurationPercentiles> percentiles = new HashMap<>();
+    sketches.forEach((key, sketch) -> percentiles.put(key, new DurationPercentiles(sketch)));
+    return percentiles;
+  }
+}
@@ -0,0 +1,14 @@
+package net.boomerangplatform.service.crud;
+
+import java.util.List;
+import net.boomerangplatform.model.BatchExecutionItem;
+import net.boomerangplatform.model.BatchExecutionResult;
+
+public interface BatchExecutionService {
+
+  /**
+   * Creates an activity for every item that can run and queues them all for execution. Returns a
+   * result per item, in order, with the activity id or the reason the item was not run.
+   */
+  List<BatchExecutionResult> executeWorkflows(List<BatchExecutionItem> items);
+}
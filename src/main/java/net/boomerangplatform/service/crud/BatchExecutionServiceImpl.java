@@ -0,0 +1,233 @@
+package net.boomerangplatform.service.crud;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.boomerangplatform.exceptions.RateLimitExceededException;
+import net.boomerangplatform.model.BatchExecutionItem;
+import net.boomerangplatform.model.BatchExecutionResult;
+import net.boomerangplatform.model.BatchExecutionResult.Status;
+import net.boomerangplatform.model.FlowExecutionRequest;
+import net.boomerangplatform.mongo.entity.FlowUserEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowActivityEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowRevisionEntity;
+import net.boomerangplatform.mongo.model.FlowTriggerEnum;
+import net.boomerangplatform.mongo.model.WorkflowStatus;
+import net.boomerangplatform.mongo.service.FlowWorkflowService;
+import net.boomerangplatform.mongo.service.FlowWorkflowVersionService;
+import net.boomerangplatform.service.FlowExecutionService;
+import net.boomerangplatform.service.UserIdentityService;
+
+/*
+ * Workflows and their latest revisions are read in bulk, the caller is resolved once and all
+ * activities are written in one insert. Each item then goes through the same rate limits and
+ * idempotency keys as a single execution; items repeating a key earlier in the batch share its
+ * activity. Planning and running are left to a bounded pool, and items it has no room for are
+ * skipped and reported failed so the caller can retry them.
+ */
+@Service
+public class BatchExecutionServiceImpl implements BatchExecutionService {
+
+  private static final Logger LOGGER = LogManager.getLogger(BatchExecutionServiceImpl.class);
+
+  @Value("${flow.execute.batch.threads:4}")
+  private int threads;
+
+  @Value("${flow.execute.batch.queue-size:1000}")
+  private int queueSize;
+
+  @Autowired
+  private FlowWorkflowService workflowService;
+
+  @Autowired
+  private FlowWorkflowVersionService versionService;
+
+  @Autowired
+  private FlowActivityService activityService;
+
+  @Autowired
+  private FlowExecutionService executionService;
+
+  @Autowired
+  private UserIdentityService userIdentityService;
+
+  @Autowired
+  private IdempotencyService idempotencyService;
+
+  @Autowired
+  private TriggerRateLimitService rateLimitService;
+
+  private ThreadPoolExecutor executor;
+
+  @PostConstruct
+  public void init() {
+    executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(queueSize),
+        new ThreadFactoryBuilder().setNameFormat("batch-execution-%d").setDaemon(true).build(),
+        new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  @Override
+  public List<BatchExecutionResult> executeWorkflows(List<BatchExecutionItem> items) {
+    final List<String> workflowIds = items.stream().map(BatchExecutionItem::getWorkflowId)
+        .filter(Objects::nonNull).distinct().collect(Collectors.toList());
+    final Map<String, FlowWorkflowEntity> workflows = workflowService.getWorkflows(workflowIds);
+    final Map<String, FlowWorkflowRevisionEntity> revisions =
+        versionService.getLatestWorkflowVersions(workflows.values().stream()
+            .filter(workflow -> workflow.getStatus() == WorkflowStatus.active)
+            .map(FlowWorkflowEntity::getId).collect(Collectors.toList()));
+    final FlowUserEntity user = userIdentityService.getCurrentUser();
+    final String userId = user == null ? null : user.getId();
+
+    final List<BatchExecutionResult> results = new ArrayList<>(items.size());
+    final List<BatchExecutionResult> pending = new ArrayList<>();
+    final List<String> activityIds = new ArrayList<>();
+    final List<FlowWorkflowRevisionEntity> pendingRevisions = new ArrayList<>();
+    final List<FlowExecutionRequest> requests = new ArrayList<>();
+    final List<String> keys = new ArrayList<>();
+    final Map<String, BatchExecutionResult> reserved = new HashMap<>();
+    final Map<BatchExecutionResult, BatchExecutionResult> duplicates = new HashMap<>();
+
+    for (BatchExecutionItem item : items) {
+      final BatchExecutionResult result = new BatchExecutionResult(item.getWorkflowId());
+      results.add(result);
+
+      final FlowWorkflowEntity workflow = workflows.get(item.getWorkflowId());
+      final FlowWorkflowRevisionEntity revision = revisions.get(item.getWorkflowId());
+      if (workflow == null) {
+        reject(result, Status.notFound, "Workflow not found");
+        continue;
+      }
+      if (workflow.getStatus() != WorkflowStatus.active) {
+        reject(result, Status.notActive, "The workflow status is not active");
+        continue;
+      }
+      if (revision == null) {
+        reject(result, Status.noRevision, "No revision to execute");
+        continue;
+      }
+      try {
+        rateLimitService.acquire(workflow, null, userId);
+      } catch (RateLimitExceededException e) {
+        reject(result, Status.rateLimited,
+            "Retry after " + e.getRetryAfterSeconds() + " seconds");
+        continue;
+      }
+
+      final String activityId = new ObjectId().toHexString();
+      final String key = idempotencyService.getKey(workflow, item.getIdempotencyKey(), item);
+      if (key != null) {
+        final BatchExecutionResult holder = reserved.get(workflow.getId() + "/" + key);
+        if (holder != null) {
+          duplicates.put(result, holder);
+          continue;
+        }
+        final Optional<FlowWorkflowActivityEntity> existing =
+            idempotencyService.reserveKey(workflow, key, activityId);
+        if (existing.isPresent()) {
+          result.setActivityId(existing.get().getId());
+          result.setStatus(Status.duplicate);
+          continue;
+        }
+      }
+
+      if (key != null) {
+        reserved.put(workflow.getId() + "/" + key, result);
+      }
+      pending.add(result);
+      activityIds.add(activityId);
+      pendingRevisions.add(revision);
+      requests.add(item);
+      keys.add(key);
+    }
+
+    if (!pending.isEmpty()) {
+      createActivities(workflows, pending, activityIds, pendingRevisions, requests, keys);
+    }
+    duplicates.forEach(BatchExecutionServiceImpl::copyHolder);
+    return results;
+  }
+
+  /* An item repeating a key earlier in the batch gets that item's activity, or its failure. */
+  private static void copyHolder(BatchExecutionResult result, BatchExecutionResult holder) {
+    if (holder.getStatus() == Status.queued) {
+      result.setActivityId(holder.getActivityId());
+      result.setStatus(Status.duplicate);
+    } else {
+      reject(result, holder.getStatus(), holder.getMessage());
+    }
+  }
+
+  private void createActivities(Map<String, FlowWorkflowEntity> workflows,
+      List<BatchExecutionResult> pending, List<String> activityIds,
+      List<FlowWorkflowRevisionEntity> revisions, List<FlowExecutionRequest> requests,
+      List<String> keys) {
+    final List<FlowWorkflowActivityEntity> activities;
+    try {
+      activities = activityService.createFlowActivities(activityIds, revisions,
+          FlowTriggerEnum.manual, requests);
+    } catch (RuntimeException e) {
+      LOGGER.error("Failed to create {} batch activities", pending.size(), e);
+      for (int i = 0; i < pending.size(); i++) {
+        if (keys.get(i) != null) {
+          idempotencyService.releaseKey(workflows.get(pending.get(i).getWorkflowId()),
+              keys.get(i), activityIds.get(i));
+        }
+        reject(pending.get(i), Status.failed, "Failed to create the activity");
+      }
+      return;
+    }
+
+    for (int i = 0; i < activities.size(); i++) {
+      final String revisionId = revisions.get(i).getId();
+      final String activityId = activities.get(i).getId();
+      try {
+        executor.execute(() -> {
+          try {
+            executionService.executeWorkflowVersion(revisionId, activityId);
+          } catch (RuntimeException e) {
+            LOGGER.error("Failed to execute batch activity: {}", activityId, e);
+          }
+        });
+        pending.get(i).setActivityId(activityId);
+        pending.get(i).setStatus(Status.queued);
+      } catch (RejectedExecutionException e) {
+        /* As with webhooks, the activity is skipped and its key freed for the caller's retry. */
+        activityService.supersedeActivity(activityId, "Too many batch executions queued");
+        if (keys.get(i) != null) {
+          idempotencyService.releaseKey(workflows.get(pending.get(i).getWorkflowId()),
+              keys.get(i), activityId);
+        }
+        reject(pending.get(i), Status.failed, "Too many executions queued, retry later");
+      }
+    }
+  }
+
+  private static void reject(BatchExecutionResult result, Status status, String message) {
+    result.setStatus(status);
+    result.setMessage(message);
+  }
+}
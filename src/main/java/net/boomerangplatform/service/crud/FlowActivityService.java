@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import net.boomerangplatform.model.FlowExecutionRequest;
 import net.boomerangplatform.model.InsightsSummary;
@@ -12,18 +13,45 @@ import net.boomerangplatform.model.ListActivityResponse;
 import net.boomerangplatform.mongo.entity.FlowTaskExecutionEntity;
 import net.boomerangplatform.mongo.entity.FlowUserEntity;
 import net.boomerangplatform.mongo.entity.FlowWorkflowActivityEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowRevisionEntity;
 import net.boomerangplatform.mongo.model.FlowTriggerEnum;
+import net.boomerangplatform.util.FieldSelection;
+import net.boomerangplatform.util.LogRange;
 
 public interface FlowActivityService {
 
   FlowWorkflowActivityEntity createFlowActivity(String workflowVersionId,
       Optional<FlowTriggerEnum> trigger, FlowExecutionRequest request);
 
+  /** Creates an activity with an id chosen up front, such as one reserved for a key. */
+  FlowWorkflowActivityEntity createFlowActivity(String activityId,
+      FlowWorkflowRevisionEntity revision, Optional<FlowTriggerEnum> trigger,
+      FlowExecutionRequest request);
+
+  /**
+   * Creates one activity per revision and request, at the same index, in a single write.
+   */
+  List<FlowWorkflowActivityEntity> createFlowActivities(List<FlowWorkflowRevisionEntity> revisions,
+      FlowTriggerEnum trigger, List<FlowExecutionRequest> requests);
+
+  /**
+   * As above, giving each activity the id at the same index, or a new one where that is null.
+   */
+  List<FlowWorkflowActivityEntity> createFlowActivities(List<String> activityIds,
+      List<FlowWorkflowRevisionEntity> revisions, FlowTriggerEnum trigger,
+      List<FlowExecutionRequest> requests);
+
   FlowWorkflowActivityEntity findWorkflowActivity(String id);
 
+  /**
+   * Skips an activity that has not started yet and counts it in the rollups, returning false once
+   * it has started.
+   */
+  boolean supersedeActivity(String activityId, String statusMessage);
+
   ListActivityResponse getAllActivites(Optional<Date> from, Optional<Date> to, Pageable page,
       Optional<List<String>> workflowIds, Optional<List<String>> teamIds,
-      Optional<List<String>> statuses, Optional<List<String>> triggers);
+      Optional<List<String>> statuses, Optional<List<String>> triggers, FieldSelection fields);
 
   ListActivityResponse getAllActivitesForUser(FlowUserEntity user, Optional<Date> from,
       Optional<Date> to, Pageable page);
@@ -35,8 +63,9 @@ public interface FlowActivityService {
   InsightsSummary getInsightsSummary(Optional<Date> from, Optional<Date> to, Pageable pageable,
       Optional<String> teamId);
 
-  StreamingResponseBody getTaskLog(String activityId, String taskId);
+  ResponseEntity<StreamingResponseBody> getTaskLog(String activityId, String taskId,
+      LogRange range);
 
-  Map<String, Long> getActivitySummary(Pageable pageable, List<String> teamIds,
+  Map<String, Long> getActivitySummary(List<String> teamIds,
       List<String> triggers, Long fromDate, Long toDate);
 }
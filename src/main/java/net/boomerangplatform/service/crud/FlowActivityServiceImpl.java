@@ -1,12 +1,14 @@
 package net.boomerangplatform.service.crud;
 
-import static java.util.stream.Collectors.groupingBy;
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -14,19 +16,30 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import org.apache.http.conn.ConnectionReleaseTrigger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RequestCallback;
-import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
-import net.boomerangplatform.model.Execution;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+import net.boomerangplatform.model.DurationPercentiles;
 import net.boomerangplatform.model.FlowActivity;
 import net.boomerangplatform.model.FlowExecutionRequest;
 import net.boomerangplatform.model.InsightsSummary;
@@ -47,10 +60,16 @@ import net.boomerangplatform.mongo.service.FlowWorkflowService;
 import net.boomerangplatform.mongo.service.FlowWorkflowVersionService;
 import net.boomerangplatform.service.UserIdentityService;
 import net.boomerangplatform.util.DateUtil;
+import net.boomerangplatform.util.FieldSelection;
+import net.boomerangplatform.util.LogRange;
+import net.boomerangplatform.util.LogTail;
+import net.boomerangplatform.util.DurationSketch;
 
 @Service
 public class FlowActivityServiceImpl implements FlowActivityService {
 
+  private static final Logger LOGGER = LogManager.getLogger();
+
   @Autowired
   private FlowWorkflowActivityService flowActivityService;
 
@@ -69,23 +88,58 @@ public class FlowActivityServiceImpl implements FlowActivityService {
   @Autowired
   private FlowTeamService flowTeamService;
 
+  @Autowired
+  private ActivityRollupService rollupService;
+
+  @Autowired
+  private TaskLogCache taskLogCache;
+
+  @Value("${flow.activity.rollups.enabled:false}")
+  private boolean rollupsEnabled;
+
   @Value("${controller.rest.url.base}")
   private String controllerBaseUrl;
 
   @Value("${controller.rest.url.streamlogs}")
   private String getStreamDownloadPath;
 
+  @Value("${flow.logs.stream.buffer-size:65536}")
+  private int logBufferSize;
+
+  @Value("${flow.logs.tail.max-bytes:1048576}")
+  private int logTailMaxBytes;
+
   @Autowired
   @Qualifier("internalRestTemplate")
   private RestTemplate restTemplate;
 
+  private UriComponents logStreamUri;
+
+  @PostConstruct
+  public void init() {
+    logStreamUri = UriComponentsBuilder.fromHttpUrl(controllerBaseUrl + getStreamDownloadPath)
+        .queryParam("workflowId", "{workflowId}")
+        .queryParam("workflowActivityId", "{workflowActivityId}")
+        .queryParam("taskActivityId", "{taskActivityId}").queryParam("taskId", "{taskId}")
+        .build();
+  }
+
   private List<FlowActivity> convert(List<FlowWorkflowActivityEntity> records) {
+    return convert(records, FieldSelection.all());
+  }
+
+  private List<FlowActivity> convert(List<FlowWorkflowActivityEntity> records,
+      FieldSelection fields) {
 
     final List<FlowActivity> flowActivities = new LinkedList<>();
+    final boolean includeWorkflow = fields.includes("workflowName")
+        || fields.includes("description") || fields.includes("icon")
+        || fields.includes("shortDescription");
 
     for (final FlowWorkflowActivityEntity record : records) {
       final FlowActivity flow = new FlowActivity(record);
-      final FlowWorkflowEntity workflow = workflowService.getWorkflow(record.getWorkflowId());
+      final FlowWorkflowEntity workflow =
+          includeWorkflow ? workflowService.getWorkflow(record.getWorkflowId()) : null;
 
       if (workflow != null) {
         flow.setWorkflowName(workflow.getName());
@@ -104,9 +158,53 @@ public class FlowActivityServiceImpl implements FlowActivityService {
       Optional<FlowTriggerEnum> trigger, FlowExecutionRequest request) {
     /* Create new one based of work flow version id. */
     final FlowWorkflowRevisionEntity entity = versionService.getWorkflowlWithId(workflowVersionId);
+    return flowActivityService.saveWorkflowActivity(newFlowActivity(entity, trigger, request));
+  }
+
+  @Override
+  public FlowWorkflowActivityEntity createFlowActivity(String activityId,
+      FlowWorkflowRevisionEntity revision, Optional<FlowTriggerEnum> trigger,
+      FlowExecutionRequest request) {
+    final FlowWorkflowActivityEntity activity = newFlowActivity(revision, trigger, request);
+    activity.setId(activityId);
+    return flowActivityService.saveWorkflowActivity(activity);
+  }
+
+  @Override
+  public List<FlowWorkflowActivityEntity> createFlowActivities(
+      List<FlowWorkflowRevisionEntity> revisions, FlowTriggerEnum trigger,
+      List<FlowExecutionRequest> requests) {
+    return createFlowActivities(Collections.nCopies(revisions.size(), null), revisions, trigger,
+        requests);
+  }
+
+  @Override
+  public List<FlowWorkflowActivityEntity> createFlowActivities(List<String> activityIds,
+      List<FlowWorkflowRevisionEntity> revisions, FlowTriggerEnum trigger,
+      List<FlowExecutionRequest> requests) {
+    final Optional<FlowTriggerEnum> activityTrigger = Optional.of(trigger);
+    final FlowUserEntity user =
+        isManual(activityTrigger) ? userIdentityService.getCurrentUser() : null;
+    final List<FlowWorkflowActivityEntity> activities = new ArrayList<>(revisions.size());
+    for (int i = 0; i < revisions.size(); i++) {
+      final FlowWorkflowActivityEntity activity =
+          newFlowActivity(revisions.get(i), activityTrigger, requests.get(i), user);
+      activity.setId(activityIds.get(i));
+      activities.add(activity);
+    }
+    return flowActivityService.insertWorkflowActivities(activities);
+  }
+
+  private FlowWorkflowActivityEntity newFlowActivity(FlowWorkflowRevisionEntity entity,
+      Optional<FlowTriggerEnum> trigger, FlowExecutionRequest request) {
+    return newFlowActivity(entity, trigger, request,
+        isManual(trigger) ? userIdentityService.getCurrentUser() : null);
+  }
 
+  private FlowWorkflowActivityEntity newFlowActivity(FlowWorkflowRevisionEntity entity,
+      Optional<FlowTriggerEnum> trigger, FlowExecutionRequest request, FlowUserEntity user) {
     final FlowWorkflowActivityEntity activity = new FlowWorkflowActivityEntity();
-    activity.setWorkflowRevisionid(workflowVersionId);
+    activity.setWorkflowRevisionid(entity.getId());
     activity.setWorkflowId(entity.getWorkFlowId());
     activity.setCreationDate(new Date());
 
@@ -115,10 +213,9 @@ public class FlowActivityServiceImpl implements FlowActivityService {
       activity.setTrigger(trigger.get());
     }
 
-    if (!trigger.isPresent() || FlowTriggerEnum.manual == trigger.get()) {
-      final FlowUserEntity userEntity = userIdentityService.getCurrentUser();
-      activity.setInitiatedByUserId(userEntity.getId());
-      activity.setInitiatedByUserName(userEntity.getName());
+    if (isManual(trigger)) {
+      activity.setInitiatedByUserId(user.getId());
+      activity.setInitiatedByUserName(user.getName());
       activity.setTrigger(FlowTriggerEnum.manual);
     }
 
@@ -135,7 +232,11 @@ public class FlowActivityServiceImpl implements FlowActivityService {
       }
       activity.setProperties(propertyList);
     }
-    return flowActivityService.saveWorkflowActivity(activity);
+    return activity;
+  }
+
+  private static boolean isManual(Optional<FlowTriggerEnum> trigger) {
+    return !trigger.isPresent() || FlowTriggerEnum.manual == trigger.get();
   }
 
   @Override
@@ -143,16 +244,26 @@ public class FlowActivityServiceImpl implements FlowActivityService {
     return flowActivityService.findWorkflowActiivtyById(id);
   }
 
+  @Override
+  public boolean supersedeActivity(String activityId, String statusMessage) {
+    final Optional<FlowWorkflowActivityEntity> skipped =
+        flowActivityService.supersedeActivity(activityId, statusMessage);
+    skipped.ifPresent(rollupService::recordActivity);
+    return skipped.isPresent();
+  }
+
   @Override
   public ListActivityResponse getAllActivites(Optional<Date> from, Optional<Date> to, Pageable page,
       Optional<List<String>> workflowIds, Optional<List<String>> teamIds,
-      Optional<List<String>> statuses, Optional<List<String>> triggers) {
+      Optional<List<String>> statuses, Optional<List<String>> triggers, FieldSelection fields) {
 
     ListActivityResponse response = new ListActivityResponse();
-    Page<FlowWorkflowActivityEntity> records =
-        flowActivityService.getAllActivites(from, to, page, workflowIds, statuses, triggers);
+    Page<FlowWorkflowActivityEntity> records = fields.isAll()
+        ? flowActivityService.getAllActivites(from, to, page, workflowIds, statuses, triggers)
+        : flowActivityService.findActivities(from, to, page, workflowIds, statuses, triggers,
+            fields.getFields());
 
-    final List<FlowActivity> activities = convert(records.getContent());
+    final List<FlowActivity> activities = convert(records.getContent(), fields);
     List<FlowActivity> activitiesFiltered = new ArrayList<>();
 
     for (FlowActivity activity : activities) {
@@ -167,8 +278,8 @@ public class FlowActivityServiceImpl implements FlowActivityService {
   }
 
   @Override
-  public Map<String, Long> getActivitySummary(Pageable pageable, List<String> teamIds,
-      List<String> triggers, Long fromDate, Long toDate) {
+  public Map<String, Long> getActivitySummary(List<String> teamIds, List<String> triggers,
+      Long fromDate, Long toDate) {
     Optional<Date> to =
         toDate == null ? Optional.empty() : Optional.of(DateUtil.asDate(getDateTime(toDate)));
     Optional<Date> from =
@@ -180,12 +291,28 @@ public class FlowActivityServiceImpl implements FlowActivityService {
           .map(FlowWorkflowEntity::getId).collect(Collectors.toList());
     }
 
-    List<FlowWorkflowActivityEntity> flowWorkflowActivityEntities =
-        flowActivityService.getAllActivites(from, to, pageable, getOptional(workflowIds),
-            Optional.empty(), getOptional(triggers)).getContent();
-    Map<String, Long> result = flowWorkflowActivityEntities.stream()
-        .collect(groupingBy(v -> getStatusValue(v), Collectors.counting())); // NOSONAR
-    result.put("all", Long.valueOf(flowWorkflowActivityEntities.size()));
+    Map<String, Long> counts;
+    if (rollupsEnabled) {
+      counts = rollupService.getStatusCounts(from, to, getOptional(teamIds), getOptional(triggers));
+      flowActivityService
+          .getActivityCountByStatus(from, to, getOptional(workflowIds),
+              Optional.of(Arrays.asList(FlowTaskStatus.inProgress.getStatus(),
+                  FlowTaskStatus.notstarted.getStatus())),
+              getOptional(triggers))
+          .forEach((status, count) -> counts.merge(status, count, Long::sum));
+    } else {
+      counts = flowActivityService.getActivityCountByStatus(from, to, getOptional(workflowIds),
+          Optional.empty(), getOptional(triggers));
+    }
+
+    Map<String, Long> result = new HashMap<>();
+    long all = 0;
+    for (Map.Entry<String, Long> entry : counts.entrySet()) {
+      String status = getStatusValue(entry.getKey());
+      result.merge(status, entry.getValue(), Long::sum);
+      all += entry.getValue();
+    }
+    result.put("all", Long.valueOf(all));
 
     Arrays.stream(FlowTaskStatus.values()).forEach(v -> initializeValue(v.getStatus(), result));
     return result;
@@ -204,8 +331,9 @@ public class FlowActivityServiceImpl implements FlowActivityService {
     return Optional.of(list);
   }
 
-  private String getStatusValue(FlowWorkflowActivityEntity v) {
-    return v.getStatus() == null ? "no_status" : v.getStatus().getStatus();
+  private String getStatusValue(String status) {
+    FlowTaskStatus taskStatus = status == null ? null : FlowTaskStatus.valueOf(status);
+    return taskStatus == null ? "no_status" : taskStatus.getStatus();
   }
 
   private void initializeValue(String key, Map<String, Long> result) {
@@ -271,128 +399,315 @@ public class FlowActivityServiceImpl implements FlowActivityService {
   public InsightsSummary getInsightsSummary(Optional<Date> from, Optional<Date> to,
       Pageable pageable, Optional<String> teamId) {
 
-    final Page<FlowWorkflowActivityEntity> records =
-        flowActivityService.findAllActivities(from, to, pageable);
-    final InsightsSummary response = new InsightsSummary();
-    final List<FlowActivity> activities = convert(records.getContent());
-    List<Execution> executions = new ArrayList<>();
-    Long totalExecutionTime = 0L;
-    Long executionTime;
+    if (rollupsEnabled) {
+      return rollupService.getInsightsSummary(from, to, teamId);
+    }
 
-    for (FlowActivity activity : activities) {
+    /* Only counts and sketches are kept, so memory does not grow with the activities read. */
+    final InsightsSummary response = new InsightsSummary();
+    int total = 0;
+    final DurationSketch sketch = new DurationSketch();
+    final Map<String, DurationSketch> workflowSketches = new HashMap<>();
+    final Map<String, DurationSketch> teamSketches = new HashMap<>();
 
-      executionTime = activity.getDuration();
+    Optional<List<String>> workflowIds = Optional.empty();
+    if (teamId.isPresent()) {
+      workflowIds = Optional.of(workflowService.getWorkflowsForTeams(Arrays.asList(teamId.get()))
+          .stream().map(FlowWorkflowEntity::getId).collect(Collectors.toList()));
+    }
 
-      if (executionTime != null) {
-        totalExecutionTime = totalExecutionTime + executionTime;
+    if (!workflowIds.isPresent() || !workflowIds.get().isEmpty()) {
+      final Map<String, Optional<FlowWorkflowEntity>> workflows = new HashMap<>();
+
+      try (CloseableIterator<FlowWorkflowActivityEntity> records =
+          flowActivityService.streamActivityDurations(from, to, workflowIds, pageable)) {
+        while (records.hasNext()) {
+          final FlowWorkflowActivityEntity activity = records.next();
+          final FlowWorkflowEntity workflow = workflows
+              .computeIfAbsent(activity.getWorkflowId(),
+                  id -> Optional.ofNullable(workflowService.getWorkflow(id)))
+              .orElse(null);
+          total++;
+
+          if (activity.getDuration() != null) {
+            sketch.add(activity.getDuration());
+            if (workflow != null) {
+              workflowSketches.computeIfAbsent(workflow.getId(), k -> new DurationSketch())
+                  .add(activity.getDuration());
+              if (workflow.getFlowTeamId() != null) {
+                teamSketches.computeIfAbsent(workflow.getFlowTeamId(), k -> new DurationSketch())
+                    .add(activity.getDuration());
+              }
+            }
+          }
+        }
       }
+    }
+
+    response.setTotalActivitiesExecuted(total);
+    response.setExecutions(new ArrayList<>());
+    response.setMedianExecutionTime(sketch.getQuantile(0.5));
+    response.setExecutionTime(new DurationPercentiles(sketch));
+    response.setWorkflowExecutionTimes(toPercentiles(workflowSketches));
+    response.setTeamExecutionTimes(toPercentiles(teamSketches));
+    return response;
+  }
 
-      addActivityDetail(teamId, executions, activity);
+  private Map<String, DurationPercentiles> toPercentiles(Map<String, DurationSketch> sketches) {
+    Map<String, DurationPercentiles> percentiles = new HashMap<>();
+    sketches.forEach((key, sketch) -> percentiles.put(key, new DurationPercentiles(sketch)));
+    return percentiles;
+  }
+
+  @Override
+  public ResponseEntity<StreamingResponseBody> getTaskLog(String activityId, String taskId,
+      LogRange range) {
+
+    FlowTaskExecutionEntity executionEntity =
+        taskService.findByTaskIdAndActiityId(taskId, activityId);
+    if (executionEntity == null) {
+      return ResponseEntity.notFound().build();
+    }
+
+    final boolean cacheable =
+        taskLogCache.isEnabled() && isFinished(executionEntity.getFlowTaskStatus());
+    if (cacheable) {
+      Optional<ResponseEntity<StreamingResponseBody>> cached =
+          taskLogCache.getTaskLog(executionEntity.getId(), range);
+      if (cached.isPresent()) {
+        return cached.get();
+      }
     }
-    response.setTotalActivitiesExecuted(executions.size());
-    response.setExecutions(executions);
 
-    if (response.getTotalActivitiesExecuted() != 0) {
-      response.setMedianExecutionTime(totalExecutionTime / executions.size());
+    String workflowId = executionEntity.getWorkflowId();
+    if (workflowId == null) {
+      workflowId = flowActivityService.findWorkflowActiivtyById(activityId).getWorkflowId();
+    }
 
-    } else {
-      response.setMedianExecutionTime(0L);
+    Map<String, String> requestParams = new HashMap<>();
+    requestParams.put("workflowId", workflowId);
+    requestParams.put("workflowActivityId", activityId);
+    requestParams.put("taskActivityId", executionEntity.getId());
+    requestParams.put("taskId", taskId);
+    final URI uri = logStreamUri.expand(requestParams).encode().toUri();
+
+    final ClientHttpResponse upstream = openLogStream(uri, range.toHeader());
+    try {
+      return toLogResponse(upstream, range,
+          cacheable ? executionEntity.getId() : null);
+    } catch (IOException e) {
+      release(upstream, false);
+      throw new ResourceAccessException("I/O error reading task log: " + e.getMessage(), e);
+    } catch (RuntimeException e) {
+      release(upstream, false);
+      throw e;
     }
-    return response;
   }
 
-  private void addActivityDetail(Optional<String> teamId, List<Execution> executions,
-      FlowActivity activity) {
-    String teamName;
-    String workflowName;
-    String workflowId;
-    String activityTeamId;
-    if (workflowService.getWorkflow(activity.getWorkflowId()) != null) {
-      activityTeamId = workflowService.getWorkflow(activity.getWorkflowId()).getFlowTeamId();
-      FlowTeamEntity team = flowTeamService.findById(activityTeamId);
+  private ClientHttpResponse openLogStream(URI uri, String rangeHeader) {
+    try {
+      ClientHttpRequest request =
+          restTemplate.getRequestFactory().createRequest(uri, HttpMethod.GET);
+      request.getHeaders()
+          .setAccept(Arrays.asList(MediaType.APPLICATION_OCTET_STREAM, MediaType.ALL));
+      if (rangeHeader != null) {
+        request.getHeaders().set(HttpHeaders.RANGE, rangeHeader);
+      }
 
-      if (team != null) {
-        teamName = team.getName();
+      ClientHttpResponse upstream = request.execute();
+      if (upstream.getRawStatusCode() != HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value()
+          && restTemplate.getErrorHandler().hasError(upstream)) {
+        try {
+          restTemplate.getErrorHandler().handleError(uri, HttpMethod.GET, upstream);
+        } finally {
+          release(upstream, false);
+        }
+      }
+      return upstream;
+    } catch (IOException e) {
+      throw new ResourceAccessException("I/O error on GET request for \"" + uri + "\": "
+          + e.getMessage(), e);
+    }
+  }
 
-      } else {
-        teamName = null;
+  /*
+   * Ranges the controller honours are passed through. Otherwise the log is sliced here, which for a
+   * Range header needs the full length so that the Content-Range can be given.
+   */
+  private ResponseEntity<StreamingResponseBody> toLogResponse(ClientHttpResponse upstream,
+      LogRange range, String cacheKey) throws IOException {
+    final int status = upstream.getRawStatusCode();
+    final HttpHeaders upstreamHeaders = upstream.getHeaders();
+    final long length = upstreamHeaders.getContentLength();
+
+    if (status == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value()) {
+      release(upstream, false);
+      if (!range.isHeaderRange()) {
+        return ResponseEntity.ok().body(outputStream -> {
+        });
       }
+      return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+          .headers(contentRange(upstreamHeaders)).build();
+    }
 
-      workflowName = workflowService.getWorkflow(activity.getWorkflowId()).getName();
-      workflowId = activity.getWorkflowId();
-    } else {
-      activityTeamId = null;
-      teamName = null;
-      workflowName = null;
-      workflowId = null;
+    if (status == HttpStatus.PARTIAL_CONTENT.value()) {
+      ResponseEntity.BodyBuilder builder = range.isHeaderRange()
+          ? ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(contentRange(upstreamHeaders))
+          : ResponseEntity.ok();
+      if (length >= 0) {
+        builder.contentLength(length);
+      }
+      return builder.body(logBody(upstream, 0L, -1L, TaskLogCache.DISCARD));
     }
 
-    if (teamId.isPresent()) {
-      String teamID = teamId.get();
+    if (range.isTail()) {
+      return ResponseEntity.ok()
+          .body(tailBody(upstream, range.getTailLines(), logWriter(cacheKey, length)));
+    }
 
-      if (activityTeamId != null && teamID.equals(activityTeamId)) {
-        Execution execution = createExecution(activity, teamName, workflowName, workflowId);
-        executions.add(execution);
+    if (range.isHeaderRange() && length >= 0) {
+      long[] bounds = range.resolve(length);
+      if (bounds == null) {
+        release(upstream, false);
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+            .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length).build();
       }
-    } else {
-      Execution execution = createExecution(activity, teamName, workflowName, workflowId);
-      executions.add(execution);
+      long count = bounds[1] - bounds[0] + 1;
+      return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+          .header(HttpHeaders.CONTENT_RANGE,
+              "bytes " + bounds[0] + "-" + bounds[1] + "/" + length)
+          .header(HttpHeaders.ACCEPT_RANGES, "bytes").contentLength(count)
+          .body(logBody(upstream, bounds[0], count, TaskLogCache.DISCARD));
+    }
+
+    if (!range.isHeaderRange() && range.getOffset() > 0) {
+      return ResponseEntity.ok()
+          .body(logBody(upstream, range.getOffset(), -1L, TaskLogCache.DISCARD));
     }
+
+    ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+    if (length >= 0) {
+      builder.header(HttpHeaders.ACCEPT_RANGES, "bytes").contentLength(length);
+    }
+    return builder.body(logBody(upstream, 0L, -1L, logWriter(cacheKey, length)));
   }
 
-  private Execution createExecution(FlowActivity activity, String teamName, String workflowName,
-      String workflowId) {
-    Execution execution = new Execution();
-    execution.setActivityId(activity.getId());
-    execution.setStatus(activity.getStatus());
-    execution.setDuration(activity.getDuration());
-    execution.setCreationDate(activity.getCreationDate());
-    execution.setTeamName(teamName);
-    execution.setWorkflowName(workflowName);
-    execution.setWorkflowId(workflowId);
-    return execution;
+  /*
+   * Only a whole log read from the start can be kept for later requests. The key is only given for
+   * finished tasks, and the writer checks the bytes read against the Content-Length.
+   */
+  private TaskLogCache.LogWriter logWriter(String cacheKey, long length) {
+    return cacheKey == null ? TaskLogCache.DISCARD : taskLogCache.createWriter(cacheKey, length);
   }
 
-  @Override
-  public StreamingResponseBody getTaskLog(String activityId, String taskId) {
+  private boolean isFinished(FlowTaskStatus status) {
+    return status != null && status != FlowTaskStatus.inProgress
+        && status != FlowTaskStatus.notstarted;
+  }
 
-    FlowTaskExecutionEntity executionEntity =
-        taskService.findByTaskIdAndActiityId(taskId, activityId);
-    if (executionEntity == null) {
-      return null;
+  private HttpHeaders contentRange(HttpHeaders upstreamHeaders) {
+    HttpHeaders headers = new HttpHeaders();
+    String contentRange = upstreamHeaders.getFirst(HttpHeaders.CONTENT_RANGE);
+    if (contentRange != null) {
+      headers.set(HttpHeaders.CONTENT_RANGE, contentRange);
     }
+    return headers;
+  }
 
+  /*
+   * Copies the log in large chunks. The servlet stream blocks while the client is slow, which holds
+   * back reads from the controller; output is flushed whenever the controller has nothing buffered
+   * so a running task's log reaches the client as it is written.
+   */
+  private StreamingResponseBody logBody(ClientHttpResponse upstream, long skip, long limit,
+      TaskLogCache.LogWriter writer) {
     return outputStream -> {
-      Map<String, String> requestParams = new HashMap<>();
-      requestParams.put("workflowId",
-          flowActivityService.findWorkflowActiivtyById(activityId).getWorkflowId());
-      requestParams.put("workflowActivityId", activityId);
-      requestParams.put("taskActivityId", executionEntity.getId());
-      requestParams.put("taskId", taskId);
-
-      String encodedURL =
-          requestParams.keySet().stream().map(key -> key + "=" + requestParams.get(key)).collect(
-              Collectors.joining("&", controllerBaseUrl + getStreamDownloadPath + "?", ""));
-
-      RequestCallback requestCallback = request -> request.getHeaders()
-          .setAccept(Arrays.asList(MediaType.APPLICATION_OCTET_STREAM, MediaType.ALL));
-
-      ResponseExtractor<Void> responseExtractor = restTemplateResponse -> {
-        InputStream is = restTemplateResponse.getBody();
-
-        int nRead;
-        byte[] data = new byte[1024];
-        while ((nRead = is.read(data, 0, data.length)) != -1) {
-          outputStream.write(data, 0, nRead);
+      boolean complete = false;
+      try {
+        InputStream is = upstream.getBody();
+        long skipped = 0;
+        while (skipped < skip) {
+          long n = is.skip(skip - skipped);
+          if (n <= 0) {
+            if (is.read() == -1) {
+              complete = true;
+              return;
+            }
+            n = 1;
+          }
+          skipped += n;
         }
 
-        return null;
-      };
-      restTemplate.execute(encodedURL, HttpMethod.GET, requestCallback, responseExtractor);
+        byte[] buffer = new byte[logBufferSize];
+        long remaining = limit < 0 ? Long.MAX_VALUE : limit;
+        int read;
+        while (remaining > 0
+            && (read = is.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+          outputStream.write(buffer, 0, read);
+          writer.write(buffer, 0, read);
+          remaining -= read;
+          if (is.available() == 0) {
+            outputStream.flush();
+          }
+        }
+        complete = remaining > 0;
+        outputStream.flush();
+      } finally {
+        release(upstream, complete);
+        if (complete) {
+          writer.commit();
+        } else {
+          writer.discard();
+        }
+      }
+    };
+  }
 
-      outputStream.close();
+  /* The whole log is read so it can be cached, but only a bounded window of its end is held. */
+  private StreamingResponseBody tailBody(ClientHttpResponse upstream, int lines,
+      TaskLogCache.LogWriter writer) {
+    return outputStream -> {
+      LogTail tail = new LogTail(lines, logTailMaxBytes);
+      boolean complete = false;
+      try {
+        InputStream is = upstream.getBody();
+        byte[] buffer = new byte[logBufferSize];
+        int read;
+        while ((read = is.read(buffer)) != -1) {
+          writer.write(buffer, 0, read);
+          tail.write(buffer, 0, read);
+        }
+        complete = true;
+      } finally {
+        release(upstream, complete);
+        if (complete) {
+          writer.commit();
+        } else {
+          writer.discard();
+        }
+      }
 
+      tail.writeTo(outputStream);
+      outputStream.flush();
     };
+  }
 
+  /*
+   * Closing a pooled response reads it to the end so the connection can be reused. A log that was
+   * not read to the end, because the client went away or only wanted part of it, is aborted
+   * instead.
+   */
+  private void release(ClientHttpResponse upstream, boolean complete) {
+    if (!complete) {
+      try {
+        InputStream is = upstream.getBody();
+        if (is instanceof ConnectionReleaseTrigger) {
+          ((ConnectionReleaseTrigger) is).abortConnection();
+        }
+      } catch (IOException e) {
+        LOGGER.debug("Unable to abort the task log stream", e);
+      }
+    }
+    upstream.close();
   }
 }
@@ -0,0 +1,26 @@
+package net.boomerangplatform.service.crud;
+
+import java.util.Optional;
+import net.boomerangplatform.model.FlowExecutionRequest;
+import net.boomerangplatform.mongo.entity.FlowWorkflowActivityEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowEntity;
+
+public interface IdempotencyService {
+
+  /**
+   * Returns the key that marks duplicate executions of a workflow: the caller's idempotency key,
+   * else a hash of the workflow's key properties in the request. Returns null when the request is
+   * not deduplicated.
+   */
+  String getKey(FlowWorkflowEntity workflow, String idempotencyKey, FlowExecutionRequest request);
+
+  /**
+   * Reserves a key for an activity about to be created. Returns the activity already holding the
+   * key within the workflow's window, or empty when the new activity may go ahead. With
+   * coalescing, a holder that has not started yet is skipped and the key moves to the new one.
+   */
+  Optional<FlowWorkflowActivityEntity> reserveKey(FlowWorkflowEntity workflow, String key,
+      String activityId);
+
+  void releaseKey(FlowWorkflowEntity workflow, String key, String activityId);
+}
@@ -0,0 +1,157 @@
+package net.boomerangplatform.service.crud;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import net.boomerangplatform.model.FlowExecutionRequest;
+import net.boomerangplatform.mongo.entity.FlowIdempotencyKeyEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowActivityEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowEntity;
+import net.boomerangplatform.mongo.model.Idempotency;
+import net.boomerangplatform.mongo.service.FlowIdempotencyKeyService;
+import net.boomerangplatform.mongo.service.FlowWorkflowActivityService;
+
+/*
+ * The key is claimed before the activity is written, with the activity id chosen up front, so a
+ * duplicate can arrive while the holder's activity is still being created. Duplicates wait a
+ * short while for it and otherwise get the bare id to poll.
+ */
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+  private static final Logger LOGGER = LogManager.getLogger(IdempotencyServiceImpl.class);
+
+  private static final long AWAIT_TIMEOUT = 2000L;
+
+  private static final long AWAIT_INTERVAL = 25L;
+
+  @Value("${flow.execute.idempotency.window:60}")
+  private int defaultWindow;
+
+  @Value("${flow.execute.idempotency.coalesce:false}")
+  private boolean defaultCoalesce;
+
+  @Autowired
+  private FlowIdempotencyKeyService keyService;
+
+  @Autowired
+  private FlowWorkflowActivityService activityService;
+
+  @Autowired
+  private FlowActivityService flowActivityService;
+
+  @Autowired
+  private Clock clock;
+
+  @Override
+  public String getKey(FlowWorkflowEntity workflow, String idempotencyKey,
+      FlowExecutionRequest request) {
+    if (getWindow(workflow) <= 0) {
+      return null;
+    }
+    if (StringUtils.isNotBlank(idempotencyKey)) {
+      return "key:" + Hashing.sha256().hashString(idempotencyKey, StandardCharsets.UTF_8);
+    }
+
+    final Idempotency idempotency = workflow.getIdempotency();
+    final Map<String, String> properties = request == null ? null : request.getProperties();
+    if (idempotency == null || idempotency.getKeyProperties() == null || properties == null) {
+      return null;
+    }
+
+    /* Requests carrying none of the key properties, such as cron fires, are never duplicates. */
+    final Hasher hasher = Hashing.sha256().newHasher();
+    boolean present = false;
+    for (String name : new TreeSet<>(idempotency.getKeyProperties())) {
+      final String value = properties.get(name);
+      present |= value != null;
+      putString(hasher, name);
+      putString(hasher, value == null ? "" : value);
+    }
+    return present ? "properties:" + hasher.hash() : null;
+  }
+
+  @Override
+  public Optional<FlowWorkflowActivityEntity> reserveKey(FlowWorkflowEntity workflow, String key,
+      String activityId) {
+    final String workflowId = workflow.getId();
+    final Date expiresAt = new Date(clock.millis() + getWindow(workflow) * 1000L);
+
+    Optional<FlowIdempotencyKeyEntity> holder =
+        keyService.claimKey(workflowId, key, activityId, expiresAt);
+    if (!holder.isPresent()) {
+      return Optional.empty();
+    }
+
+    final String holderId = holder.get().getActivityId();
+    if (isCoalesce(workflow)
+        && flowActivityService.supersedeActivity(holderId,
+            "Superseded by activity " + activityId)) {
+      if (keyService.replaceActivity(workflowId, key, holderId, activityId, expiresAt)) {
+        LOGGER.info("Activity {} supersedes queued activity {}", activityId, holderId);
+        return Optional.empty();
+      }
+      holder = keyService.claimKey(workflowId, key, activityId, expiresAt);
+      if (!holder.isPresent()) {
+        return Optional.empty();
+      }
+    }
+
+    LOGGER.info("Duplicate execution of workflow {} matched activity {}", workflowId,
+        holder.get().getActivityId());
+    return Optional.of(awaitActivity(workflowId, holder.get().getActivityId()));
+  }
+
+  @Override
+  public void releaseKey(FlowWorkflowEntity workflow, String key, String activityId) {
+    keyService.releaseKey(workflow.getId(), key, activityId);
+  }
+
+  private FlowWorkflowActivityEntity awaitActivity(String workflowId, String activityId) {
+    final long deadline = clock.millis() + AWAIT_TIMEOUT;
+    FlowWorkflowActivityEntity activity = activityService.findWorkflowActiivtyById(activityId);
+    while (activity == null && clock.millis() < deadline) {
+      try {
+        Thread.sleep(AWAIT_INTERVAL);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+      activity = activityService.findWorkflowActiivtyById(activityId);
+    }
+
+    if (activity == null) {
+      activity = new FlowWorkflowActivityEntity();
+      activity.setId(activityId);
+      activity.setWorkflowId(workflowId);
+    }
+    return activity;
+  }
+
+  private int getWindow(FlowWorkflowEntity workflow) {
+    final Idempotency idempotency = workflow.getIdempotency();
+    return idempotency == null || idempotency.getWindow() == null ? defaultWindow
+        : idempotency.getWindow();
+  }
+
+  private boolean isCoalesce(FlowWorkflowEntity workflow) {
+    final Idempotency idempotency = workflow.getIdempotency();
+    return idempotency == null || idempotency.getCoalesce() == null ? defaultCoalesce
+        : idempotency.getCoalesce();
+  }
+
+  private static void putString(Hasher hasher, String value) {
+    hasher.putInt(value.length()).putString(value, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,52 @@
+package net.boomerangplatform.service.crud;
+
+import java.util.Optional;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import net.boomerangplatform.util.LogRange;
+
+public interface TaskLogCache {
+
+  /** Writer that keeps nothing, for logs that are not cached. */
+  LogWriter DISCARD = new LogWriter() {
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) {
+      // Nothing is kept
+    }
+
+    @Override
+    public void commit() {
+      // Nothing is kept
+    }
+
+    @Override
+    public void discard() {
+      // Nothing is kept
+    }
+  };
+
+  boolean isEnabled();
+
+  Optional<ResponseEntity<StreamingResponseBody>> getTaskLog(String taskExecutionId,
+      LogRange range);
+
+  /**
+   * Creates a writer for the log of a finished task. The expected size is the Content-Length the
+   * log was served with, or -1 if unknown; a log of any other size is never committed.
+   */
+  LogWriter createWriter(String taskExecutionId, long expectedSize);
+
+  /**
+   * Receives a whole log as it is streamed to a client. Nothing is visible in the cache until the
+   * log is committed; failures to write only disable caching of that log.
+   */
+  interface LogWriter {
+
+    void write(byte[] buffer, int offset, int length);
+
+    void commit();
+
+    void discard();
+  }
+}
@@ -0,0 +1,347 @@
+package net.boomerangplatform.service.crud;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.PostConstruct;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import net.boomerangplatform.util.LogRange;
+
+/**
+ * Keeps the logs of finished tasks on disk, one file per task execution, so they are fetched from
+ * the controller only once. Files are served with {@link FileChannel#transferTo} and the least
+ * recently read logs are deleted once the directory grows past its size limit.
+ *
+ * <p>The cache is local to one instance: the index and size accounting live in memory and startup
+ * clears partial files, so every instance needs a directory of its own and must not share a
+ * volume with another.
+ */
+@Service
+public class TaskLogCacheImpl implements TaskLogCache {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  private static final Pattern KEY = Pattern.compile("^[A-Za-z0-9_-]{1,64}$");
+
+  private static final String LOG_SUFFIX = ".log";
+
+  private static final String PARTIAL_SUFFIX = ".partial";
+
+  private static final long TAIL_REGION_SIZE = 8L * 1024 * 1024;
+
+  @Value("${flow.logs.cache.enabled:false}")
+  private boolean enabled;
+
+  @Value("${flow.logs.cache.directory:${java.io.tmpdir}/flow-task-logs}")
+  private String directory;
+
+  @Value("${flow.logs.cache.max-size:10737418240}")
+  private long maxSize;
+
+  private Path root;
+
+  /* Cached logs and their sizes, least recently read first. */
+  private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private long totalSize;
+
+  @PostConstruct
+  public void init() throws IOException {
+    if (!enabled) {
+      return;
+    }
+
+    root = Paths.get(directory);
+    Files.createDirectories(root);
+
+    final Map<Path, FileTime> files = new LinkedHashMap<>();
+    try (Stream<Path> listing = Files.list(root)) {
+      for (Path file : listing.collect(Collectors.toList())) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(PARTIAL_SUFFIX)) {
+          Files.deleteIfExists(file);
+        } else if (name.endsWith(LOG_SUFFIX)) {
+          files.put(file, Files.getLastModifiedTime(file));
+        }
+      }
+    }
+
+    final List<Path> byLastRead = new ArrayList<>(files.keySet());
+    byLastRead.sort(Comparator.comparing(files::get));
+    synchronized (this) {
+      for (Path file : byLastRead) {
+        String name = file.getFileName().toString();
+        add(name.substring(0, name.length() - LOG_SUFFIX.length()), Files.size(file));
+      }
+    }
+    LOGGER.info("Task log cache in {} holds {} logs, {} bytes", root, entries.size(), totalSize);
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  @Override
+  public Optional<ResponseEntity<StreamingResponseBody>> getTaskLog(String taskExecutionId,
+      LogRange range) {
+    if (!enabled || !isCached(taskExecutionId)) {
+      return Optional.empty();
+    }
+
+    final Path file = logFile(taskExecutionId);
+    FileChannel channel = null;
+    try {
+      channel = FileChannel.open(file, StandardOpenOption.READ);
+      touch(file);
+      return Optional.of(toLogResponse(channel, range));
+    } catch (NoSuchFileException e) {
+      remove(taskExecutionId);
+      return Optional.empty();
+    } catch (IOException e) {
+      LOGGER.warn("Unable to read cached log {}, fetching it again", file, e);
+      close(channel);
+      remove(taskExecutionId);
+      return Optional.empty();
+    }
+  }
+
+  @Override
+  public LogWriter createWriter(String taskExecutionId, long expectedSize) {
+    if (!enabled || !KEY.matcher(taskExecutionId).matches()) {
+      return DISCARD;
+    }
+    return new FileLogWriter(taskExecutionId, expectedSize);
+  }
+
+  private ResponseEntity<StreamingResponseBody> toLogResponse(FileChannel channel, LogRange range)
+      throws IOException {
+    final long size = channel.size();
+
+    if (range.isTail()) {
+      long start = tailStart(channel, size, range.getTailLines());
+      return ResponseEntity.ok().contentLength(size - start)
+          .body(transfer(channel, start, size - start));
+    }
+
+    if (range.isHeaderRange()) {
+      long[] bounds = range.resolve(size);
+      if (bounds == null) {
+        channel.close();
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+            .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size).build();
+      }
+      long count = bounds[1] - bounds[0] + 1;
+      return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+          .header(HttpHeaders.CONTENT_RANGE, "bytes " + bounds[0] + "-" + bounds[1] + "/" + size)
+          .header(HttpHeaders.ACCEPT_RANGES, "bytes").contentLength(count)
+          .body(transfer(channel, bounds[0], count));
+    }
+
+    long start = Math.min(range.getOffset(), size);
+    return ResponseEntity.ok().header(HttpHeaders.ACCEPT_RANGES, "bytes")
+        .contentLength(size - start).body(transfer(channel, start, size - start));
+  }
+
+  private StreamingResponseBody transfer(FileChannel channel, long position, long count) {
+    return outputStream -> {
+      try (FileChannel source = channel) {
+        WritableByteChannel target = Channels.newChannel(outputStream);
+        long transferred = 0;
+        while (transferred < count) {
+          long n = source.transferTo(position + transferred, count - transferred, target);
+          if (n <= 0) {
+            break;
+          }
+          transferred += n;
+        }
+        outputStream.flush();
+      }
+    };
+  }
+
+  /*
+   * Scans back from the end of the file through mapped regions for the start of the last lines. A
+   * newline at the very end closes the last line rather than starting an empty one.
+   */
+  private long tailStart(FileChannel channel, long size, int lines) throws IOException {
+    int found = 0;
+    long position = size;
+    while (position > 0) {
+      long regionStart = Math.max(0, position - TAIL_REGION_SIZE);
+      MappedByteBuffer region =
+          channel.map(FileChannel.MapMode.READ_ONLY, regionStart, position - regionStart);
+      for (int i = (int) (position - regionStart) - 1; i >= 0; i--) {
+        long offset = regionStart + i;
+        if (region.get(i) == '\n' && offset != size - 1 && ++found == lines) {
+          return offset + 1;
+        }
+      }
+      position = regionStart;
+    }
+    return 0;
+  }
+
+  private synchronized boolean isCached(String key) {
+    return entries.get(key) != null;
+  }
+
+  private synchronized void add(String key, long size) {
+    Long previous = entries.put(key, size);
+    totalSize += size - (previous == null ? 0 : previous);
+    evict();
+  }
+
+  private synchronized void remove(String key) {
+    Long size = entries.remove(key);
+    if (size != null) {
+      totalSize -= size;
+    }
+  }
+
+  /* Open readers keep their file until they are done, so eviction never cuts off a response. */
+  private void evict() {
+    Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+    while (totalSize > maxSize && iterator.hasNext()) {
+      Map.Entry<String, Long> entry = iterator.next();
+      iterator.remove();
+      totalSize -= entry.getValue();
+      try {
+        Files.deleteIfExists(logFile(entry.getKey()));
+      } catch (IOException e) {
+        LOGGER.warn("Unable to delete cached log {}", entry.getKey(), e);
+      }
+    }
+  }
+
+  private Path logFile(String key) {
+    return root.resolve(key + LOG_SUFFIX);
+  }
+
+  /* Last read times survive restarts through the file modification time. */
+  private void touch(Path file) {
+    try {
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (IOException e) {
+      LOGGER.debug("Unable to touch cached log {}", file, e);
+    }
+  }
+
+  private void close(FileChannel channel) {
+    if (channel == null) {
+      return;
+    }
+    try {
+      channel.close();
+    } catch (IOException e) {
+      LOGGER.debug("Unable to close cached log", e);
+    }
+  }
+
+  private class FileLogWriter implements LogWriter {
+
+    private final String key;
+
+    private final Path partial;
+
+    private final long expectedSize;
+
+    private OutputStream output;
+
+    private long size;
+
+    private boolean closed;
+
+    FileLogWriter(String key, long expectedSize) {
+      this.key = key;
+      this.partial = root.resolve(key + "." + UUID.randomUUID() + PARTIAL_SUFFIX);
+      this.expectedSize = expectedSize;
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) {
+      if (closed) {
+        return;
+      }
+      try {
+        if (output == null) {
+          output = Files.newOutputStream(partial);
+        }
+        output.write(buffer, offset, length);
+        size += length;
+        if (size > maxSize) {
+          discard();
+        }
+      } catch (IOException e) {
+        LOGGER.warn("Unable to cache log {}", key, e);
+        discard();
+      }
+    }
+
+    @Override
+    public void commit() {
+      if (closed) {
+        return;
+      }
+      if (expectedSize >= 0 && size != expectedSize) {
+        LOGGER.warn("Not caching log {}: read {} of {} bytes", key, size, expectedSize);
+        discard();
+        return;
+      }
+      try {
+        if (output == null) {
+          output = Files.newOutputStream(partial);
+        }
+        output.close();
+        Files.move(partial, logFile(key), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+        closed = true;
+        add(key, size);
+      } catch (IOException e) {
+        LOGGER.warn("Unable to cache log {}", key, e);
+        discard();
+      }
+    }
+
+    @Override
+    public void discard() {
+      closed = true;
+      try {
+        if (output != null) {
+          output.close();
+        }
+        Files.deleteIfExists(partial);
+      } catch (IOException e) {
+        LOGGER.debug("Unable to remove partial log {}", partial, e);
+      }
+    }
+  }
+}
@@ -2,11 +2,12 @@ package net.boomerangplatform.service.crud;
 
 import java.util.List;
 import net.boomerangplatform.model.FlowTaskTemplate;
+import net.boomerangplatform.util.FieldSelection;
 
 public interface TaskTemplateService {
   FlowTaskTemplate getTaskTemplateWithId(String id);
 
-  List<FlowTaskTemplate> getAllTaskTemplates();
+  List<FlowTaskTemplate> getAllTaskTemplates(FieldSelection fields);
 
   FlowTaskTemplate insertTaskTemplate(FlowTaskTemplate flowTaskTemplateEntity);
 
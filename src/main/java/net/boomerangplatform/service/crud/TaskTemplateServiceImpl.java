@@ -1,7 +1,11 @@
 package net.boomerangplatform.service.crud;
 
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -12,6 +16,7 @@ import net.boomerangplatform.mongo.model.ChangeLog;
 import net.boomerangplatform.mongo.model.Revision;
 import net.boomerangplatform.mongo.service.FlowTaskTemplateService;
 import net.boomerangplatform.service.UserIdentityService;
+import net.boomerangplatform.util.FieldSelection;
 
 @Service
 public class TaskTemplateServiceImpl implements TaskTemplateService {
@@ -27,38 +32,32 @@ public class TaskTemplateServiceImpl implements TaskTemplateService {
     FlowTaskTemplateEntity entity = flowTaskTemplateService.getTaskTemplateWithId(id);
     if (entity != null) {
       FlowTaskTemplate template = new FlowTaskTemplate(entity);
-      for (Revision revision : template.getRevisions()) {
-        if (revision.getChangelog() != null && revision.getChangelog().getUserId() != null) {
-          FlowUserEntity user =
-              userIdentityService.getUserByID(revision.getChangelog().getUserId());
-          if (revision.getChangelog() != null && user != null
-              && revision.getChangelog().getUserName() == null) {
-            revision.getChangelog().setUserName(user.getName());
-          }
-        }
-      }
+      updateChangeLogUserNames(Collections.singletonList(template));
       return template;
     }
     return null;
   }
 
   @Override
-  public List<FlowTaskTemplate> getAllTaskTemplates() {
-    List<FlowTaskTemplate> templates = flowTaskTemplateService.getAllTaskTemplates().stream()
-        .map(FlowTaskTemplate::new).collect(Collectors.toList());
-
-    for (FlowTaskTemplate template : templates) {
-      for (Revision revision : template.getRevisions()) {
-        if (revision.getChangelog() != null && revision.getChangelog().getUserId() != null) {
-          FlowUserEntity user =
-              userIdentityService.getUserByID(revision.getChangelog().getUserId());
-          if (revision.getChangelog() != null && user != null
-              && revision.getChangelog().getUserName() == null) {
-            revision.getChangelog().setUserName(user.getName());
-          }
-        }
+  public List<FlowTaskTemplate> getAllTaskTemplates(FieldSelection fields) {
+    List<FlowTaskTemplateEntity> entities;
+    if (fields.isAll()) {
+      entities = flowTaskTemplateService.getAllTaskTemplates();
+    } else {
+      Set<String> projection = new HashSet<>(fields.getFields());
+      if (fields.includes("currentVersion")) {
+        projection.add("revisions");
       }
+      entities = flowTaskTemplateService.getAllTaskTemplates(projection);
     }
+
+    List<FlowTaskTemplate> templates =
+        entities.stream().map(FlowTaskTemplate::new).collect(Collectors.toList());
+    if (!fields.includes("revisions")) {
+      return templates;
+    }
+
+    updateChangeLogUserNames(templates);
     return templates;
   }
 
@@ -93,6 +92,28 @@ public class TaskTemplateServiceImpl implements TaskTemplateService {
 
   }
 
+  /** Fills in missing changelog user names, resolving all users for the templates at once. */
+  private void updateChangeLogUserNames(List<FlowTaskTemplate> templates) {
+    final List<ChangeLog> changelogs = templates.stream()
+        .filter(template -> template.getRevisions() != null)
+        .flatMap(template -> template.getRevisions().stream()).map(Revision::getChangelog)
+        .filter(changelog -> changelog != null && changelog.getUserId() != null
+            && changelog.getUserName() == null)
+        .collect(Collectors.toList());
+    if (changelogs.isEmpty()) {
+      return;
+    }
+
+    final Map<String, FlowUserEntity> users = userIdentityService.getUsersByIds(
+        changelogs.stream().map(ChangeLog::getUserId).collect(Collectors.toSet()));
+    for (ChangeLog changelog : changelogs) {
+      FlowUserEntity user = users.get(changelog.getUserId());
+      if (user != null) {
+        changelog.setUserName(user.getName());
+      }
+    }
+  }
+
   private void updateChangeLog(FlowTaskTemplate flowTaskTemplateEntity) {
     List<Revision> revisions = flowTaskTemplateEntity.getRevisions();
     final FlowUserEntity user = userIdentityService.getCurrentUser();
@@ -7,6 +7,7 @@ import net.boomerangplatform.model.TeamQueryResult;
 import net.boomerangplatform.model.TeamWorkflowSummary;
 import net.boomerangplatform.mongo.entity.FlowTeamConfiguration;
 import net.boomerangplatform.mongo.entity.FlowUserEntity;
+import net.boomerangplatform.util.FieldSelection;
 
 public interface TeamService {
 
@@ -15,12 +16,12 @@ public interface TeamService {
   TeamQueryResult getAllAdminTeams(Pageable pageable);
 
 
-  List<TeamWorkflowSummary> getAllTeams();
+  List<TeamWorkflowSummary> getAllTeams(FieldSelection fields);
 
   void createFlowTeam(String higherLevelGroupId);
 
 
-  List<TeamWorkflowSummary> getUserTeams(FlowUserEntity userEntity);
+  List<TeamWorkflowSummary> getUserTeams(FlowUserEntity userEntity, FieldSelection fields);
 
   List<FlowTeamConfiguration> getAllTeamProperties(String teamId);
 
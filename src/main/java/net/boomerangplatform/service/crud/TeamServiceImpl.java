@@ -28,6 +28,7 @@ import net.boomerangplatform.mongo.model.Settings;
 import net.boomerangplatform.mongo.service.FlowTeamService;
 import net.boomerangplatform.mongo.service.FlowUserService;
 import net.boomerangplatform.service.UserIdentityService;
+import net.boomerangplatform.util.FieldSelection;
 
 @Service
 public class TeamServiceImpl implements TeamService {
@@ -84,21 +85,18 @@ public class TeamServiceImpl implements TeamService {
   }
 
   @Override
-  public List<TeamWorkflowSummary> getAllTeams() {
+  public List<TeamWorkflowSummary> getAllTeams(FieldSelection fields) {
     final List<TeamWorkflowSummary> teamWorkFlowSummary = new LinkedList<>();
     final Page<FlowTeamEntity> flowTeams = flowTeamService.findAllTeams(Pageable.unpaged());
     for (final FlowTeamEntity entity : flowTeams.getContent()) {
-      final List<WorkflowSummary> workflowSummary =
-          workflowService.getWorkflowsForTeam(entity.getId());
-      final TeamWorkflowSummary teamWorkFlow = new TeamWorkflowSummary(entity, workflowSummary);
-      updateSummaryWithUpgradeFlags(teamWorkFlow);
-      teamWorkFlowSummary.add(teamWorkFlow);
+      teamWorkFlowSummary.add(createTeamWorkflowSummary(entity, fields));
     }
     return teamWorkFlowSummary;
   }
 
   @Override
-  public List<TeamWorkflowSummary> getUserTeams(FlowUserEntity userEntity) {
+  public List<TeamWorkflowSummary> getUserTeams(FlowUserEntity userEntity,
+      FieldSelection fields) {
 
     List<String> highLevelGroupIds = new LinkedList<>();
     if (standAloneMode) {
@@ -115,16 +113,27 @@ public class TeamServiceImpl implements TeamService {
     final List<FlowTeamEntity> flowTeam =
         flowTeamService.findTeamsWithHighLevelGroups(highLevelGroupIds);
     for (final FlowTeamEntity entity : flowTeam) {
-      final List<WorkflowSummary> workflowSummary =
-          workflowService.getWorkflowsForTeam(entity.getId());
-      final TeamWorkflowSummary teamWorkFlow = new TeamWorkflowSummary(entity, workflowSummary);
-      updateSummaryWithUpgradeFlags(teamWorkFlow);
-      teamWorkFlowSummary.add(teamWorkFlow);
+      teamWorkFlowSummary.add(createTeamWorkflowSummary(entity, fields));
     }
 
     return teamWorkFlowSummary;
   }
 
+  private TeamWorkflowSummary createTeamWorkflowSummary(FlowTeamEntity entity,
+      FieldSelection fields) {
+    if (!fields.includes("workflows")) {
+      return new TeamWorkflowSummary(entity, null);
+    }
+
+    final List<WorkflowSummary> workflowSummary =
+        workflowService.getWorkflowsForTeam(entity.getId());
+    final TeamWorkflowSummary teamWorkFlow = new TeamWorkflowSummary(entity, workflowSummary);
+    if (fields.includes("workflows.templateUpgradesAvailable")) {
+      updateSummaryWithUpgradeFlags(teamWorkFlow);
+    }
+    return teamWorkFlow;
+  }
+
   private void updateSummaryWithUpgradeFlags(TeamWorkflowSummary teamSummary) {
     if (teamSummary.getWorkflows() != null) {
       for (WorkflowSummary summary : teamSummary.getWorkflows()) {
@@ -0,0 +1,15 @@
+package net.boomerangplatform.service.crud;
+
+import net.boomerangplatform.exceptions.RateLimitExceededException;
+import net.boomerangplatform.mongo.entity.FlowWorkflowEntity;
+
+public interface TriggerRateLimitService {
+
+  /**
+   * Takes a call from each limit on triggering the workflow: its webhook token and user when
+   * given, its team and the workflow itself. When any limit is spent, the calls taken from the
+   * others are given back and the trigger is refused.
+   */
+  void acquire(FlowWorkflowEntity workflow, String webhookToken, String userId)
+      throws RateLimitExceededException;
+}
@@ -0,0 +1,215 @@
+package net.boomerangplatform.service.crud;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import net.boomerangplatform.exceptions.RateLimitExceededException;
+import net.boomerangplatform.mongo.entity.FlowGlobalConfigEntity;
+import net.boomerangplatform.mongo.entity.FlowTeamConfiguration;
+import net.boomerangplatform.mongo.entity.FlowTeamEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowEntity;
+import net.boomerangplatform.mongo.model.AbstractConfigurationProperty;
+import net.boomerangplatform.mongo.service.FlowGlobalConfigService;
+import net.boomerangplatform.mongo.service.FlowRateLimitService;
+import net.boomerangplatform.mongo.service.FlowTeamService;
+import net.boomerangplatform.util.RateLimit;
+import net.boomerangplatform.util.TokenBucket;
+
+/*
+ * Limits are read from global config entries and team settings keyed trigger.rate.limit.<scope>,
+ * and cached for the refresh interval so a trigger costs no reads. Team settings override the
+ * team and workflow limits of their own workflows. Buckets live in this replica unless shared, in
+ * which case every replica takes from the same buckets in Mongo. Local buckets are only dropped
+ * once they have refilled, however long the limit's period, like shared buckets past expiresAt.
+ */
+@Service
+public class TriggerRateLimitServiceImpl implements TriggerRateLimitService {
+
+  private static final Logger LOGGER = LogManager.getLogger(TriggerRateLimitServiceImpl.class);
+
+  private static final String LIMIT_KEY_PREFIX = "trigger.rate.limit.";
+
+  private static final String TOKEN = "token";
+
+  private static final String USER = "user";
+
+  private static final String TEAM = "team";
+
+  private static final String WORKFLOW = "workflow";
+
+  @Value("${flow.ratelimit.enabled:true}")
+  private boolean enabled;
+
+  @Value("${flow.ratelimit.shared:false}")
+  private boolean shared;
+
+  @Value("${flow.ratelimit.refresh-interval:30000}")
+  private long refreshInterval;
+
+  @Value("${flow.ratelimit.max-keys:100000}")
+  private long maxKeys;
+
+  @Autowired
+  private FlowGlobalConfigService globalConfigService;
+
+  @Autowired
+  private FlowTeamService teamService;
+
+  @Autowired
+  private FlowRateLimitService sharedBuckets;
+
+  @Autowired
+  private Clock clock;
+
+  private Supplier<Map<String, RateLimit>> globalLimits;
+
+  private Cache<String, Map<String, RateLimit>> teamLimits;
+
+  private Cache<String, TokenBucket> buckets;
+
+  @PostConstruct
+  public void init() {
+    globalLimits = Suppliers.memoizeWithExpiration(this::loadGlobalLimits, refreshInterval,
+        TimeUnit.MILLISECONDS);
+    teamLimits = CacheBuilder.newBuilder().maximumSize(maxKeys)
+        .expireAfterWrite(refreshInterval, TimeUnit.MILLISECONDS).build();
+    buckets = CacheBuilder.newBuilder().maximumSize(maxKeys).build();
+  }
+
+  @Scheduled(initialDelayString = "${flow.ratelimit.refresh-interval:30000}",
+      fixedDelayString = "${flow.ratelimit.refresh-interval:30000}")
+  public void removeFullBuckets() {
+    final long now = TimeUnit.MILLISECONDS.toMicros(clock.millis());
+    buckets.asMap().values().removeIf(bucket -> bucket.isFull(now));
+  }
+
+  @Override
+  public void acquire(FlowWorkflowEntity workflow, String webhookToken, String userId) {
+    if (!enabled) {
+      return;
+    }
+
+    final Map<String, RateLimit> global = globalLimits.get();
+    final Map<String, RateLimit> team = getTeamLimits(workflow.getFlowTeamId());
+    final Map<String, RateLimit> limits = new HashMap<>();
+    if (webhookToken != null) {
+      putLimit(limits, TOKEN + ":" + webhookToken, global.get(TOKEN));
+    }
+    if (userId != null) {
+      putLimit(limits, USER + ":" + userId, global.get(USER));
+    }
+    if (workflow.getFlowTeamId() != null) {
+      putLimit(limits, TEAM + ":" + workflow.getFlowTeamId(),
+          team.getOrDefault(TEAM, global.get(TEAM)));
+    }
+    putLimit(limits, WORKFLOW + ":" + workflow.getId(),
+        team.getOrDefault(WORKFLOW, global.get(WORKFLOW)));
+    if (limits.isEmpty()) {
+      return;
+    }
+
+    final long now = TimeUnit.MILLISECONDS.toMicros(clock.millis());
+    final List<String> taken = new ArrayList<>(limits.size());
+    for (Map.Entry<String, RateLimit> limit : limits.entrySet()) {
+      final long wait = tryAcquire(limit.getKey(), limit.getValue(), now);
+      if (wait > 0) {
+        for (String key : taken) {
+          release(key, limits.get(key));
+        }
+        final String scope = StringUtils.substringBefore(limit.getKey(), ":");
+        LOGGER.info("Trigger of workflow {} refused by the {} rate limit", workflow.getId(), scope);
+        throw new RateLimitExceededException("Rate limit exceeded for " + scope,
+            toRetryAfterSeconds(wait));
+      }
+      taken.add(limit.getKey());
+    }
+  }
+
+  private long tryAcquire(String key, RateLimit limit, long now) {
+    if (shared) {
+      return sharedBuckets.tryAcquire(key, limit, now);
+    }
+    TokenBucket bucket = buckets.asMap().computeIfAbsent(key, k -> new TokenBucket());
+    return bucket.tryAcquire(limit, now);
+  }
+
+  private void release(String key, RateLimit limit) {
+    if (shared) {
+      sharedBuckets.release(key, limit);
+      return;
+    }
+    TokenBucket bucket = buckets.getIfPresent(key);
+    if (bucket != null) {
+      bucket.release(limit);
+    }
+  }
+
+  private Map<String, RateLimit> getTeamLimits(String teamId) {
+    if (teamId == null) {
+      return Collections.emptyMap();
+    }
+    Map<String, RateLimit> limits = teamLimits.getIfPresent(teamId);
+    if (limits == null) {
+      final FlowTeamEntity team = teamService.findById(teamId);
+      final List<FlowTeamConfiguration> properties =
+          team == null || team.getSettings() == null ? null : team.getSettings().getProperties();
+      limits = toLimits(properties);
+      teamLimits.put(teamId, limits);
+    }
+    return limits;
+  }
+
+  private Map<String, RateLimit> loadGlobalLimits() {
+    return toLimits(globalConfigService.getGlobalConfigs());
+  }
+
+  private static Map<String, RateLimit> toLimits(
+      List<? extends AbstractConfigurationProperty> properties) {
+    if (properties == null) {
+      return Collections.emptyMap();
+    }
+    final Map<String, RateLimit> limits = new HashMap<>();
+    for (AbstractConfigurationProperty property : properties) {
+      final String key = property.getKey();
+      if (key == null || !key.startsWith(LIMIT_KEY_PREFIX)) {
+        continue;
+      }
+      final String value =
+          property.getValue() == null ? property.getDefaultValue() : property.getValue();
+      final RateLimit limit = RateLimit.parse(value);
+      if (limit == null && StringUtils.isNotBlank(value)) {
+        LOGGER.warn("Ignoring rate limit {} with invalid value: {}", key, value);
+      } else if (limit != null) {
+        limits.put(key.substring(LIMIT_KEY_PREFIX.length()), limit);
+      }
+    }
+    return limits;
+  }
+
+  private static long toRetryAfterSeconds(long waitMicros) {
+    final long second = TimeUnit.SECONDS.toMicros(1);
+    return Math.max(1L, (waitMicros + second - 1) / second);
+  }
+
+  private static void putLimit(Map<String, RateLimit> limits, String key, RateLimit limit) {
+    if (limit != null) {
+      limits.put(key, limit);
+    }
+  }
+}
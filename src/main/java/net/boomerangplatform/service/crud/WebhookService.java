@@ -0,0 +1,16 @@
+package net.boomerangplatform.service.crud;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import net.boomerangplatform.model.FlowActivity;
+
+public interface WebhookService {
+
+  /**
+   * Creates an activity for the workflow the token belongs to and starts it in the background.
+   * Returns null when no active workflow accepts the token. A duplicate of an earlier delivery,
+   * by idempotency key or key properties, returns the earlier activity instead. Throws
+   * {@link net.boomerangplatform.exceptions.RateLimitExceededException} when the token, team or
+   * workflow is over its trigger rate limit.
+   */
+  FlowActivity triggerWebhook(String token, String idempotencyKey, JsonNode payload);
+}
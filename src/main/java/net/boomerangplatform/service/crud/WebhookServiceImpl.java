@@ -0,0 +1,183 @@
+package net.boomerangplatform.service.crud;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.boomerangplatform.model.FlowActivity;
+import net.boomerangplatform.model.FlowExecutionRequest;
+import net.boomerangplatform.mongo.entity.FlowWorkflowActivityEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowRevisionEntity;
+import net.boomerangplatform.mongo.model.FlowTriggerEnum;
+import net.boomerangplatform.mongo.service.FlowWorkflowService;
+import net.boomerangplatform.mongo.service.FlowWorkflowVersionService;
+import net.boomerangplatform.service.FlowExecutionService;
+
+/*
+ * Only the token lookup, any idempotency key claim and the activity insert happen on the request
+ * thread. Planning and running the workflow are handed to a bounded pool, so webhook senders get
+ * their answer before any of that starts; when the pool's queue is full the pool rejects the
+ * execution, the new activity is skipped and the caller is asked to retry.
+ */
+@Service
+public class WebhookServiceImpl implements WebhookService {
+
+  private static final Logger LOGGER = LogManager.getLogger(WebhookServiceImpl.class);
+
+  private static final String PROPERTIES = "properties";
+
+  private static final String PAYLOAD = "payload";
+
+  @Value("${flow.webhook.threads:4}")
+  private int threads;
+
+  @Value("${flow.webhook.queue-size:1000}")
+  private int queueSize;
+
+  @Value("${flow.webhook.max-properties:200}")
+  private int maxProperties;
+
+  @Autowired
+  private FlowWorkflowService workflowService;
+
+  @Autowired
+  private FlowWorkflowVersionService versionService;
+
+  @Autowired
+  private FlowActivityService activityService;
+
+  @Autowired
+  private FlowExecutionService executionService;
+
+  @Autowired
+  private IdempotencyService idempotencyService;
+
+  @Autowired
+  private TriggerRateLimitService rateLimitService;
+
+  private ThreadPoolExecutor executor;
+
+  @PostConstruct
+  public void init() {
+    executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(queueSize),
+        new ThreadFactoryBuilder().setNameFormat("webhook-execution-%d").setDaemon(true).build(),
+        new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  @Override
+  public FlowActivity triggerWebhook(String token, String idempotencyKey, JsonNode payload) {
+    final FlowWorkflowEntity workflow = workflowService.findByWebhookToken(token);
+    if (workflow == null) {
+      return null;
+    }
+    rateLimitService.acquire(workflow, token, null);
+
+    final FlowWorkflowRevisionEntity revision =
+        versionService.getLatestWorkflowVersion(workflow.getId());
+    if (revision == null) {
+      LOGGER.error("No revision to execute for webhook of workflow: {}", workflow.getId());
+      return null;
+    }
+
+    final FlowExecutionRequest request = new FlowExecutionRequest();
+    request.setProperties(toProperties(payload));
+
+    final String key = idempotencyService.getKey(workflow, idempotencyKey, request);
+    final FlowWorkflowActivityEntity activity;
+    if (key == null) {
+      activity = activityService.createFlowActivities(Collections.singletonList(revision),
+          FlowTriggerEnum.webhook, Collections.singletonList(request)).get(0);
+    } else {
+      final String activityId = new ObjectId().toHexString();
+      final Optional<FlowWorkflowActivityEntity> existing =
+          idempotencyService.reserveKey(workflow, key, activityId);
+      if (existing.isPresent()) {
+        return new FlowActivity(existing.get());
+      }
+      try {
+        activity = activityService.createFlowActivity(activityId, revision,
+            Optional.of(FlowTriggerEnum.webhook), request);
+      } catch (RuntimeException e) {
+        idempotencyService.releaseKey(workflow, key, activityId);
+        throw e;
+      }
+    }
+
+    try {
+      executor.execute(() -> {
+        try {
+          executionService.executeWorkflowVersion(revision.getId(), activity.getId());
+        } catch (RuntimeException e) {
+          LOGGER.error("Failed to execute webhook activity: {}", activity.getId(), e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      /* The caller is told to retry, so the activity is skipped and its key freed for the retry. */
+      activityService.supersedeActivity(activity.getId(), "Too many webhook executions queued");
+      if (key != null) {
+        idempotencyService.releaseKey(workflow, key, activity.getId());
+      }
+      throw e;
+    }
+    return new FlowActivity(activity);
+  }
+
+  /*
+   * A payload in the execute request format passes its properties through. Any other object is
+   * flattened to dotted paths, so a push event yields keys such as repository.name and
+   * commits.0.id, up to the property limit.
+   */
+  private Map<String, String> toProperties(JsonNode payload) {
+    final Map<String, String> properties = new LinkedHashMap<>();
+    if (payload == null || payload.isNull() || payload.isMissingNode()) {
+      return properties;
+    }
+    if (!payload.isObject()) {
+      properties.put(PAYLOAD, payload.toString());
+    } else if (payload.size() == 1 && payload.path(PROPERTIES).isObject()) {
+      flatten(payload.get(PROPERTIES), null, properties);
+    } else {
+      flatten(payload, null, properties);
+    }
+    return properties;
+  }
+
+  private void flatten(JsonNode node, String path, Map<String, String> properties) {
+    if (node.isObject()) {
+      final Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+      while (fields.hasNext() && properties.size() < maxProperties) {
+        final Map.Entry<String, JsonNode> field = fields.next();
+        flatten(field.getValue(), path == null ? field.getKey() : path + "." + field.getKey(),
+            properties);
+      }
+    } else if (node.isArray()) {
+      for (int i = 0; i < node.size() && properties.size() < maxProperties; i++) {
+        flatten(node.get(i), path + "." + i, properties);
+      }
+    } else if (!node.isNull() && properties.size() < maxProperties) {
+      properties.put(path, node.asText());
+    }
+  }
+}
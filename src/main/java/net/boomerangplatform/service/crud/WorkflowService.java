@@ -1,9 +1,12 @@
 package net.boomerangplatform.service.crud;
 
+import java.util.Date;
 import java.util.List;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.ResponseEntity;
 import net.boomerangplatform.model.GenerateTokenResponse;
+import net.boomerangplatform.model.ScheduleDistribution;
+import net.boomerangplatform.model.ScheduleForecast;
 import net.boomerangplatform.model.WorkflowExport;
 import net.boomerangplatform.model.WorkflowSummary;
 import net.boomerangplatform.mongo.entity.FlowWorkflowEntity;
@@ -29,4 +32,8 @@ public interface WorkflowService {
 
   void importWorkflow(WorkflowExport export, Boolean update, String flowTeamId);
 
+  ScheduleDistribution getScheduleDistribution(Date from, Date to, int bucketSize);
+
+  ScheduleForecast getScheduleForecast(Date from, Date to, int bucketSize, boolean weighted);
+
 }
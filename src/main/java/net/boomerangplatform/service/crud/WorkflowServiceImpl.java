@@ -5,14 +5,21 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.quartz.SchedulerException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -20,6 +27,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import net.boomerangplatform.model.GenerateTokenResponse;
+import net.boomerangplatform.model.ScheduleDistribution;
+import net.boomerangplatform.model.ScheduleForecast;
 import net.boomerangplatform.model.WorkflowExport;
 import net.boomerangplatform.model.WorkflowSummary;
 import net.boomerangplatform.mongo.entity.FlowTaskTemplateEntity;
@@ -34,6 +43,7 @@ import net.boomerangplatform.mongo.model.Webhook;
 import net.boomerangplatform.mongo.model.WorkflowStatus;
 import net.boomerangplatform.mongo.model.next.DAGTask;
 import net.boomerangplatform.mongo.service.FlowTaskTemplateService;
+import net.boomerangplatform.mongo.service.FlowWorkflowActivityService;
 import net.boomerangplatform.mongo.service.FlowWorkflowService;
 import net.boomerangplatform.mongo.service.FlowWorkflowVersionService;
 import net.boomerangplatform.scheduler.ScheduledTasks;
@@ -53,6 +63,15 @@ public class WorkflowServiceImpl implements WorkflowService {
   @Autowired
   private FlowTaskTemplateService templateService;
 
+  @Autowired
+  private FlowWorkflowActivityService activityService;
+
+  @Autowired
+  private Clock clock;
+
+  @Value("${flow.scheduler.forecast.history-days:30}")
+  private int forecastHistoryDays;
+
   private final Logger logger = LogManager.getLogger(getClass());
 
   @Override
@@ -61,20 +80,7 @@ public class WorkflowServiceImpl implements WorkflowService {
     entity.setStatus(WorkflowStatus.deleted);
     workFlowRepository.saveWorkflow(entity);
 
-    if (entity.getTriggers() != null) {
-      Triggers trigger = entity.getTriggers();
-      if (trigger != null) {
-        Scheduler scheduler = trigger.getScheduler();
-        if (scheduler != null && scheduler.getEnable()) {
-          try {
-            this.taskScheduler.cancelJob(entity.getId());
-          } catch (SchedulerException e) {
-            logger.info("Unable to remove job. ");
-            logger.error(e);
-          }
-        }
-      }
-    }
+    this.taskScheduler.removeWorkflow(entity.getId());
   }
 
   @Override
@@ -121,7 +127,7 @@ public class WorkflowServiceImpl implements WorkflowService {
       Scheduler scheduler = trigger.getScheduler();
       if (scheduler != null && scheduler.getEnable()) {
         logger.info("Scheduling workflow: {}", scheduler.getSchedule());
-        this.taskScheduler.scheduleWorkflow(entity);
+        this.taskScheduler.reconcileWorkflow(entity);
       }
     }
 
@@ -146,6 +152,7 @@ public class WorkflowServiceImpl implements WorkflowService {
     entity.setStatus(summary.getStatus());
     entity.setEnablePersistentStorage(summary.isEnablePersistentStorage());
     entity.setEnableACCIntegration(summary.isEnableACCIntegration());
+    entity.setIdempotency(summary.getIdempotency());
 
     List<FlowProperty> updatedProperties = setupDefaultProperties(summary);
     entity.setProperties(updatedProperties);
@@ -155,6 +162,7 @@ public class WorkflowServiceImpl implements WorkflowService {
     updateTriggers(entity, previousTriggers, trigger);
 
     workFlowRepository.saveWorkflow(entity);
+    this.taskScheduler.reconcileWorkflow(entity);
     WorkflowSummary updatedSummary = new WorkflowSummary(entity);
     updateSummaryInformation(updatedSummary);
 
@@ -169,7 +177,6 @@ public class WorkflowServiceImpl implements WorkflowService {
       String currentToken = null;
       String currentTimezone = null;
       String currentTopic = null;
-      boolean previous = false;
 
       if (previousTriggers != null && previousTriggers.getWebhook() != null) {
         currentToken = previousTriggers.getWebhook().getToken();
@@ -177,7 +184,6 @@ public class WorkflowServiceImpl implements WorkflowService {
 
       if (previousTriggers != null && previousTriggers.getScheduler() != null) {
         currentTimezone = previousTriggers.getScheduler().getTimezone();
-        previous = previousTriggers.getScheduler().getEnable();
       }
 
       if (previousTriggers != null && previousTriggers.getEvent() != null) {
@@ -191,7 +197,7 @@ public class WorkflowServiceImpl implements WorkflowService {
       updateWebhook(entity, currentToken, webhook);
 
       Scheduler scheduler = trigger.getScheduler();
-      updateSchedule(entity, previousTriggers, currentTimezone, previous, scheduler);
+      updateSchedule(entity, currentTimezone, scheduler);
 
     }
   }
@@ -232,8 +238,8 @@ public class WorkflowServiceImpl implements WorkflowService {
     }
   }
 
-  private void updateSchedule(final FlowWorkflowEntity entity, Triggers previousTriggers,
-      String currentTimezone, boolean previous, Scheduler scheduler) {
+  private void updateSchedule(final FlowWorkflowEntity entity, String currentTimezone,
+      Scheduler scheduler) {
     if (scheduler != null) {
 
       String timezone = scheduler.getTimezone();
@@ -243,37 +249,6 @@ public class WorkflowServiceImpl implements WorkflowService {
       }
 
       entity.getTriggers().setScheduler(scheduler);
-
-      if (previousTriggers != null && previousTriggers.getScheduler() != null) {
-        previousTriggers.getScheduler().getEnable();
-      }
-
-      boolean current = scheduler.getEnable();
-
-      scheduleWorkflow(entity, previous, current);
-    }
-  }
-
-  private void scheduleWorkflow(final FlowWorkflowEntity entity, boolean previous,
-      boolean current) {
-    if (!previous && current) {
-      this.taskScheduler.scheduleWorkflow(entity);
-    } else if (previous && !current) {
-      try {
-        this.taskScheduler.cancelJob(entity.getId());
-      } catch (SchedulerException e) {
-        logger.info("Unable to schedule job. ");
-        logger.error(e);
-      }
-    } else if (current) {
-      try {
-        this.taskScheduler.cancelJob(entity.getId());
-        this.taskScheduler.scheduleWorkflow(entity);
-
-      } catch (SchedulerException e) {
-        logger.info("Unable to reschedule job. ");
-        logger.error(e);
-      }
     }
   }
 
@@ -336,9 +311,10 @@ public class WorkflowServiceImpl implements WorkflowService {
     final FlowWorkflowEntity entity = workFlowRepository.getWorkflow(workFlowId);
     WorkflowExport export = new WorkflowExport(entity);
 
-    export.setLatestRevision(workflowVersionService.getLatestWorkflowVersion(workFlowId));
-    export
-        .setRevisionCount(workflowVersionService.getLatestWorkflowVersion(workFlowId).getVersion());
+    FlowWorkflowRevisionEntity latestRevision =
+        workflowVersionService.getLatestWorkflowVersion(workFlowId);
+    export.setLatestRevision(latestRevision);
+    export.setRevisionCount(latestRevision.getVersion());
 
     HttpHeaders headers = new HttpHeaders();
     headers.add("Cache-Control", "no-cache, no-store, must-revalidate");
@@ -401,8 +377,6 @@ public class WorkflowServiceImpl implements WorkflowService {
         workFlowRepository.saveWorkflow(entity);
 
         revision.setId(null);
-        revision.setVersion(
-            workflowVersionService.getLatestWorkflowVersion(export.getId()).getVersion() + 1);
 
         workflowVersionService.insertWorkflow(revision);
 
@@ -427,7 +401,6 @@ public class WorkflowServiceImpl implements WorkflowService {
         FlowWorkflowEntity savedEntity = workFlowRepository.saveWorkflow(entity);
 
         revision.setId(null);
-        revision.setVersion(1);
         revision.setWorkFlowId(savedEntity.getId());
 
         workflowVersionService.insertWorkflow(revision);
@@ -482,4 +455,123 @@ public class WorkflowServiceImpl implements WorkflowService {
     return newProperties;
   }
 
+  @Override
+  public ScheduleDistribution getScheduleDistribution(Date from, Date to, int bucketSize) {
+    return taskScheduler.getFireDistribution(from, to, bucketSize);
+  }
+
+  /*
+   * Weights come from two aggregations, one over recent activities and one over the latest
+   * revisions, so the cost does not grow with the number of fires. A scheduled activity counts as
+   * running in every bucket its average duration reaches.
+   */
+  @Override
+  public ScheduleForecast getScheduleForecast(Date from, Date to, int bucketSize,
+      boolean weighted) {
+    final List<FlowWorkflowEntity> workflows = workFlowRepository.getScheduledWorkflows();
+    final Map<String, Long> durations = weighted ? getAverageDurations(workflows) : null;
+    final Map<String, Integer> taskCounts = weighted ? getTaskCounts(workflows) : null;
+
+    final long bucketMillis = bucketSize * 1000L;
+    final int bucketCount =
+        (int) ((to.getTime() - from.getTime() + bucketMillis - 1) / bucketMillis);
+    final int[] starts = new int[bucketCount];
+    final long[] tasks = new long[bucketCount];
+    final int[] runningChanges = new int[bucketCount + 1];
+    taskScheduler.forEachFire(workflows, from, to, (workflow, fireTime) -> {
+      final int bucket = (int) ((fireTime - from.getTime()) / bucketMillis);
+      starts[bucket]++;
+      if (weighted) {
+        tasks[bucket] += taskCounts.getOrDefault(workflow.getId(), 0);
+        final long end = fireTime + durations.getOrDefault(workflow.getId(), 0L);
+        runningChanges[bucket]++;
+        runningChanges[(int) Math.min(bucketCount, (end - from.getTime()) / bucketMillis + 1)]--;
+      }
+    });
+    if (weighted) {
+      seedRunning(workflows, durations, from, bucketMillis, runningChanges);
+    }
+
+    final ScheduleForecast forecast = new ScheduleForecast();
+    forecast.setFrom(from);
+    forecast.setTo(to);
+    forecast.setBucketSize(bucketSize);
+    forecast.setWeighted(weighted);
+    forecast.setPeakStarts(0);
+    long totalStarts = 0;
+    long totalTasks = 0;
+    int running = 0;
+    final List<ScheduleForecast.ForecastBucket> buckets = new ArrayList<>();
+    for (int i = 0; i < bucketCount; i++) {
+      running += runningChanges[i];
+      if (starts[i] == 0 && running == 0) {
+        continue;
+      }
+      final Date start = new Date(from.getTime() + i * bucketMillis);
+      final ScheduleForecast.ForecastBucket bucket =
+          new ScheduleForecast.ForecastBucket(start, starts[i]);
+      totalStarts += starts[i];
+      if (starts[i] > forecast.getPeakStarts()) {
+        forecast.setPeakStarts(starts[i]);
+        forecast.setPeakStartsTime(start);
+      }
+      if (weighted) {
+        bucket.setTasks(tasks[i]);
+        bucket.setRunning(running);
+        totalTasks += tasks[i];
+        if (forecast.getPeakRunning() == null || running > forecast.getPeakRunning()) {
+          forecast.setPeakRunning(running);
+          forecast.setPeakRunningTime(start);
+        }
+      }
+      buckets.add(bucket);
+    }
+    forecast.setTotalStarts(totalStarts);
+    if (weighted) {
+      forecast.setTotalTasks(totalTasks);
+    }
+    forecast.setBuckets(buckets);
+    return forecast;
+  }
+
+  /*
+   * Counts the runs started by fires before the forecast that are still running at its start,
+   * looking back only as far as the longest average duration.
+   */
+  private void seedRunning(List<FlowWorkflowEntity> workflows, Map<String, Long> durations,
+      Date from, long bucketMillis, int[] runningChanges) {
+    final long maxDuration =
+        durations.values().stream().mapToLong(Long::longValue).max().orElse(0L);
+    if (maxDuration <= 0) {
+      return;
+    }
+    final int bucketCount = runningChanges.length - 1;
+    taskScheduler.forEachFire(workflows, new Date(from.getTime() - maxDuration), from,
+        (workflow, fireTime) -> {
+          final long end = fireTime + durations.getOrDefault(workflow.getId(), 0L);
+          if (end > from.getTime()) {
+            final long endBucket = (end - from.getTime()) / bucketMillis + 1;
+            runningChanges[0]++;
+            runningChanges[(int) Math.min(bucketCount, endBucket)]--;
+          }
+        });
+  }
+
+  private Map<String, Long> getAverageDurations(List<FlowWorkflowEntity> workflows) {
+    if (workflows.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    final Date since = new Date(clock.millis() - TimeUnit.DAYS.toMillis(forecastHistoryDays));
+    return activityService.getAverageDurations(
+        workflows.stream().map(FlowWorkflowEntity::getId).collect(Collectors.toList()), since);
+  }
+
+  /* Workflows without a latest revision pointer yet are forecast without tasks. */
+  private Map<String, Integer> getTaskCounts(List<FlowWorkflowEntity> workflows) {
+    final List<String> revisionIds = workflows.stream()
+        .map(FlowWorkflowEntity::getLatestRevisionId).filter(Objects::nonNull)
+        .collect(Collectors.toList());
+    return revisionIds.isEmpty() ? Collections.emptyMap()
+        : workflowVersionService.getTaskCounts(revisionIds);
+  }
 }
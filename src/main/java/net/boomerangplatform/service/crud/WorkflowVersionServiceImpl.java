@@ -1,10 +1,12 @@
 package net.boomerangplatform.service.crud;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -14,7 +16,6 @@ import net.boomerangplatform.model.RevisionResponse;
 import net.boomerangplatform.model.projectstormv5.ConfigNodes;
 import net.boomerangplatform.model.projectstormv5.RestConfig;
 import net.boomerangplatform.model.projectstormv5.TaskNode;
-import net.boomerangplatform.mongo.entity.FlowTaskTemplateEntity;
 import net.boomerangplatform.mongo.entity.FlowUserEntity;
 import net.boomerangplatform.mongo.entity.FlowWorkflowRevisionEntity;
 import net.boomerangplatform.mongo.model.ChangeLog;
@@ -82,15 +83,10 @@ public class WorkflowVersionServiceImpl implements WorkflowVersionService {
       List<DAGTask> dagTasks = dag.getTasks();
       for (DAGTask dagTask : dagTasks) {
         if (dagTask.getTemplateVersion() == null && dagTask.getTemplateId() != null) {
-          FlowTaskTemplateEntity flowTaskTemplateEntity =
-              templateService.getTaskTemplateWithId(dagTask.getTemplateId());
-          if (flowTaskTemplateEntity != null && flowTaskTemplateEntity.getRevisions() != null) {
-            Optional<Revision> latestRevision = flowTaskTemplateEntity.getRevisions().stream()
-                .sorted(Comparator.comparingInt(Revision::getVersion).reversed()).findFirst();
-            if (latestRevision.isPresent()) {
-              Integer newVersion = latestRevision.get().getVersion();
-              dagTask.setTemplateVersion(newVersion);
-            }
+          Revision latestRevision =
+              templateService.getLatestTemplateRevision(dagTask.getTemplateId());
+          if (latestRevision != null) {
+            dagTask.setTemplateVersion(latestRevision.getVersion());
           }
         }
       }
@@ -115,21 +111,15 @@ public class WorkflowVersionServiceImpl implements WorkflowVersionService {
           if (isTask(config.getType())) {
 
             Integer taskVersion = config.getTaskVersion();
-            FlowTaskTemplateEntity flowTaskTemplateEntity =
-                templateService.getTaskTemplateWithId(config.getTaskId());
-
-            if (flowTaskTemplateEntity != null && flowTaskTemplateEntity.getRevisions() != null) {
-              Optional<Revision> latestRevision = flowTaskTemplateEntity.getRevisions().stream()
-                  .sorted(Comparator.comparingInt(Revision::getVersion).reversed()).findFirst();
-              if (latestRevision.isPresent()
-                  && !latestRevision.get().getVersion().equals(taskVersion)) {
-                newTemplatesAvailable = true;
-                if (revision.getDag().getNodes() != null) {
-                  for (TaskNode taskNode : revision.getDag().getNodes()) {
-                    if (taskNode.getTaskId() != null
-                        && taskNode.getTaskId().equals(config.getTaskId())) {
-                      taskNode.setTemplateUpgradeAvailable(true);
-                    }
+            Revision latestRevision = templateService.getLatestTemplateRevision(config.getTaskId());
+
+            if (latestRevision != null && !latestRevision.getVersion().equals(taskVersion)) {
+              newTemplatesAvailable = true;
+              if (revision.getDag().getNodes() != null) {
+                for (TaskNode taskNode : revision.getDag().getNodes()) {
+                  if (taskNode.getTaskId() != null
+                      && taskNode.getTaskId().equals(config.getTaskId())) {
+                    taskNode.setTemplateUpgradeAvailable(true);
                   }
                 }
               }
@@ -150,9 +140,6 @@ public class WorkflowVersionServiceImpl implements WorkflowVersionService {
   @Override
   public FlowWorkflowRevision insertWorkflowVersion(FlowWorkflowRevision flowWorkflowEntity) {
 
-    final String workFlowId = flowWorkflowEntity.getWorkFlowId();
-    final long currentCount = flowWorkflowService.getWorkflowCount(workFlowId);
-
     final ChangeLog changelog = new ChangeLog();
     FlowUserEntity user = userIdentityService.getCurrentUser();
 
@@ -167,7 +154,6 @@ public class WorkflowVersionServiceImpl implements WorkflowVersionService {
 
     flowWorkflowEntity.setChangelog(changelog);
     flowWorkflowEntity.setId(null);
-    flowWorkflowEntity.setVersion(currentCount + 1);
     FlowWorkflowRevisionEntity revisionEntity = flowWorkflowEntity.convertToEntity();
     this.updateTemplateVersions(revisionEntity);
 
@@ -185,37 +171,25 @@ public class WorkflowVersionServiceImpl implements WorkflowVersionService {
 
     final List<RevisionResponse> revisionResponse = new ArrayList<>();
 
+    final Map<String, FlowUserEntity> users = userIdentityService.getUsersByIds(revisions.stream()
+        .map(FlowWorkflowRevisionEntity::getChangelog).filter(Objects::nonNull)
+        .map(ChangeLog::getUserId).collect(Collectors.toSet()));
+
     for (final FlowWorkflowRevisionEntity revision : revisions) {
       final RevisionResponse rs = new RevisionResponse();
-      String userId;
-      String userName;
 
       rs.setRevisionId(revision.getId());
       rs.setWorkflowId(revision.getWorkFlowId());
       rs.setVersion(revision.getVersion());
 
       if (revision.getChangelog() != null) {
+        final String userId = revision.getChangelog().getUserId();
+        final FlowUserEntity user = userId == null ? null : users.get(userId);
 
-        if (revision.getChangelog().getUserId() != null) {
-          userId = revision.getChangelog().getUserId();
-        } else {
-          userId = null;
-        }
-
-        final Date date = revision.getChangelog().getDate();
-        final String reason = revision.getChangelog().getReason();
-
-        rs.setDate(date);
+        rs.setDate(revision.getChangelog().getDate());
         rs.setUserId(userId);
-        rs.setReason(reason);
-
-        if (userIdentityService.getUserByID(userId) != null) {
-          userName = userIdentityService.getUserByID(userId).getName();
-        } else {
-          userName = null;
-        }
-
-        rs.setUserName(userName);
+        rs.setReason(revision.getChangelog().getReason());
+        rs.setUserName(user == null ? null : user.getName());
       }
 
       revisionResponse.add(rs);
@@ -0,0 +1,38 @@
+package net.boomerangplatform.service.events;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Broker that event triggers are received from. Subscriptions are durable and shared by a queue
+ * group, so every replica subscribes under the same group and each message is handled once.
+ */
+public interface EventTransport {
+
+  void connect() throws IOException;
+
+  /**
+   * Subscribes to a subject. No more than maxInFlight messages are delivered to the subscription
+   * without being acknowledged; messages that are never acknowledged are delivered again.
+   */
+  EventSubscription subscribe(String subject, String group, int maxInFlight,
+      Consumer<EventMessage> handler) throws IOException;
+
+  /** Closes the connection, keeping the durable subscriptions for the next one. */
+  void close();
+
+  interface EventMessage {
+
+    String getSubject();
+
+    byte[] getData();
+
+    void ack() throws IOException;
+  }
+
+  interface EventSubscription {
+
+    /** Removes the subscription, including its durable position. */
+    void unsubscribe() throws IOException;
+  }
+}
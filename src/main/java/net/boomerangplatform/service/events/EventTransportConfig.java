@@ -0,0 +1,37 @@
+package net.boomerangplatform.service.events;
+
+import java.time.Duration;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class EventTransportConfig {
+
+  private static final String TRANSPORT_MEMORY = "memory";
+
+  @Value("${flow.events.transport:nats}")
+  private String transport;
+
+  @Value("${actionlistener.nats.url}")
+  private String natsUrl;
+
+  @Value("${actionlistener.nats.cluster}")
+  private String natsCluster;
+
+  @Value("${flow.events.ack-wait:30000}")
+  private long ackWait;
+
+  @Bean
+  public EventTransport eventTransport() {
+    if (TRANSPORT_MEMORY.equals(transport)) {
+      return new InMemoryEventTransport();
+    }
+
+    /* Client ids must be unique within the cluster and may only use these characters. */
+    String clientId = (System.getenv().getOrDefault("HOSTNAME", "flow") + "-" + UUID.randomUUID())
+        .replaceAll("[^A-Za-z0-9_-]", "-");
+    return new NatsStreamingTransport(natsUrl, natsCluster, clientId, Duration.ofMillis(ackWait));
+  }
+}
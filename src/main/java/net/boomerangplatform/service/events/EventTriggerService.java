@@ -0,0 +1,11 @@
+package net.boomerangplatform.service.events;
+
+import java.util.List;
+
+public interface EventTriggerService {
+
+  /** Reloads the topics of event triggered workflows and subscribes to any new ones. */
+  void refreshRoutes();
+
+  List<String> getWorkflowsForTopic(String topic);
+}
@@ -0,0 +1,348 @@
+package net.boomerangplatform.service.events;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.boomerangplatform.model.FlowExecutionRequest;
+import net.boomerangplatform.mongo.entity.FlowWorkflowActivityEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowRevisionEntity;
+import net.boomerangplatform.mongo.model.Event;
+import net.boomerangplatform.mongo.model.FlowTriggerEnum;
+import net.boomerangplatform.mongo.model.WorkflowStatus;
+import net.boomerangplatform.mongo.service.FlowWorkflowService;
+import net.boomerangplatform.mongo.service.FlowWorkflowVersionService;
+import net.boomerangplatform.service.FlowExecutionService;
+import net.boomerangplatform.service.crud.FlowActivityService;
+import net.boomerangplatform.service.events.EventTransport.EventMessage;
+import net.boomerangplatform.service.events.EventTransport.EventSubscription;
+
+/*
+ * Every topic of an event triggered workflow gets a durable subscription in a queue group shared by
+ * all replicas, each allowed its share of max-in-flight unacknowledged messages. A received event
+ * holds one of max-in-flight permits until the executions it triggered have finished; when none is
+ * free the callback returns without acknowledging, never blocking the broker's thread, and the
+ * broker delivers the message again once its ack wait ends. One thread creates the activities of
+ * queued events in batches and acknowledges the messages as soon as the activities exist, so a
+ * redelivery cannot start them twice, then hands each one to a bounded pool to be planned and run.
+ * Messages in a failed batch are left for the broker to deliver again.
+ */
+@Service
+public class EventTriggerServiceImpl implements EventTriggerService {
+
+  private static final Logger LOGGER = LogManager.getLogger(EventTriggerServiceImpl.class);
+
+  @Value("${flow.events.enabled:false}")
+  private boolean enabled;
+
+  @Value("${flow.events.group:flow-workflow}")
+  private String group;
+
+  @Value("${flow.events.max-in-flight:256}")
+  private int maxInFlight;
+
+  @Value("${flow.events.batch-size:50}")
+  private int batchSize;
+
+  @Value("${flow.events.batch-wait:100}")
+  private long batchWait;
+
+  @Value("${flow.events.execution-threads:4}")
+  private int executionThreads;
+
+  @Value("${flow.events.execution-queue-size:1000}")
+  private int executionQueueSize;
+
+  @Autowired
+  private EventTransport transport;
+
+  @Autowired
+  private FlowWorkflowService workflowService;
+
+  @Autowired
+  private FlowWorkflowVersionService versionService;
+
+  @Autowired
+  private FlowActivityService activityService;
+
+  @Autowired
+  private FlowExecutionService executionService;
+
+  private final ObjectMapper objectMapper =
+      new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+  private final BlockingQueue<ReceivedEvent> received = new LinkedBlockingQueue<>();
+
+  /* Guarded by this. */
+  private final Map<String, EventSubscription> subscriptions = new HashMap<>();
+
+  private volatile Map<String, List<String>> routes = Collections.emptyMap();
+
+  private Semaphore inFlight;
+
+  private ThreadPoolExecutor executor;
+
+  /* Bounds the executions submitted and not finished, so submitting never gets rejected. */
+  private Semaphore executionSlots;
+
+  private Thread batcher;
+
+  private volatile boolean running;
+
+  private boolean connected;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    if (!enabled) {
+      return;
+    }
+    inFlight = new Semaphore(maxInFlight);
+    executionSlots = new Semaphore(executionThreads + executionQueueSize);
+    executor = new ThreadPoolExecutor(executionThreads, executionThreads, 0L,
+        TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(executionQueueSize),
+        new ThreadFactoryBuilder().setNameFormat("event-trigger-%d").setDaemon(true).build());
+    running = true;
+    batcher = new Thread(this::processBatches, "event-trigger-batcher");
+    batcher.setDaemon(true);
+    batcher.start();
+    refreshRoutes();
+  }
+
+  @Override
+  @Scheduled(initialDelayString = "${flow.events.refresh-interval:30000}",
+      fixedDelayString = "${flow.events.refresh-interval:30000}")
+  public synchronized void refreshRoutes() {
+    if (!running) {
+      return;
+    }
+
+    Map<String, List<String>> table = new HashMap<>();
+    for (FlowWorkflowEntity workflow : workflowService.getEventWorkflows()) {
+      Event event = workflow.getTriggers().getEvent();
+      if (workflow.getStatus() == WorkflowStatus.active
+          && StringUtils.isNotBlank(event.getTopic())) {
+        table.computeIfAbsent(event.getTopic(), topic -> new ArrayList<>()).add(workflow.getId());
+      }
+    }
+    routes = table;
+
+    if (!connected) {
+      try {
+        transport.connect();
+        connected = true;
+      } catch (IOException e) {
+        LOGGER.error("Failed to connect to the event broker", e);
+        return;
+      }
+    }
+
+    Iterator<Map.Entry<String, EventSubscription>> current = subscriptions.entrySet().iterator();
+    while (current.hasNext()) {
+      Map.Entry<String, EventSubscription> subscription = current.next();
+      if (!table.containsKey(subscription.getKey())) {
+        try {
+          subscription.getValue().unsubscribe();
+          current.remove();
+          LOGGER.info("Unsubscribed from event topic: {}", subscription.getKey());
+        } catch (IOException e) {
+          LOGGER.error("Failed to unsubscribe from event topic: {}", subscription.getKey(), e);
+        }
+      }
+    }
+    for (String topic : table.keySet()) {
+      if (!subscriptions.containsKey(topic)) {
+        try {
+          subscriptions.put(topic, transport.subscribe(topic, group,
+              Math.max(1, maxInFlight / table.size()), this::receive));
+          LOGGER.info("Subscribed to event topic: {}", topic);
+        } catch (IOException e) {
+          LOGGER.error("Failed to subscribe to event topic: {}", topic, e);
+        }
+      }
+    }
+  }
+
+  @Override
+  public List<String> getWorkflowsForTopic(String topic) {
+    return routes.getOrDefault(topic, Collections.emptyList());
+  }
+
+  @PreDestroy
+  public void stop() {
+    running = false;
+    if (batcher != null) {
+      batcher.interrupt();
+    }
+    if (executor != null) {
+      executor.shutdown();
+    }
+    transport.close();
+  }
+
+  private void receive(EventMessage message) {
+    List<String> workflowIds = getWorkflowsForTopic(message.getSubject());
+    Optional<FlowExecutionRequest> request = parse(message);
+    if (workflowIds.isEmpty() || !request.isPresent()) {
+      acknowledge(message);
+      return;
+    }
+
+    if (inFlight.tryAcquire()) {
+      received.add(new ReceivedEvent(message, workflowIds, request.get()));
+    } else {
+      LOGGER.debug("Deferring event on topic {} until executions finish", message.getSubject());
+    }
+  }
+
+  private void processBatches() {
+    List<ReceivedEvent> batch = new ArrayList<>(batchSize);
+    while (running) {
+      try {
+        ReceivedEvent first = received.poll(1, TimeUnit.SECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchWait);
+        while (batch.size() < batchSize) {
+          ReceivedEvent next = received.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+        triggerWorkflows(batch);
+      } catch (InterruptedException e) {
+        inFlight.release(batch.size());
+        Thread.currentThread().interrupt();
+        return;
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private void triggerWorkflows(List<ReceivedEvent> batch) {
+    Map<String, Optional<FlowWorkflowRevisionEntity>> revisions = new HashMap<>();
+    List<FlowWorkflowRevisionEntity> targets = new ArrayList<>();
+    List<FlowExecutionRequest> requests = new ArrayList<>();
+    List<ReceivedEvent> owners = new ArrayList<>();
+    List<FlowWorkflowActivityEntity> activities;
+    try {
+      for (ReceivedEvent event : batch) {
+        for (String workflowId : event.workflowIds) {
+          Optional<FlowWorkflowRevisionEntity> revision = revisions.computeIfAbsent(workflowId,
+              id -> Optional.ofNullable(versionService.getLatestWorkflowVersion(id)));
+          if (revision.isPresent()) {
+            targets.add(revision.get());
+            requests.add(event.request);
+            owners.add(event);
+            event.pending.incrementAndGet();
+          }
+        }
+      }
+      activities = targets.isEmpty() ? Collections.emptyList()
+          : activityService.createFlowActivities(targets, FlowTriggerEnum.action, requests);
+    } catch (RuntimeException e) {
+      LOGGER.error("Failed to create activities for {} events, leaving them for redelivery",
+          batch.size(), e);
+      inFlight.release(batch.size());
+      return;
+    }
+
+    for (ReceivedEvent event : batch) {
+      acknowledge(event.message);
+      if (event.pending.get() == 0) {
+        inFlight.release();
+      }
+    }
+
+    for (int i = 0; i < activities.size(); i++) {
+      FlowWorkflowActivityEntity activity = activities.get(i);
+      ReceivedEvent owner = owners.get(i);
+      try {
+        executionSlots.acquire();
+      } catch (InterruptedException e) {
+        LOGGER.warn("Stopped before executing {} event triggered activities",
+            activities.size() - i);
+        owners.subList(i, owners.size()).forEach(this::finish);
+        Thread.currentThread().interrupt();
+        return;
+      }
+      executor.execute(() -> execute(activity, owner));
+    }
+  }
+
+  private void execute(FlowWorkflowActivityEntity activity, ReceivedEvent owner) {
+    try {
+      executionService.executeWorkflowVersion(activity.getWorkflowRevisionid(), activity.getId());
+    } catch (RuntimeException e) {
+      LOGGER.error("Failed to execute activity: {}", activity.getId(), e);
+    } finally {
+      executionSlots.release();
+      finish(owner);
+    }
+  }
+
+  /* Releases the event's permit once the last of its executions has finished. */
+  private void finish(ReceivedEvent event) {
+    if (event.pending.decrementAndGet() == 0) {
+      inFlight.release();
+    }
+  }
+
+  private Optional<FlowExecutionRequest> parse(EventMessage message) {
+    try {
+      return Optional.of(objectMapper.readValue(message.getData(), FlowExecutionRequest.class));
+    } catch (IOException e) {
+      LOGGER.warn("Dropping unreadable event on topic: {}", message.getSubject());
+      return Optional.empty();
+    }
+  }
+
+  private void acknowledge(EventMessage message) {
+    try {
+      message.ack();
+    } catch (IOException e) {
+      LOGGER.error("Failed to acknowledge event on topic: {}", message.getSubject(), e);
+    }
+  }
+
+  private static class ReceivedEvent {
+
+    private final EventMessage message;
+    private final List<String> workflowIds;
+    private final FlowExecutionRequest request;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    ReceivedEvent(EventMessage message, List<String> workflowIds, FlowExecutionRequest request) {
+      this.message = message;
+      this.workflowIds = workflowIds;
+      this.request = request;
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package net.boomerangplatform.service.events;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Broker kept in memory, for tests and single instance setups. It keeps the semantics the trigger
+ * service relies on: messages wait for a durable group that has no subscriber, at most the
+ * in-flight limit is delivered without acknowledgement, and unacknowledged messages go out again
+ * on {@link #redeliver()}. All deliveries are made in order on a single thread.
+ */
+public class InMemoryEventTransport implements EventTransport {
+
+  private final ExecutorService delivery = Executors.newSingleThreadExecutor(
+      new ThreadFactoryBuilder().setNameFormat("event-delivery-%d").setDaemon(true).build());
+
+  /* Only read and written on the delivery thread. */
+  private final Map<String, Map<String, Group>> subjects = new HashMap<>();
+
+  @Override
+  public void connect() {
+    /* Nothing to connect to. */
+  }
+
+  @Override
+  public EventSubscription subscribe(String subject, String group, int maxInFlight,
+      Consumer<EventMessage> handler) {
+    delivery.execute(() -> {
+      Group target = getGroup(subject, group);
+      target.handler = handler;
+      target.maxInFlight = maxInFlight;
+      target.drain();
+    });
+    return () -> delivery.execute(() -> {
+      Map<String, Group> groups = subjects.get(subject);
+      if (groups != null) {
+        groups.remove(group);
+      }
+    });
+  }
+
+  /** Queues a message for every group subscribed to the subject. */
+  public void publish(String subject, byte[] data) {
+    delivery.execute(() -> {
+      for (Group group : subjects.getOrDefault(subject, Collections.emptyMap()).values()) {
+        group.pending.add(new MemoryMessage(subject, data, group));
+        group.drain();
+      }
+    });
+  }
+
+  /** Delivers every unacknowledged message again, as the broker does once their ack wait ends. */
+  public void redeliver() {
+    delivery.execute(() -> {
+      for (Map<String, Group> groups : subjects.values()) {
+        for (Group group : groups.values()) {
+          List<MemoryMessage> unacked = new ArrayList<>(group.unacked);
+          group.unacked.clear();
+          for (int i = unacked.size() - 1; i >= 0; i--) {
+            group.pending.addFirst(unacked.get(i));
+          }
+          group.drain();
+        }
+      }
+    });
+  }
+
+  @Override
+  public void close() {
+    delivery.execute(() -> subjects.values()
+        .forEach(groups -> groups.values().forEach(group -> group.handler = null)));
+  }
+
+  public void shutdown() {
+    delivery.shutdownNow();
+  }
+
+  private Group getGroup(String subject, String group) {
+    return subjects.computeIfAbsent(subject, key -> new HashMap<>())
+        .computeIfAbsent(group, key -> new Group());
+  }
+
+  private class Group {
+
+    private final Deque<MemoryMessage> pending = new ArrayDeque<>();
+    private final Set<MemoryMessage> unacked = new LinkedHashSet<>();
+    private Consumer<EventMessage> handler;
+    private int maxInFlight;
+
+    private void drain() {
+      while (handler != null && unacked.size() < maxInFlight && !pending.isEmpty()) {
+        MemoryMessage message = pending.poll();
+        unacked.add(message);
+        handler.accept(message);
+      }
+    }
+
+    private void ack(MemoryMessage message) {
+      delivery.execute(() -> {
+        if (unacked.remove(message)) {
+          drain();
+        }
+      });
+    }
+  }
+
+  private static class MemoryMessage implements EventMessage {
+
+    private final String subject;
+    private final byte[] data;
+    private final Group group;
+
+    MemoryMessage(String subject, byte[] data, Group group) {
+      this.subject = subject;
+      this.data = data;
+      this.group = group;
+    }
+
+    @Override
+    public String getSubject() {
+      return subject;
+    }
+
+    @Override
+    public byte[] getData() {
+      return data;
+    }
+
+    @Override
+    public void ack() {
+      group.ack(this);
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package net.boomerangplatform.service.events;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import io.nats.streaming.Message;
+import io.nats.streaming.Options;
+import io.nats.streaming.StreamingConnection;
+import io.nats.streaming.StreamingConnectionFactory;
+import io.nats.streaming.Subscription;
+import io.nats.streaming.SubscriptionOptions;
+
+public class NatsStreamingTransport implements EventTransport {
+
+  private final Options options;
+
+  private final Duration ackWait;
+
+  private volatile StreamingConnection connection;
+
+  public NatsStreamingTransport(String url, String clusterId, String clientId,
+      Duration ackWait) {
+    this.options =
+        new Options.Builder().natsUrl(url).clusterId(clusterId).clientId(clientId).build();
+    this.ackWait = ackWait;
+  }
+
+  @Override
+  public void connect() throws IOException {
+    try {
+      connection = new StreamingConnectionFactory(options).createConnection();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    }
+  }
+
+  @Override
+  public EventSubscription subscribe(String subject, String group, int maxInFlight,
+      Consumer<EventMessage> handler) throws IOException {
+    SubscriptionOptions subscriptionOptions = new SubscriptionOptions.Builder()
+        .durableName(group).manualAcks().maxInFlight(maxInFlight).ackWait(ackWait).build();
+    try {
+      Subscription subscription = connection.subscribe(subject, group,
+          message -> handler.accept(new NatsMessage(message)), subscriptionOptions);
+      return subscription::unsubscribe;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (TimeoutException e) {
+      throw new IOException(e);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (connection == null) {
+      return;
+    }
+    try {
+      connection.close();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException | TimeoutException e) {
+      /* The broker lets the connection expire on its own. */
+    }
+  }
+
+  private static class NatsMessage implements EventMessage {
+
+    private final Message message;
+
+    NatsMessage(Message message) {
+      this.message = message;
+    }
+
+    @Override
+    public String getSubject() {
+      return message.getSubject();
+    }
+
+    @Override
+    public byte[] getData() {
+      return message.getData();
+    }
+
+    @Override
+    public void ack() throws IOException {
+      message.ack();
+    }
+  }
+}
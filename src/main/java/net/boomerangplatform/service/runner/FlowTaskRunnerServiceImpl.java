@@ -36,6 +36,7 @@ import net.boomerangplatform.mongo.model.next.Dependency;
 import net.boomerangplatform.mongo.service.FlowWorkflowActivityService;
 import net.boomerangplatform.mongo.service.FlowWorkflowActivityTaskService;
 import net.boomerangplatform.mongo.service.FlowWorkflowService;
+import net.boomerangplatform.service.crud.ActivityRollupService;
 import net.boomerangplatform.service.crud.FlowActivityService;
 import net.boomerangplatform.service.runner.misc.CreateTaskLifecycleService;
 import net.boomerangplatform.service.runner.misc.CustomTaskLifecycleService;
@@ -75,10 +76,20 @@ public class FlowTaskRunnerServiceImpl implements FlowTaskRunnerService {
   @Autowired
   private FlowWorkflowActivityTaskService taskService;
 
+  @Autowired
+  private ActivityRollupService activityRollupService;
+
   @Override
   public CompletableFuture<TaskResult> runTasks(Graph<String, DefaultEdge> graph,
       List<Task> tasksToRun, String activityId, String start, String end) {
 
+    if (!activityService.startActivity(activityId)) {
+      LOGGER.info("Skipping superseded activity: {}", activityId);
+      final TaskResult skipped = new TaskResult();
+      skipped.setStatus(FlowTaskStatus.skipped);
+      return CompletableFuture.completedFuture(skipped);
+    }
+
     final FlowWorkflowActivityEntity activityEntity =
         this.flowActivityService.findWorkflowActivity(activityId);
     String workflowId = activityEntity.getWorkflowId();
@@ -143,6 +154,7 @@ public class FlowTaskRunnerServiceImpl implements FlowTaskRunnerService {
     final long duration = finishDate.getTime() - finalActivity.getCreationDate().getTime();
     finalActivity.setDuration(duration);
     activityService.saveWorkflowActivity(finalActivity);
+    activityRollupService.recordActivity(finalActivity);
     TaskResult taskResult = new TaskResult();
     taskResult.setStatus(FlowTaskStatus.completed);
     publishActivity(entity, activityEntity, IAMStatus.COMPLETED);
@@ -0,0 +1,123 @@
+package net.boomerangplatform.service.runner.misc;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.boomerangplatform.exceptions.ControllerUnavailableException;
+import net.boomerangplatform.util.CircuitBreaker;
+
+/**
+ * Wraps calls to the controller in a shared circuit breaker and a bulkhead per endpoint. While the
+ * breaker is open calls fail at once; when an endpoint is saturated callers queue for a free slot
+ * for a bounded time and then fail.
+ */
+@Service
+public class ControllerCallGuard {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  @Value("${flow.controller.breaker.window-size:20}")
+  private int windowSize;
+
+  @Value("${flow.controller.breaker.minimum-calls:10}")
+  private int minimumCalls;
+
+  @Value("${flow.controller.breaker.failure-rate:0.5}")
+  private double failureRate;
+
+  @Value("${flow.controller.breaker.open-duration:30000}")
+  private long openDuration;
+
+  @Value("${flow.controller.bulkhead.max-concurrent:50}")
+  private int maxConcurrent;
+
+  @Value("${flow.controller.bulkhead.max-wait:2000}")
+  private long maxWait;
+
+  @Autowired(required = false)
+  private MeterRegistry meterRegistry;
+
+  private CircuitBreaker circuitBreaker;
+
+  private final Map<String, Semaphore> bulkheads = new ConcurrentHashMap<>();
+
+  @PostConstruct
+  public void init() {
+    circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRate, openDuration);
+    if (meterRegistry != null) {
+      Gauge.builder("flow.controller.breaker.open", circuitBreaker,
+          breaker -> breaker.getState() == CircuitBreaker.State.CLOSED ? 0 : 1)
+          .register(meterRegistry);
+    }
+  }
+
+  public <T> T call(String endpoint, Supplier<T> call) {
+    final Semaphore bulkhead = bulkheads.computeIfAbsent(endpoint, this::createBulkhead);
+    if (!acquire(bulkhead)) {
+      throw new ControllerUnavailableException("Too many concurrent calls to " + endpoint);
+    }
+
+    try {
+      if (!circuitBreaker.tryAcquirePermission()) {
+        throw new ControllerUnavailableException(
+            "Controller circuit breaker is open, not calling " + endpoint);
+      }
+      return callThroughBreaker(endpoint, call);
+    } finally {
+      bulkhead.release();
+    }
+  }
+
+  public CircuitBreaker.State getState() {
+    return circuitBreaker.getState();
+  }
+
+  /* Only connection problems and 5xx responses count against the controller; a 4xx means the
+   * controller answered. */
+  private <T> T callThroughBreaker(String endpoint, Supplier<T> call) {
+    try {
+      T result = call.get();
+      circuitBreaker.onSuccess();
+      return result;
+    } catch (ResourceAccessException | HttpServerErrorException e) {
+      circuitBreaker.onFailure();
+      if (circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+        LOGGER.warn("Controller circuit breaker is open after failed call to {}", endpoint);
+      }
+      throw e;
+    } catch (RuntimeException e) {
+      circuitBreaker.onSuccess();
+      throw e;
+    }
+  }
+
+  private boolean acquire(Semaphore bulkhead) {
+    try {
+      return bulkhead.tryAcquire(maxWait, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private Semaphore createBulkhead(String endpoint) {
+    final Semaphore bulkhead = new Semaphore(maxConcurrent, true);
+    if (meterRegistry != null) {
+      Gauge.builder("flow.controller.bulkhead.available", bulkhead, Semaphore::availablePermits)
+          .tag("endpoint", endpoint).register(meterRegistry);
+    }
+    return bulkhead;
+  }
+}
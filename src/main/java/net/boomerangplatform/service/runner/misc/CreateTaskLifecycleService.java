@@ -34,6 +34,9 @@ public class CreateTaskLifecycleService {
   @Autowired
   public FlowWorkflowActivityTaskService taskService;
 
+  @Autowired
+  private ControllerCallGuard controllerCallGuard;
+
   @Value("${controller.createtask.url}")
   public String createTaskURL;
 
@@ -84,8 +87,8 @@ public class CreateTaskLifecycleService {
     logPayload("Create Task Request", request);
 
     try {
-      TaskResponse response =
-          restTemplate.postForObject(createTaskURL, request, TaskResponse.class);
+      TaskResponse response = controllerCallGuard.call("createtask",
+          () -> restTemplate.postForObject(createTaskURL, request, TaskResponse.class));
 
       if (response != null) {
         taskExecution.setOutputs(response.getOutput());
@@ -1,5 +1,6 @@
 package net.boomerangplatform.service.runner.misc;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
@@ -28,6 +29,9 @@ public class CustomTaskLifecycleService {
   @Autowired
   public FlowWorkflowActivityTaskService taskService;
 
+  @Autowired
+  private ControllerCallGuard controllerCallGuard;
+
   @Value("${controller.createtask.url}")
   public String createURL;
 
@@ -53,7 +57,10 @@ public class CustomTaskLifecycleService {
     request.setImage(map.get("image"));
     request.setCommand(map.get("command"));
 
-    List<String> args = task.getRevision().getArguments();
+    List<String> args = new ArrayList<>();
+    if (task.getRevision().getArguments() != null) {
+      args.addAll(task.getRevision().getArguments());
+    }
 
     if (map.get("arguments") != null) {
       String arguments = map.get("arguments");
@@ -72,7 +79,8 @@ public class CustomTaskLifecycleService {
 
     try {
 
-      TaskResponse response = restTemplate.postForObject(createURL, request, TaskResponse.class);
+      TaskResponse response = controllerCallGuard.call("createtask",
+          () -> restTemplate.postForObject(createURL, request, TaskResponse.class));
 
       if (response != null) {
         taskExecution.setOutputs(response.getOutput());
@@ -22,6 +22,9 @@ public class WorkflowLifecycleService {
   @Qualifier("internalRestTemplate")
   private RestTemplate restTemplate;
 
+  @Autowired
+  private ControllerCallGuard controllerCallGuard;
+
   public boolean createFlow(String workflowId, String workflowName, String activityId,
       boolean enableStorage, Map<String, String> properties) {
 
@@ -37,7 +40,8 @@ public class WorkflowLifecycleService {
     storage.setEnable(enableStorage);
     request.setWorkflowStorage(storage);
 
-    restTemplate.postForObject(createWorkflowURL, request, String.class);
+    controllerCallGuard.call("createworkflow",
+        () -> restTemplate.postForObject(createWorkflowURL, request, String.class));
 
     return true;
   }
@@ -51,7 +55,8 @@ public class WorkflowLifecycleService {
     storage.setEnable(true);
     request.setWorkflowStorage(storage);
 
-    restTemplate.postForObject(terminateWorkflowURL, request, String.class);
+    controllerCallGuard.call("terminateworkflow",
+        () -> restTemplate.postForObject(terminateWorkflowURL, request, String.class));
     return true;
   }
 
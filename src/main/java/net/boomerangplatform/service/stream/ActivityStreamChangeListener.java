@@ -0,0 +1,120 @@
+package net.boomerangplatform.service.stream;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import net.boomerangplatform.mongo.entity.FlowTaskExecutionEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowActivityEntity;
+
+/*
+ * Publishes activity and task writes made by any replica, following a Mongo change stream on their
+ * collections, so a stream subscriber sees runs and task callbacks handled on other replicas. It
+ * replaces the in process save listener and needs Mongo to run as a replica set. Event ids are
+ * still numbered per replica: a client resuming on another replica gets a snapshot or a reset.
+ */
+@Component
+@ConditionalOnProperty(value = "flow.activity.stream.change-stream", havingValue = "true")
+public class ActivityStreamChangeListener {
+
+  private static final Logger LOGGER = LogManager.getLogger(ActivityStreamChangeListener.class);
+
+  private static final long RETRY_MILLIS = 5000L;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private ActivityStreamService activityStreamService;
+
+  private Thread watcher;
+
+  private volatile boolean running;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    running = true;
+    watcher = new Thread(this::watch, "activity-stream-changes");
+    watcher.setDaemon(true);
+    watcher.start();
+  }
+
+  @PreDestroy
+  public void stop() {
+    running = false;
+    if (watcher != null) {
+      watcher.interrupt();
+    }
+  }
+
+  private void watch() {
+    final String activities = mongoTemplate.getCollectionName(FlowWorkflowActivityEntity.class);
+    final String tasks = mongoTemplate.getCollectionName(FlowTaskExecutionEntity.class);
+    final List<Bson> pipeline = Collections.singletonList(
+        Aggregates.match(Filters.and(Filters.in("ns.coll", Arrays.asList(activities, tasks)),
+            Filters.in("operationType", Arrays.asList("insert", "update", "replace")))));
+
+    BsonDocument resumeToken = null;
+    while (running) {
+      ChangeStreamIterable<Document> changes =
+          mongoTemplate.getDb().watch(pipeline).fullDocument(FullDocument.UPDATE_LOOKUP);
+      if (resumeToken != null) {
+        changes = changes.resumeAfter(resumeToken);
+      }
+      try (MongoCursor<ChangeStreamDocument<Document>> cursor = changes.iterator()) {
+        while (running && cursor.hasNext()) {
+          final ChangeStreamDocument<Document> change = cursor.next();
+          resumeToken = change.getResumeToken();
+          publish(change, activities);
+        }
+      } catch (MongoException e) {
+        if (!running) {
+          return;
+        }
+        LOGGER.error("Activity change stream failed, resuming in {} ms", RETRY_MILLIS, e);
+        try {
+          Thread.sleep(RETRY_MILLIS);
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  private void publish(ChangeStreamDocument<Document> change, String activities) {
+    final Document document = change.getFullDocument();
+    if (document == null) {
+      return;
+    }
+    try {
+      if (activities.equals(change.getNamespace().getCollectionName())) {
+        activityStreamService.publishActivity(
+            mongoTemplate.getConverter().read(FlowWorkflowActivityEntity.class, document));
+      } else {
+        activityStreamService.publishTask(
+            mongoTemplate.getConverter().read(FlowTaskExecutionEntity.class, document));
+      }
+    } catch (RuntimeException e) {
+      LOGGER.error("Failed to publish change to {}", change.getNamespace(), e);
+    }
+  }
+}
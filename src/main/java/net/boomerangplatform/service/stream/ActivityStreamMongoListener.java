@@ -0,0 +1,36 @@
+package net.boomerangplatform.service.stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+import net.boomerangplatform.mongo.entity.FlowTaskExecutionEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowActivityEntity;
+
+/*
+ * Publishes saves made through this replica only. With the change stream enabled, writes from all
+ * replicas are published by ActivityStreamChangeListener instead.
+ */
+@Component
+public class ActivityStreamMongoListener extends AbstractMongoEventListener<Object> {
+
+  @Autowired
+  private ActivityStreamService activityStreamService;
+
+  @Value("${flow.activity.stream.change-stream:false}")
+  private boolean changeStream;
+
+  @Override
+  public void onAfterSave(AfterSaveEvent<Object> event) {
+    if (changeStream) {
+      return;
+    }
+    final Object source = event.getSource();
+    if (source instanceof FlowWorkflowActivityEntity) {
+      activityStreamService.publishActivity((FlowWorkflowActivityEntity) source);
+    } else if (source instanceof FlowTaskExecutionEntity) {
+      activityStreamService.publishTask((FlowTaskExecutionEntity) source);
+    }
+  }
+}
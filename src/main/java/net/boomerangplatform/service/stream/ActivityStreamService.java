@@ -0,0 +1,17 @@
+package net.boomerangplatform.service.stream;
+
+import java.util.Optional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import net.boomerangplatform.mongo.entity.FlowTaskExecutionEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowActivityEntity;
+
+public interface ActivityStreamService {
+
+  SseEmitter subscribeToActivity(String activityId, Optional<Long> lastEventId);
+
+  SseEmitter subscribeToTeam(String teamId, Optional<Long> lastEventId);
+
+  void publishActivity(FlowWorkflowActivityEntity activity);
+
+  void publishTask(FlowTaskExecutionEntity task);
+}
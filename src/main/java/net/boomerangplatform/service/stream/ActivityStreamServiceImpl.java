@@ -0,0 +1,302 @@
+package net.boomerangplatform.service.stream;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.boomerangplatform.model.ActivityStreamEvent;
+import net.boomerangplatform.model.FlowActivity;
+import net.boomerangplatform.mongo.entity.FlowTaskExecutionEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowActivityEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowEntity;
+import net.boomerangplatform.mongo.model.FlowTaskStatus;
+import net.boomerangplatform.mongo.service.FlowWorkflowActivityService;
+import net.boomerangplatform.mongo.service.FlowWorkflowActivityTaskService;
+import net.boomerangplatform.mongo.service.FlowWorkflowService;
+
+/*
+ * Events are numbered, buffered and queued to each subscriber under a lock, so every subscriber
+ * sees them in sequence order. New subscribers are queued their replay under the same lock, which
+ * keeps replayed and live events from overlapping. Each subscriber's queue is bounded and drained
+ * on a shared pool, so a slow client is dropped rather than stalling the runner or other clients.
+ */
+@Service
+public class ActivityStreamServiceImpl implements ActivityStreamService {
+
+  private static final Logger LOGGER = LogManager.getLogger(ActivityStreamServiceImpl.class);
+
+  private static final String EVENT_ACTIVITY = "activity";
+  private static final String EVENT_TASK = "task";
+  private static final String EVENT_SNAPSHOT = "snapshot";
+  private static final String EVENT_RESET = "reset";
+
+  private static final int REPLAY_BUFFER_SIZE = 256;
+
+  @Value("${flow.activity.stream.timeout:1800000}")
+  private long streamTimeout;
+
+  @Value("${flow.activity.stream.subscriber-queue-size:1000}")
+  private int subscriberQueueSize;
+
+  @Value("${flow.activity.stream.threads:4}")
+  private int dispatchThreads;
+
+  @Autowired
+  private FlowWorkflowActivityService activityService;
+
+  @Autowired
+  private FlowWorkflowActivityTaskService taskService;
+
+  @Autowired
+  private FlowWorkflowService workflowService;
+
+  private final Object lock = new Object();
+
+  /* Seeded from the clock so ids keep increasing across restarts. */
+  private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis() * 1000);
+
+  private final Cache<String, EventReplayBuffer> activityBuffers =
+      CacheBuilder.newBuilder().maximumSize(1000).expireAfterAccess(1, TimeUnit.HOURS).build();
+
+  private final Cache<String, EventReplayBuffer> teamBuffers =
+      CacheBuilder.newBuilder().maximumSize(500).expireAfterAccess(1, TimeUnit.HOURS).build();
+
+  private final Cache<String, Optional<String>> activityTeams =
+      CacheBuilder.newBuilder().maximumSize(10000).expireAfterAccess(1, TimeUnit.HOURS).build();
+
+  private final Map<String, Set<StreamSubscriber>> activitySubscribers =
+      new ConcurrentHashMap<>();
+
+  private final Map<String, Set<StreamSubscriber>> teamSubscribers = new ConcurrentHashMap<>();
+
+  private ExecutorService dispatcher;
+
+  /* Each subscriber has at most one drain queued, so the work queue is bounded by subscribers. */
+  @PostConstruct
+  public void init() {
+    dispatcher = Executors.newFixedThreadPool(dispatchThreads,
+        new ThreadFactoryBuilder().setNameFormat("activity-stream-%d").setDaemon(true).build());
+  }
+
+  @Override
+  public SseEmitter subscribeToActivity(String activityId, Optional<Long> lastEventId) {
+    final FlowWorkflowActivityEntity activity = activityService.findWorkflowActiivtyById(activityId);
+    if (activity == null) {
+      return null;
+    }
+
+    final StreamSubscriber subscriber = createSubscriber(activitySubscribers, activityId);
+    synchronized (lock) {
+      final EventReplayBuffer buffer = activityBuffers.getIfPresent(activityId);
+      final long current = sequence.get();
+      if (canResume(buffer, lastEventId, current)) {
+        buffer.getEventsAfter(lastEventId.get()).forEach(event -> subscriber.offer(toSse(event)));
+      } else {
+        subscriber.offer(() -> toSse(createSnapshot(activityId, current)).get());
+      }
+      register(activitySubscribers, activityId, subscriber);
+    }
+
+    if (isFinished(activity.getStatus())) {
+      completeSubscribers(activityId);
+    }
+    return subscriber.getEmitter();
+  }
+
+  @Override
+  public SseEmitter subscribeToTeam(String teamId, Optional<Long> lastEventId) {
+    final StreamSubscriber subscriber = createSubscriber(teamSubscribers, teamId);
+    synchronized (lock) {
+      final EventReplayBuffer buffer = teamBuffers.getIfPresent(teamId);
+      final long current = sequence.get();
+      if (canResume(buffer, lastEventId, current)) {
+        buffer.getEventsAfter(lastEventId.get()).forEach(event -> subscriber.offer(toSse(event)));
+      } else if (lastEventId.isPresent()) {
+        subscriber.offer(toSse(createEvent(current, EVENT_RESET, null, teamId, null)));
+      }
+      register(teamSubscribers, teamId, subscriber);
+    }
+    return subscriber.getEmitter();
+  }
+
+  @Override
+  public void publishActivity(FlowWorkflowActivityEntity activity) {
+    final String teamId = getTeamId(activity.getId(), activity.getWorkflowId());
+    publish(EVENT_ACTIVITY, activity.getId(), teamId, activity);
+
+    if (isFinished(activity.getStatus())) {
+      completeSubscribers(activity.getId());
+    }
+  }
+
+  @Override
+  public void publishTask(FlowTaskExecutionEntity task) {
+    final String teamId = getTeamId(task.getActivityId(), task.getWorkflowId());
+    publish(EVENT_TASK, task.getActivityId(), teamId, task);
+  }
+
+  @Scheduled(fixedDelayString = "${flow.activity.stream.heartbeat:15000}")
+  public void sendHeartbeat() {
+    final Supplier<SseEmitter.SseEventBuilder> heartbeat =
+        () -> SseEmitter.event().comment("heartbeat");
+    activitySubscribers.keySet().forEach(key -> offerAll(activitySubscribers, key, heartbeat));
+    teamSubscribers.keySet().forEach(key -> offerAll(teamSubscribers, key, heartbeat));
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    dispatcher.shutdownNow();
+  }
+
+  private void publish(String type, String activityId, String teamId, Object data) {
+    synchronized (lock) {
+      final long id = sequence.incrementAndGet();
+      final ActivityStreamEvent event = createEvent(id, type, activityId, teamId, data);
+
+      getBuffer(activityBuffers, activityId, id).add(event);
+      if (teamId != null) {
+        getBuffer(teamBuffers, teamId, id).add(event);
+      }
+
+      offerAll(activitySubscribers, activityId, toSse(event));
+      if (teamId != null) {
+        offerAll(teamSubscribers, teamId, toSse(event));
+      }
+    }
+  }
+
+  private boolean canResume(EventReplayBuffer buffer, Optional<Long> lastEventId, long current) {
+    return buffer != null && lastEventId.isPresent() && lastEventId.get() <= current
+        && buffer.canResumeFrom(lastEventId.get());
+  }
+
+  private EventReplayBuffer getBuffer(Cache<String, EventReplayBuffer> buffers, String key,
+      long id) {
+    EventReplayBuffer buffer = buffers.getIfPresent(key);
+    if (buffer == null) {
+      buffer = new EventReplayBuffer(REPLAY_BUFFER_SIZE, id - 1);
+      buffers.put(key, buffer);
+    }
+    return buffer;
+  }
+
+  private ActivityStreamEvent createSnapshot(String activityId, long id) {
+    final FlowActivity activity =
+        new FlowActivity(activityService.findWorkflowActiivtyById(activityId));
+    activity.setSteps(taskService.findTaskActiivtyForActivity(activityId));
+    return createEvent(id, EVENT_SNAPSHOT, activityId,
+        getTeamId(activityId, activity.getWorkflowId()), activity);
+  }
+
+  private ActivityStreamEvent createEvent(long id, String type, String activityId, String teamId,
+      Object data) {
+    final ActivityStreamEvent event = new ActivityStreamEvent();
+    event.setSequence(id);
+    event.setType(type);
+    event.setActivityId(activityId);
+    event.setTeamId(teamId);
+    event.setData(data);
+    return event;
+  }
+
+  private String getTeamId(String activityId, String workflowId) {
+    Optional<String> teamId = activityTeams.getIfPresent(activityId);
+    if (teamId == null) {
+      String id = workflowId;
+      if (id == null) {
+        final FlowWorkflowActivityEntity activity =
+            activityService.findWorkflowActiivtyById(activityId);
+        id = activity == null ? null : activity.getWorkflowId();
+      }
+      final FlowWorkflowEntity workflow = id == null ? null : workflowService.getWorkflow(id);
+      teamId = Optional.ofNullable(workflow == null ? null : workflow.getFlowTeamId());
+      activityTeams.put(activityId, teamId);
+    }
+    return teamId.orElse(null);
+  }
+
+  private boolean isFinished(FlowTaskStatus status) {
+    return status == FlowTaskStatus.completed || status == FlowTaskStatus.failure
+        || status == FlowTaskStatus.invalid || status == FlowTaskStatus.skipped;
+  }
+
+  private StreamSubscriber createSubscriber(Map<String, Set<StreamSubscriber>> subscribers,
+      String key) {
+    final SseEmitter emitter = newEmitter();
+    final StreamSubscriber subscriber =
+        new StreamSubscriber(emitter, dispatcher, subscriberQueueSize);
+    final Runnable finished = () -> {
+      subscriber.discard();
+      unregister(subscribers, key, subscriber);
+    };
+    emitter.onCompletion(finished);
+    emitter.onTimeout(finished);
+    emitter.onError(e -> finished.run());
+    return subscriber;
+  }
+
+  SseEmitter newEmitter() {
+    return new SseEmitter(streamTimeout);
+  }
+
+  private void register(Map<String, Set<StreamSubscriber>> subscribers, String key,
+      StreamSubscriber subscriber) {
+    subscribers.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+  }
+
+  private void unregister(Map<String, Set<StreamSubscriber>> subscribers, String key,
+      StreamSubscriber subscriber) {
+    subscribers.computeIfPresent(key, (k, emitters) -> {
+      emitters.remove(subscriber);
+      return emitters.isEmpty() ? null : emitters;
+    });
+  }
+
+  /* Queued after the events already published, so subscribers see the final status first. */
+  private void completeSubscribers(String activityId) {
+    final Set<StreamSubscriber> subscribers;
+    synchronized (lock) {
+      subscribers = activitySubscribers.remove(activityId);
+    }
+    if (subscribers != null) {
+      subscribers.forEach(StreamSubscriber::close);
+    }
+  }
+
+  private Supplier<SseEmitter.SseEventBuilder> toSse(ActivityStreamEvent event) {
+    return () -> SseEmitter.event().id(String.valueOf(event.getSequence())).name(event.getType())
+        .data(event, MediaType.APPLICATION_JSON);
+  }
+
+  private void offerAll(Map<String, Set<StreamSubscriber>> subscribers, String key,
+      Supplier<SseEmitter.SseEventBuilder> event) {
+    final Set<StreamSubscriber> emitters = subscribers.getOrDefault(key, Collections.emptySet());
+    for (StreamSubscriber subscriber : emitters) {
+      if (!subscriber.offer(event)) {
+        if (subscriber.isOverflowed()) {
+          LOGGER.warn("Dropping activity stream subscriber for {} that fell behind", key);
+        }
+        unregister(subscribers, key, subscriber);
+      }
+    }
+  }
+}
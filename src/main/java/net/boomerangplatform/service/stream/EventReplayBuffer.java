@@ -0,0 +1,49 @@
+package net.boomerangplatform.service.stream;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import net.boomerangplatform.model.ActivityStreamEvent;
+
+/**
+ * Bounded history of the most recent events for one stream, used to resume a client from its
+ * Last-Event-ID.
+ */
+public class EventReplayBuffer {
+
+  private final int capacity;
+  private final Deque<ActivityStreamEvent> events;
+  private long evictedSequence;
+
+  public EventReplayBuffer(int capacity, long startSequence) {
+    this.capacity = capacity;
+    this.events = new ArrayDeque<>(capacity);
+    this.evictedSequence = startSequence;
+  }
+
+  public synchronized void add(ActivityStreamEvent event) {
+    if (events.size() == capacity) {
+      evictedSequence = events.removeFirst().getSequence();
+    }
+    events.addLast(event);
+  }
+
+  /**
+   * Returns whether every event after the given sequence is still held, i.e. the client can be
+   * resumed without missing anything.
+   */
+  public synchronized boolean canResumeFrom(long sequence) {
+    return sequence >= evictedSequence;
+  }
+
+  public synchronized List<ActivityStreamEvent> getEventsAfter(long sequence) {
+    List<ActivityStreamEvent> result = new ArrayList<>();
+    for (ActivityStreamEvent event : events) {
+      if (event.getSequence() > sequence) {
+        result.add(event);
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,120 @@
+package net.boomerangplatform.service.stream;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Bounded queue of events for one stream client, drained in order on a shared executor. A client
+ * that falls more than the capacity behind is completed instead of holding events in memory or
+ * delaying others, and reconnects from its Last-Event-ID.
+ */
+public class StreamSubscriber {
+
+  private static final int DRAIN_BATCH_SIZE = 64;
+
+  private final SseEmitter emitter;
+  private final Executor executor;
+  private final int capacity;
+  private final Deque<Supplier<SseEmitter.SseEventBuilder>> pending = new ArrayDeque<>();
+
+  private boolean draining;
+  private boolean closed;
+  private boolean completed;
+  private boolean overflowed;
+
+  public StreamSubscriber(SseEmitter emitter, Executor executor, int capacity) {
+    this.emitter = emitter;
+    this.executor = executor;
+    this.capacity = capacity;
+  }
+
+  public SseEmitter getEmitter() {
+    return emitter;
+  }
+
+  /**
+   * Queues an event, returning false if the subscriber is closed or has just overflowed.
+   */
+  public synchronized boolean offer(Supplier<SseEmitter.SseEventBuilder> event) {
+    if (closed) {
+      return false;
+    }
+    if (pending.size() >= capacity) {
+      pending.clear();
+      closed = true;
+      overflowed = true;
+      scheduleDrain();
+      return false;
+    }
+    pending.addLast(event);
+    scheduleDrain();
+    return true;
+  }
+
+  /** Completes the emitter once the events already queued are sent. */
+  public synchronized void close() {
+    if (!closed) {
+      closed = true;
+      scheduleDrain();
+    }
+  }
+
+  /** Drops queued events after the emitter is completed, timed out or failed elsewhere. */
+  public synchronized void discard() {
+    pending.clear();
+    closed = true;
+    completed = true;
+  }
+
+  public synchronized boolean isOverflowed() {
+    return overflowed;
+  }
+
+  private void scheduleDrain() {
+    if (!draining) {
+      draining = true;
+      executor.execute(this::drain);
+    }
+  }
+
+  /*
+   * Sends at most a batch per run and then requeues itself, so a busy subscriber shares the
+   * executor threads with the others.
+   */
+  private void drain() {
+    for (int sent = 0; sent < DRAIN_BATCH_SIZE; sent++) {
+      final Supplier<SseEmitter.SseEventBuilder> event;
+      boolean complete = false;
+      synchronized (this) {
+        event = pending.pollFirst();
+        if (event == null) {
+          draining = false;
+          complete = closed && !completed;
+          completed |= complete;
+        }
+      }
+      if (event == null) {
+        if (complete) {
+          emitter.complete();
+        }
+        return;
+      }
+
+      try {
+        emitter.send(event.get());
+      } catch (IOException | RuntimeException e) {
+        synchronized (this) {
+          draining = false;
+        }
+        discard();
+        emitter.completeWithError(e);
+        return;
+      }
+    }
+    executor.execute(this::drain);
+  }
+}
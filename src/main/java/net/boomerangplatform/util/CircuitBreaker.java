@@ -0,0 +1,130 @@
+package net.boomerangplatform.util;
+
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Count based circuit breaker. The outcomes of the last calls are kept in a ring buffer and the
+ * breaker opens once the failure rate over a full enough window reaches the threshold. After the
+ * open period a single trial call is let through; its outcome closes or re-opens the breaker.
+ */
+public class CircuitBreaker {
+
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final int windowSize;
+  private final int minimumCalls;
+  private final double failureRateThreshold;
+  private final long openDurationMillis;
+  private final LongSupplier clock;
+
+  private final boolean[] outcomes;
+  private int position;
+  private int recorded;
+  private int failures;
+
+  private State state = State.CLOSED;
+  private long openedAt;
+  private boolean trialInFlight;
+
+  public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+      long openDurationMillis) {
+    this(windowSize, minimumCalls, failureRateThreshold, openDurationMillis,
+        System::currentTimeMillis);
+  }
+
+  public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+      long openDurationMillis, LongSupplier clock) {
+    if (windowSize <= 0 || minimumCalls <= 0 || minimumCalls > windowSize) {
+      throw new IllegalArgumentException("Minimum calls must be between 1 and the window size");
+    }
+    this.windowSize = windowSize;
+    this.minimumCalls = minimumCalls;
+    this.failureRateThreshold = failureRateThreshold;
+    this.openDurationMillis = openDurationMillis;
+    this.clock = clock;
+    this.outcomes = new boolean[windowSize];
+  }
+
+  /**
+   * Returns whether a call may go ahead. Every permitted call must be followed by exactly one call
+   * to {@link #onSuccess()} or {@link #onFailure()}.
+   */
+  public synchronized boolean tryAcquirePermission() {
+    if (state == State.OPEN && clock.getAsLong() - openedAt >= openDurationMillis) {
+      state = State.HALF_OPEN;
+      trialInFlight = false;
+    }
+
+    switch (state) {
+      case CLOSED:
+        return true;
+      case HALF_OPEN:
+        if (trialInFlight) {
+          return false;
+        }
+        trialInFlight = true;
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  public synchronized void onSuccess() {
+    if (state == State.OPEN) {
+      return;
+    }
+    if (state == State.HALF_OPEN) {
+      close();
+      return;
+    }
+    record(false);
+  }
+
+  public synchronized void onFailure() {
+    if (state == State.OPEN) {
+      return;
+    }
+    if (state == State.HALF_OPEN) {
+      open();
+      return;
+    }
+    record(true);
+    if (recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+      open();
+    }
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+
+  private void record(boolean failure) {
+    if (recorded == windowSize && outcomes[position]) {
+      failures--;
+    }
+    outcomes[position] = failure;
+    if (failure) {
+      failures++;
+    }
+    position = (position + 1) % windowSize;
+    recorded = Math.min(recorded + 1, windowSize);
+  }
+
+  private void open() {
+    state = State.OPEN;
+    openedAt = clock.getAsLong();
+    trialInFlight = false;
+  }
+
+  private void close() {
+    state = State.CLOSED;
+    trialInFlight = false;
+    position = 0;
+    recorded = 0;
+    failures = 0;
+    Arrays.fill(outcomes, false);
+  }
+}
@@ -0,0 +1,114 @@
+package net.boomerangplatform.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mergeable quantile sketch for durations. Values are counted in logarithmic buckets so any
+ * reported quantile is within the configured relative accuracy of a real sample, and two sketches
+ * built over different rows or time buckets can be merged without the raw values.
+ */
+public class DurationSketch {
+
+  public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+
+  private final double relativeAccuracy;
+  private final double gamma;
+  private final double logGamma;
+
+  private final TreeMap<Integer, Long> bins = new TreeMap<>();
+  private long zeroCount;
+  private long count;
+
+  public DurationSketch() {
+    this(DEFAULT_RELATIVE_ACCURACY);
+  }
+
+  public DurationSketch(double relativeAccuracy) {
+    if (relativeAccuracy <= 0 || relativeAccuracy >= 1) {
+      throw new IllegalArgumentException("Relative accuracy must be between 0 and 1");
+    }
+    this.relativeAccuracy = relativeAccuracy;
+    this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+    this.logGamma = Math.log(gamma);
+  }
+
+  public static DurationSketch fromBins(Map<Integer, Long> bins, long zeroCount) {
+    DurationSketch sketch = new DurationSketch();
+    if (bins != null) {
+      bins.forEach(sketch::addToBin);
+    }
+    sketch.zeroCount += zeroCount;
+    sketch.count += zeroCount;
+    return sketch;
+  }
+
+  public void add(long value) {
+    if (value <= 0) {
+      zeroCount++;
+      count++;
+      return;
+    }
+    addToBin(index(value), 1L);
+  }
+
+  public void merge(DurationSketch other) {
+    if (other.relativeAccuracy != relativeAccuracy) {
+      throw new IllegalArgumentException("Cannot merge sketches with different accuracy");
+    }
+    other.bins.forEach(this::addToBin);
+    zeroCount += other.zeroCount;
+    count += other.zeroCount;
+  }
+
+  public long getQuantile(double quantile) {
+    if (quantile < 0 || quantile > 1) {
+      throw new IllegalArgumentException("Quantile must be between 0 and 1");
+    }
+    if (count == 0) {
+      return 0L;
+    }
+
+    long rank = (long) Math.floor(quantile * (count - 1));
+    long seen = zeroCount;
+    if (seen > rank) {
+      return 0L;
+    }
+    for (Map.Entry<Integer, Long> bin : bins.entrySet()) {
+      seen += bin.getValue();
+      if (seen > rank) {
+        return Math.round(value(bin.getKey()));
+      }
+    }
+    return Math.round(value(bins.lastKey()));
+  }
+
+  public int index(long value) {
+    return (int) Math.ceil(Math.log(value) / logGamma);
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public long getZeroCount() {
+    return zeroCount;
+  }
+
+  public Map<Integer, Long> getBins() {
+    return new TreeMap<>(bins);
+  }
+
+  public boolean isEmpty() {
+    return count == 0;
+  }
+
+  private void addToBin(Integer index, Long binCount) {
+    bins.merge(index, binCount, Long::sum);
+    count += binCount;
+  }
+
+  private double value(int index) {
+    return 2 * Math.pow(gamma, index) / (gamma + 1);
+  }
+}
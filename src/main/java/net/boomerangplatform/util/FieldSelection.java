@@ -0,0 +1,119 @@
+package net.boomerangplatform.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.apache.commons.lang3.StringUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Parsed form of a sparse fieldset request such as {@code fields=id,status,steps.taskName}. Nested
+ * fields use dot notation and apply to every element when the parent is a list.
+ */
+public class FieldSelection {
+
+  private static final FieldSelection ALL = new FieldSelection(null);
+
+  /* Null children means the field was selected as a whole. */
+  private final Map<String, FieldSelection> children;
+
+  private FieldSelection(Map<String, FieldSelection> children) {
+    this.children = children;
+  }
+
+  public static FieldSelection all() {
+    return ALL;
+  }
+
+  public static FieldSelection of(Optional<List<String>> fields) {
+    if (!fields.isPresent()) {
+      return ALL;
+    }
+
+    FieldSelection selection = new FieldSelection(new HashMap<>());
+    for (String field : fields.get()) {
+      for (String path : StringUtils.split(field, ',')) {
+        if (StringUtils.isNotBlank(path)) {
+          selection.add(StringUtils.split(path.trim(), '.'), 0);
+        }
+      }
+    }
+    return selection.children.isEmpty() ? ALL : selection;
+  }
+
+  public boolean isAll() {
+    return children == null;
+  }
+
+  /**
+   * Returns whether the field at the given dotted path is needed, either because it was requested
+   * itself or because one of its parents or nested fields was.
+   */
+  public boolean includes(String path) {
+    FieldSelection current = this;
+    for (String part : StringUtils.split(path, '.')) {
+      if (current.isAll()) {
+        return true;
+      }
+      current = current.children.get(part);
+      if (current == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public Set<String> getFields() {
+    return isAll() ? Collections.emptySet() : Collections.unmodifiableSet(children.keySet());
+  }
+
+  public JsonNode prune(JsonNode node) {
+    if (isAll() || node == null) {
+      return node;
+    }
+
+    if (node.isArray()) {
+      for (JsonNode element : (ArrayNode) node) {
+        prune(element);
+      }
+    } else if (node.isObject()) {
+      Iterator<Map.Entry<String, JsonNode>> fields = ((ObjectNode) node).fields();
+      while (fields.hasNext()) {
+        Map.Entry<String, JsonNode> field = fields.next();
+        FieldSelection child = children.get(field.getKey());
+        if (child == null) {
+          fields.remove();
+        } else {
+          child.prune(field.getValue());
+        }
+      }
+    }
+    return node;
+  }
+
+  private void add(String[] path, int index) {
+    if (index == path.length) {
+      return;
+    }
+
+    FieldSelection child = children.get(path[index]);
+    if (child != null && child.isAll()) {
+      return;
+    }
+    if (index == path.length - 1) {
+      children.put(path[index], ALL);
+      return;
+    }
+    if (child == null) {
+      child = new FieldSelection(new HashMap<>());
+      children.put(path[index], child);
+    }
+    child.add(path, index + 1);
+  }
+}
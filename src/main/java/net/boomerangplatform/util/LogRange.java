@@ -0,0 +1,116 @@
+package net.boomerangplatform.util;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Part of a task log asked for by a client: a single byte range from a {@code Range} header, a
+ * byte offset or a number of trailing lines. Range headers that cannot be parsed, or ask for more
+ * than one range, are ignored and the whole log is served.
+ */
+public class LogRange {
+
+  private static final Pattern BYTE_RANGE = Pattern.compile("^bytes=(\\d{0,18})-(\\d{0,18})$");
+
+  private static final LogRange ALL = new LogRange(false, null, null, null, null);
+
+  private final boolean headerRange;
+  private final Long first;
+  private final Long last;
+  private final Long suffixLength;
+  private final Integer tailLines;
+
+  private LogRange(boolean headerRange, Long first, Long last, Long suffixLength,
+      Integer tailLines) {
+    this.headerRange = headerRange;
+    this.first = first;
+    this.last = last;
+    this.suffixLength = suffixLength;
+    this.tailLines = tailLines;
+  }
+
+  public static LogRange all() {
+    return ALL;
+  }
+
+  public static LogRange fromHeader(String header) {
+    if (header == null) {
+      return ALL;
+    }
+    Matcher matcher = BYTE_RANGE.matcher(header.trim());
+    if (!matcher.matches()) {
+      return ALL;
+    }
+
+    String start = matcher.group(1);
+    String end = matcher.group(2);
+    if (start.isEmpty()) {
+      return end.isEmpty() ? ALL : new LogRange(true, null, null, Long.valueOf(end), null);
+    }
+    Long first = Long.valueOf(start);
+    Long last = end.isEmpty() ? null : Long.valueOf(end);
+    if (last != null && last < first) {
+      return ALL;
+    }
+    return new LogRange(true, first, last, null, null);
+  }
+
+  public static LogRange offset(long offset) {
+    return offset == 0 ? ALL : new LogRange(false, offset, null, null, null);
+  }
+
+  public static LogRange tail(int lines) {
+    return new LogRange(false, null, null, null, lines);
+  }
+
+  public boolean isAll() {
+    return this == ALL;
+  }
+
+  public boolean isHeaderRange() {
+    return headerRange;
+  }
+
+  public boolean isTail() {
+    return tailLines != null;
+  }
+
+  public int getTailLines() {
+    return tailLines;
+  }
+
+  public long getOffset() {
+    return first == null ? 0L : first;
+  }
+
+  /** Returns the {@code Range} header to ask the upstream for, or null to fetch the whole log. */
+  public String toHeader() {
+    if (suffixLength != null) {
+      return "bytes=-" + suffixLength;
+    }
+    if (first == null) {
+      return null;
+    }
+    return "bytes=" + first + "-" + (last == null ? "" : last.toString());
+  }
+
+  /**
+   * Returns the first and last byte of this range within a log of the given length, or null when
+   * the range is not satisfiable.
+   */
+  public long[] resolve(long length) {
+    if (suffixLength != null) {
+      if (suffixLength == 0 || length == 0) {
+        return null;
+      }
+      return new long[] {Math.max(0, length - suffixLength), length - 1};
+    }
+    if (first == null) {
+      return length == 0 ? null : new long[] {0, length - 1};
+    }
+    if (first >= length) {
+      return null;
+    }
+    return new long[] {first, last == null ? length - 1 : Math.min(last, length - 1)};
+  }
+}
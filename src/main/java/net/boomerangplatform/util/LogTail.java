@@ -0,0 +1,54 @@
+package net.boomerangplatform.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Keeps the last lines of a log read in chunks, holding no more than a fixed number of bytes
+ * whatever the length of the log or its lines. When the requested lines do not fit, only the last
+ * maxBytes of them are kept.
+ */
+public class LogTail {
+
+  private final int lines;
+  private final byte[] ring;
+  private long written;
+
+  public LogTail(int lines, int maxBytes) {
+    this.lines = lines;
+    this.ring = new byte[Math.max(1, maxBytes)];
+  }
+
+  public void write(byte[] buffer, int offset, int length) {
+    final int skipped = Math.max(0, length - ring.length);
+    final int kept = length - skipped;
+    written += skipped;
+
+    final int position = (int) (written % ring.length);
+    final int first = Math.min(kept, ring.length - position);
+    System.arraycopy(buffer, offset + skipped, ring, position, first);
+    System.arraycopy(buffer, offset + skipped + first, ring, 0, kept - first);
+    written += kept;
+  }
+
+  public void writeTo(OutputStream outputStream) throws IOException {
+    final int size = (int) Math.min(written, ring.length);
+    final int start = (int) ((written - size) % ring.length);
+
+    /* A newline ending the log closes the last line rather than starting an empty one. */
+    int found = 0;
+    int from = lines > 0 ? 0 : size;
+    for (int i = size - 2; i >= 0 && lines > 0; i--) {
+      if (ring[(start + i) % ring.length] == '\n' && ++found == lines) {
+        from = i + 1;
+        break;
+      }
+    }
+
+    final int begin = (start + from) % ring.length;
+    final int length = size - from;
+    final int first = Math.min(length, ring.length - begin);
+    outputStream.write(ring, begin, first);
+    outputStream.write(ring, 0, length - first);
+  }
+}
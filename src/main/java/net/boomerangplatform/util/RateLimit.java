@@ -0,0 +1,64 @@
+package net.boomerangplatform.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Limit of calls per period, parsed from settings such as {@code 100/60}: a hundred calls a
+ * minute, in bursts of up to a hundred. A bare number is a limit per second. Times are in
+ * microseconds, so rates finer than one call per millisecond keep their precision.
+ */
+public class RateLimit {
+
+  private static final Pattern LIMIT = Pattern.compile("^(\\d{1,9})(?:\\s*/\\s*(\\d{1,9}))?$");
+
+  private final long permits;
+  private final long interval;
+  private final long burst;
+
+  public RateLimit(long permits, long periodSeconds) {
+    if (permits <= 0 || periodSeconds <= 0) {
+      throw new IllegalArgumentException("Permits and period must be positive");
+    }
+    this.permits = permits;
+    this.interval = Math.max(1L, TimeUnit.SECONDS.toMicros(periodSeconds) / permits);
+    this.burst = interval * permits;
+  }
+
+  /** Returns the limit a setting describes, or null when it is blank, zero or malformed. */
+  public static RateLimit parse(String value) {
+    if (value == null) {
+      return null;
+    }
+    Matcher matcher = LIMIT.matcher(value.trim());
+    if (!matcher.matches()) {
+      return null;
+    }
+    long permits = Long.parseLong(matcher.group(1));
+    long period = matcher.group(2) == null ? 1L : Long.parseLong(matcher.group(2));
+    return permits == 0 || period == 0 ? null : new RateLimit(permits, period);
+  }
+
+  public long getPermits() {
+    return permits;
+  }
+
+  /** Microseconds one call adds to the time at which the bucket is full again. */
+  public long getInterval() {
+    return interval;
+  }
+
+  /** Returns the time the bucket is full again after one more call at the given time. */
+  public long next(long fullAt, long now) {
+    return Math.max(fullAt, now) + interval;
+  }
+
+  /**
+   * Returns how long a call must wait for the bucket to be full again by the given time, or 0 when
+   * that is within one burst of now.
+   */
+  public long waitTime(long fullAt, long now) {
+    return Math.max(0L, fullAt - now - burst);
+  }
+}
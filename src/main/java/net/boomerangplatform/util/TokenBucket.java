@@ -0,0 +1,39 @@
+package net.boomerangplatform.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket kept as a single number, the time at which it would be full again (the generic
+ * cell rate algorithm). Each call moves that time on by one interval and is refused when it would
+ * move it more than a burst ahead of now. The time is updated by compare-and-set, so callers never
+ * lock, and the limit is passed on each call so it can change without resetting the bucket.
+ */
+public class TokenBucket {
+
+  private final AtomicLong fullAt = new AtomicLong();
+
+  /** Takes a token, returning 0 or, when none is left, the microseconds until one is. */
+  public long tryAcquire(RateLimit limit, long now) {
+    while (true) {
+      long current = fullAt.get();
+      long next = limit.next(current, now);
+      long wait = limit.waitTime(next, now);
+      if (wait > 0) {
+        return wait;
+      }
+      if (fullAt.compareAndSet(current, next)) {
+        return 0L;
+      }
+    }
+  }
+
+  /** Whether the bucket has refilled, so dropping it loses nothing. */
+  public boolean isFull(long now) {
+    return fullAt.get() <= now;
+  }
+
+  /** Gives back a token taken by {@link #tryAcquire}, for calls refused by another limit. */
+  public void release(RateLimit limit) {
+    fullAt.addAndGet(-limit.getInterval());
+  }
+}
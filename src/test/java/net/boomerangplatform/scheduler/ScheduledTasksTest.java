@@ -0,0 +1,265 @@
+package net.boomerangplatform.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.quartz.SchedulerFactoryBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import net.boomerangplatform.exceptions.ScheduleRangeTooLargeException;
+import net.boomerangplatform.mongo.entity.FlowWorkflowEntity;
+import net.boomerangplatform.mongo.model.Triggers;
+import net.boomerangplatform.mongo.model.WorkflowStatus;
+import net.boomerangplatform.mongo.service.FlowSchedulerFireService;
+import net.boomerangplatform.mongo.service.FlowWorkflowService;
+
+public class ScheduledTasksTest {
+
+  private static final String WORKFLOW_ID = "5d1a188af6ca2c00014c4314";
+
+  private static final Instant NOW = Instant.parse("2020-06-01T10:30:00Z");
+
+  private static final long HOUR = 3600000L;
+
+  private ScheduledTasks scheduledTasks;
+
+  private FlowSchedulerFireService fireService;
+
+  private Scheduler scheduler;
+
+  private FlowWorkflowService workflowService;
+
+  @Before
+  public void setUp() {
+    fireService = mock(FlowSchedulerFireService.class);
+    workflowService = mock(FlowWorkflowService.class);
+    scheduler = mock(Scheduler.class);
+    SchedulerFactoryBean schedulerFactoryBean = mock(SchedulerFactoryBean.class);
+    when(schedulerFactoryBean.getScheduler()).thenReturn(scheduler);
+
+    scheduledTasks = new ScheduledTasks();
+    ReflectionTestUtils.setField(scheduledTasks, "schedulerFactoryBean", schedulerFactoryBean);
+    ReflectionTestUtils.setField(scheduledTasks, "flowWorkflowService", workflowService);
+    ReflectionTestUtils.setField(scheduledTasks, "fireService", fireService);
+    ReflectionTestUtils.setField(scheduledTasks, "clock", Clock.fixed(NOW, ZoneOffset.UTC));
+    ReflectionTestUtils.setField(scheduledTasks, "clustered", true);
+    ReflectionTestUtils.setField(scheduledTasks, "misfirePolicy", "fire-once");
+    ReflectionTestUtils.setField(scheduledTasks, "misfireLookback", 24 * HOUR);
+  }
+
+  @Test
+  public void testRecoversMissedFire() throws SchedulerException {
+    Date missed = Date.from(Instant.parse("2020-06-01T10:00:00Z"));
+    when(fireService.getLastFireTime(WORKFLOW_ID))
+        .thenReturn(Optional.of(Date.from(Instant.parse("2020-06-01T07:00:00Z"))));
+    when(fireService.claimFire(eq(WORKFLOW_ID), eq(missed), anyString())).thenReturn(true);
+
+    scheduledTasks.recoverMisfire(createWorkflow("0 0 * * * ?"));
+
+    verify(scheduler).triggerJob(eq(new JobKey(WORKFLOW_ID, "flow")), any(JobDataMap.class));
+  }
+
+  @Test
+  public void testRecoversRecentFireAfterLongOutage() throws SchedulerException {
+    Date missed = Date.from(Instant.parse("2020-06-01T10:00:00Z"));
+    when(fireService.getLastFireTime(WORKFLOW_ID))
+        .thenReturn(Optional.of(new Date(NOW.toEpochMilli() - 30 * 24 * HOUR)));
+    when(fireService.claimFire(eq(WORKFLOW_ID), eq(missed), anyString())).thenReturn(true);
+
+    scheduledTasks.recoverMisfire(createWorkflow("0 0 * * * ?"));
+
+    verify(scheduler).triggerJob(eq(new JobKey(WORKFLOW_ID, "flow")), any(JobDataMap.class));
+  }
+
+  @Test
+  public void testSkipsFireOutsideLookback() throws SchedulerException {
+    ReflectionTestUtils.setField(scheduledTasks, "misfireLookback", HOUR);
+    when(fireService.getLastFireTime(WORKFLOW_ID))
+        .thenReturn(Optional.of(new Date(NOW.toEpochMilli() - 5 * 24 * HOUR)));
+
+    scheduledTasks.recoverMisfire(createWorkflow("0 0 3 * * ?"));
+
+    verify(fireService, never()).claimFire(anyString(), any(Date.class), anyString());
+    verify(scheduler, never()).triggerJob(any(JobKey.class), any(JobDataMap.class));
+  }
+
+  @Test
+  public void testSkipsFireClaimedByAnotherReplica() throws SchedulerException {
+    when(fireService.getLastFireTime(WORKFLOW_ID))
+        .thenReturn(Optional.of(Date.from(Instant.parse("2020-06-01T07:00:00Z"))));
+    when(fireService.claimFire(anyString(), any(Date.class), anyString())).thenReturn(false);
+
+    scheduledTasks.recoverMisfire(createWorkflow("0 0 * * * ?"));
+
+    verify(scheduler, never()).triggerJob(any(JobKey.class), any(JobDataMap.class));
+  }
+
+  @Test
+  public void testDefersStaggeredFireWithoutClaiming() throws SchedulerException {
+    Date fireTime = Date.from(Instant.parse("2020-06-01T10:00:00Z"));
+    JobDataMap data = new JobDataMap();
+    data.put("delay", 30000L);
+
+    assertFalse(scheduledTasks.acceptFire(createContext(data, fireTime)));
+
+    verify(scheduler).scheduleJob(any(Trigger.class));
+    verify(fireService, never()).claimFire(anyString(), any(Date.class), anyString());
+  }
+
+  @Test
+  public void testDeferredFireClaimsUnstaggeredTime() throws SchedulerException {
+    Date fireTime = Date.from(Instant.parse("2020-06-01T10:00:00Z"));
+    JobDataMap data = new JobDataMap();
+    data.put("fireTime", fireTime.getTime());
+    when(fireService.claimFire(eq(WORKFLOW_ID), eq(fireTime), anyString())).thenReturn(true);
+
+    Date deferredTime = new Date(fireTime.getTime() + 30000L);
+    assertTrue(scheduledTasks.acceptFire(createContext(data, deferredTime)));
+
+    verify(fireService).claimFire(eq(WORKFLOW_ID), eq(fireTime), anyString());
+    verify(scheduler, never()).scheduleJob(any(Trigger.class));
+  }
+
+  @Test
+  public void testDropsFireClaimedByAnotherReplica() {
+    when(fireService.claimFire(anyString(), any(Date.class), anyString())).thenReturn(false);
+
+    assertFalse(scheduledTasks.acceptFire(
+        createContext(new JobDataMap(), Date.from(Instant.parse("2020-06-01T10:00:00Z")))));
+  }
+
+  @Test
+  public void testReschedulesOnlyWhenScheduleChanges() throws SchedulerException {
+    FlowWorkflowEntity workflow = createWorkflow("0 0 * * * ?");
+    assertTrue(scheduledTasks.reconcileWorkflow(workflow));
+    assertTrue(scheduledTasks.reconcileWorkflow(workflow));
+    verify(scheduler).scheduleJob(any(JobDetail.class), any(Trigger.class));
+    verify(scheduler, never()).deleteJob(any(JobKey.class));
+
+    assertTrue(scheduledTasks.reconcileWorkflow(createWorkflow("0 30 * * * ?")));
+    verify(scheduler).deleteJob(new JobKey(WORKFLOW_ID, "flow"));
+    verify(scheduler, times(2)).scheduleJob(any(JobDetail.class), any(Trigger.class));
+
+    workflow.setStatus(WorkflowStatus.inactive);
+    assertFalse(scheduledTasks.reconcileWorkflow(workflow));
+    verify(scheduler, times(2)).deleteJob(new JobKey(WORKFLOW_ID, "flow"));
+  }
+
+  @Test
+  public void testSynchronizeRemovesUnknownJobsAndRestoresMissingOnes()
+      throws SchedulerException {
+    ReflectionTestUtils.setField(scheduledTasks, "started", true);
+    FlowWorkflowEntity workflow = createWorkflow("0 0 * * * ?");
+    scheduledTasks.reconcileWorkflow(workflow);
+    JobKey unknown = new JobKey("5d1a188af6ca2c00014c4369", "flow");
+    when(scheduler.getJobKeys(any())).thenReturn(Collections.singleton(unknown));
+    when(scheduler.checkExists(new JobKey(WORKFLOW_ID, "flow"))).thenReturn(false);
+    when(workflowService.getScheduledWorkflows()).thenReturn(Collections.singletonList(workflow));
+
+    scheduledTasks.synchronizeJobs();
+
+    verify(scheduler).deleteJob(unknown);
+    verify(scheduler, times(2)).scheduleJob(any(JobDetail.class), any(Trigger.class));
+  }
+
+  @Test
+  public void testSynchronizeWaitsForWorkflowBeingScheduled() throws Exception {
+    ReflectionTestUtils.setField(scheduledTasks, "started", true);
+    FlowWorkflowEntity workflow = createWorkflow("0 0 * * * ?");
+    JobKey jobKey = new JobKey(WORKFLOW_ID, "flow");
+    CountDownLatch scheduling = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      scheduling.countDown();
+      release.await(5, TimeUnit.SECONDS);
+      return null;
+    }).when(scheduler).scheduleJob(any(JobDetail.class), any(Trigger.class));
+    when(scheduler.getJobKeys(GroupMatcher.jobGroupEquals("flow")))
+        .thenReturn(Collections.singleton(jobKey));
+    when(scheduler.checkExists(jobKey)).thenReturn(true);
+    when(workflowService.getScheduledWorkflows()).thenReturn(Collections.singletonList(workflow));
+
+    Thread reconciler = new Thread(() -> scheduledTasks.reconcileWorkflow(workflow));
+    reconciler.start();
+    assertTrue(scheduling.await(5, TimeUnit.SECONDS));
+    Thread synchronizer = new Thread(scheduledTasks::synchronizeJobs);
+    synchronizer.start();
+    for (int i = 0; i < 500 && synchronizer.getState() != Thread.State.BLOCKED
+        && synchronizer.isAlive(); i++) {
+      Thread.sleep(10);
+    }
+    release.countDown();
+    reconciler.join(5000);
+    synchronizer.join(5000);
+
+    verify(scheduler, never()).deleteJob(jobKey);
+  }
+
+  @Test
+  public void testRefusesRangeWithTooManyFires() {
+    when(workflowService.getScheduledWorkflows())
+        .thenReturn(Collections.singletonList(createWorkflow("* * * * * ?")));
+
+    try {
+      scheduledTasks.getFireDistribution(Date.from(NOW), new Date(NOW.toEpochMilli() + 48 * HOUR),
+          60);
+      fail("Expected a range with more fires than can be expanded to be refused");
+    } catch (ScheduleRangeTooLargeException e) {
+      assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+    }
+  }
+
+  private JobExecutionContext createContext(JobDataMap data, Date scheduledFireTime) {
+    JobDetail jobDetail = mock(JobDetail.class);
+    when(jobDetail.getKey()).thenReturn(new JobKey(WORKFLOW_ID, "flow"));
+    JobExecutionContext context = mock(JobExecutionContext.class);
+    when(context.getMergedJobDataMap()).thenReturn(data);
+    when(context.getJobDetail()).thenReturn(jobDetail);
+    when(context.getScheduledFireTime()).thenReturn(scheduledFireTime);
+    return context;
+  }
+
+  private FlowWorkflowEntity createWorkflow(String cron) {
+    net.boomerangplatform.mongo.model.Scheduler schedule =
+        new net.boomerangplatform.mongo.model.Scheduler();
+    schedule.setEnable(true);
+    schedule.setSchedule(cron);
+    schedule.setTimezone("UTC");
+    Triggers triggers = new Triggers();
+    triggers.setScheduler(schedule);
+
+    FlowWorkflowEntity workflow = new FlowWorkflowEntity();
+    workflow.setId(WORKFLOW_ID);
+    workflow.setStatus(WorkflowStatus.active);
+    workflow.setTriggers(triggers);
+    return workflow;
+  }
+}
@@ -0,0 +1,123 @@
+package net.boomerangplatform.service.crud;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import net.boomerangplatform.util.LogRange;
+
+public class TaskLogCacheImplTest {
+
+  private static final String LOG = "line 1\nline 2\nline 3\n";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private TaskLogCacheImpl cache;
+
+  @Before
+  public void setUp() throws IOException {
+    cache = createCache(1024);
+  }
+
+  @Test
+  public void testServesCommittedLog() throws IOException {
+    store("5d1a18c8f6ca2c00014c432b", LOG);
+
+    ResponseEntity<StreamingResponseBody> response =
+        cache.getTaskLog("5d1a18c8f6ca2c00014c432b", LogRange.all()).get();
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(LOG, read(response));
+  }
+
+  @Test
+  public void testServesRangesAndTail() throws IOException {
+    store("5d1a18c8f6ca2c00014c432b", LOG);
+
+    ResponseEntity<StreamingResponseBody> range =
+        cache.getTaskLog("5d1a18c8f6ca2c00014c432b", LogRange.fromHeader("bytes=7-12")).get();
+    assertEquals(HttpStatus.PARTIAL_CONTENT, range.getStatusCode());
+    assertEquals("bytes 7-12/21", range.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    assertEquals("line 2", read(range));
+
+    assertEquals("line 2\nline 3\n",
+        read(cache.getTaskLog("5d1a18c8f6ca2c00014c432b", LogRange.tail(2)).get()));
+    assertEquals("line 3\n",
+        read(cache.getTaskLog("5d1a18c8f6ca2c00014c432b", LogRange.offset(14)).get()));
+  }
+
+  @Test
+  public void testDiscardedLogIsNotCached() {
+    TaskLogCache.LogWriter writer = cache.createWriter("5d1a18c8f6ca2c00014c432b", -1);
+    writer.write(LOG.getBytes(StandardCharsets.UTF_8), 0, 7);
+    writer.discard();
+
+    assertFalse(cache.getTaskLog("5d1a18c8f6ca2c00014c432b", LogRange.all()).isPresent());
+  }
+
+  @Test
+  public void testShortLogIsNotCommitted() {
+    TaskLogCache.LogWriter writer =
+        cache.createWriter("5d1a18c8f6ca2c00014c432b", LOG.length());
+    writer.write(LOG.getBytes(StandardCharsets.UTF_8), 0, 7);
+    writer.commit();
+
+    assertFalse(cache.getTaskLog("5d1a18c8f6ca2c00014c432b", LogRange.all()).isPresent());
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyRead() throws IOException {
+    cache = createCache(50);
+    store("first", LOG);
+    store("second", LOG);
+    read(cache.getTaskLog("first", LogRange.all()).get());
+    store("third", LOG);
+
+    assertTrue(cache.getTaskLog("first", LogRange.all()).isPresent());
+    assertFalse(cache.getTaskLog("second", LogRange.all()).isPresent());
+    assertTrue(cache.getTaskLog("third", LogRange.all()).isPresent());
+  }
+
+  @Test
+  public void testReloadsExistingLogs() throws IOException {
+    store("5d1a18c8f6ca2c00014c432b", LOG);
+
+    Optional<ResponseEntity<StreamingResponseBody>> response =
+        createCache(1024).getTaskLog("5d1a18c8f6ca2c00014c432b", LogRange.all());
+    assertEquals(LOG, read(response.get()));
+  }
+
+  private TaskLogCacheImpl createCache(long maxSize) throws IOException {
+    TaskLogCacheImpl taskLogCache = new TaskLogCacheImpl();
+    ReflectionTestUtils.setField(taskLogCache, "enabled", true);
+    ReflectionTestUtils.setField(taskLogCache, "directory", folder.getRoot().getPath());
+    ReflectionTestUtils.setField(taskLogCache, "maxSize", maxSize);
+    taskLogCache.init();
+    return taskLogCache;
+  }
+
+  private void store(String key, String log) {
+    byte[] bytes = log.getBytes(StandardCharsets.UTF_8);
+    TaskLogCache.LogWriter writer = cache.createWriter(key, bytes.length);
+    writer.write(bytes, 0, bytes.length);
+    writer.commit();
+  }
+
+  private String read(ResponseEntity<StreamingResponseBody> response) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    response.getBody().writeTo(output);
+    return output.toString(StandardCharsets.UTF_8.name());
+  }
+}
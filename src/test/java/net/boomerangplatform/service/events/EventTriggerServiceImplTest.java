@@ -0,0 +1,215 @@
+package net.boomerangplatform.service.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+import net.boomerangplatform.mongo.entity.FlowWorkflowActivityEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowRevisionEntity;
+import net.boomerangplatform.mongo.model.Event;
+import net.boomerangplatform.mongo.model.FlowTriggerEnum;
+import net.boomerangplatform.mongo.model.Triggers;
+import net.boomerangplatform.mongo.model.WorkflowStatus;
+import net.boomerangplatform.mongo.service.FlowWorkflowService;
+import net.boomerangplatform.mongo.service.FlowWorkflowVersionService;
+import net.boomerangplatform.service.FlowExecutionService;
+import net.boomerangplatform.service.crud.FlowActivityService;
+
+public class EventTriggerServiceImplTest {
+
+  private static final String BUILD_TOPIC = "build.finished";
+
+  private static final String DEPLOY_TOPIC = "deploy.finished";
+
+  private final AtomicInteger activityIds = new AtomicInteger();
+
+  private InMemoryEventTransport transport;
+
+  private FlowActivityService activityService;
+
+  private FlowExecutionService executionService;
+
+  private EventTriggerServiceImpl service;
+
+  @Before
+  public void setUp() {
+    transport = new InMemoryEventTransport();
+    activityService = mock(FlowActivityService.class);
+    executionService = mock(FlowExecutionService.class);
+
+    FlowWorkflowService workflowService = mock(FlowWorkflowService.class);
+    when(workflowService.getEventWorkflows()).thenReturn(Arrays.asList(
+        createWorkflow("build-1", BUILD_TOPIC), createWorkflow("build-2", BUILD_TOPIC),
+        createWorkflow("deploy", DEPLOY_TOPIC)));
+    FlowWorkflowVersionService versionService = mock(FlowWorkflowVersionService.class);
+    when(versionService.getLatestWorkflowVersion(anyString())).thenAnswer(invocation -> {
+      FlowWorkflowRevisionEntity revision = new FlowWorkflowRevisionEntity();
+      revision.setId(invocation.getArgument(0) + "-revision");
+      revision.setWorkFlowId(invocation.getArgument(0));
+      return revision;
+    });
+    when(activityService.createFlowActivities(anyList(), eq(FlowTriggerEnum.action), anyList()))
+        .thenAnswer(createActivities());
+
+    service = new EventTriggerServiceImpl();
+    ReflectionTestUtils.setField(service, "transport", transport);
+    ReflectionTestUtils.setField(service, "workflowService", workflowService);
+    ReflectionTestUtils.setField(service, "versionService", versionService);
+    ReflectionTestUtils.setField(service, "activityService", activityService);
+    ReflectionTestUtils.setField(service, "executionService", executionService);
+    ReflectionTestUtils.setField(service, "enabled", true);
+    ReflectionTestUtils.setField(service, "group", "flow-workflow");
+    ReflectionTestUtils.setField(service, "executionThreads", 2);
+    ReflectionTestUtils.setField(service, "executionQueueSize", 10);
+  }
+
+  @After
+  public void tearDown() {
+    service.stop();
+    transport.shutdown();
+  }
+
+  @Test
+  public void testRoutesEventsToWorkflowsOfTopic() {
+    start(10, 1, 0L);
+    publish(BUILD_TOPIC);
+
+    assertEquals(Arrays.asList("build-1", "build-2"), getTriggeredWorkflows(1).get(0));
+    verify(executionService, timeout(5000).times(2)).executeWorkflowVersion(anyString(),
+        anyString());
+  }
+
+  @Test
+  public void testBatchesQueuedEvents() {
+    start(10, 3, 2000L);
+    publish(DEPLOY_TOPIC);
+    publish(DEPLOY_TOPIC);
+    publish(DEPLOY_TOPIC);
+
+    assertEquals(Arrays.asList("deploy", "deploy", "deploy"), getTriggeredWorkflows(1).get(0));
+    verify(executionService, timeout(5000).times(3)).executeWorkflowVersion(anyString(),
+        anyString());
+  }
+
+  @Test
+  public void testAcknowledgesEventsOnceTriggered() {
+    start(2, 1, 0L);
+    publish(DEPLOY_TOPIC);
+    publish(DEPLOY_TOPIC);
+
+    assertEquals(2, getTriggeredWorkflows(2).size());
+  }
+
+  @Test
+  public void testHoldsPermitUntilExecutionFinishes() throws InterruptedException {
+    CountDownLatch executing = new CountDownLatch(1);
+    when(executionService.executeWorkflowVersion(anyString(), anyString())).thenAnswer(
+        invocation -> {
+          executing.await();
+          return null;
+        });
+    start(1, 1, 0L);
+    publish(DEPLOY_TOPIC);
+    publish(DEPLOY_TOPIC);
+
+    getTriggeredWorkflows(1);
+    verify(activityService, after(200).times(1)).createFlowActivities(anyList(),
+        eq(FlowTriggerEnum.action), anyList());
+
+    executing.countDown();
+    verify(executionService, timeout(5000)).executeWorkflowVersion(anyString(), anyString());
+    Thread.sleep(100);
+    transport.redeliver();
+    assertEquals(2, getTriggeredWorkflows(2).size());
+  }
+
+  @Test
+  public void testRedeliversEventsOfFailedBatch() {
+    doThrow(new IllegalStateException("Database unavailable")).doAnswer(createActivities())
+        .when(activityService).createFlowActivities(anyList(), eq(FlowTriggerEnum.action),
+            anyList());
+    start(10, 1, 0L);
+    publish(DEPLOY_TOPIC);
+    getTriggeredWorkflows(1);
+    verify(executionService, after(200).never()).executeWorkflowVersion(anyString(),
+        anyString());
+
+    transport.redeliver();
+    assertEquals(Arrays.asList("deploy"), getTriggeredWorkflows(2).get(1));
+    verify(executionService, timeout(5000)).executeWorkflowVersion(anyString(), anyString());
+  }
+
+  private void start(int maxInFlight, int batchSize, long batchWait) {
+    ReflectionTestUtils.setField(service, "maxInFlight", maxInFlight);
+    ReflectionTestUtils.setField(service, "batchSize", batchSize);
+    ReflectionTestUtils.setField(service, "batchWait", batchWait);
+    service.start();
+  }
+
+  private void publish(String topic) {
+    transport.publish(topic, "{}".getBytes(StandardCharsets.UTF_8));
+  }
+
+  /* Waits for the given number of batches and returns the workflows each one triggered. */
+  @SuppressWarnings("unchecked")
+  private List<List<String>> getTriggeredWorkflows(int batches) {
+    ArgumentCaptor<List<FlowWorkflowRevisionEntity>> revisions =
+        ArgumentCaptor.forClass(List.class);
+    verify(activityService, timeout(5000).times(batches)).createFlowActivities(
+        revisions.capture(), eq(FlowTriggerEnum.action), anyList());
+    List<List<String>> triggered = new ArrayList<>();
+    for (List<FlowWorkflowRevisionEntity> batch : revisions.getAllValues()) {
+      triggered.add(batch.stream().map(FlowWorkflowRevisionEntity::getWorkFlowId)
+          .collect(Collectors.toList()));
+    }
+    return triggered;
+  }
+
+  private Answer<List<FlowWorkflowActivityEntity>> createActivities() {
+    return invocation -> {
+      List<FlowWorkflowRevisionEntity> revisions = invocation.getArgument(0);
+      List<FlowWorkflowActivityEntity> activities = new ArrayList<>();
+      for (FlowWorkflowRevisionEntity revision : revisions) {
+        FlowWorkflowActivityEntity activity = new FlowWorkflowActivityEntity();
+        activity.setId("activity-" + activityIds.incrementAndGet());
+        activity.setWorkflowRevisionid(revision.getId());
+        activities.add(activity);
+      }
+      return activities;
+    };
+  }
+
+  private FlowWorkflowEntity createWorkflow(String id, String topic) {
+    Event event = new Event();
+    event.setEnable(true);
+    event.setTopic(topic);
+    Triggers triggers = new Triggers();
+    triggers.setEvent(event);
+
+    FlowWorkflowEntity workflow = new FlowWorkflowEntity();
+    workflow.setId(id);
+    workflow.setStatus(WorkflowStatus.active);
+    workflow.setTriggers(triggers);
+    return workflow;
+  }
+}
@@ -0,0 +1,97 @@
+package net.boomerangplatform.service.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import net.boomerangplatform.service.events.EventTransport.EventMessage;
+
+public class InMemoryEventTransportTest {
+
+  private static final String TOPIC = "build.finished";
+
+  private static final String GROUP = "flow-workflow";
+
+  private InMemoryEventTransport transport;
+
+  private BlockingQueue<EventMessage> delivered;
+
+  @Before
+  public void setUp() {
+    transport = new InMemoryEventTransport();
+    delivered = new LinkedBlockingQueue<>();
+  }
+
+  @After
+  public void tearDown() {
+    transport.shutdown();
+  }
+
+  @Test
+  public void testHoldsBackMessagesBeyondInFlightLimit() throws Exception {
+    transport.subscribe(TOPIC, GROUP, 2, delivered::add);
+    publish("1");
+    publish("2");
+    publish("3");
+
+    EventMessage first = next();
+    assertEquals("1", text(first));
+    assertEquals("2", text(next()));
+    assertNull(delivered.poll(200, TimeUnit.MILLISECONDS));
+
+    first.ack();
+    assertEquals("3", text(next()));
+  }
+
+  @Test
+  public void testRedeliversUnacknowledgedMessages() throws Exception {
+    transport.subscribe(TOPIC, GROUP, 10, delivered::add);
+    publish("1");
+    publish("2");
+
+    next().ack();
+    EventMessage unacked = next();
+    transport.redeliver();
+
+    assertEquals(text(unacked), text(next()));
+    assertNull(delivered.poll(200, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testKeepsMessagesForDurableGroupWithoutSubscriber() throws Exception {
+    transport.subscribe(TOPIC, GROUP, 10, delivered::add);
+    transport.close();
+    publish("1");
+    assertNull(delivered.poll(200, TimeUnit.MILLISECONDS));
+
+    transport.subscribe(TOPIC, GROUP, 10, delivered::add);
+    assertEquals("1", text(next()));
+  }
+
+  @Test
+  public void testDropsMessagesAfterUnsubscribe() throws Exception {
+    transport.subscribe(TOPIC, GROUP, 10, delivered::add).unsubscribe();
+    publish("1");
+
+    transport.subscribe(TOPIC, GROUP, 10, delivered::add);
+    assertNull(delivered.poll(200, TimeUnit.MILLISECONDS));
+  }
+
+  private void publish(String text) {
+    transport.publish(TOPIC, text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private EventMessage next() throws InterruptedException {
+    return delivered.poll(5, TimeUnit.SECONDS);
+  }
+
+  private String text(EventMessage message) throws IOException {
+    return new String(message.getData(), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,189 @@
+package net.boomerangplatform.service.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import net.boomerangplatform.mongo.entity.FlowTaskExecutionEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowActivityEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowEntity;
+import net.boomerangplatform.mongo.model.FlowTaskStatus;
+import net.boomerangplatform.mongo.service.FlowWorkflowActivityService;
+import net.boomerangplatform.mongo.service.FlowWorkflowActivityTaskService;
+import net.boomerangplatform.mongo.service.FlowWorkflowService;
+
+public class ActivityStreamServiceImplTest {
+
+  private static final String ACTIVITY_ID = "5d1a18c8f6ca2c00014c4318";
+
+  private static final String WORKFLOW_ID = "5d1a188af6ca2c00014c4314";
+
+  private static final String TEAM_ID = "5d1a1841f6ca2c00014c4309";
+
+  private final List<RecordingEmitter> emitters = new ArrayList<>();
+
+  private FlowWorkflowActivityEntity activity;
+
+  private ActivityStreamServiceImpl service;
+
+  @Before
+  public void setUp() {
+    activity = new FlowWorkflowActivityEntity();
+    activity.setId(ACTIVITY_ID);
+    activity.setWorkflowId(WORKFLOW_ID);
+    activity.setStatus(FlowTaskStatus.inProgress);
+
+    FlowWorkflowEntity workflow = new FlowWorkflowEntity();
+    workflow.setId(WORKFLOW_ID);
+    workflow.setFlowTeamId(TEAM_ID);
+
+    FlowWorkflowActivityService activityService = mock(FlowWorkflowActivityService.class);
+    when(activityService.findWorkflowActiivtyById(ACTIVITY_ID)).thenReturn(activity);
+    FlowWorkflowActivityTaskService taskService = mock(FlowWorkflowActivityTaskService.class);
+    when(taskService.findTaskActiivtyForActivity(ACTIVITY_ID))
+        .thenReturn(Collections.emptyList());
+    FlowWorkflowService workflowService = mock(FlowWorkflowService.class);
+    when(workflowService.getWorkflow(WORKFLOW_ID)).thenReturn(workflow);
+
+    service = new ActivityStreamServiceImpl() {
+      @Override
+      SseEmitter newEmitter() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitters.add(emitter);
+        return emitter;
+      }
+    };
+    ReflectionTestUtils.setField(service, "activityService", activityService);
+    ReflectionTestUtils.setField(service, "taskService", taskService);
+    ReflectionTestUtils.setField(service, "workflowService", workflowService);
+    ReflectionTestUtils.setField(service, "subscriberQueueSize", 2);
+    ReflectionTestUtils.setField(service, "dispatchThreads", 2);
+    service.init();
+  }
+
+  @After
+  public void tearDown() {
+    service.shutdown();
+  }
+
+  @Test
+  public void testSlowSubscriberIsDroppedWithoutStallingOthers() throws InterruptedException {
+    service.subscribeToTeam(TEAM_ID, Optional.empty());
+    service.subscribeToTeam(TEAM_ID, Optional.empty());
+    RecordingEmitter slow = emitters.get(0);
+    RecordingEmitter fast = emitters.get(1);
+    slow.block();
+
+    service.publishTask(createTask());
+    assertTrue(slow.awaitSending());
+    for (int i = 0; i < 3; i++) {
+      service.publishTask(createTask());
+    }
+
+    for (int i = 0; i < 4; i++) {
+      assertTrue(fast.awaitEvent());
+    }
+    slow.unblock();
+    assertTrue(slow.awaitCompletion());
+    assertEquals(1, slow.getEventCount());
+
+    service.publishTask(createTask());
+    assertTrue(fast.awaitEvent());
+    assertEquals(1, slow.getEventCount());
+    assertFalse(fast.isCompleted());
+  }
+
+  @Test
+  public void testActivitySubscriberCompletesAfterFinalStatus() throws InterruptedException {
+    service.subscribeToActivity(ACTIVITY_ID, Optional.empty());
+    RecordingEmitter emitter = emitters.get(0);
+
+    service.publishTask(createTask());
+    activity.setStatus(FlowTaskStatus.skipped);
+    service.publishActivity(activity);
+
+    assertTrue(emitter.awaitCompletion());
+    assertEquals(3, emitter.getEventCount());
+  }
+
+  private FlowTaskExecutionEntity createTask() {
+    FlowTaskExecutionEntity task = new FlowTaskExecutionEntity();
+    task.setActivityId(ACTIVITY_ID);
+    task.setWorkflowId(WORKFLOW_ID);
+    return task;
+  }
+
+  private static class RecordingEmitter extends SseEmitter {
+
+    private final BlockingQueue<SseEventBuilder> events = new LinkedBlockingQueue<>();
+
+    private final CountDownLatch completed = new CountDownLatch(1);
+
+    private final CountDownLatch sending = new CountDownLatch(1);
+
+    private volatile CountDownLatch blocked = new CountDownLatch(0);
+
+    private int eventCount;
+
+    @Override
+    public void send(SseEventBuilder builder) {
+      sending.countDown();
+      try {
+        blocked.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      synchronized (this) {
+        eventCount++;
+      }
+      events.add(builder);
+    }
+
+    @Override
+    public void complete() {
+      completed.countDown();
+    }
+
+    void block() {
+      blocked = new CountDownLatch(1);
+    }
+
+    void unblock() {
+      blocked.countDown();
+    }
+
+    boolean awaitSending() throws InterruptedException {
+      return sending.await(5, TimeUnit.SECONDS);
+    }
+
+    boolean awaitEvent() throws InterruptedException {
+      return events.poll(5, TimeUnit.SECONDS) != null;
+    }
+
+    boolean awaitCompletion() throws InterruptedException {
+      return completed.await(5, TimeUnit.SECONDS);
+    }
+
+    boolean isCompleted() {
+      return completed.getCount() == 0;
+    }
+
+    synchronized int getEventCount() {
+      return eventCount;
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package net.boomerangplatform.service.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.List;
+import org.junit.Test;
+import net.boomerangplatform.model.ActivityStreamEvent;
+
+public class EventReplayBufferTest {
+
+  @Test
+  public void testReplayAfterSequence() {
+    EventReplayBuffer buffer = new EventReplayBuffer(3, 10);
+    buffer.add(createEvent(11));
+    buffer.add(createEvent(12));
+
+    List<ActivityStreamEvent> events = buffer.getEventsAfter(11);
+
+    assertTrue(buffer.canResumeFrom(10));
+    assertEquals(1, events.size());
+    assertEquals(12, events.get(0).getSequence().longValue());
+  }
+
+  @Test
+  public void testCannotResumeAfterEviction() {
+    EventReplayBuffer buffer = new EventReplayBuffer(2, 10);
+    buffer.add(createEvent(11));
+    buffer.add(createEvent(12));
+    buffer.add(createEvent(13));
+
+    assertFalse(buffer.canResumeFrom(10));
+    assertTrue(buffer.canResumeFrom(11));
+    assertEquals(2, buffer.getEventsAfter(11).size());
+  }
+
+  private ActivityStreamEvent createEvent(long sequence) {
+    ActivityStreamEvent event = new ActivityStreamEvent();
+    event.setSequence(sequence);
+    return event;
+  }
+}
@@ -15,10 +15,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.client.MockRestServiceServer;
 import org.springframework.web.client.RestTemplate;
 
-
+/* Fixtures and upstream mocks are reset before every test, bypassing the services, so nothing may
+ * be served from their caches across tests. */
+@TestPropertySource(properties = {"flow.cache.workflow.max-size=0",
+    "flow.cache.template.max-size=0", "flow.cache.user.max-size=0",
+    "flow.cache.users.max-size=0"})
 public class FlowTests extends AbstractFlowTests {
 
   protected MockRestServiceServer mockServer;
@@ -34,7 +39,8 @@ public class FlowTests extends AbstractFlowTests {
         "core_settings", "core_audit", "requests_creategroup", "requests_createtool",
         "requests_removegroup", "requests_leavetool", "flow_teams", "flow_workflows",
         "flow_workflows_activity", "flow_workflows_activity_task", "flow_workflows_revisions",
-        "flow_task_templates"};
+        "flow_task_templates", "flow_workflows_activity_rollup",
+        "flow_workflows_activity_rollup_state", "flow_idempotency_keys", "flow_scheduler_fires"};
   }
 
   @Override
@@ -104,6 +110,12 @@ public class FlowTests extends AbstractFlowTests {
         .andExpect(method(HttpMethod.GET)).andRespond(
             withSuccess(getMockFile("mock/launchpad/users.json"), MediaType.APPLICATION_JSON));
 
+    mockServer
+        .expect(manyTimes(),
+            requestTo(containsString("http://localhost:8084/internal/users/query")))
+        .andExpect(method(HttpMethod.GET)).andRespond(
+            withSuccess(getMockFile("mock/users/users.json"), MediaType.APPLICATION_JSON));
+
     mockServer
         .expect(manyTimes(), requestTo(containsString("http://localhost:8084/launchpad/users")))
         .andExpect(method(HttpMethod.GET)).andRespond(
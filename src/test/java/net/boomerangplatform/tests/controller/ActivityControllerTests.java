@@ -2,12 +2,20 @@ package net.boomerangplatform.tests.controller;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.springframework.test.web.client.ExpectedCount.times;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -16,24 +24,35 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Sort.Direction;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.web.client.MockRestServiceServer;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import net.boomerangplatform.Application;
 import net.boomerangplatform.MongoConfig;
 import net.boomerangplatform.controller.ActivityController;
+import net.boomerangplatform.exceptions.InvalidWorkflowRuntimeException;
 import net.boomerangplatform.model.FlowActivity;
 import net.boomerangplatform.model.InsightsSummary;
 import net.boomerangplatform.model.ListActivityResponse;
+import net.boomerangplatform.mongo.entity.FlowWorkflowActivityEntity;
 import net.boomerangplatform.mongo.model.FlowTaskStatus;
+import net.boomerangplatform.mongo.model.FlowTriggerEnum;
+import net.boomerangplatform.mongo.service.FlowActivityRollupService;
+import net.boomerangplatform.mongo.service.FlowWorkflowActivityService;
+import net.boomerangplatform.service.FlowExecutionServiceImpl;
+import net.boomerangplatform.service.crud.ActivityRollupService;
+import net.boomerangplatform.service.crud.FlowActivityService;
 import net.boomerangplatform.tests.FlowTests;
 
 @RunWith(SpringJUnit4ClassRunner.class)
@@ -42,11 +61,27 @@ import net.boomerangplatform.tests.FlowTests;
 @ActiveProfiles("local")
 @WithMockUser(roles = {"admin"})
 @WithUserDetails("mdroy@us.ibm.com")
+@TestPropertySource(properties = "flow.activity.rollups.rebuild-settle=0")
 public class ActivityControllerTests extends FlowTests {
 
   @Autowired
   private ActivityController activityController;
 
+  @Autowired
+  private ActivityRollupService activityRollupService;
+
+  @Autowired
+  private FlowActivityRollupService rollupService;
+
+  @Autowired
+  private FlowWorkflowActivityService activityService;
+
+  @Autowired
+  private FlowActivityService flowActivityService;
+
+  @Autowired
+  private FlowExecutionServiceImpl executionService;
+
   @Test
   public void testGetFlowActivity() {
 
@@ -61,12 +96,53 @@ public class ActivityControllerTests extends FlowTests {
     mockServer.expect(times(1), requestTo(containsString("controller/log/stream")))
         .andExpect(method(HttpMethod.GET)).andRespond(withStatus(HttpStatus.OK));
     MockHttpServletResponse response = new MockHttpServletResponse();
-    ResponseEntity<StreamingResponseBody> streamingResponse = activityController
-        .getTaskLog(response, "5d1a18c8f6ca2c00014c4325", "58340aec-4661-4768-aeec-307c1553409e");
+    ResponseEntity<StreamingResponseBody> streamingResponse =
+        activityController.getTaskLog(response, "5d1a18c8f6ca2c00014c4325",
+            "58340aec-4661-4768-aeec-307c1553409e", null, Optional.empty(), Optional.empty());
     streamingResponse.getBody().writeTo(System.out);
     assertEquals(HttpStatus.OK, streamingResponse.getStatusCode());
   }
 
+  @Test
+  public void testGetTaskLogTail() throws IOException {
+
+    mockServer = MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(true).build();
+    mockServer.expect(times(1), requestTo(containsString("controller/log/stream")))
+        .andExpect(method(HttpMethod.GET))
+        .andRespond(withSuccess("line 1\nline 2\nline 3\n", MediaType.TEXT_PLAIN));
+    ResponseEntity<StreamingResponseBody> streamingResponse =
+        activityController.getTaskLog(new MockHttpServletResponse(), "5d1a18c8f6ca2c00014c4325",
+            "58340aec-4661-4768-aeec-307c1553409e", null, Optional.empty(), Optional.of(2));
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    streamingResponse.getBody().writeTo(output);
+    assertEquals(HttpStatus.OK, streamingResponse.getStatusCode());
+    assertEquals("line 2\nline 3\n", output.toString(StandardCharsets.UTF_8.name()));
+  }
+
+  @Test
+  public void testGetTaskLogRange() throws IOException {
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentLength(21);
+    mockServer = MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(true).build();
+    mockServer.expect(times(1), requestTo(containsString("controller/log/stream")))
+        .andExpect(method(HttpMethod.GET)).andExpect(header(HttpHeaders.RANGE, "bytes=7-"))
+        .andRespond(withSuccess("line 1\nline 2\nline 3\n", MediaType.TEXT_PLAIN)
+            .headers(headers));
+    ResponseEntity<StreamingResponseBody> streamingResponse =
+        activityController.getTaskLog(new MockHttpServletResponse(), "5d1a18c8f6ca2c00014c4325",
+            "58340aec-4661-4768-aeec-307c1553409e", "bytes=7-", Optional.empty(),
+            Optional.empty());
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    streamingResponse.getBody().writeTo(output);
+    assertEquals(HttpStatus.PARTIAL_CONTENT, streamingResponse.getStatusCode());
+    assertEquals("bytes 7-20/21",
+        streamingResponse.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    assertEquals("line 2\nline 3\n", output.toString(StandardCharsets.UTF_8.name()));
+  }
+
   @Test
   public void testGetFlowActivities() {
     List<String> workflowIds = new ArrayList<>();
@@ -78,21 +154,57 @@ public class ActivityControllerTests extends FlowTests {
     ListActivityResponse response = activityController.getFlowActivities(
         getOptionalOrder(Direction.ASC), getOptionalString("sort"),
         getOptionalListString(workflowIds), getOptionalListString(teamIds), 0, 2147483647,
-        Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty());
+        Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty());
 
     assertEquals(2, response.getRecords().size());
   }
 
+  @Test
+  public void testExportFlowActivities() throws IOException {
+    ResponseEntity<StreamingResponseBody> export = activityController.exportFlowActivities(
+        getOptionalOrder(Direction.ASC), Optional.empty(), Optional.empty(), Optional.empty(),
+        Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), "ndjson", true, 1);
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    export.getBody().writeTo(output);
+    String[] lines = output.toString(StandardCharsets.UTF_8.name()).split("\n");
+
+    assertEquals(HttpStatus.OK, export.getStatusCode());
+    assertEquals(2, lines.length);
+    assertTrue(lines[1].contains("Execute Shell 1"));
+  }
+
+  @Test
+  public void testExportFlowActivitiesAsCsv() throws IOException {
+    List<String> teamIds = new ArrayList<>();
+    teamIds.add("5d1a1841f6ca2c00014c4309");
+
+    ResponseEntity<StreamingResponseBody> export = activityController.exportFlowActivities(
+        getOptionalOrder(Direction.ASC), Optional.empty(), Optional.empty(),
+        getOptionalListString(teamIds), Optional.empty(), Optional.empty(), Optional.empty(),
+        Optional.empty(), "csv", true, 500);
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    export.getBody().writeTo(output);
+    String[] lines = output.toString(StandardCharsets.UTF_8.name()).split("\n");
+
+    assertEquals(3, lines.length);
+    assertTrue(lines[0].startsWith("id,workflowId,workflowName"));
+  }
+
   @Test
   public void testGetInsightsSummary() {
     InsightsSummary summary = activityController.getInsightsSummary(getOptionalOrder(Direction.ASC),
         getOptionalString("sort"), getOptionalString("5d1a1841f6ca2c00014c4309"), 0, 2147483647,
         Optional.empty(), Optional.empty());
 
-    assertEquals(2, summary.getExecutions().size());
-    Long executiontime = (summary.getExecutions().get(0).getDuration()
-        + summary.getExecutions().get(1).getDuration()) / summary.getExecutions().size();
-    assertEquals(executiontime, summary.getMedianExecutionTime());
+    assertEquals(2, summary.getTotalActivitiesExecuted().intValue());
+    assertEquals(2524, summary.getMedianExecutionTime().doubleValue(), 2524 * 0.01);
+    assertEquals(2, summary.getExecutionTime().getCount().longValue());
+    assertEquals(2, summary.getWorkflowExecutionTimes().get("5d1a188af6ca2c00014c4314").getCount()
+        .longValue());
+    assertEquals(2, summary.getTeamExecutionTimes().get("5d1a1841f6ca2c00014c4309").getCount()
+        .longValue());
     assertEquals(2, summary.getTotalActivitiesExecuted().intValue());
 
   }
@@ -107,6 +219,65 @@ public class ActivityControllerTests extends FlowTests {
     assertEquals(0, activitySummary.get(FlowTaskStatus.inProgress.getStatus()).longValue());
   }
 
+  @Test
+  public void testRebuildActivityRollups() {
+    assertTrue(activityRollupService.rebuildRollups());
+    assertTrue(activityRollupService.rebuildRollups());
+
+    Map<String, Long> counts = activityRollupService.getStatusCounts(Optional.empty(),
+        Optional.empty(), Optional.empty(), Optional.empty());
+    assertEquals(2, counts.get(FlowTaskStatus.completed.name()).longValue());
+
+    InsightsSummary summary = activityRollupService.getInsightsSummary(Optional.empty(),
+        Optional.empty(), getOptionalString("5d1a1841f6ca2c00014c4309"));
+    assertEquals(2, summary.getTotalActivitiesExecuted().intValue());
+    assertEquals(2524, summary.getMedianExecutionTime().doubleValue(), 2524 * 0.01);
+  }
+
+  @Test
+  public void testLiveRollupsMatchRebuild() {
+    assertTrue(activityRollupService.rebuildRollups());
+
+    FlowWorkflowActivityEntity skipped = activityService.saveWorkflowActivity(
+        createActivity(FlowTaskStatus.notstarted));
+    assertTrue(flowActivityService.supersedeActivity(skipped.getId(), "Superseded"));
+
+    FlowWorkflowActivityEntity invalid = activityService.saveWorkflowActivity(
+        createActivity(FlowTaskStatus.inProgress));
+    try {
+      executionService.prepareExecution(new ArrayList<>(), invalid.getId());
+    } catch (InvalidWorkflowRuntimeException e) {
+      // expected, the workflow has no start or end
+    }
+
+    Map<String, Long> live = activityRollupService.getStatusCounts(Optional.empty(),
+        Optional.empty(), Optional.empty(), Optional.empty());
+    assertEquals(1, live.get(FlowTaskStatus.skipped.name()).longValue());
+    assertEquals(1, live.get(FlowTaskStatus.invalid.name()).longValue());
+
+    assertTrue(activityRollupService.rebuildRollups());
+    assertEquals(live, activityRollupService.getStatusCounts(Optional.empty(), Optional.empty(),
+        Optional.empty(), Optional.empty()));
+  }
+
+  @Test
+  public void testRebuildActivityRollupsConflict() {
+    Date now = new Date();
+    assertNotNull(rollupService.startRebuild(now, new Date(now.getTime() - 3600000)));
+
+    assertEquals(HttpStatus.CONFLICT, activityController.rebuildActivityRollups().getStatusCode());
+    assertFalse(activityRollupService.rebuildRollups());
+  }
+
+  private FlowWorkflowActivityEntity createActivity(FlowTaskStatus status) {
+    FlowWorkflowActivityEntity activity = new FlowWorkflowActivityEntity();
+    activity.setWorkflowId("5d1a188af6ca2c00014c4314");
+    activity.setCreationDate(new Date(System.currentTimeMillis() - 60000));
+    activity.setTrigger(FlowTriggerEnum.manual);
+    activity.setStatus(status);
+    return activity;
+  }
+
   Optional<String> getOptionalString(String string) {
     return Optional.of(string);
   }
@@ -1,6 +1,11 @@
 package net.boomerangplatform.tests.controller;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -14,6 +19,8 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import net.boomerangplatform.Application;
 import net.boomerangplatform.MongoConfig;
 import net.boomerangplatform.controller.ExecutionController;
+import net.boomerangplatform.model.BatchExecutionItem;
+import net.boomerangplatform.model.BatchExecutionResult;
 import net.boomerangplatform.model.FlowActivity;
 import net.boomerangplatform.model.FlowExecutionRequest;
 import net.boomerangplatform.mongo.model.FlowTriggerEnum;
@@ -40,4 +47,38 @@ public class ExecutionControllerTests extends FlowTests {
     assertNull(activity);
   }
 
+  @Test
+  public void testExecuteWorkflows() {
+    List<BatchExecutionResult> results = executionController.executeWorkflows(Arrays.asList(
+        item("5d1a188af6ca2c00014c4314"), item("5d1a188af6ca2c00014c4369"), item("unknown")));
+
+    assertEquals(3, results.size());
+    assertEquals(BatchExecutionResult.Status.queued, results.get(0).getStatus());
+    assertNotNull(results.get(0).getActivityId());
+    assertEquals(BatchExecutionResult.Status.notActive, results.get(1).getStatus());
+    assertEquals(BatchExecutionResult.Status.notFound, results.get(2).getStatus());
+  }
+
+  @Test
+  public void testExecuteWorkflowsRepeatingKey() {
+    BatchExecutionItem first = item("5d1a188af6ca2c00014c4314");
+    first.setIdempotencyKey("release-1.0.0");
+    BatchExecutionItem second = item("5d1a188af6ca2c00014c4314");
+    second.setIdempotencyKey("release-1.0.0");
+
+    List<BatchExecutionResult> results =
+        executionController.executeWorkflows(Arrays.asList(first, second));
+
+    assertEquals(BatchExecutionResult.Status.queued, results.get(0).getStatus());
+    assertEquals(BatchExecutionResult.Status.duplicate, results.get(1).getStatus());
+    assertEquals(results.get(0).getActivityId(), results.get(1).getActivityId());
+  }
+
+  private BatchExecutionItem item(String workflowId) {
+    BatchExecutionItem item = new BatchExecutionItem();
+    item.setWorkflowId(workflowId);
+    item.setProperties(Collections.singletonMap("release", "1.0.0"));
+    return item;
+  }
+
 }
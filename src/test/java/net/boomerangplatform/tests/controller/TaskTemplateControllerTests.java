@@ -2,8 +2,11 @@ package net.boomerangplatform.tests.controller;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -43,12 +46,22 @@ public class TaskTemplateControllerTests extends FlowTests {
 
   @Test
   public void testGetAllTaskTemplates() {
-    List<FlowTaskTemplate> templates = controller.getAllTaskTemplates();
+    List<FlowTaskTemplate> templates = controller.getAllTaskTemplates(Optional.empty());
     assertEquals(9, templates.size());
     assertEquals(1, templates.get(0).getCurrentVersion());
 
   }
 
+  @Test
+  public void testGetAllTaskTemplatesWithFields() {
+    List<FlowTaskTemplate> templates =
+        controller.getAllTaskTemplates(Optional.of(Arrays.asList("id,name")));
+    assertEquals(9, templates.size());
+    assertNotNull(templates.get(0).getName());
+    assertNull(templates.get(0).getRevisions());
+    assertNull(templates.get(0).getDescription());
+  }
+
   @Test
   public void testInsertTaskTemplate() {
     FlowTaskTemplate entity = new FlowTaskTemplate();
@@ -2,6 +2,7 @@ package net.boomerangplatform.tests.controller;
 
 import static org.junit.Assert.assertEquals;
 import java.util.List;
+import java.util.Optional;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,7 +32,7 @@ public class TeamControllerTests extends FlowTests {
 
   @Test
   public void testGetTeams() {
-    assertEquals(2, controller.getTeams().size());
+    assertEquals(2, controller.getTeams(Optional.empty()).size());
   }
 
   @Test
@@ -41,7 +42,7 @@ public class TeamControllerTests extends FlowTests {
     request.setCreatedGroupId("5cedb53261a23a0001e4c1b6");
 
     controller.createCiTeam(request);
-    assertEquals(3, controller.getTeams().size());
+    assertEquals(3, controller.getTeams(Optional.empty()).size());
   }
 
   @Test
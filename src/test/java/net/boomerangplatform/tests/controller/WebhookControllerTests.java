@@ -0,0 +1,149 @@
+package net.boomerangplatform.tests.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.server.ResponseStatusException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.boomerangplatform.Application;
+import net.boomerangplatform.MongoConfig;
+import net.boomerangplatform.controller.WebhookController;
+import net.boomerangplatform.controller.advice.RateLimitExceptionAdvice;
+import net.boomerangplatform.exceptions.RateLimitExceededException;
+import net.boomerangplatform.model.FlowActivity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowEntity;
+import net.boomerangplatform.mongo.model.CoreProperty;
+import net.boomerangplatform.mongo.model.FlowTriggerEnum;
+import net.boomerangplatform.service.crud.WebhookService;
+import net.boomerangplatform.tests.FlowTests;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {Application.class, MongoConfig.class})
+@SpringBootTest
+@ActiveProfiles("local")
+public class WebhookControllerTests extends FlowTests {
+
+  /* Shared by workflow1.json, which is active, and workflow13.json, which is not. */
+  private static final String TOKEN =
+      "A5DF2F840C0DFF496D516B4F75BD947C9BC44756A8AE8571FC45FCB064323641";
+
+  @Autowired
+  private WebhookController webhookController;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Test
+  public void testTriggerWebhook() throws IOException {
+    ResponseEntity<FlowActivity> response = webhookController.triggerWebhook(Optional.of(TOKEN),
+        null, null, new ObjectMapper().readTree(
+            "{\"ref\": \"refs/heads/main\", \"repository\": {\"name\": \"flow\"},"
+                + " \"commits\": [{\"id\": \"abc123\"}]}"));
+
+    assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+    FlowActivity activity = response.getBody();
+    assertEquals("5d1a188af6ca2c00014c4314", activity.getWorkflowId());
+    assertEquals(FlowTriggerEnum.webhook, activity.getTrigger());
+
+    Map<String, String> properties = activity.getProperties().stream()
+        .collect(Collectors.toMap(CoreProperty::getKey, CoreProperty::getValue));
+    assertEquals("refs/heads/main", properties.get("ref"));
+    assertEquals("flow", properties.get("repository.name"));
+    assertEquals("abc123", properties.get("commits.0.id"));
+  }
+
+  @Test
+  public void testTriggerWebhookWithHeaderToken() throws IOException {
+    ResponseEntity<FlowActivity> response = webhookController.triggerWebhook(Optional.empty(),
+        TOKEN, null, new ObjectMapper().readTree("{\"properties\": {\"version\": \"1.0.0\"}}"));
+
+    assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+    CoreProperty property = response.getBody().getProperties().get(0);
+    assertEquals("version", property.getKey());
+    assertEquals("1.0.0", property.getValue());
+  }
+
+  @Test
+  public void testTriggerWebhookWithIdempotencyKey() throws IOException {
+    JsonNode payload = new ObjectMapper().readTree("{\"properties\": {\"version\": \"1.0.0\"}}");
+    ResponseEntity<FlowActivity> first =
+        webhookController.triggerWebhook(Optional.of(TOKEN), null, "delivery-1", payload);
+    ResponseEntity<FlowActivity> duplicate =
+        webhookController.triggerWebhook(Optional.of(TOKEN), null, "delivery-1", payload);
+    ResponseEntity<FlowActivity> other =
+        webhookController.triggerWebhook(Optional.of(TOKEN), null, "delivery-2", payload);
+
+    assertEquals(first.getBody().getId(), duplicate.getBody().getId());
+    assertNotEquals(first.getBody().getId(), other.getBody().getId());
+  }
+
+  @Test
+  public void testTriggerWebhookUnknownToken() {
+    try {
+      webhookController.triggerWebhook(Optional.of("unknown"), null, null, null);
+      fail("Expected an unknown token to be rejected");
+    } catch (ResponseStatusException e) {
+      assertEquals(HttpStatus.NOT_FOUND, e.getStatus());
+    }
+  }
+
+  @Test
+  public void testTriggerWebhookDisabledOnAnotherReplica() {
+    assertEquals(HttpStatus.ACCEPTED,
+        webhookController.triggerWebhook(Optional.of(TOKEN), null, null, null).getStatusCode());
+    mongoTemplate.updateFirst(new Query(Criteria.where("_id").is("5d1a188af6ca2c00014c4314")),
+        new Update().set("triggers.webhook.enable", false), FlowWorkflowEntity.class);
+
+    try {
+      webhookController.triggerWebhook(Optional.of(TOKEN), null, null, null);
+      fail("Expected a disabled webhook to be rejected");
+    } catch (ResponseStatusException e) {
+      assertEquals(HttpStatus.NOT_FOUND, e.getStatus());
+    }
+  }
+
+  @Test
+  public void testTriggerWebhookRateLimited() throws Exception {
+    WebhookService webhookService = mock(WebhookService.class);
+    when(webhookService.triggerWebhook(eq(TOKEN), any(), any()))
+        .thenThrow(new RateLimitExceededException("Rate limit exceeded for token", 7));
+    WebhookController controller = new WebhookController();
+    ReflectionTestUtils.setField(controller, "webhookService", webhookService);
+    MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller)
+        .setControllerAdvice(new RateLimitExceptionAdvice()).build();
+
+    mockMvc.perform(post("/flow/webhook/" + TOKEN).contentType(MediaType.APPLICATION_JSON)
+        .content("{\"ref\": \"refs/heads/main\"}")).andExpect(status().isTooManyRequests())
+        .andExpect(header().string(HttpHeaders.RETRY_AFTER, "7"));
+  }
+}
@@ -8,7 +8,9 @@ import static org.junit.Assert.assertTrue;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import org.junit.Test;
@@ -33,9 +35,12 @@ import net.boomerangplatform.controller.WorkflowController;
 import net.boomerangplatform.model.FlowWorkflowRevision;
 import net.boomerangplatform.model.GenerateTokenResponse;
 import net.boomerangplatform.model.RevisionResponse;
+import net.boomerangplatform.model.ScheduleDistribution;
+import net.boomerangplatform.model.ScheduleForecast;
 import net.boomerangplatform.model.WorkflowExport;
 import net.boomerangplatform.model.WorkflowSummary;
 import net.boomerangplatform.model.projectstormv5.RestConfig;
+import net.boomerangplatform.mongo.entity.FlowWorkflowActivityEntity;
 import net.boomerangplatform.mongo.entity.FlowWorkflowEntity;
 import net.boomerangplatform.mongo.entity.FlowWorkflowRevisionEntity;
 import net.boomerangplatform.mongo.model.Event;
@@ -46,6 +51,7 @@ import net.boomerangplatform.mongo.model.Triggers;
 import net.boomerangplatform.mongo.model.Webhook;
 import net.boomerangplatform.mongo.model.WorkflowConfiguration;
 import net.boomerangplatform.mongo.model.WorkflowStatus;
+import net.boomerangplatform.mongo.service.FlowWorkflowActivityService;
 import net.boomerangplatform.tests.FlowTests;
 
 @RunWith(SpringJUnit4ClassRunner.class)
@@ -59,6 +65,9 @@ public class WorkflowControllerTests extends FlowTests {
   @Autowired
   private WorkflowController controller;
 
+  @Autowired
+  private FlowWorkflowActivityService activityService;
+
   @Test
   public void testGetWorkflowLatestVersion() {
 
@@ -104,6 +113,24 @@ public class WorkflowControllerTests extends FlowTests {
     assertEquals(2L, revisionEntity.getVersion());
   }
 
+  @Test
+  public void testInsertWorkflowMovesLatestRevision() throws IOException {
+    File resource = new ClassPathResource("json/updated-model-v5.json").getFile();
+    String json = new String(Files.readAllBytes(resource.toPath()));
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    controller.insertWorkflow("5d1a188af6ca2c00014c4314",
+        objectMapper.readValue(json, FlowWorkflowRevision.class));
+    FlowWorkflowRevision latest = controller.insertWorkflow("5d1a188af6ca2c00014c4314",
+        objectMapper.readValue(json, FlowWorkflowRevision.class));
+
+    assertEquals(3L, latest.getVersion());
+    FlowWorkflowRevision fetched = controller.getWorkflowLatestVersion("5d1a188af6ca2c00014c4314");
+    assertEquals(latest.getId(), fetched.getId());
+    assertEquals(3L, controller.getWorkflowWithId("5d1a188af6ca2c00014c4314").getLatestVersion()
+        .longValue());
+  }
+
   @Test
   public void testUpdateWorkflow() {
     WorkflowSummary entity = new WorkflowSummary();
@@ -208,6 +235,7 @@ public class WorkflowControllerTests extends FlowTests {
             getOptionalOrder(Direction.ASC), getOptionalString("sort"), 0, 2147483647);
     assertEquals(1, response.size());
     assertEquals(1, response.get(0).getVersion());
+    assertEquals("Marcus Roy", response.get(0).getUserName());
   }
 
   @Test
@@ -292,6 +320,50 @@ public class WorkflowControllerTests extends FlowTests {
 
   }
 
+  @Test
+  public void testGetScheduleDistribution() {
+    scheduleHourly("5d1a188af6ca2c00014c4314");
+
+    long from = Instant.parse("2020-06-01T00:00:00Z").getEpochSecond();
+    ScheduleDistribution distribution = controller.getScheduleDistribution(Optional.of(from),
+        Optional.of(from + 86400), 3600);
+
+    assertEquals(24L, distribution.getTotalFires().longValue());
+    assertEquals(1, distribution.getPeakFires().intValue());
+    assertEquals(24, distribution.getBuckets().size());
+    assertEquals(from * 1000, distribution.getPeakTime().getTime());
+  }
+
+  @Test
+  public void testGetScheduleForecastCountsRunsStartedBeforeRange() {
+    scheduleHourly("5d1a188af6ca2c00014c4314");
+    FlowWorkflowActivityEntity activity = new FlowWorkflowActivityEntity();
+    activity.setWorkflowId("5d1a188af6ca2c00014c4314");
+    activity.setCreationDate(new Date());
+    activity.setDuration(7200000L);
+    activityService.saveWorkflowActivity(activity);
+
+    long from = Instant.parse("2020-06-01T00:00:00Z").getEpochSecond();
+    ScheduleForecast forecast = controller.getScheduleForecast(Optional.of(from),
+        Optional.of(from + 21600), 3600, true);
+
+    assertEquals(6L, forecast.getTotalStarts().longValue());
+    assertEquals(2, forecast.getBuckets().get(0).getRunning().intValue());
+    assertEquals(3, forecast.getBuckets().get(1).getRunning().intValue());
+    assertEquals(3, forecast.getPeakRunning().intValue());
+    assertEquals((from + 3600) * 1000, forecast.getPeakRunningTime().getTime());
+  }
+
+  private void scheduleHourly(String workflowId) {
+    Scheduler scheduler = new Scheduler();
+    scheduler.setEnable(true);
+    scheduler.setSchedule("0 0 * * * ?");
+    scheduler.setTimezone("UTC");
+    WorkflowSummary entity = controller.getWorkflowWithId(workflowId);
+    entity.getTriggers().setScheduler(scheduler);
+    controller.updateWorkflow(entity);
+  }
+
   Optional<String> getOptionalString(String string) {
     return Optional.of(string);
   }
@@ -0,0 +1,54 @@
+package net.boomerangplatform.tests.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.Date;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import net.boomerangplatform.Application;
+import net.boomerangplatform.MongoConfig;
+import net.boomerangplatform.mongo.service.FlowSchedulerFireService;
+import net.boomerangplatform.tests.FlowTests;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {Application.class, MongoConfig.class})
+@SpringBootTest
+@ActiveProfiles("local")
+@WithMockUser(roles = {"admin"})
+@WithUserDetails("mdroy@us.ibm.com")
+public class SchedulerFireServiceTests extends FlowTests {
+
+  private static final String WORKFLOW_ID = "5d1a188af6ca2c00014c4314";
+
+  @Autowired
+  private FlowSchedulerFireService fireService;
+
+  @Test
+  public void testClaimsEachFireOnce() {
+    Date fireTime = new Date(1590969600000L);
+
+    assertTrue(fireService.claimFire(WORKFLOW_ID, fireTime, "replica-1"));
+    assertFalse(fireService.claimFire(WORKFLOW_ID, fireTime, "replica-2"));
+    assertFalse(fireService.claimFire(WORKFLOW_ID, fireTime, "replica-1"));
+    assertTrue(fireService.claimFire("5d1a188af6ca2c00014c4369", fireTime, "replica-2"));
+  }
+
+  @Test
+  public void testReturnsLastFireTime() {
+    Date first = new Date(1590969600000L);
+    Date second = new Date(1590973200000L);
+    fireService.claimFire(WORKFLOW_ID, second, "replica-1");
+    fireService.claimFire(WORKFLOW_ID, first, "replica-2");
+
+    assertEquals(second, fireService.getLastFireTime(WORKFLOW_ID).get());
+    assertFalse(fireService.getLastFireTime("5d1a188af6ca2c00014c4369").isPresent());
+  }
+}
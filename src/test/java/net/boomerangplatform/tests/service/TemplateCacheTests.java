@@ -0,0 +1,61 @@
+package net.boomerangplatform.tests.service;
+
+import static org.junit.Assert.assertEquals;
+import java.util.ArrayList;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import net.boomerangplatform.Application;
+import net.boomerangplatform.MongoConfig;
+import net.boomerangplatform.mongo.entity.FlowTaskTemplateEntity;
+import net.boomerangplatform.mongo.model.Revision;
+import net.boomerangplatform.mongo.service.FlowTaskTemplateService;
+import net.boomerangplatform.tests.FlowTests;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {Application.class, MongoConfig.class})
+@SpringBootTest
+@ActiveProfiles("local")
+@WithMockUser(roles = {"admin"})
+@WithUserDetails("mdroy@us.ibm.com")
+@TestPropertySource(properties = "flow.cache.template.max-size=100")
+public class TemplateCacheTests extends FlowTests {
+
+  private static final String TEMPLATE_ID = "5bd9d0825a5df954ad5bb5c3";
+
+  @Autowired
+  private FlowTaskTemplateService templateService;
+
+  /* Fixtures are reloaded behind the cache before every test. */
+  @Before
+  public void evictFixtures() {
+    FlowTaskTemplateEntity template = templateService.getTaskTemplateWithId(TEMPLATE_ID);
+    templateService.updateTaskTemplate(template);
+  }
+
+  @Test
+  public void testCachedRevisionsAreCopies() {
+    Revision revision = templateService.getTemplateRevision(TEMPLATE_ID, 1);
+    String image = revision.getImage();
+    int arguments = revision.getArguments().size();
+    revision.setImage("changed");
+    revision.getArguments().add("changed");
+
+    Revision reread = templateService.getTemplateRevision(TEMPLATE_ID, 1);
+    assertEquals(image, reread.getImage());
+    assertEquals(arguments, reread.getArguments().size());
+
+    Revision latest = templateService.getLatestTemplateRevision(TEMPLATE_ID);
+    latest.setArguments(new ArrayList<>());
+    assertEquals(arguments,
+        templateService.getLatestTemplateRevision(TEMPLATE_ID).getArguments().size());
+  }
+}
@@ -0,0 +1,98 @@
+package net.boomerangplatform.tests.service;
+
+import static org.junit.Assert.assertEquals;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import net.boomerangplatform.Application;
+import net.boomerangplatform.MongoConfig;
+import net.boomerangplatform.mongo.entity.FlowWorkflowEntity;
+import net.boomerangplatform.mongo.entity.FlowWorkflowRevisionEntity;
+import net.boomerangplatform.mongo.service.FlowWorkflowService;
+import net.boomerangplatform.mongo.service.FlowWorkflowVersionService;
+import net.boomerangplatform.tests.FlowTests;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {Application.class, MongoConfig.class})
+@SpringBootTest
+@ActiveProfiles("local")
+@WithMockUser(roles = {"admin"})
+@WithUserDetails("mdroy@us.ibm.com")
+@TestPropertySource(properties = "flow.cache.workflow.max-size=100")
+public class WorkflowCacheTests extends FlowTests {
+
+  private static final String WORKFLOW_ID = "5d1a188af6ca2c00014c4314";
+
+  @Autowired
+  private FlowWorkflowService workflowService;
+
+  @Autowired
+  private FlowWorkflowVersionService versionService;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  /* Fixtures are reloaded behind the cache before every test. */
+  @Before
+  public void evictFixtures() {
+    workflowService.evictWorkflow(WORKFLOW_ID);
+  }
+
+  @Test
+  public void testServesCachedWorkflowUntilSavedOrEvicted() {
+    FlowWorkflowEntity workflow = workflowService.getWorkflow(WORKFLOW_ID);
+    String name = workflow.getName();
+    rename("Changed behind the cache");
+
+    assertEquals(name, workflowService.getWorkflow(WORKFLOW_ID).getName());
+
+    workflow.setName("Saved");
+    workflowService.saveWorkflow(workflow);
+    assertEquals("Saved", workflowService.getWorkflow(WORKFLOW_ID).getName());
+
+    rename("Changed again");
+    workflowService.evictWorkflow(WORKFLOW_ID);
+    assertEquals("Changed again", workflowService.getWorkflow(WORKFLOW_ID).getName());
+  }
+
+  @Test
+  public void testEvictsWorkflowWhenRevisionIsInserted() {
+    FlowWorkflowEntity workflow = workflowService.getWorkflow(WORKFLOW_ID);
+
+    FlowWorkflowRevisionEntity revision = new FlowWorkflowRevisionEntity();
+    revision.setWorkFlowId(WORKFLOW_ID);
+    revision = versionService.insertWorkflow(revision);
+
+    FlowWorkflowEntity updated = workflowService.getWorkflow(WORKFLOW_ID);
+    assertEquals(revision.getId(), updated.getLatestRevisionId());
+    assertEquals(revision.getVersion(), updated.getLatestVersion().longValue());
+    assertEquals(workflow.getName(), updated.getName());
+  }
+
+  @Test
+  public void testBulkAndTokenLookupsDoNotFillCache() {
+    workflowService.getWorkflows(Collections.singletonList(WORKFLOW_ID));
+    workflowService.findByWebhookToken("A5DF2F840C0DFF496D516B4F75BD947C9BC44756");
+    rename("Changed behind the cache");
+
+    assertEquals("Changed behind the cache", workflowService.getWorkflow(WORKFLOW_ID).getName());
+  }
+
+  private void rename(String name) {
+    mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(WORKFLOW_ID)),
+        new Update().set("name", name), FlowWorkflowEntity.class);
+  }
+}
@@ -0,0 +1,76 @@
+package net.boomerangplatform.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  private final CircuitBreaker breaker = new CircuitBreaker(4, 2, 0.5, 1000, clock::get);
+
+  @Test
+  public void testOpensOnceFailureRateReached() {
+    call(false);
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+    call(true);
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    assertFalse(breaker.tryAcquirePermission());
+  }
+
+  @Test
+  public void testOldOutcomesLeaveTheWindow() {
+    call(false);
+    call(false);
+    call(false);
+    call(true);
+    call(false);
+    call(false);
+    call(false);
+
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  public void testSingleTrialCallAfterOpenDuration() {
+    call(true);
+    call(true);
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+    clock.addAndGet(1000);
+    assertTrue(breaker.tryAcquirePermission());
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    assertFalse(breaker.tryAcquirePermission());
+
+    breaker.onSuccess();
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    assertTrue(breaker.tryAcquirePermission());
+  }
+
+  @Test
+  public void testFailedTrialReopens() {
+    call(true);
+    call(true);
+
+    clock.addAndGet(1000);
+    assertTrue(breaker.tryAcquirePermission());
+    breaker.onFailure();
+
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    clock.addAndGet(999);
+    assertFalse(breaker.tryAcquirePermission());
+  }
+
+  private void call(boolean failure) {
+    assertTrue(breaker.tryAcquirePermission());
+    if (failure) {
+      breaker.onFailure();
+    } else {
+      breaker.onSuccess();
+    }
+  }
+}
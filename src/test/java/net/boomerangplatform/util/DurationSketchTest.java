@@ -0,0 +1,69 @@
+package net.boomerangplatform.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class DurationSketchTest {
+
+  @Test
+  public void testQuantilesWithinRelativeAccuracy() {
+    DurationSketch sketch = new DurationSketch();
+    for (long value = 1; value <= 10000; value++) {
+      sketch.add(value);
+    }
+
+    assertEquals(10000, sketch.getCount());
+    assertWithinAccuracy(5000, sketch.getQuantile(0.5));
+    assertWithinAccuracy(9000, sketch.getQuantile(0.9));
+    assertWithinAccuracy(9900, sketch.getQuantile(0.99));
+  }
+
+  @Test
+  public void testMergeMatchesSingleSketch() {
+    DurationSketch combined = new DurationSketch();
+    DurationSketch first = new DurationSketch();
+    DurationSketch second = new DurationSketch();
+    for (long value = 0; value < 5000; value++) {
+      combined.add(value * 3);
+      if (value % 2 == 0) {
+        first.add(value * 3);
+      } else {
+        second.add(value * 3);
+      }
+    }
+
+    first.merge(second);
+
+    assertEquals(combined.getCount(), first.getCount());
+    assertEquals(combined.getQuantile(0.5), first.getQuantile(0.5));
+    assertEquals(combined.getQuantile(0.99), first.getQuantile(0.99));
+  }
+
+  @Test
+  public void testRestoreFromBins() {
+    DurationSketch sketch = new DurationSketch();
+    sketch.add(0);
+    sketch.add(120);
+    sketch.add(3500);
+
+    DurationSketch restored = DurationSketch.fromBins(sketch.getBins(), sketch.getZeroCount());
+
+    assertEquals(3, restored.getCount());
+    assertEquals(sketch.getQuantile(0.5), restored.getQuantile(0.5));
+    assertEquals(0, restored.getQuantile(0));
+  }
+
+  @Test
+  public void testEmptySketch() {
+    DurationSketch sketch = new DurationSketch();
+
+    assertTrue(sketch.isEmpty());
+    assertEquals(0, sketch.getQuantile(0.5));
+  }
+
+  private void assertWithinAccuracy(long expected, long actual) {
+    assertTrue(actual + " not within 1% of " + expected,
+        Math.abs(actual - expected) <= expected * DurationSketch.DEFAULT_RELATIVE_ACCURACY + 1);
+  }
+}
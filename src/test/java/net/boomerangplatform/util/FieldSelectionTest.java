@@ -0,0 +1,48 @@
+package net.boomerangplatform.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Optional;
+import org.junit.Test;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class FieldSelectionTest {
+
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  @Test
+  public void testNoFieldsSelectsEverything() {
+    FieldSelection selection = FieldSelection.of(Optional.empty());
+
+    assertTrue(selection.isAll());
+    assertTrue(selection.includes("steps.outputs"));
+  }
+
+  @Test
+  public void testIncludesParentsAndChildren() {
+    FieldSelection selection =
+        FieldSelection.of(Optional.of(Arrays.asList("id,steps.taskName", "workflows")));
+
+    assertTrue(selection.includes("id"));
+    assertTrue(selection.includes("steps"));
+    assertTrue(selection.includes("steps.taskName"));
+    assertTrue(selection.includes("workflows.templateUpgradesAvailable"));
+    assertFalse(selection.includes("steps.outputs"));
+    assertFalse(selection.includes("properties"));
+  }
+
+  @Test
+  public void testPruneNestedLists() throws IOException {
+    FieldSelection selection = FieldSelection.of(Optional.of(Arrays.asList("id,steps.taskName")));
+    JsonNode node = mapper.readTree(
+        "[{\"id\":\"1\",\"status\":\"completed\",\"steps\":[{\"taskName\":\"a\",\"outputs\":{}}]}]");
+
+    JsonNode pruned = selection.prune(node);
+
+    assertEquals("[{\"id\":\"1\",\"steps\":[{\"taskName\":\"a\"}]}]", pruned.toString());
+  }
+}
@@ -0,0 +1,42 @@
+package net.boomerangplatform.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class LogRangeTest {
+
+  @Test
+  public void testResolvesHeaderRanges() {
+    assertArrayEquals(new long[] {10, 19}, LogRange.fromHeader("bytes=10-19").resolve(100));
+    assertArrayEquals(new long[] {10, 99}, LogRange.fromHeader("bytes=10-").resolve(100));
+    assertArrayEquals(new long[] {90, 99}, LogRange.fromHeader("bytes=-10").resolve(100));
+    assertArrayEquals(new long[] {90, 99}, LogRange.fromHeader("bytes=90-500").resolve(100));
+    assertArrayEquals(new long[] {0, 9}, LogRange.fromHeader("bytes=-50").resolve(10));
+  }
+
+  @Test
+  public void testUnsatisfiableRange() {
+    assertNull(LogRange.fromHeader("bytes=100-").resolve(100));
+    assertNull(LogRange.fromHeader("bytes=-0").resolve(100));
+  }
+
+  @Test
+  public void testIgnoresUnsupportedHeaders() {
+    assertTrue(LogRange.fromHeader(null).isAll());
+    assertTrue(LogRange.fromHeader("bytes=0-10,20-30").isAll());
+    assertTrue(LogRange.fromHeader("lines=1-2").isAll());
+    assertTrue(LogRange.fromHeader("bytes=20-10").isAll());
+  }
+
+  @Test
+  public void testUpstreamHeader() {
+    assertEquals("bytes=10-19", LogRange.fromHeader("bytes=10-19").toHeader());
+    assertEquals("bytes=-10", LogRange.fromHeader("bytes=-10").toHeader());
+    assertEquals("bytes=5-", LogRange.offset(5).toHeader());
+    assertNull(LogRange.tail(5).toHeader());
+    assertNull(LogRange.all().toHeader());
+  }
+}
@@ -0,0 +1,38 @@
+package net.boomerangplatform.util;
+
+import static org.junit.Assert.assertEquals;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class LogTailTest {
+
+  private static final String LOG = "line 1\nline 2\nline 3\n";
+
+  @Test
+  public void testKeepsLastLines() throws IOException {
+    assertEquals("line 2\nline 3\n", tail(LOG, 2, 1024, 3));
+    assertEquals(LOG, tail(LOG, 5, 1024, 7));
+    assertEquals("b\nc", tail("a\nb\nc", 2, 1024, 1));
+    assertEquals("", tail("", 2, 1024, 1));
+  }
+
+  @Test
+  public void testCutsTailToMaxBytes() throws IOException {
+    assertEquals(" 2\nline 3\n", tail(LOG, 2, 10, 4));
+    assertEquals(" 2\nline 3\n", tail(LOG, 2, 10, 64));
+    assertEquals("3\n", tail(LOG, 1, 2, 5));
+  }
+
+  private String tail(String log, int lines, int maxBytes, int chunkSize) throws IOException {
+    LogTail tail = new LogTail(lines, maxBytes);
+    byte[] bytes = log.getBytes(StandardCharsets.UTF_8);
+    for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+      tail.write(bytes, offset, Math.min(chunkSize, bytes.length - offset));
+    }
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    tail.writeTo(output);
+    return new String(output.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,60 @@
+package net.boomerangplatform.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class TokenBucketTest {
+
+  private static final long SECOND = TimeUnit.SECONDS.toMicros(1);
+
+  private final TokenBucket bucket = new TokenBucket();
+
+  @Test
+  public void testAllowsBurstThenWaitsForRefill() {
+    RateLimit limit = RateLimit.parse("3/3");
+    long now = 10 * SECOND;
+
+    assertEquals(0, bucket.tryAcquire(limit, now));
+    assertEquals(0, bucket.tryAcquire(limit, now));
+    assertEquals(0, bucket.tryAcquire(limit, now));
+    assertEquals(SECOND, bucket.tryAcquire(limit, now));
+
+    assertEquals(0, bucket.tryAcquire(limit, now + SECOND));
+    assertTrue(bucket.tryAcquire(limit, now + SECOND) > 0);
+  }
+
+  @Test
+  public void testReleaseGivesTokenBack() {
+    RateLimit limit = RateLimit.parse("1");
+    long now = 10 * SECOND;
+
+    assertEquals(0, bucket.tryAcquire(limit, now));
+    assertTrue(bucket.tryAcquire(limit, now) > 0);
+
+    bucket.release(limit);
+    assertEquals(0, bucket.tryAcquire(limit, now));
+  }
+
+  @Test
+  public void testFullOnlyOnceRefilled() {
+    RateLimit limit = RateLimit.parse("1/86400");
+    long now = 10 * SECOND;
+
+    assertEquals(0, bucket.tryAcquire(limit, now));
+    assertFalse(bucket.isFull(now + TimeUnit.HOURS.toMicros(2)));
+    assertTrue(bucket.isFull(now + TimeUnit.DAYS.toMicros(1)));
+  }
+
+  @Test
+  public void testParse() {
+    assertEquals(100, RateLimit.parse(" 100 / 60 ").getPermits());
+    assertEquals(SECOND / 5, RateLimit.parse("5").getInterval());
+    assertNull(RateLimit.parse(""));
+    assertNull(RateLimit.parse("0/60"));
+    assertNull(RateLimit.parse("ten"));
+  }
+}